@@ -79,6 +79,7 @@ import org.graylog2.indexer.indices.ShardsInfo;
 import org.graylog2.indexer.indices.Template;
 import org.graylog2.indexer.indices.blocks.IndicesBlockStatus;
 import org.graylog2.indexer.indices.stats.IndexStatistics;
+import org.graylog2.indexer.ranges.IndexRangeStreamStats;
 import org.graylog2.indexer.searches.IndexRangeStats;
 import org.graylog2.plugin.Message;
 import org.graylog2.rest.resources.system.indexer.responses.IndexSetStats;
@@ -540,7 +541,9 @@ public class IndicesAdapterES7 implements IndicesAdapter {
         final FilterAggregationBuilder builder = AggregationBuilders.filter("agg", QueryBuilders.existsQuery(Message.FIELD_TIMESTAMP))
                 .subAggregation(AggregationBuilders.min("ts_min").field(Message.FIELD_TIMESTAMP))
                 .subAggregation(AggregationBuilders.max("ts_max").field(Message.FIELD_TIMESTAMP))
-                .subAggregation(AggregationBuilders.terms("streams").size(Integer.MAX_VALUE).field(Message.FIELD_STREAMS));
+                .subAggregation(AggregationBuilders.terms("streams").size(Integer.MAX_VALUE).field(Message.FIELD_STREAMS)
+                        .subAggregation(AggregationBuilders.min("stream_ts_min").field(Message.FIELD_TIMESTAMP))
+                        .subAggregation(AggregationBuilders.max("stream_ts_max").field(Message.FIELD_TIMESTAMP)));
         final SearchSourceBuilder query = SearchSourceBuilder.searchSource()
                 .aggregation(builder)
                 .size(0);
@@ -577,8 +580,16 @@ public class IndicesAdapterES7 implements IndicesAdapter {
         final List<String> streamIds = streams.getBuckets().stream()
                 .map(MultiBucketsAggregation.Bucket::getKeyAsString)
                 .collect(toList());
+        final Map<String, IndexRangeStreamStats> streamStats = new HashMap<>(streams.getBuckets().size());
+        for (Terms.Bucket bucket : streams.getBuckets()) {
+            final Min streamMin = bucket.getAggregations().get("stream_ts_min");
+            final Max streamMax = bucket.getAggregations().get("stream_ts_max");
+            streamStats.put(bucket.getKeyAsString(), IndexRangeStreamStats.create(bucket.getDocCount(),
+                    new DateTime(Double.valueOf(streamMin.getValue()).longValue(), DateTimeZone.UTC),
+                    new DateTime(Double.valueOf(streamMax.getValue()).longValue(), DateTimeZone.UTC)));
+        }
 
-        return IndexRangeStats.create(min, max, streamIds);
+        return IndexRangeStats.create(min, max, streamIds, streamStats);
     }
 
     @Override
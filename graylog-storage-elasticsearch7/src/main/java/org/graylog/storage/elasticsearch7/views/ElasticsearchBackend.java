@@ -324,9 +324,22 @@ public class ElasticsearchBackend implements QueryBackend<ESGeneratedQueryContex
                 .query(query)
                 .searchTypes(resultsMap)
                 .errors(new HashSet<>(queryContext.errors()))
+                .executionStats(QueryExecutionStats.builder()
+                        .indices(affectedIndices.size())
+                        .backendTook(backendTook(results))
+                        .build())
                 .build();
     }
 
+    // The search requests of a query run in parallel, so the slowest one determines the time spent in the backend
+    private static long backendTook(List<MultiSearchResponse.Item> results) {
+        return results.stream()
+                .filter(item -> !item.isFailure() && item.getResponse() != null && item.getResponse().getTook() != null)
+                .mapToLong(item -> item.getResponse().getTook().millis())
+                .max()
+                .orElse(0L);
+    }
+
     @NotNull
     private static List<MultiSearchResponse.Item> getResults(PlainActionFuture<MultiSearchResponse> mSearchFuture,
                                                              final Integer cancelAfterSeconds,
@@ -48,6 +48,7 @@ import org.joda.time.DateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -96,7 +97,9 @@ public class ESMessageList implements ESSearchTypeHandler<MessageList> {
         final Set<String> effectiveStreamIds = query.effectiveStreams(messageList);
 
         if (!messageList.fields().isEmpty()) {
-            searchSourceBuilder.fetchSource(messageList.fields().toArray(new String[0]), new String[0]);
+            // Decorators might read fields which are not displayed, fetch the whole source if we cannot tell which
+            decoratorProcessor.requiredFields(messageList.decorators())
+                    .ifPresent(decoratorFields -> searchSourceBuilder.fetchSource(fetchedFields(messageList, decoratorFields), new String[0]));
         }
 
         List<Sort> sorts = firstNonNull(messageList.sort(), Collections.singletonList(Sort.create(Message.FIELD_TIMESTAMP, Sort.Order.DESC)));
@@ -125,6 +128,13 @@ public class ESMessageList implements ESSearchTypeHandler<MessageList> {
         });
     }
 
+    private static String[] fetchedFields(MessageList messageList, Set<String> decoratorFields) {
+        final Set<String> fields = new LinkedHashSet<>(messageList.fields());
+        fields.addAll(MessageList.REQUIRED_FIELDS);
+        fields.addAll(decoratorFields);
+        return fields.toArray(new String[0]);
+    }
+
     private static Optional<Sort> findSort(List<Sort> sorts, String search) {
         return sorts.stream().filter(s -> s.field().equals(search)).findFirst();
     }
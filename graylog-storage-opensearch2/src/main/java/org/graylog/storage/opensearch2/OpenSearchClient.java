@@ -127,6 +127,31 @@ public class OpenSearchClient {
     }
 
     public PlainActionFuture<MultiSearchResponse> cancellableMsearch(final List<SearchRequest> searchRequests) {
+        return cancellableMsearch(searchRequests, new PlainActionFuture<>());
+    }
+
+    /**
+     * Like {@link #cancellableMsearch(List)}, but runs the given callback as soon as the response or a failure has
+     * been received, before the returned future completes.
+     */
+    public PlainActionFuture<MultiSearchResponse> cancellableMsearch(final List<SearchRequest> searchRequests, final Runnable onCompletion) {
+        return cancellableMsearch(searchRequests, new PlainActionFuture<>() {
+            @Override
+            public void onResponse(MultiSearchResponse result) {
+                onCompletion.run();
+                super.onResponse(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                onCompletion.run();
+                super.onFailure(e);
+            }
+        });
+    }
+
+    private PlainActionFuture<MultiSearchResponse> cancellableMsearch(final List<SearchRequest> searchRequests,
+                                                                      final PlainActionFuture<MultiSearchResponse> future) {
         var multiSearchRequest = new MultiSearchRequest();
 
         indexerMaxConcurrentSearches.ifPresent(multiSearchRequest::maxConcurrentSearchRequests);
@@ -135,7 +160,6 @@ public class OpenSearchClient {
 
         searchRequests.forEach(multiSearchRequest::add);
 
-        final PlainActionFuture<MultiSearchResponse> future = new PlainActionFuture<>();
         client.msearchAsync(multiSearchRequest, requestOptions(), future);
 
         return future;
@@ -0,0 +1,392 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.storage.opensearch2.views;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.errors.SearchTypeError;
+import org.graylog.plugins.views.search.errors.SearchTypeErrorParser;
+import org.graylog.plugins.views.search.searchtypes.MessageList;
+import org.graylog.plugins.views.search.searchtypes.pivot.Pivot;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResult;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResultMerger;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Time;
+import org.graylog.shaded.opensearch2.org.apache.lucene.search.TotalHits;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.MultiSearchResponse;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.SearchRequest;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.SearchResponse;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.ShardSearchFailure;
+import org.graylog.shaded.opensearch2.org.opensearch.action.support.PlainActionFuture;
+import org.graylog.shaded.opensearch2.org.opensearch.search.SearchHit;
+import org.graylog.shaded.opensearch2.org.opensearch.search.SearchHits;
+import org.graylog.shaded.opensearch2.org.opensearch.search.builder.SearchSourceBuilder;
+import org.graylog.shaded.opensearch2.org.opensearch.search.internal.InternalSearchResponse;
+import org.graylog.shaded.opensearch2.org.opensearch.search.sort.SortBuilder;
+import org.graylog.shaded.opensearch2.org.opensearch.search.sort.SortOrder;
+import org.graylog.storage.opensearch2.OpenSearchClient;
+import org.graylog.storage.opensearch2.views.searchtypes.OSSearchTypeHandler;
+import org.graylog2.indexer.ElasticsearchException;
+import org.graylog2.indexer.IndexSetRegistry;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Splits the search request of a search type which spans the indices of several index sets into one request per
+ * index set and merges their responses.
+ * <p>
+ * The requests run concurrently, each of them has to respond within the configured timeout. If an index set does not
+ * respond in time or fails, the responses of the other index sets are merged nevertheless and an error naming the
+ * missing index set is added to the query. The number of concurrent requests per index set is limited on this node,
+ * requests beyond the limit fail right away for that index set.
+ * <p>
+ * Only search types whose results can be merged are split: message lists, whose hits are merged by their sort values,
+ * and pivots without sorting which are at most grouped by time and only have series which can be merged.
+ */
+@Singleton
+public class IndexSetScatterGather {
+    private static final Logger LOG = LoggerFactory.getLogger(IndexSetScatterGather.class);
+    private static final String UNKNOWN_INDEX_SET = "unknown";
+
+    private final boolean enabled;
+    private final long timeoutNanos;
+    private final int maxConcurrentRequestsPerIndexSet;
+    private final OpenSearchClient client;
+    private final IndexSetRegistry indexSetRegistry;
+    private final MetricRegistry metricRegistry;
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+    @Inject
+    public IndexSetScatterGather(@Named("search_scatter_gather_enabled") boolean enabled,
+                                 @Named("search_scatter_gather_timeout") Duration timeout,
+                                 @Named("search_scatter_gather_max_concurrent_requests_per_index_set") int maxConcurrentRequestsPerIndexSet,
+                                 OpenSearchClient client,
+                                 IndexSetRegistry indexSetRegistry,
+                                 MetricRegistry metricRegistry) {
+        this.enabled = enabled;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeout.toMilliseconds());
+        this.maxConcurrentRequestsPerIndexSet = maxConcurrentRequestsPerIndexSet;
+        this.client = client;
+        this.indexSetRegistry = indexSetRegistry;
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Sends the request of a search type as one request per index set.
+     *
+     * @return the running requests or an empty optional if the request of the search type has to be sent as it is
+     */
+    public Optional<Scatter> scatter(SearchType searchType, SearchRequest request) {
+        if (!enabled || !isSplittable(searchType)) {
+            return Optional.empty();
+        }
+        final Map<String, List<String>> indicesByIndexSet = indicesByIndexSet(request.indices());
+        if (indicesByIndexSet.size() < 2) {
+            return Optional.empty();
+        }
+
+        final SearchSourceBuilder source = searchType instanceof MessageList ? topHitsSource(request.source()) : request.source();
+        final long deadline = System.nanoTime() + timeoutNanos;
+        final List<Group> groups = new ArrayList<>(indicesByIndexSet.size());
+        indicesByIndexSet.forEach((indexSetId, indices) -> {
+            final SearchRequest groupRequest = new SearchRequest(request)
+                    .indices(indices.toArray(new String[0]))
+                    .source(source);
+            groups.add(new Group(indexSetId, send(indexSetId, groupRequest)));
+        });
+        return Optional.of(new Scatter(searchType, request.source(), groups, deadline));
+    }
+
+    /**
+     * Waits for the responses of the index sets and merges them into the result of the search type. Errors of index
+     * sets which failed or did not respond in time are added to the query context.
+     *
+     * @return the merged result or an empty optional if no index set responded
+     */
+    public Optional<SearchType.Result> gather(SearchJob job,
+                                              Query query,
+                                              Scatter scatter,
+                                              OSSearchTypeHandler<? extends SearchType> handler,
+                                              OSGeneratedQueryContext queryContext) {
+        final SearchType searchType = scatter.searchType();
+        final List<SearchResponse> responses = new ArrayList<>();
+        for (Group group : scatter.groups()) {
+            final Optional<SearchResponse> response = await(query, searchType, group, scatter.deadline(), queryContext);
+            response.ifPresent(responses::add);
+        }
+        scatter.responses().addAll(responses);
+        if (responses.isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (searchType instanceof Pivot pivot) {
+            final List<PivotResult> results = new ArrayList<>(responses.size());
+            for (SearchResponse response : responses) {
+                if (handler.extractResult(job, query, searchType, response, queryContext) instanceof PivotResult result) {
+                    results.add(result);
+                }
+            }
+            if (results.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(PivotResultMerger.merge(pivot, effectiveTimerange(results), results));
+        }
+        return Optional.ofNullable(handler.extractResult(job, query, searchType, mergeHits(scatter.source(), responses), queryContext));
+    }
+
+    private Optional<SearchResponse> await(Query query, SearchType searchType, Group group, long deadline, OSGeneratedQueryContext queryContext) {
+        final String indexSetTitle = indexSetTitle(group.indexSetId());
+        try {
+            final MultiSearchResponse response = group.future().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            final MultiSearchResponse.Item item = response.getResponses()[0];
+            final Optional<ElasticsearchException> failure = OpenSearchBackend.checkForFailedShards(item);
+            if (failure.isPresent()) {
+                queryContext.addError(SearchTypeErrorParser.parse(query, searchType.id(),
+                        new ElasticsearchException("Searching index set <" + indexSetTitle + "> failed, results are incomplete: ", failure.get())));
+                return Optional.empty();
+            }
+            return Optional.of(item.getResponse());
+        } catch (TimeoutException e) {
+            group.future().cancel(true);
+            metricRegistry.meter(name(IndexSetScatterGather.class, group.indexSetId(), "timeouts")).mark();
+            LOG.debug("Index set <{}> did not respond in time for search type <{}>", indexSetTitle, searchType.id());
+            queryContext.addError(new SearchTypeError(query, searchType.id(),
+                    "Index set <" + indexSetTitle + "> did not respond in time, results are incomplete."));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            group.future().cancel(true);
+            queryContext.addError(new SearchTypeError(query, searchType.id(), e));
+        } catch (ExecutionException e) {
+            queryContext.addError(SearchTypeErrorParser.parse(query, searchType.id(),
+                    new ElasticsearchException("Searching index set <" + indexSetTitle + "> failed, results are incomplete: ", e.getCause())));
+        }
+        return Optional.empty();
+    }
+
+    private PlainActionFuture<MultiSearchResponse> send(String indexSetId, SearchRequest request) {
+        final Semaphore semaphore = permits.computeIfAbsent(indexSetId, id -> new Semaphore(maxConcurrentRequestsPerIndexSet));
+        // never wait for a permit, the search threads are shared with all other searches
+        if (!semaphore.tryAcquire()) {
+            metricRegistry.meter(name(IndexSetScatterGather.class, indexSetId, "rejections")).mark();
+            return failed(new ElasticsearchException("Too many concurrent searches on index set <" + indexSetTitle(indexSetId) + ">"));
+        }
+
+        final Timer.Context latency = metricRegistry.timer(name(IndexSetScatterGather.class, indexSetId, "latency")).time();
+        try {
+            return client.cancellableMsearch(List.of(request), () -> {
+                latency.stop();
+                semaphore.release();
+            });
+        } catch (RuntimeException e) {
+            semaphore.release();
+            return failed(e);
+        }
+    }
+
+    private static PlainActionFuture<MultiSearchResponse> failed(Exception e) {
+        final PlainActionFuture<MultiSearchResponse> future = new PlainActionFuture<>();
+        future.onFailure(e);
+        return future;
+    }
+
+    private Map<String, List<String>> indicesByIndexSet(String[] indices) {
+        final Map<String, List<String>> indicesByIndexSet = new LinkedHashMap<>();
+        for (String index : indices) {
+            final String indexSetId = indexSetRegistry.getForIndex(index)
+                    .map(indexSet -> indexSet.getConfig().id())
+                    .orElse(UNKNOWN_INDEX_SET);
+            indicesByIndexSet.computeIfAbsent(indexSetId, id -> new ArrayList<>()).add(index);
+        }
+        return indicesByIndexSet;
+    }
+
+    private String indexSetTitle(String indexSetId) {
+        return indexSetRegistry.get(indexSetId)
+                .map(indexSet -> indexSet.getConfig().title())
+                .orElse(indexSetId);
+    }
+
+    @VisibleForTesting
+    static boolean isSplittable(SearchType searchType) {
+        if (searchType instanceof MessageList) {
+            return true;
+        }
+        return searchType instanceof Pivot pivot
+                && pivot.rowGroups().size() <= 1
+                && pivot.rowGroups().stream().allMatch(Time.class::isInstance)
+                && pivot.columnGroups().isEmpty()
+                && pivot.sort().isEmpty()
+                && PivotResultMerger.hasMergeableSeries(pivot);
+    }
+
+    // Every index set has to return all hits up to the end of the requested page, the page is cut from the merged hits
+    private static SearchSourceBuilder topHitsSource(SearchSourceBuilder source) {
+        return source.shallowCopy()
+                .from(0)
+                .size(Math.max(0, source.from()) + Math.max(0, source.size()));
+    }
+
+    @VisibleForTesting
+    static SearchResponse mergeHits(SearchSourceBuilder source, List<SearchResponse> responses) {
+        final List<SortOrder> sortOrders = source.sorts() == null ? List.of() : source.sorts().stream().map(SortBuilder::order).toList();
+        final List<SearchHit> hits = new ArrayList<>();
+        long totalHits = 0;
+        TotalHits.Relation totalHitsRelation = TotalHits.Relation.EQUAL_TO;
+        int totalShards = 0;
+        int successfulShards = 0;
+        int skippedShards = 0;
+        long took = 0;
+        boolean timedOut = false;
+        final List<ShardSearchFailure> shardFailures = new ArrayList<>();
+        for (SearchResponse response : responses) {
+            hits.addAll(Arrays.asList(response.getHits().getHits()));
+            if (response.getHits().getTotalHits() != null) {
+                totalHits += response.getHits().getTotalHits().value;
+                // the sum is a lower bound as soon as one of the index sets reports one
+                if (response.getHits().getTotalHits().relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO) {
+                    totalHitsRelation = TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO;
+                }
+            }
+            totalShards += response.getTotalShards();
+            successfulShards += response.getSuccessfulShards();
+            skippedShards += response.getSkippedShards();
+            took = Math.max(took, response.getTook().millis());
+            timedOut |= response.isTimedOut();
+            shardFailures.addAll(Arrays.asList(response.getShardFailures()));
+        }
+
+        hits.sort(hitOrder(sortOrders));
+        final int from = Math.min(hits.size(), Math.max(0, source.from()));
+        final int to = Math.min(hits.size(), from + Math.max(0, source.size()));
+        final SearchHits searchHits = new SearchHits(hits.subList(from, to).toArray(new SearchHit[0]),
+                new TotalHits(totalHits, totalHitsRelation), Float.NaN);
+        return new SearchResponse(new InternalSearchResponse(searchHits, null, null, null, timedOut, null, 1),
+                null, totalShards, successfulShards, skippedShards, took,
+                shardFailures.toArray(new ShardSearchFailure[0]), SearchResponse.Clusters.EMPTY);
+    }
+
+    private static Comparator<SearchHit> hitOrder(List<SortOrder> sortOrders) {
+        return (first, second) -> {
+            final Object[] firstValues = first.getSortValues();
+            final Object[] secondValues = second.getSortValues();
+            for (int i = 0; i < Math.min(sortOrders.size(), Math.min(firstValues.length, secondValues.length)); i++) {
+                final int result = compareSortValues(firstValues[i], secondValues[i]);
+                if (result != 0) {
+                    return sortOrders.get(i) == SortOrder.DESC ? -result : result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private static int compareSortValues(Object first, Object second) {
+        if (first == null || second == null) {
+            return first == null ? (second == null ? 0 : -1) : 1;
+        }
+        if (first instanceof Number firstNumber && second instanceof Number secondNumber) {
+            if (isIntegral(firstNumber) && isIntegral(secondNumber)) {
+                return Long.compare(firstNumber.longValue(), secondNumber.longValue());
+            }
+            return Double.compare(firstNumber.doubleValue(), secondNumber.doubleValue());
+        }
+        return first.toString().compareTo(second.toString());
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+
+    private static AbsoluteRange effectiveTimerange(List<PivotResult> results) {
+        return results.stream()
+                .map(PivotResult::effectiveTimerange)
+                .reduce((first, second) -> AbsoluteRange.create(
+                        first.from().isBefore(second.from()) ? first.from() : second.from(),
+                        first.to().isAfter(second.to()) ? first.to() : second.to()))
+                .orElseThrow();
+    }
+
+    private record Group(String indexSetId, PlainActionFuture<MultiSearchResponse> future) {}
+
+    /**
+     * The requests of a search type which have been sent to the index sets it spans.
+     */
+    public static class Scatter {
+        private final SearchType searchType;
+        private final SearchSourceBuilder source;
+        private final List<Group> groups;
+        private final long deadline;
+        private final List<SearchResponse> responses = new ArrayList<>();
+
+        private Scatter(SearchType searchType, SearchSourceBuilder source, List<Group> groups, long deadline) {
+            this.searchType = searchType;
+            this.source = source;
+            this.groups = groups;
+            this.deadline = deadline;
+        }
+
+        SearchType searchType() {
+            return searchType;
+        }
+
+        SearchSourceBuilder source() {
+            return source;
+        }
+
+        List<Group> groups() {
+            return groups;
+        }
+
+        long deadline() {
+            return deadline;
+        }
+
+        /**
+         * Returns the responses of the index sets which responded in time, once they have been gathered.
+         */
+        public List<SearchResponse> responses() {
+            return responses;
+        }
+
+        public void cancel() {
+            groups.forEach(group -> group.future().cancel(true));
+        }
+    }
+}
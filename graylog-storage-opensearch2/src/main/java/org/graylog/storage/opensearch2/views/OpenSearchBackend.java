@@ -68,6 +68,7 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -76,6 +77,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -90,6 +92,7 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
     private final boolean allowLeadingWildcard;
     private final StatsCollector<QueryExecutionStats> executionStatsCollector;
     private final StreamService streamService;
+    private final IndexSetScatterGather scatterGather;
 
     @Inject
     public OpenSearchBackend(Map<String, Provider<OSSearchTypeHandler<? extends SearchType>>> elasticsearchSearchTypeHandlers,
@@ -99,6 +102,7 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
                              UsedSearchFiltersToQueryStringsMapper usedSearchFiltersToQueryStringsMapper,
                              StatsCollector<QueryExecutionStats> executionStatsCollector,
                              StreamService streamService,
+                             IndexSetScatterGather scatterGather,
                              @Named("allow_leading_wildcard_searches") boolean allowLeadingWildcard) {
         this.openSearchSearchTypeHandlers = elasticsearchSearchTypeHandlers;
         this.client = client;
@@ -108,6 +112,7 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
         this.usedSearchFiltersToQueryStringsMapper = usedSearchFiltersToQueryStringsMapper;
         this.executionStatsCollector = executionStatsCollector;
         this.streamService = streamService;
+        this.scatterGather = scatterGather;
         this.allowLeadingWildcard = allowLeadingWildcard;
     }
 
@@ -253,11 +258,13 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
         final Set<String> affectedIndices = indexLookup.indexNamesForStreamsInTimeRange(query.usedStreamIds(), query.timerange());
 
         final Map<String, SearchSourceBuilder> searchTypeQueries = queryContext.searchTypeQueries();
-        final List<String> searchTypeIds = new ArrayList<>(searchTypeQueries.keySet());
+        final List<String> searchTypeIds = new ArrayList<>();
+        final List<SearchRequest> searches = new ArrayList<>();
+        // Search types spanning several index sets might be sent as one request per index set instead
+        final Map<String, IndexSetScatterGather.Scatter> scatteredSearchTypes = new HashMap<>();
 
-        final List<SearchRequest> searches = searchTypeIds
-                .stream()
-                .map(searchTypeId -> {
+        searchTypeQueries.keySet()
+                .forEach(searchTypeId -> {
                     final Set<String> affectedIndicesForSearchType = query.searchTypes().stream()
                             .filter(s -> s.id().equalsIgnoreCase(searchTypeId)).findFirst()
                             .flatMap(searchType -> {
@@ -278,14 +285,62 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
                     if (!SearchJob.NO_CANCELLATION.equals(job.getCancelAfterSeconds())) {
                         searchRequest.setCancelAfterTimeInterval(new TimeValue(job.getCancelAfterSeconds(), TimeUnit.SECONDS));
                     }
-                    return searchRequest;
-                })
-                .toList();
 
-        final PlainActionFuture<MultiSearchResponse> mSearchFuture = client.cancellableMsearch(searches);
-        job.setQueryExecutionFuture(query.id(), mSearchFuture);
-        final List<MultiSearchResponse.Item> results = getResults(mSearchFuture, searches.size());
+                    final Optional<IndexSetScatterGather.Scatter> scatter = query.searchTypes().stream()
+                            .filter(s -> s.id().equalsIgnoreCase(searchTypeId)).findFirst()
+                            .flatMap(searchType -> scatterGather.scatter(searchType, searchRequest));
+                    if (scatter.isPresent()) {
+                        scatteredSearchTypes.put(searchTypeId, scatter.get());
+                    } else {
+                        searchTypeIds.add(searchTypeId);
+                        searches.add(searchRequest);
+                    }
+                });
+
+        final List<MultiSearchResponse.Item> results;
+        final CompletableFuture<Void> scatterExecution = scatteredSearchTypes.isEmpty() ? null : new CompletableFuture<>();
+        if (scatterExecution == null) {
+            final PlainActionFuture<MultiSearchResponse> mSearchFuture = client.cancellableMsearch(searches);
+            job.setQueryExecutionFuture(query.id(), mSearchFuture);
+            results = getResults(mSearchFuture, searches.size());
+        } else {
+            final PlainActionFuture<MultiSearchResponse> mSearchFuture = searches.isEmpty() ? null : client.cancellableMsearch(searches);
+            scatterExecution.whenComplete((ignored, throwable) -> {
+                if (scatterExecution.isCancelled()) {
+                    Optional.ofNullable(mSearchFuture).ifPresent(future -> future.cancel(true));
+                    scatteredSearchTypes.values().forEach(IndexSetScatterGather.Scatter::cancel);
+                }
+            });
+            job.setQueryExecutionFuture(query.id(), scatterExecution);
+            results = mSearchFuture == null ? List.of() : getResults(mSearchFuture, searches.size());
+        }
+
+        try {
+            extractResults(job, query, queryContext, resultsMap, searchTypeIds, results, scatteredSearchTypes);
+        } finally {
+            // the job is not done before the scattered search types are gathered
+            Optional.ofNullable(scatterExecution).ifPresent(execution -> execution.complete(null));
+        }
+
+        LOG.debug("Query {} ran for job {}", query.id(), job.getId());
+        return QueryResult.builder()
+                .query(query)
+                .searchTypes(resultsMap)
+                .errors(new HashSet<>(queryContext.errors()))
+                .executionStats(QueryExecutionStats.builder()
+                        .indices(affectedIndices.size())
+                        .backendTook(Math.max(backendTook(results), scatteredBackendTook(scatteredSearchTypes.values())))
+                        .build())
+                .build();
+    }
 
+    private void extractResults(SearchJob job,
+                                Query query,
+                                OSGeneratedQueryContext queryContext,
+                                Map<String, SearchType.Result> resultsMap,
+                                List<String> searchTypeIds,
+                                List<MultiSearchResponse.Item> results,
+                                Map<String, IndexSetScatterGather.Scatter> scatteredSearchTypes) {
         for (SearchType searchType : query.searchTypes()) {
             final String searchTypeId = searchType.id();
             final Provider<OSSearchTypeHandler<? extends SearchType>> handlerProvider = openSearchSearchTypeHandlers.get(searchType.type());
@@ -304,6 +359,17 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
             // we create a new instance because some search type handlers might need to track information between generating the query and
             // processing its result, such as aggregations, which depend on the name and type
             final OSSearchTypeHandler<? extends SearchType> handler = handlerProvider.get();
+            final IndexSetScatterGather.Scatter scatter = scatteredSearchTypes.get(searchTypeId);
+            if (scatter != null) {
+                try {
+                    scatterGather.gather(job, query, scatter, handler, queryContext)
+                            .ifPresent(searchTypeResult -> resultsMap.put(searchTypeId, searchTypeResult));
+                } catch (Exception e) {
+                    LOG.warn("Unable to extract results: ", e);
+                    queryContext.addError(new SearchTypeError(query, searchTypeId, e));
+                }
+                continue;
+            }
             final int searchTypeIndex = searchTypeIds.indexOf(searchTypeId);
             final MultiSearchResponse.Item multiSearchResponse = results.get(searchTypeIndex);
             if (multiSearchResponse.isFailure()) {
@@ -325,13 +391,24 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
 
             }
         }
+    }
 
-        LOG.debug("Query {} ran for job {}", query.id(), job.getId());
-        return QueryResult.builder()
-                .query(query)
-                .searchTypes(resultsMap)
-                .errors(new HashSet<>(queryContext.errors()))
-                .build();
+    // The search requests of a query run in parallel, so the slowest one determines the time spent in the backend
+    private static long backendTook(List<MultiSearchResponse.Item> results) {
+        return results.stream()
+                .filter(item -> !item.isFailure() && item.getResponse() != null && item.getResponse().getTook() != null)
+                .mapToLong(item -> item.getResponse().getTook().millis())
+                .max()
+                .orElse(0L);
+    }
+
+    private static long scatteredBackendTook(Collection<IndexSetScatterGather.Scatter> scatters) {
+        return scatters.stream()
+                .flatMap(scatter -> scatter.responses().stream())
+                .filter(response -> response.getTook() != null)
+                .mapToLong(response -> response.getTook().millis())
+                .max()
+                .orElse(0L);
     }
 
     @NotNull
@@ -344,7 +421,7 @@ public class OpenSearchBackend implements QueryBackend<OSGeneratedQueryContext>
         }
     }
 
-    private Optional<ElasticsearchException> checkForFailedShards(MultiSearchResponse.Item multiSearchResponse) {
+    static Optional<ElasticsearchException> checkForFailedShards(MultiSearchResponse.Item multiSearchResponse) {
         if (multiSearchResponse.isFailure()) {
             return Optional.of(new ElasticsearchException(multiSearchResponse.getFailureMessage(), multiSearchResponse.getFailure()));
         }
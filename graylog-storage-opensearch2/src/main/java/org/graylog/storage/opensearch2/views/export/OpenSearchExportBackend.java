@@ -16,11 +16,19 @@
  */
 package org.graylog.storage.opensearch2.views.export;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
+import jakarta.inject.Provider;
 import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
 import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
 import org.graylog.plugins.views.search.export.ExportBackend;
+import org.graylog.plugins.views.search.export.ExportException;
 import org.graylog.plugins.views.search.export.ExportMessagesCommand;
 import org.graylog.plugins.views.search.export.SimpleMessage;
 import org.graylog.plugins.views.search.export.SimpleMessageChunk;
@@ -37,17 +45,24 @@ import org.graylog.shaded.opensearch2.org.opensearch.search.builder.SearchSource
 import org.graylog.storage.opensearch2.TimeRangeQueryFactory;
 import org.graylog2.database.filtering.AttributeFilter;
 import org.graylog2.plugin.Message;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import static com.codahale.metrics.MetricRegistry.name;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toCollection;
 import static org.graylog.shaded.opensearch2.org.opensearch.index.query.QueryBuilders.boolQuery;
@@ -58,31 +73,55 @@ import static org.graylog.shaded.opensearch2.org.opensearch.index.query.QueryBui
 @SuppressWarnings("rawtypes")
 public class OpenSearchExportBackend implements ExportBackend {
     private static final Logger LOG = LoggerFactory.getLogger(OpenSearchExportBackend.class);
+    // Number of chunks each slice reader may fetch ahead of the publishing thread
+    private static final int SLICE_BUFFER_CHUNKS = 2;
 
     private final IndexLookup indexLookup;
-    private final RequestStrategy requestStrategy;
+    private final Provider<RequestStrategy> requestStrategyProvider;
     private final boolean allowLeadingWildcard;
+    private final int parallelSlices;
 
     private final UsedSearchFiltersToQueryStringsMapper usedSearchFiltersToQueryStringsMapper;
 
+    private final Timer sliceRequestTime;
+    private final Meter sliceMessages;
+    private final Counter activeSlices;
+
     @Inject
     public OpenSearchExportBackend(IndexLookup indexLookup,
-                                   RequestStrategy requestStrategy,
+                                   Provider<RequestStrategy> requestStrategyProvider,
                                    @Named("allow_leading_wildcard_searches") boolean allowLeadingWildcard,
-                                   final UsedSearchFiltersToQueryStringsMapper usedSearchFiltersToQueryStringsMapper) {
+                                   final UsedSearchFiltersToQueryStringsMapper usedSearchFiltersToQueryStringsMapper,
+                                   @Named("export_parallel_slices") int parallelSlices,
+                                   MetricRegistry metricRegistry) {
         this.indexLookup = indexLookup;
-        this.requestStrategy = requestStrategy;
+        this.requestStrategyProvider = requestStrategyProvider;
         this.allowLeadingWildcard = allowLeadingWildcard;
         this.usedSearchFiltersToQueryStringsMapper = usedSearchFiltersToQueryStringsMapper;
+        this.parallelSlices = parallelSlices;
+        this.sliceRequestTime = metricRegistry.timer(name(OpenSearchExportBackend.class, "slices", "requestTime"));
+        this.sliceMessages = metricRegistry.meter(name(OpenSearchExportBackend.class, "slices", "messages"));
+        this.activeSlices = metricRegistry.counter(name(OpenSearchExportBackend.class, "slices", "active"));
     }
 
     @Override
     public void run(ExportMessagesCommand command, Consumer<SimpleMessageChunk> chunkCollector) {
+        final List<AbsoluteRange> slices = sliceTimeRange(command.timeRange(), parallelSlices);
+        if (slices.size() > 1) {
+            runInSlices(command, slices, chunkCollector);
+        } else {
+            runSequentially(command, chunkCollector);
+        }
+    }
+
+    private void runSequentially(ExportMessagesCommand command, Consumer<SimpleMessageChunk> chunkCollector) {
+        final RequestStrategy requestStrategy = requestStrategyProvider.get();
+        final Set<String> indices = indicesFor(command);
         boolean isFirstChunk = true;
         int totalCount = 0;
 
         while (true) {
-            List<SearchHit> hits = search(command);
+            List<SearchHit> hits = search(command, indices, requestStrategy);
 
             if (hits.isEmpty()) {
                 publishChunk(chunkCollector, hits, command.fieldsInOrder(), command.timeZone(), SimpleMessageChunk.ChunkOrder.LAST);
@@ -105,23 +144,130 @@ public class OpenSearchExportBackend implements ExportBackend {
         }
     }
 
-    private List<SearchHit> search(ExportMessagesCommand command) {
-        SearchRequest search = prepareSearchRequest(command);
+    /**
+     * Reads the time range slices of an export concurrently. Every slice is read by its own thread with its own
+     * request strategy, the chunks are published by the calling thread through a bounded {@link SliceReorderBuffer}.
+     */
+    private void runInSlices(ExportMessagesCommand command, List<AbsoluteRange> slices, Consumer<SimpleMessageChunk> chunkCollector) {
+        // All slices search the indices of the whole time range
+        final Set<String> indices = indicesFor(command);
+        final SliceReorderBuffer<List<SearchHit>> buffer = new SliceReorderBuffer<>(slices.size(), SLICE_BUFFER_CHUNKS, command.preserveOrder());
+        final ExecutorService executor = Executors.newFixedThreadPool(slices.size(),
+                new ThreadFactoryBuilder().setNameFormat("export-slice-reader-%d").setDaemon(true).build());
+        try {
+            for (int i = 0; i < slices.size(); i++) {
+                final int slice = i;
+                final ExportMessagesCommand sliceCommand = command.toBuilder().timeRange(slices.get(slice)).build();
+                executor.execute(() -> readSlice(sliceCommand, indices, slice, slices.size(), buffer));
+            }
+
+            boolean isFirstChunk = true;
+            int totalCount = 0;
+            List<SearchHit> hits;
+            while ((hits = buffer.take()) != null) {
+                final boolean success = publishChunk(chunkCollector, hits, command.fieldsInOrder(), command.timeZone(), isFirstChunk ? SimpleMessageChunk.ChunkOrder.FIRST : SimpleMessageChunk.ChunkOrder.INTERMEDIATE);
+                if (!success) {
+                    return;
+                }
+
+                totalCount += hits.size();
+                if (command.limit().isPresent() && totalCount >= command.limit().getAsInt()) {
+                    LOG.info("Limit of {} reached. Stopping message retrieval.", command.limit().getAsInt());
+                    break;
+                }
+
+                isFirstChunk = false;
+            }
+            publishChunk(chunkCollector, Collections.emptyList(), command.fieldsInOrder(), command.timeZone(), SimpleMessageChunk.ChunkOrder.LAST);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExportException("Export has been interrupted", e);
+        } finally {
+            buffer.cancel();
+            executor.shutdownNow();
+        }
+    }
+
+    private void readSlice(ExportMessagesCommand sliceCommand, Set<String> indices, int slice, int sliceCount, SliceReorderBuffer<List<SearchHit>> buffer) {
+        final RequestStrategy requestStrategy = requestStrategyProvider.get();
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        long messageCount = 0;
+        activeSlices.inc();
+        try {
+            while (!buffer.isCancelled()) {
+                final List<SearchHit> hits;
+                try (final Timer.Context ignored = sliceRequestTime.time()) {
+                    hits = search(sliceCommand, indices, requestStrategy);
+                }
+                if (hits.isEmpty()) {
+                    break;
+                }
+                sliceMessages.mark(hits.size());
+                messageCount += hits.size();
+                LOG.debug("Export slice {}/{} read {} messages so far", slice + 1, sliceCount, messageCount);
+                if (!buffer.put(slice, hits)) {
+                    return;
+                }
+                // A single slice never has to deliver more messages than the limit of the whole export
+                if (sliceCommand.limit().isPresent() && messageCount >= sliceCommand.limit().getAsInt()) {
+                    break;
+                }
+            }
+            buffer.finish(slice);
+            final long elapsedMs = Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            LOG.info("Export slice {}/{} [{} - {}] finished: {} messages in {} ms ({} messages/s)",
+                    slice + 1, sliceCount, sliceCommand.timeRange().from(), sliceCommand.timeRange().to(),
+                    messageCount, elapsedMs, messageCount * 1000 / elapsedMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            try {
+                buffer.fail(slice, e);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            activeSlices.dec();
+        }
+    }
+
+    /**
+     * Splits the time range into up to {@code count} contiguous slices of equal length. Time range queries include
+     * the start and exclude the end, so the slices don't overlap.
+     */
+    static List<AbsoluteRange> sliceTimeRange(AbsoluteRange timeRange, int count) {
+        final long from = timeRange.from().getMillis();
+        final long to = timeRange.to().getMillis();
+        final int slices = (int) Math.max(1, Math.min(count, to - from));
+        if (slices == 1) {
+            return List.of(timeRange);
+        }
+        final List<AbsoluteRange> result = new ArrayList<>(slices);
+        final long length = (to - from) / slices;
+        for (int i = 0; i < slices; i++) {
+            final long sliceFrom = from + i * length;
+            final long sliceTo = i == slices - 1 ? to : sliceFrom + length;
+            result.add(AbsoluteRange.create(new DateTime(sliceFrom, DateTimeZone.UTC), new DateTime(sliceTo, DateTimeZone.UTC)));
+        }
+        return result;
+    }
+
+    private List<SearchHit> search(ExportMessagesCommand command, Set<String> indices, RequestStrategy requestStrategy) {
+        SearchRequest search = prepareSearchRequest(command, indices, requestStrategy);
 
         return requestStrategy.nextChunk(search, command);
     }
 
-    private SearchRequest prepareSearchRequest(ExportMessagesCommand command) {
-        SearchSourceBuilder ssb = searchSourceBuilderFrom(command);
+    private SearchRequest prepareSearchRequest(ExportMessagesCommand command, Set<String> indices, RequestStrategy requestStrategy) {
+        SearchSourceBuilder ssb = searchSourceBuilderFrom(command, requestStrategy);
 
-        Set<String> indices = indicesFor(command);
         return new SearchRequest()
                 .source(ssb)
                 .indices(indices.toArray(new String[0]))
                 .indicesOptions(IndicesOptions.fromOptions(false, false, true, false));
     }
 
-    private SearchSourceBuilder searchSourceBuilderFrom(ExportMessagesCommand command) {
+    private SearchSourceBuilder searchSourceBuilderFrom(ExportMessagesCommand command, RequestStrategy requestStrategy) {
         QueryBuilder query = queryFrom(command);
 
         SearchSourceBuilder ssb = new SearchSourceBuilder()
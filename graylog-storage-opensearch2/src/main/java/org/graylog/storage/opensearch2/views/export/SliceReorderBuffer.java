@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.storage.opensearch2.views.export;
+
+import org.graylog.plugins.views.search.export.ExportException;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded buffer between the readers of the slices of an export and the thread publishing the exported chunks.
+ * <p>
+ * If the order has to be preserved, every slice has its own queue and the queues are drained one after the other.
+ * Readers of later slices block once their queue is full, which bounds the memory used to reorder the chunks.
+ * Otherwise, all slices share a single queue and chunks are returned in the order they arrive.
+ *
+ * @param <T> the chunk type
+ */
+class SliceReorderBuffer<T> {
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final int sliceCount;
+    private final boolean preserveOrder;
+    private final List<BlockingQueue<Item<T>>> queues;
+    private volatile boolean cancelled = false;
+    private int currentSlice = 0;
+    private int finishedSlices = 0;
+
+    SliceReorderBuffer(int sliceCount, int chunksPerSlice, boolean preserveOrder) {
+        this.sliceCount = sliceCount;
+        this.preserveOrder = preserveOrder;
+        // Every slice needs one additional slot for the item marking it as finished or failed
+        if (preserveOrder) {
+            this.queues = new ArrayList<>(sliceCount);
+            for (int i = 0; i < sliceCount; i++) {
+                queues.add(new ArrayBlockingQueue<>(chunksPerSlice + 1));
+            }
+        } else {
+            this.queues = List.of(new ArrayBlockingQueue<>(sliceCount * (chunksPerSlice + 1)));
+        }
+    }
+
+    /**
+     * Adds a chunk of the given slice, blocking while the buffer is full.
+     *
+     * @return {@code false} if the export has been cancelled and the reader should stop
+     */
+    boolean put(int slice, T chunk) throws InterruptedException {
+        return offer(slice, new Item<>(chunk, null));
+    }
+
+    /**
+     * Marks the given slice as completely read.
+     */
+    void finish(int slice) throws InterruptedException {
+        offer(slice, new Item<>(null, null));
+    }
+
+    /**
+     * Marks the given slice as failed, which fails the whole export.
+     */
+    void fail(int slice, RuntimeException error) throws InterruptedException {
+        offer(slice, new Item<>(null, error));
+    }
+
+    private boolean offer(int slice, Item<T> item) throws InterruptedException {
+        final BlockingQueue<Item<T>> queue = queueFor(slice);
+        while (!cancelled) {
+            if (queue.offer(item, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the next chunk, blocking until one is available. Must only be called by a single thread.
+     *
+     * @return the next chunk or {@code null} if all slices have been read completely
+     * @throws ExportException if reading one of the slices failed
+     */
+    @Nullable
+    T take() throws InterruptedException {
+        while (finishedSlices < sliceCount) {
+            final Item<T> item = queueFor(currentSlice).take();
+            if (item.error() != null) {
+                throw item.error() instanceof ExportException exportException
+                        ? exportException
+                        : new ExportException("Unable to complete export: ", item.error());
+            }
+            if (item.chunk() != null) {
+                return item.chunk();
+            }
+            finishedSlices++;
+            if (preserveOrder) {
+                currentSlice++;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cancels the export, which makes blocked and future {@link #put(int, Object)} calls return {@code false}.
+     */
+    void cancel() {
+        this.cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    private BlockingQueue<Item<T>> queueFor(int slice) {
+        return preserveOrder ? queues.get(slice) : queues.get(0);
+    }
+
+    private record Item<T>(@Nullable T chunk, @Nullable RuntimeException error) {}
+}
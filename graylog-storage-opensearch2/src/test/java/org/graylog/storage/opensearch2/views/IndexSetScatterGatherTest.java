@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.storage.opensearch2.views;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.errors.SearchError;
+import org.graylog.plugins.views.search.searchtypes.MessageList;
+import org.graylog.plugins.views.search.searchtypes.pivot.Pivot;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Time;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.TimeUnitInterval;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Values;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Average;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog.shaded.opensearch2.org.apache.lucene.search.TotalHits;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.MultiSearchResponse;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.SearchRequest;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.SearchResponse;
+import org.graylog.shaded.opensearch2.org.opensearch.action.search.ShardSearchFailure;
+import org.graylog.shaded.opensearch2.org.opensearch.action.support.PlainActionFuture;
+import org.graylog.shaded.opensearch2.org.opensearch.search.DocValueFormat;
+import org.graylog.shaded.opensearch2.org.opensearch.search.SearchHit;
+import org.graylog.shaded.opensearch2.org.opensearch.search.SearchHits;
+import org.graylog.shaded.opensearch2.org.opensearch.search.builder.SearchSourceBuilder;
+import org.graylog.shaded.opensearch2.org.opensearch.search.internal.InternalSearchResponse;
+import org.graylog.shaded.opensearch2.org.opensearch.search.sort.SortBuilders;
+import org.graylog.shaded.opensearch2.org.opensearch.search.sort.SortOrder;
+import org.graylog.storage.opensearch2.OpenSearchClient;
+import org.graylog.storage.opensearch2.views.searchtypes.OSSearchTypeHandler;
+import org.graylog2.indexer.IndexSet;
+import org.graylog2.indexer.IndexSetRegistry;
+import org.graylog2.indexer.indexset.IndexSetConfig;
+import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndexSetScatterGatherTest {
+    private final OpenSearchClient client = mock(OpenSearchClient.class);
+    private final IndexSetRegistry indexSetRegistry = mock(IndexSetRegistry.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final IndexSetScatterGather scatterGather = new IndexSetScatterGather(true, Duration.milliseconds(200), 2,
+            client, indexSetRegistry, metricRegistry);
+
+    @Test
+    void splitsOnlySearchTypesWithMergeableResults() {
+        final Time time = Time.builder().field("timestamp").interval(TimeUnitInterval.Builder.builder().timeunit("1m").build()).build();
+
+        assertThat(IndexSetScatterGather.isSplittable(MessageList.builder().id("messages").build())).isTrue();
+        assertThat(IndexSetScatterGather.isSplittable(pivot().rowGroups(time).series(Count.builder().build()).build())).isTrue();
+        assertThat(IndexSetScatterGather.isSplittable(pivot().rowGroups(Values.builder().fields(List.of("source")).limit(10).build())
+                .series(Count.builder().build()).build())).isFalse();
+        assertThat(IndexSetScatterGather.isSplittable(pivot().rowGroups(time).series(Average.builder().field("took_ms").build()).build())).isFalse();
+    }
+
+    @Test
+    void mergesHitsBySortValuesAndCutsRequestedPage() {
+        final SearchSourceBuilder source = new SearchSourceBuilder()
+                .from(1)
+                .size(2)
+                .sort(SortBuilders.fieldSort("timestamp").order(SortOrder.DESC));
+
+        final SearchResponse merged = IndexSetScatterGather.mergeHits(source, List.of(
+                response(hit("a", 50L), hit("b", 30L), hit("c", 10L)),
+                response(hit("d", 40L), hit("e", 20L))));
+
+        assertThat(Arrays.stream(merged.getHits().getHits()).map(SearchHit::getId)).containsExactly("d", "b");
+        assertThat(merged.getHits().getTotalHits().value).isEqualTo(5);
+        assertThat(merged.getTotalShards()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsLowerBoundOfTotalHits() {
+        final SearchResponse merged = IndexSetScatterGather.mergeHits(new SearchSourceBuilder().size(10), List.of(
+                response(hit("a", 50L)),
+                response(TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO, hit("b", 40L))));
+
+        assertThat(merged.getHits().getTotalHits().value).isEqualTo(2);
+        assertThat(merged.getHits().getTotalHits().relation).isEqualTo(TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO);
+    }
+
+    @Test
+    void failsRequestsBeyondConcurrencyLimitWithoutWaiting() throws Exception {
+        indexSet("index-set-1", "Fast", "fast_0");
+        indexSet("index-set-2", "Slow", "slow_0");
+        when(client.cancellableMsearch(any(), any(Runnable.class))).thenAnswer(invocation -> new PlainActionFuture<>());
+        final SearchRequest request = new SearchRequest("fast_0", "slow_0").source(new SearchSourceBuilder().from(0).size(10));
+        final MessageList messageList = MessageList.builder().id("messages").limit(10).build();
+
+        assertThat(scatterGather.scatter(messageList, request)).isPresent();
+        assertThat(scatterGather.scatter(messageList, request)).isPresent();
+        final IndexSetScatterGather.Scatter rejected = scatterGather.scatter(messageList, request).orElseThrow();
+
+        final OSGeneratedQueryContext queryContext = mock(OSGeneratedQueryContext.class);
+        assertThat(scatterGather.gather(mock(SearchJob.class), query(), rejected, mock(OSSearchTypeHandler.class), queryContext)).isEmpty();
+        verify(queryContext, times(2)).addError(argThat(error -> error.description().contains("Too many concurrent searches")));
+        assertThat(metricRegistry.meter("org.graylog.storage.opensearch2.views.IndexSetScatterGather.index-set-2.rejections").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void returnsPartialResultIfIndexSetDoesNotRespondInTime() throws Exception {
+        indexSet("index-set-1", "Fast", "fast_0");
+        indexSet("index-set-2", "Slow", "slow_0");
+        final PlainActionFuture<MultiSearchResponse> fast = new PlainActionFuture<>();
+        fast.onResponse(new MultiSearchResponse(new MultiSearchResponse.Item[]{
+                new MultiSearchResponse.Item(response(hit("a", 50L)), null)}, 1L));
+        when(client.cancellableMsearch(argThat(requests -> requests != null && requests.get(0).indices()[0].equals("fast_0")), any(Runnable.class))).thenReturn(fast);
+        when(client.cancellableMsearch(argThat(requests -> requests != null && requests.get(0).indices()[0].equals("slow_0")), any(Runnable.class))).thenReturn(new PlainActionFuture<>());
+
+        final MessageList messageList = MessageList.builder().id("messages").limit(10).build();
+        final SearchRequest request = new SearchRequest("fast_0", "slow_0").source(new SearchSourceBuilder().from(0).size(10));
+        final IndexSetScatterGather.Scatter scatter = scatterGather.scatter(messageList, request).orElseThrow();
+
+        @SuppressWarnings("unchecked") final OSSearchTypeHandler<MessageList> handler = mock(OSSearchTypeHandler.class);
+        final SearchType.Result result = mock(SearchType.Result.class);
+        when(handler.extractResult(any(), any(), eq(messageList), any(SearchResponse.class), any())).thenReturn(result);
+        final OSGeneratedQueryContext queryContext = mock(OSGeneratedQueryContext.class);
+
+        assertThat(scatterGather.gather(mock(SearchJob.class), query(), scatter, handler, queryContext)).contains(result);
+
+        final ArgumentCaptor<SearchResponse> merged = ArgumentCaptor.forClass(SearchResponse.class);
+        verify(handler).extractResult(any(), any(), eq(messageList), merged.capture(), any());
+        assertThat(Arrays.stream(merged.getValue().getHits().getHits()).map(SearchHit::getId)).containsExactly("a");
+
+        final ArgumentCaptor<SearchError> error = ArgumentCaptor.forClass(SearchError.class);
+        verify(queryContext).addError(error.capture());
+        assertThat(error.getValue().description()).contains("<Slow> did not respond in time");
+        assertThat(metricRegistry.meter("org.graylog.storage.opensearch2.views.IndexSetScatterGather.index-set-2.timeouts").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void sendsSingleRequestIfAllIndicesBelongToTheSameIndexSet() {
+        indexSet("index-set-1", "Default", "graylog_0");
+        final Optional<IndexSet> indexSet = indexSetRegistry.getForIndex("graylog_0");
+        when(indexSetRegistry.getForIndex("graylog_1")).thenReturn(indexSet);
+
+        final SearchRequest request = new SearchRequest("graylog_0", "graylog_1").source(new SearchSourceBuilder());
+
+        assertThat(scatterGather.scatter(MessageList.builder().id("messages").build(), request)).isEmpty();
+    }
+
+    private void indexSet(String id, String title, String index) {
+        final IndexSetConfig config = mock(IndexSetConfig.class);
+        when(config.id()).thenReturn(id);
+        when(config.title()).thenReturn(title);
+        final IndexSet indexSet = mock(IndexSet.class);
+        when(indexSet.getConfig()).thenReturn(config);
+        when(indexSetRegistry.getForIndex(index)).thenReturn(Optional.of(indexSet));
+        when(indexSetRegistry.get(id)).thenReturn(Optional.of(indexSet));
+    }
+
+    private static Pivot.Builder pivot() {
+        return Pivot.builder().id("pivot").rollup(true);
+    }
+
+    private static Query query() throws Exception {
+        return Query.builder()
+                .id("query")
+                .query(ElasticsearchQueryString.of("*"))
+                .timerange(RelativeRange.create(300))
+                .build();
+    }
+
+    private static SearchHit hit(String id, long timestamp) {
+        final SearchHit hit = new SearchHit(0, id, Map.of(), Map.of());
+        hit.sortValues(new Object[]{timestamp}, new DocValueFormat[]{DocValueFormat.RAW});
+        return hit;
+    }
+
+    private static SearchResponse response(SearchHit... hits) {
+        return response(TotalHits.Relation.EQUAL_TO, hits);
+    }
+
+    private static SearchResponse response(TotalHits.Relation totalHitsRelation, SearchHit... hits) {
+        final SearchHits searchHits = new SearchHits(hits, new TotalHits(hits.length, totalHitsRelation), Float.NaN);
+        return new SearchResponse(new InternalSearchResponse(searchHits, null, null, null, false, null, 1),
+                null, 1, 1, 0, 10L, ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+    }
+}
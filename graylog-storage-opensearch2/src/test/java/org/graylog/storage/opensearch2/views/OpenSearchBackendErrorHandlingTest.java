@@ -75,6 +75,7 @@ public class OpenSearchBackendErrorHandlingTest extends OpensearchMockedClientTe
                 usedSearchFilters -> Collections.emptySet(),
                 new NoOpStatsCollector<>(),
                 mock(StreamService.class),
+                mock(IndexSetScatterGather.class),
                 false);
         when(indexLookup.indexNamesForStreamsInTimeRange(any(), any())).thenReturn(Collections.emptySet());
 
@@ -93,6 +93,7 @@ public class OpenSearchBackendGeneratedRequestTestBase extends OpensearchMockedC
                         .collect(Collectors.toSet()),
                 new NoOpStatsCollector<>(),
                 mock(StreamService.class),
+                mock(IndexSetScatterGather.class),
                 false);
     }
 
@@ -67,12 +67,14 @@ import org.mockito.junit.MockitoRule;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.graylog2.plugin.Tools.nowUTC;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -82,6 +84,7 @@ public class OpenSearchBackendTest {
     public final MockitoRule mockitoRule = MockitoJUnit.rule();
 
     private OpenSearchBackend backend;
+    private Map<String, Provider<OSSearchTypeHandler<? extends SearchType>>> handlers;
     private UsedSearchFiltersToQueryStringsMapper usedSearchFiltersToQueryStringsMapper;
 
     @Mock
@@ -89,7 +92,7 @@ public class OpenSearchBackendTest {
 
     @Before
     public void setup() {
-        Map<String, Provider<OSSearchTypeHandler<? extends SearchType>>> handlers = Maps.newHashMap();
+        handlers = Maps.newHashMap();
         handlers.put(MessageList.NAME, () -> new OSMessageList(new LegacyDecoratorProcessor.Fake(),
                 new TestResultMessageFactory(), false));
         handlers.put(Pivot.NAME, () -> new OSPivot(Map.of(Time.NAME, new OSTimeHandler()), Map.of(), new EffectiveTimeRangeExtractor()));
@@ -103,6 +106,7 @@ public class OpenSearchBackendTest {
                 usedSearchFiltersToQueryStringsMapper,
                 new NoOpStatsCollector<>(),
                 mock(StreamService.class),
+                mock(IndexSetScatterGather.class),
                 false);
     }
 
@@ -116,6 +120,38 @@ public class OpenSearchBackendTest {
         backend.generate(query, Collections.emptySet(), DateTimeZone.UTC);
     }
 
+    @Test
+    public void completesExecutionOnceScatteredSearchTypesAreGathered() {
+        final IndexSetScatterGather scatterGather = mock(IndexSetScatterGather.class);
+        final IndexSetScatterGather.Scatter scatter = mock(IndexSetScatterGather.Scatter.class);
+        final SearchType.Result result = mock(SearchType.Result.class);
+        when(scatterGather.scatter(any(), any())).thenReturn(Optional.of(scatter));
+        when(scatterGather.gather(any(), any(), eq(scatter), any(), any())).thenReturn(Optional.of(result));
+        final OpenSearchBackend scatteringBackend = new OpenSearchBackend(handlers,
+                null,
+                indexLookup,
+                ViewsUtils.createTestContextFactory(),
+                usedSearchFiltersToQueryStringsMapper,
+                new NoOpStatsCollector<>(),
+                mock(StreamService.class),
+                scatterGather,
+                false);
+        final Query query = Query.builder()
+                .id("query1")
+                .query(ElasticsearchQueryString.of("*"))
+                .timerange(RelativeRange.create(300))
+                .searchTypes(Set.of(MessageList.builder().id("messages").build()))
+                .build();
+        final SearchJob job = new SearchJob("deadbeef", Search.builder().queries(ImmutableSet.of(query)).build(), "admin", "test-node-id");
+        final OSGeneratedQueryContext queryContext = scatteringBackend.generate(query, Set.of(), DateTimeZone.UTC);
+
+        final QueryResult queryResult = scatteringBackend.doRun(job, query, queryContext);
+
+        assertThat(queryResult.searchTypes()).containsEntry("messages", result);
+        assertThat(job.execution().done()).isTrue();
+        assertThat(job.execution().cancelled()).isFalse();
+    }
+
     @Test
     public void executesSearchForEmptySearchTypes() {
         final Query query = Query.builder()
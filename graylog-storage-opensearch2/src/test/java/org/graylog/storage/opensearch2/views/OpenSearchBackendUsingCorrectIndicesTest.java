@@ -95,6 +95,7 @@ public class OpenSearchBackendUsingCorrectIndicesTest extends OpensearchMockedCl
                 usedSearchFilters -> Collections.emptySet(),
                 new NoOpStatsCollector<>(),
                 mock(StreamService.class),
+                mock(IndexSetScatterGather.class),
                 false);
     }
 
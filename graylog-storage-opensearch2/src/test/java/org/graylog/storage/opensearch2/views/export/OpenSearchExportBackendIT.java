@@ -16,6 +16,7 @@
  */
 package org.graylog.storage.opensearch2.views.export;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableSet;
 import jakarta.annotation.Nonnull;
 import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
@@ -72,7 +73,7 @@ public class OpenSearchExportBackendIT extends ElasticsearchBaseTest {
     @Before
     public void setUp() {
         indexLookup = mock(IndexLookup.class);
-        backend = new OpenSearchExportBackend(indexLookup, requestStrategy(), false, new IgnoreSearchFilters());
+        backend = new OpenSearchExportBackend(indexLookup, this::requestStrategy, false, new IgnoreSearchFilters(), 1, new MetricRegistry());
         helper = new OpenSearchExportITHelper(indexLookup, backend);
     }
 
@@ -227,6 +228,22 @@ public class OpenSearchExportBackendIT extends ElasticsearchBaseTest {
                 "graylog_0, 2015-01-01T04:00:00.000Z, source-2, Ho");
     }
 
+    @Test
+    public void sortsByTimestampAscendingWhenExportingInSlices() {
+        importFixture("messages.json");
+
+        final OpenSearchExportBackend slicingBackend = new OpenSearchExportBackend(indexLookup, this::requestStrategy, false, new IgnoreSearchFilters(), 3, new MetricRegistry());
+        final OpenSearchExportITHelper slicingHelper = new OpenSearchExportITHelper(indexLookup, slicingBackend);
+        ExportMessagesCommand command = slicingHelper.commandBuilderWithAllTestDefaultStreams().chunkSize(1).build();
+        slicingHelper.mockIndexLookupFor(command, "graylog_0", "graylog_1");
+
+        slicingHelper.runWithExpectedResult(command, "timestamp,source,message",
+                "graylog_0, 2015-01-01T01:00:00.000Z, source-1, Ha",
+                "graylog_1, 2015-01-01T01:59:59.999Z, source-2, He",
+                "graylog_0, 2015-01-01T03:00:00.000Z, source-1, Hi",
+                "graylog_0, 2015-01-01T04:00:00.000Z, source-2, Ho");
+    }
+
     @Test
     public void usesProvidedTimeZone() {
         importFixture("messages.json");
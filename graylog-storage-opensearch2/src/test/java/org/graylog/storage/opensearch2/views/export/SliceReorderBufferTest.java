@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.storage.opensearch2.views.export;
+
+import org.graylog.plugins.views.search.export.ExportException;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SliceReorderBufferTest {
+    @Test
+    void returnsChunksInSliceOrderIfOrderIsPreserved() throws Exception {
+        final SliceReorderBuffer<String> buffer = new SliceReorderBuffer<>(2, 2, true);
+
+        // The second slice is done before the first one delivers anything
+        buffer.put(1, "1-a");
+        buffer.finish(1);
+        buffer.put(0, "0-a");
+        buffer.put(0, "0-b");
+        buffer.finish(0);
+
+        assertThat(drain(buffer)).containsExactly("0-a", "0-b", "1-a");
+    }
+
+    @Test
+    void returnsChunksInArrivalOrderIfOrderIsNotPreserved() throws Exception {
+        final SliceReorderBuffer<String> buffer = new SliceReorderBuffer<>(2, 2, false);
+
+        buffer.put(1, "1-a");
+        buffer.finish(1);
+        buffer.put(0, "0-a");
+        buffer.finish(0);
+
+        assertThat(drain(buffer)).containsExactly("1-a", "0-a");
+    }
+
+    @Test
+    void blocksReadersOfFullSlicesUntilTheyAreDrained() throws Exception {
+        final SliceReorderBuffer<String> buffer = new SliceReorderBuffer<>(2, 1, true);
+        buffer.put(1, "1-a");
+        buffer.put(1, "1-b");
+
+        final CompletableFuture<Boolean> blockedPut = CompletableFuture.supplyAsync(() -> {
+            try {
+                return buffer.put(1, "1-c");
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertThat(blockedPut).isNotDone();
+
+        buffer.cancel();
+        assertThat(blockedPut.get(5, TimeUnit.SECONDS)).isFalse();
+    }
+
+    @Test
+    void failsIfSliceFails() throws Exception {
+        final SliceReorderBuffer<String> buffer = new SliceReorderBuffer<>(2, 2, true);
+        buffer.put(0, "0-a");
+        buffer.fail(0, new IllegalStateException("Boom"));
+
+        assertThat(buffer.take()).isEqualTo("0-a");
+        assertThatThrownBy(buffer::take)
+                .isInstanceOf(ExportException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void slicesTimeRangeWithoutGapsOrOverlaps() {
+        final AbsoluteRange timeRange = AbsoluteRange.create("2015-01-01T00:00:00.000Z", "2015-01-01T01:00:00.001Z");
+
+        final List<AbsoluteRange> slices = OpenSearchExportBackend.sliceTimeRange(timeRange, 4);
+
+        assertThat(slices).hasSize(4);
+        assertThat(slices.get(0).from().getMillis()).isEqualTo(timeRange.from().getMillis());
+        assertThat(slices.get(3).to().getMillis()).isEqualTo(timeRange.to().getMillis());
+        for (int i = 1; i < slices.size(); i++) {
+            assertThat(slices.get(i).from()).isEqualTo(slices.get(i - 1).to());
+        }
+        assertThat(OpenSearchExportBackend.sliceTimeRange(timeRange, 1)).containsExactly(timeRange);
+    }
+
+    private static List<String> drain(SliceReorderBuffer<String> buffer) throws InterruptedException {
+        final List<String> result = new ArrayList<>();
+        String chunk;
+        while ((chunk = buffer.take()) != null) {
+            result.add(chunk);
+        }
+        return result;
+    }
+}
@@ -39,6 +39,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -167,6 +168,44 @@ public class OSMessageListTest {
         JsonPathAssert.assertThat(doc).jsonPathAsString("$.sort[1].timestamp.order").isEqualTo("asc");
     }
 
+    @Test
+    public void fetchesDisplayedRequiredAndDecoratorFields() {
+        final MessageList messageList = someMessageList().toBuilder()
+                .fields(List.of("source", "message"))
+                .build();
+        final LegacyDecoratorProcessor decoratorProcessor = mock(LegacyDecoratorProcessor.class);
+        when(decoratorProcessor.requiredFields(messageList.decorators())).thenReturn(Optional.of(Set.of("http_method")));
+
+        final OSGeneratedQueryContext context = mockQueryContext(messageList);
+        new OSMessageList(decoratorProcessor, resultMessageFactory, false).doGenerateQueryPart(someQuery(), messageList, context);
+
+        assertThat(context.searchSourceBuilder(messageList).fetchSource().includes())
+                .containsExactlyInAnyOrder("source", "message", "timestamp", "streams", "gl2_message_id", "http_method");
+    }
+
+    @Test
+    public void fetchesWholeSourceIfDecoratorFieldsAreUnknown() {
+        final MessageList messageList = someMessageList().toBuilder()
+                .fields(List.of("source", "message"))
+                .build();
+        final LegacyDecoratorProcessor decoratorProcessor = mock(LegacyDecoratorProcessor.class);
+        when(decoratorProcessor.requiredFields(messageList.decorators())).thenReturn(Optional.empty());
+
+        final OSGeneratedQueryContext context = mockQueryContext(messageList);
+        new OSMessageList(decoratorProcessor, resultMessageFactory, false).doGenerateQueryPart(someQuery(), messageList, context);
+
+        assertThat(context.searchSourceBuilder(messageList).fetchSource()).isNull();
+    }
+
+    @Test
+    public void fetchesWholeSourceIfNoFieldsAreRequested() {
+        final MessageList messageList = someMessageList();
+
+        final OSGeneratedQueryContext context = generateQueryPartWithoutHighlighting(messageList);
+
+        assertThat(context.searchSourceBuilder(messageList).fetchSource()).isNull();
+    }
+
     private Query someQuery() {
         return Query.builder()
                 .id("deadbeef")
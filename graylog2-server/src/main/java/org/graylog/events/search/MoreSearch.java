@@ -144,7 +144,7 @@ public class MoreSearch {
             final Set<Stream> streams = streamService.loadByIds(streamIds);
             final IndexRangeContainsOneOfStreams indexRangeContainsOneOfStreams = new IndexRangeContainsOneOfStreams();
             return indexRanges.stream()
-                    .filter(ir -> indexRangeContainsOneOfStreams.test(ir, streams))
+                    .filter(ir -> indexRangeContainsOneOfStreams.test(ir, streams, timeRange))
                     .map(IndexRange::indexName)
                     .collect(Collectors.toSet());
         }
@@ -16,11 +16,13 @@
  */
 package org.graylog.integrations.ipfix.codecs;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import com.google.inject.assistedinject.Assisted;
-import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.UnsafeByteOperations;
 import io.netty.buffer.Unpooled;
 import jakarta.inject.Inject;
 import org.graylog.integrations.ipfix.Flow;
@@ -29,6 +31,7 @@ import org.graylog.integrations.ipfix.IpfixException;
 import org.graylog.integrations.ipfix.IpfixJournal;
 import org.graylog.integrations.ipfix.IpfixParser;
 import org.graylog.integrations.ipfix.TemplateRecord;
+import org.graylog.plugins.netflow.codecs.ParsedTemplateCache;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.MessageFactory;
 import org.graylog2.plugin.ResolvableInetSocketAddress;
@@ -85,10 +88,12 @@ public class IpfixCodec extends AbstractCodec implements MultiMessageCodec {
     private final IpfixAggregator ipfixAggregator;
     private final MessageFactory messageFactory;
     private final IpfixParser parser;
+    private final ParsedTemplateCache<TemplateRecord> templateCache;
     private InformationElementDefinitions infoElementDefs;
 
     @Inject
-    protected IpfixCodec(@Assisted Configuration configuration, IpfixAggregator ipfixAggregator, MessageFactory messageFactory) throws IOException {
+    protected IpfixCodec(@Assisted Configuration configuration, IpfixAggregator ipfixAggregator, MessageFactory messageFactory,
+                         MetricRegistry metricRegistry) throws IOException {
         super(configuration);
         this.ipfixAggregator = ipfixAggregator;
         this.messageFactory = messageFactory;
@@ -108,6 +113,7 @@ public class IpfixCodec extends AbstractCodec implements MultiMessageCodec {
             infoElementDefs = new InformationElementDefinitions(urls);
         }
         this.parser = new IpfixParser(this.infoElementDefs);
+        this.templateCache = new ParsedTemplateCache<>(IpfixCodec.class, parser::parseTemplateRecord, metricRegistry);
     }
 
 
@@ -191,11 +197,14 @@ public class IpfixCodec extends AbstractCodec implements MultiMessageCodec {
         final ResolvableInetSocketAddress remoteAddress = rawMessage.getRemoteAddress();
         final InetSocketAddress sender = remoteAddress != null ? remoteAddress.getInetSocketAddress() : null;
         try {
-            final IpfixJournal.RawIpfix rawIpfix = IpfixJournal.RawIpfix.parseFrom(rawMessage.getPayload());
-            final Map<Integer, ByteString> templatesMap = rawIpfix.getTemplatesMap();
+            // The templates and data records of the journal entry are views of the payload instead of copies
+            final CodedInputStream input = UnsafeByteOperations.unsafeWrap(rawMessage.getPayload()).newCodedInput();
+            input.enableAliasing(true);
+            final IpfixJournal.RawIpfix rawIpfix = IpfixJournal.RawIpfix.parser().parseFrom(input);
 
-            final Map<Integer, TemplateRecord> templateRecordMap = Seq.seq(templatesMap)
-                    .map(entry -> entry.map2(byteString -> parser.parseTemplateRecord(Unpooled.wrappedBuffer(byteString.toByteArray()))))
+            // the same templates are contained in every journal entry of an exporter, so they are only parsed once
+            final Map<Integer, TemplateRecord> templateRecordMap = Seq.seq(rawIpfix.getTemplatesMap())
+                    .map(entry -> entry.map2(byteString -> templateCache.get(entry.v1(), byteString)))
                     .toMap(Tuple2::v1, Tuple2::v2);
 
             return rawIpfix.getDataSetsList().stream()
@@ -207,7 +216,7 @@ public class IpfixCodec extends AbstractCodec implements MultiMessageCodec {
                             throw new IpfixException("Missing required template in journal entry for data records: template id " + templateId);
                         }
                         final Set<Flow> flows = parser.parseDataSet(templateRecord.informationElements(), templateRecordMap,
-                                Unpooled.wrappedBuffer(dataSet.getDataRecords().toByteArray()));
+                                Unpooled.wrappedBuffer(dataSet.getDataRecords().asReadOnlyByteBuffer()));
                         return flows.stream()
                                 .map(flow -> formatFlow(flowExportTimestamp, sender, flow));
                     })
@@ -16,6 +16,9 @@
  */
 package org.graylog.plugins.beats;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.annotations.VisibleForTesting;
@@ -29,19 +32,28 @@ import io.netty.handler.codec.ReplayingDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import java.util.zip.InflaterInputStream;
 
 /**
  * FrameDecoder for the Beats/Lumberjack protocol.
+ * <p>
+ * By default, every event is emitted as a {@link ByteBuf} and acknowledged as soon as the last event of the window has
+ * been decoded. In windowed mode, the events of a window are emitted at once as a {@link BeatsWindow}, which is
+ * acknowledged by the {@link BeatsWindowHandler}, and compressed frames may be inflated by a decode executor. Frames
+ * are always handled in the order they have been received.
  *
  * @see <a href="https://github.com/logstash-plugins/logstash-input-beats/blob/master/PROTOCOL.md">Lumberjack protocol</a>
  */
@@ -64,15 +76,49 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
         FRAME_WINDOW_SIZE
     }
 
+    private final boolean windowed;
+    @Nullable
+    private final Executor decodeExecutor;
+    private final Timer decompressionTime;
+    private final Histogram windowSizes;
+
+    // The following fields are only accessed from the event loop of the channel
     private long windowSize;
     private long sequenceNum;
+    private List<ByteBuf> window = new ArrayList<>();
+    // Completes once all frames which have been received so far are handled
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+    private boolean failed = false;
 
     public BeatsFrameDecoder() {
+        this(false, null, new MetricRegistry());
+    }
+
+    /**
+     * Creates a decoder in windowed mode.
+     *
+     * @param decodeExecutor executor inflating compressed frames or {@code null} to inflate them on the event loop
+     * @param metricRegistry registry for the window size and decompression time metrics
+     */
+    public BeatsFrameDecoder(@Nullable Executor decodeExecutor, MetricRegistry metricRegistry) {
+        this(true, decodeExecutor, metricRegistry);
+    }
+
+    private BeatsFrameDecoder(boolean windowed, @Nullable Executor decodeExecutor, MetricRegistry metricRegistry) {
         super(DecodingState.PROTOCOL_VERSION);
+        this.windowed = windowed;
+        this.decodeExecutor = decodeExecutor;
+        this.decompressionTime = metricRegistry.timer("decompressionTime");
+        this.windowSizes = metricRegistry.histogram("windowSize");
     }
 
     @Override
     protected void decode(ChannelHandlerContext channelHandlerContext, ByteBuf buffer, List<Object> list) throws Exception {
+        if (failed) {
+            // The channel is being closed, there is no point in decoding the rest
+            buffer.skipBytes(actualReadableBytes());
+            return;
+        }
         switch (state()) {
             case PROTOCOL_VERSION:
                 checkVersion(buffer);
@@ -98,16 +144,21 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
                 }
                 return;
             case FRAME_WINDOW_SIZE:
-                processWindowSizeFrame(buffer);
+                final long newWindowSize = buffer.readUnsignedInt();
+                inOrder(channelHandlerContext, list, CompletableFuture.completedFuture(newWindowSize), (size, emitter) -> processWindowSizeFrame(size));
                 break;
             case FRAME_DATA:
-                list.addAll(parseDataFrame(channelHandlerContext.channel(), buffer));
+                inOrder(channelHandlerContext, list, CompletableFuture.completedFuture(parseDataFrame(buffer)), (event, emitter) -> processEvent(channelHandlerContext.channel(), event, emitter));
                 break;
             case FRAME_COMPRESSED:
-                list.addAll(processCompressedFrame(channelHandlerContext.channel(), buffer));
+                final byte[] data = readCompressedFrame(buffer);
+                final CompletableFuture<ByteBuf> inflated = decodeExecutor == null
+                        ? CompletableFuture.completedFuture(inflate(data))
+                        : CompletableFuture.supplyAsync(() -> inflate(data), decodeExecutor);
+                inOrder(channelHandlerContext, list, inflated, (frames, emitter) -> processCompressedDataFrames(channelHandlerContext.channel(), frames, emitter));
                 break;
             case FRAME_JSON:
-                list.addAll(parseJsonFrame(channelHandlerContext.channel(), buffer));
+                inOrder(channelHandlerContext, list, CompletableFuture.completedFuture(parseJsonFrame(buffer)), (event, emitter) -> processEvent(channelHandlerContext.channel(), event, emitter));
                 break;
             default:
                 throw new Exception("Unknown decoding state: " + state());
@@ -116,22 +167,75 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
         checkpoint(DecodingState.PROTOCOL_VERSION);
     }
 
-    private Collection<ByteBuf> processUncompressedBuffer(Channel channel, ByteBuf buffer) throws Exception {
-        checkVersion(buffer);
-        byte frameType = buffer.readByte();
+    /**
+     * Handles a frame right away if all previous frames have been handled, otherwise once they have been.
+     */
+    private <T> void inOrder(ChannelHandlerContext ctx, List<Object> out, CompletableFuture<T> frame, FrameHandler<T> handler) throws Exception {
+        if (pending.isDone() && frame.isDone()) {
+            handler.handle(frame.join(), out::add);
+            return;
+        }
+        pending = pending.thenCombineAsync(frame, (ignored, value) -> {
+            try {
+                handler.handle(value, ctx::fireChannelRead);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            return null;
+        }, ctx.executor());
+        pending.whenCompleteAsync((ignored, e) -> {
+            if (e != null && !failed) {
+                failed = true;
+                ctx.fireExceptionCaught(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        }, ctx.executor());
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        window = new ArrayList<>();
+        super.handlerRemoved0(ctx);
+    }
 
-        switch (frameType) {
-            case FRAME_WINDOW_SIZE:
-                processWindowSizeFrame(buffer);
-                return Collections.emptyList();
-            case FRAME_DATA:
-                return parseDataFrame(channel, buffer);
-            case FRAME_COMPRESSED:
-                return processCompressedFrame(channel, buffer);
-            case FRAME_JSON:
-                return parseJsonFrame(channel, buffer);
-            default:
-                throw new Exception("Unknown frame type: " + frameType);
+    private void processCompressedDataFrames(Channel channel, ByteBuf channelBuffer, Consumer<Object> emitter) throws Exception {
+        while (channelBuffer.isReadable()) {
+            checkVersion(channelBuffer);
+            final byte frameType = channelBuffer.readByte();
+
+            switch (frameType) {
+                case FRAME_WINDOW_SIZE:
+                    processWindowSizeFrame(channelBuffer.readUnsignedInt());
+                    break;
+                case FRAME_DATA:
+                    processEvent(channel, parseDataFrame(channelBuffer), emitter);
+                    break;
+                case FRAME_COMPRESSED:
+                    processCompressedDataFrames(channel, inflate(readCompressedFrame(channelBuffer)), emitter);
+                    break;
+                case FRAME_JSON:
+                    processEvent(channel, parseJsonFrame(channelBuffer), emitter);
+                    break;
+                default:
+                    throw new Exception("Unknown frame type: " + frameType);
+            }
+        }
+    }
+
+    private void processEvent(Channel channel, Event event, Consumer<Object> emitter) throws IOException {
+        sequenceNum = event.sequenceNum();
+        LOG.trace("Received sequence number {}", sequenceNum);
+
+        if (!windowed) {
+            sendACK(channel);
+            emitter.accept(event.payload());
+            return;
+        }
+
+        window.add(event.payload());
+        if (sequenceNum >= windowSize) {
+            windowSizes.update(window.size());
+            emitter.accept(new BeatsWindow(sequenceNum, window));
+            window = new ArrayList<>();
         }
     }
 
@@ -147,68 +251,67 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
      */
     private void sendACK(Channel channel) throws IOException {
         if (sequenceNum == windowSize) {
-            final ByteBuf buffer = channel.alloc().buffer(6);
-            buffer.writeByte(PROTOCOL_VERSION);
-            buffer.writeByte(FRAME_ACK);
-            buffer.writeInt((int) sequenceNum);
-
-            LOG.trace("Sending ACK for sequence number {} on channel {}", sequenceNum, channel);
-            channel.writeAndFlush(buffer);
+            sendACK(channel, sequenceNum);
         }
     }
 
+    static void sendACK(Channel channel, long sequenceNum) {
+        final ByteBuf buffer = channel.alloc().buffer(6);
+        buffer.writeByte(PROTOCOL_VERSION);
+        buffer.writeByte(FRAME_ACK);
+        buffer.writeInt((int) sequenceNum);
+
+        LOG.trace("Sending ACK for sequence number {} on channel {}", sequenceNum, channel);
+        channel.writeAndFlush(buffer);
+    }
+
     /**
      * <a href="https://github.com/logstash-plugins/logstash-input-beats/blob/master/PROTOCOL.md#json-frame-type">'json' frame type</a>
      */
-    private Collection<ByteBuf> parseJsonFrame(Channel channel, ByteBuf channelBuffer) throws IOException {
-        sequenceNum = channelBuffer.readUnsignedInt();
-        LOG.trace("Received sequence number {}", sequenceNum);
-
+    private Event parseJsonFrame(ByteBuf channelBuffer) {
+        final long sequenceNum = channelBuffer.readUnsignedInt();
         final int jsonLength = Ints.saturatedCast(channelBuffer.readUnsignedInt());
 
-        final ByteBuf buffer = channelBuffer.readBytes(jsonLength);
-        sendACK(channel);
+        // Heap buffers don't need to be released if the frame is never handled
+        final byte[] json = new byte[jsonLength];
+        channelBuffer.readBytes(json);
 
-        return Collections.singleton(buffer);
+        return new Event(sequenceNum, Unpooled.wrappedBuffer(json));
     }
 
     /**
      * @see <a href="https://github.com/logstash-plugins/logstash-input-beats/blob/master/PROTOCOL.md#compressed-frame-type">'compressed' frame type</a>
      */
-    private Collection<ByteBuf> processCompressedFrame(Channel channel, ByteBuf channelBuffer) throws Exception {
+    private byte[] readCompressedFrame(ByteBuf channelBuffer) {
         final long payloadLength = channelBuffer.readUnsignedInt();
         final byte[] data = new byte[(int) payloadLength];
         channelBuffer.readBytes(data);
-        try (final ByteArrayInputStream dataStream = new ByteArrayInputStream(data);
-             final InputStream in = new InflaterInputStream(dataStream)) {
-            final ByteBuf buffer = Unpooled.wrappedBuffer(ByteStreams.toByteArray(in));
-            return processCompressedDataFrames(channel, buffer);
-        }
+        return data;
     }
 
-    private Collection<ByteBuf> processCompressedDataFrames(Channel channel, ByteBuf channelBuffer) throws Exception {
-        final List<ByteBuf> events = new ArrayList<>();
-        while (channelBuffer.isReadable()) {
-            final Collection<ByteBuf> buffers = processUncompressedBuffer(channel, channelBuffer);
-            events.addAll(buffers);
+    private ByteBuf inflate(byte[] data) {
+        try (final Timer.Context ignored = decompressionTime.time();
+             final ByteArrayInputStream dataStream = new ByteArrayInputStream(data);
+             final InputStream in = new InflaterInputStream(dataStream)) {
+            return Unpooled.wrappedBuffer(ByteStreams.toByteArray(in));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return events;
     }
 
     /**
      * @see <a href="https://github.com/logstash-plugins/logstash-input-beats/blob/master/PROTOCOL.md#window-size-frame-type">'window size' frame type</a>
      */
-    private void processWindowSizeFrame(ByteBuf channelBuffer) {
-        windowSize = channelBuffer.readUnsignedInt();
+    private void processWindowSizeFrame(long newWindowSize) {
+        windowSize = newWindowSize;
         LOG.trace("Changed window size to {}", windowSize);
     }
 
     /**
      * @see <a href="https://github.com/logstash-plugins/logstash-input-beats/blob/master/PROTOCOL.md#data-frame-type">'data' frame type</a>
      */
-    private Collection<ByteBuf> parseDataFrame(Channel channel, ByteBuf channelBuffer) throws IOException {
-        sequenceNum = channelBuffer.readUnsignedInt();
-        LOG.trace("Received sequence number {}", sequenceNum);
+    private Event parseDataFrame(ByteBuf channelBuffer) throws IOException {
+        final long sequenceNum = channelBuffer.readUnsignedInt();
 
         final int pairs = Ints.saturatedCast(channelBuffer.readUnsignedInt());
         final JsonFactory jsonFactory = new JsonFactory();
@@ -223,10 +326,7 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
             jg.writeEndObject();
         }
 
-        final ByteBuf buffer = Unpooled.wrappedBuffer(outputStream.toByteArray());
-        sendACK(channel);
-
-        return Collections.singleton(buffer);
+        return new Event(sequenceNum, Unpooled.wrappedBuffer(outputStream.toByteArray()));
     }
 
     private String parseDataItem(ByteBuf buf) {
@@ -244,4 +344,12 @@ public class BeatsFrameDecoder extends ReplayingDecoder<BeatsFrameDecoder.Decodi
     long getSequenceNum() {
         return sequenceNum;
     }
+
+    private record Event(long sequenceNum, ByteBuf payload) {
+    }
+
+    @FunctionalInterface
+    private interface FrameHandler<T> {
+        void handle(T frame, Consumer<Object> emitter) throws Exception;
+    }
 }
@@ -16,6 +16,8 @@
  */
 package org.graylog.plugins.beats;
 
+import com.codahale.metrics.InstrumentedExecutorService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.assistedinject.Assisted;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.EventLoopGroup;
@@ -25,7 +27,10 @@ import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
 import org.graylog2.plugin.LocalMetricRegistry;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
+import org.graylog2.plugin.configuration.fields.ConfigurationField;
+import org.graylog2.plugin.configuration.fields.NumberField;
 import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.inputs.MisfireException;
 import org.graylog2.plugin.inputs.annotations.ConfigClass;
 import org.graylog2.plugin.inputs.annotations.FactoryClass;
 import org.graylog2.plugin.inputs.transports.AbstractTcpTransport;
@@ -35,10 +40,20 @@ import org.graylog2.plugin.inputs.util.ThroughputCounter;
 
 import jakarta.inject.Inject;
 
+import javax.annotation.Nullable;
 import java.util.LinkedHashMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class BeatsTransport extends AbstractTcpTransport {
+    static final String CK_DECODE_THREADS = "decode_threads";
+    private static final int DEFAULT_DECODE_THREADS = 2;
+
+    private final int decodeThreads;
+    @Nullable
+    private ExecutorService decodeExecutor;
+
     @Inject
     public BeatsTransport(@Assisted Configuration configuration,
                           EventLoopGroup eventLoopGroup,
@@ -48,12 +63,35 @@ public class BeatsTransport extends AbstractTcpTransport {
                           LocalMetricRegistry localRegistry,
                           TLSProtocolsConfiguration tlsConfiguration) {
         super(configuration, throughputCounter, localRegistry, eventLoopGroup, eventLoopGroupFactory, nettyTransportConfiguration, tlsConfiguration);
+        this.decodeThreads = configuration.getInt(CK_DECODE_THREADS, DEFAULT_DECODE_THREADS);
+    }
+
+    @Override
+    public void launch(MessageInput input) throws MisfireException {
+        if (decodeThreads > 0) {
+            final ExecutorService executor = Executors.newFixedThreadPool(decodeThreads,
+                    new ThreadFactoryBuilder().setNameFormat("beats-decoder-" + input.getId() + "-%d").setDaemon(true).build());
+            decodeExecutor = new InstrumentedExecutorService(executor, localRegistry, "decoder");
+        }
+        super.launch(input);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (decodeExecutor != null) {
+            decodeExecutor.shutdown();
+            decodeExecutor = null;
+        }
     }
 
     @Override
     protected LinkedHashMap<String, Callable<? extends ChannelHandler>> getCustomChildChannelHandlers(MessageInput input) {
         final LinkedHashMap<String, Callable<? extends ChannelHandler>> handlers = new LinkedHashMap<>(super.getCustomChildChannelHandlers(input));
-        handlers.put("beats", BeatsFrameDecoder::new);
+        // Inflates compressed windows on the decode threads and acknowledges every window once it has been journalled
+        final ExecutorService executor = decodeExecutor;
+        handlers.put("beats", () -> new BeatsFrameDecoder(executor, localRegistry));
+        handlers.put("beats-window", () -> new BeatsWindowHandler(input, localRegistry));
 
         return handlers;
     }
@@ -75,6 +113,14 @@ public class BeatsTransport extends AbstractTcpTransport {
             if (cr.containsField(NettyTransport.CK_PORT)) {
                 cr.getField(NettyTransport.CK_PORT).setDefaultValue(5044);
             }
+            cr.addField(new NumberField(
+                    CK_DECODE_THREADS,
+                    "No. of decode threads",
+                    DEFAULT_DECODE_THREADS,
+                    "Number of threads inflating compressed windows of all connections. Set to 0 to inflate them on the worker threads.",
+                    ConfigurationField.Optional.OPTIONAL,
+                    NumberField.Attribute.ONLY_POSITIVE)
+            );
             return cr;
         }
     }
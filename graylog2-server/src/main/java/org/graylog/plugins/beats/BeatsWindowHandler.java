@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.beats;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.graylog2.plugin.buffers.InputBuffer;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.journal.RawMessage;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Hands every {@link BeatsWindow} to the input as one batch and acknowledges it once all of its events have been
+ * written to the journal. Windows are acknowledged in the order they have been received, a window which could not be
+ * written is never acknowledged and will be resent by the client.
+ */
+public class BeatsWindowHandler extends SimpleChannelInboundHandler<BeatsWindow> {
+    private final MessageInput input;
+    private final Histogram connectionThroughput;
+    private final LongSupplier nanoClock;
+
+    private CompletableFuture<Void> acknowledged = CompletableFuture.completedFuture(null);
+    private long lastWindow;
+
+    public BeatsWindowHandler(MessageInput input, MetricRegistry metricRegistry) {
+        this(input, metricRegistry, System::nanoTime);
+    }
+
+    BeatsWindowHandler(MessageInput input, MetricRegistry metricRegistry, LongSupplier nanoClock) {
+        this.input = input;
+        this.connectionThroughput = metricRegistry.histogram("connectionThroughput");
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        lastWindow = nanoClock.getAsLong();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, BeatsWindow window) throws Exception {
+        final InetSocketAddress remoteAddress = (InetSocketAddress) ctx.channel().remoteAddress();
+        final List<RawMessage> messages = new ArrayList<>(window.events().size());
+        for (ByteBuf event : window.events()) {
+            final byte[] bytes = new byte[event.readableBytes()];
+            event.readBytes(bytes);
+            messages.add(new RawMessage(bytes, remoteAddress));
+        }
+
+        // Events per second of this connection, measured from the previous window
+        final long now = nanoClock.getAsLong();
+        final long elapsed = Math.max(now - lastWindow, 1);
+        lastWindow = now;
+        connectionThroughput.update(messages.size() * TimeUnit.SECONDS.toNanos(1) / elapsed);
+
+        final CompletableFuture<Void> written = new CompletableFuture<>();
+        input.processRawMessages(messages, new InputBuffer.BatchCallback() {
+            @Override
+            public void written() {
+                written.complete(null);
+            }
+
+            @Override
+            public void failed(Throwable cause) {
+                // Neither this window nor the following ones are acknowledged, the client sends them again
+                written.completeExceptionally(cause);
+            }
+        });
+        acknowledged = CompletableFuture.allOf(acknowledged, written)
+                .thenRun(() -> BeatsFrameDecoder.sendACK(ctx.channel(), window.sequenceNum()));
+    }
+}
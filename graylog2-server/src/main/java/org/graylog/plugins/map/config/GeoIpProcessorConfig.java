@@ -18,6 +18,7 @@ package org.graylog.plugins.map.config;
 
 import com.github.joschi.jadconfig.Parameter;
 import com.github.joschi.jadconfig.validators.PathReadableValidator;
+import com.github.joschi.jadconfig.validators.PositiveIntegerValidator;
 import jakarta.inject.Singleton;
 import org.graylog2.bindings.NamedBindingOverride;
 import org.graylog2.configuration.PathConfiguration;
@@ -31,6 +32,8 @@ public class GeoIpProcessorConfig extends PathConfiguration {
     private static final String PREFIX = "geo_ip_processor";
     public static final String S3_DOWNLOAD_LOCATION = PREFIX + "_s3_download_location";
     public static final String DISABLE_IPINFO_DB_TYPE_CHECK = PREFIX + "_disable_ipinfo_db_type_check";
+    public static final String RESOLVER_CACHE_SIZE = PREFIX + "_resolver_cache_size";
+    public static final int DEFAULT_RESOLVER_CACHE_SIZE = 10_000;
 
     @Parameter(value = S3_DOWNLOAD_LOCATION, validators = PathReadableValidator.class)
     private Path s3DownloadLocation;
@@ -42,4 +45,7 @@ public class GeoIpProcessorConfig extends PathConfiguration {
 
     @Parameter(value = DISABLE_IPINFO_DB_TYPE_CHECK)
     private boolean disableIpInfoDBTypeCheck = false;
+
+    @Parameter(value = RESOLVER_CACHE_SIZE, validators = PositiveIntegerValidator.class)
+    private int resolverCacheSize = DEFAULT_RESOLVER_CACHE_SIZE;
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.map.geoip;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.Nullable;
+import java.util.Locale;
+
+/**
+ * The resolved GeoIP data for a single address, with the derived message field values already computed.
+ *
+ * @param reserved    whether the address is in a reserved IP range (no lookups are done for those)
+ * @param location    the location information, if the address could be resolved by the city resolver
+ * @param asn         the ASN information, if the address could be resolved by the ASN resolver
+ * @param coordinates the "lat,long" coordinates string of the location
+ * @param countryName the country name of the location, if it is a valid geo name
+ * @param geoName     the "city, country ISO code" name of the location, if both are valid geo names
+ */
+public record GeoIpResolution(boolean reserved,
+                              @Nullable GeoLocationInformation location,
+                              @Nullable GeoAsnInformation asn,
+                              @Nullable String coordinates,
+                              @Nullable String countryName,
+                              @Nullable String geoName) {
+    public static final GeoIpResolution RESERVED = new GeoIpResolution(true, null, null, null, null, null);
+
+    public static GeoIpResolution create(@Nullable GeoLocationInformation location, @Nullable GeoAsnInformation asn) {
+        if (location == null) {
+            return new GeoIpResolution(false, null, asn, null, null, null);
+        }
+
+        final String coordinates = location.latitude() + "," + location.longitude();
+        final String countryName = areValidGeoNames(location.countryName()) ? location.countryName() : null;
+        final String geoName = areValidGeoNames(location.cityName(), location.countryIsoCode())
+                ? String.format(Locale.ENGLISH, "%s, %s", location.cityName(), location.countryIsoCode())
+                : null;
+
+        return new GeoIpResolution(false, location, asn, coordinates, countryName, geoName);
+    }
+
+    private static boolean areValidGeoNames(String... names) {
+        for (String name : names) {
+            if (StringUtils.isBlank(name) || "N/A".equalsIgnoreCase(name)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.map.geoip;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.net.InetAddress;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.graylog2.shared.metrics.MetricUtils.reRegister;
+
+/**
+ * Bounded cache for {@link GeoIpResolution resolved} GeoIP data, shared by the city and ASN resolvers.
+ * <p>
+ * Entries are keyed by {@link InetAddress}, whose {@code equals}/{@code hashCode} only consider the raw address
+ * bytes, so looking up an already parsed address doesn't allocate a separate key. Each
+ * {@link GeoIpResolverEngine} has its own cache, because the cached resolutions depend on its resolvers and
+ * configuration. The size and hit ratio gauges report the most recently created cache.
+ */
+public class GeoIpResolutionCache {
+    private final Cache<InetAddress, GeoIpResolution> cache;
+    private final Meter hits;
+    private final Meter misses;
+    private final Timer resolveTime;
+
+    public GeoIpResolutionCache(long maximumSize, MetricRegistry metricRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        this.hits = metricRegistry.meter(name(GeoIpResolutionCache.class, "hits"));
+        this.misses = metricRegistry.meter(name(GeoIpResolutionCache.class, "misses"));
+        this.resolveTime = metricRegistry.timer(name(GeoIpResolutionCache.class, "resolveTime"));
+        reRegister(metricRegistry, name(GeoIpResolutionCache.class, "size"), (Gauge<Long>) cache::estimatedSize);
+        reRegister(metricRegistry, name(GeoIpResolutionCache.class, "hitRatio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getOneMinuteRate(), hits.getOneMinuteRate() + misses.getOneMinuteRate());
+            }
+        });
+    }
+
+    /**
+     * Returns the cached resolution for the given address or resolves and caches it.
+     *
+     * @param address  the address to resolve
+     * @param resolver resolves the address on a cache miss
+     * @return the resolution for the given address
+     */
+    public GeoIpResolution get(InetAddress address, Function<InetAddress, GeoIpResolution> resolver) {
+        final GeoIpResolution cached = cache.getIfPresent(address);
+        if (cached != null) {
+            hits.mark();
+            return cached;
+        }
+
+        misses.mark();
+        final GeoIpResolution resolution;
+        try (final Timer.Context ignored = resolveTime.time()) {
+            resolution = resolver.apply(address);
+        }
+        cache.put(address, resolution);
+        return resolution;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
@@ -20,7 +20,6 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.net.InetAddresses;
-import org.apache.commons.lang3.StringUtils;
 import org.graylog.plugins.map.config.GeoIpResolverConfig;
 import org.graylog.plugins.map.config.S3GeoIpFileService;
 import org.graylog2.plugin.Message;
@@ -30,8 +29,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.net.InetAddress;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -71,12 +70,24 @@ public class GeoIpResolverEngine {
 
     private final GeoIpResolver<GeoLocationInformation> ipLocationResolver;
     private final GeoIpResolver<GeoAsnInformation> ipAsnResolver;
+    @Nullable
+    private final GeoIpResolutionCache resolutionCache;
     private final boolean enabled;
     private final boolean enforceGraylogSchema;
 
 
     public GeoIpResolverEngine(GeoIpVendorResolverService resolverService, GeoIpResolverConfig config, S3GeoIpFileService s3GeoIpFileService,
                                MetricRegistry metricRegistry) {
+        this(resolverService, config, s3GeoIpFileService, metricRegistry, null);
+    }
+
+    /**
+     * @param resolutionCache caches the resolutions of this engine, must not be shared with other engines because
+     *                        the cached resolutions depend on the resolvers and the configuration. Addresses are
+     *                        resolved on every lookup if {@code null}.
+     */
+    public GeoIpResolverEngine(GeoIpVendorResolverService resolverService, GeoIpResolverConfig config, S3GeoIpFileService s3GeoIpFileService,
+                               MetricRegistry metricRegistry, @Nullable GeoIpResolutionCache resolutionCache) {
         Timer resolveTime = metricRegistry.timer(name(GeoIpResolverEngine.class, "resolveTime"));
 
         enforceGraylogSchema = config.enforceGraylogSchema();
@@ -94,10 +105,34 @@ public class GeoIpResolverEngine {
         LOG.debug("'{}' Status Enabled: {}", ipAsnResolver.getClass().getSimpleName(), ipAsnResolver.isEnabled());
 
         this.enabled = ipLocationResolver.isEnabled() || ipAsnResolver.isEnabled();
-
+        this.resolutionCache = resolutionCache;
     }
 
     public boolean filter(Message message) {
+        return filter(message, null);
+    }
+
+    /**
+     * Adds the GeoIP data to all messages of a batch. Addresses which occur multiple times within the batch are
+     * only resolved once, even if they are no longer (or not yet) held by the resolution cache.
+     *
+     * @param messages the messages to process
+     * @return {@code false} if GeoIP resolution is disabled
+     */
+    public boolean filter(Iterable<Message> messages) {
+        if (!enabled) {
+            return false;
+        }
+
+        final Map<InetAddress, GeoIpResolution> batchResolutions = new HashMap<>();
+        for (Message message : messages) {
+            filter(message, batchResolutions);
+        }
+
+        return true;
+    }
+
+    private boolean filter(Message message, @Nullable Map<InetAddress, GeoIpResolution> batchResolutions) {
         if (!enabled) {
             return false;
         }
@@ -111,54 +146,73 @@ public class GeoIpResolverEngine {
                 continue;
             }
 
+            final GeoIpResolution resolution = batchResolutions == null
+                    ? resolve(address)
+                    : batchResolutions.computeIfAbsent(address, this::resolve);
+
             // For reserved IPs just mark as reserved. Otherwise, enforce Graylog schema on only relevant IP fields
             // or add legacy fields on all IP fields in the message if enforcement is disabled.
             final String prefix = enforceGraylogSchema ? ipAddressFields.getOrDefault(key, key) : key;
-            if (ReservedIpChecker.getInstance().isReservedIpAddress(address.getHostAddress())) {
+            if (resolution.reserved()) {
                 message.addField(prefix + "_reserved_ip", true);
             } else if (enforceGraylogSchema) {
-                addGIMGeoIpDataIfPresent(message, address, prefix);
+                addGIMGeoIpDataIfPresent(message, resolution, prefix);
             } else {
-                addLegacyGeoIpDataIfPresent(message, address, prefix);
+                addLegacyGeoIpDataIfPresent(message, resolution, prefix);
             }
         }
 
         return true;
     }
 
+    private GeoIpResolution resolve(InetAddress address) {
+        return resolutionCache == null ? doResolve(address) : resolutionCache.get(address, this::doResolve);
+    }
+
+    private GeoIpResolution doResolve(InetAddress address) {
+        if (ReservedIpChecker.getInstance().isReservedIpAddress(address.getHostAddress())) {
+            return GeoIpResolution.RESERVED;
+        }
+        final GeoLocationInformation location = ipLocationResolver.getGeoIpData(address).orElse(null);
+        // ASN data is only added to messages when the Graylog schema is enforced
+        final GeoAsnInformation asn = enforceGraylogSchema ? ipAsnResolver.getGeoIpData(address).orElse(null) : null;
+        return GeoIpResolution.create(location, asn);
+    }
+
     // Pre-4.3 logic for adding geo fields to message.
-    private void addLegacyGeoIpDataIfPresent(Message message, InetAddress address, String key) {
-        ipLocationResolver.getGeoIpData(address).ifPresent(locationInformation -> {
+    private void addLegacyGeoIpDataIfPresent(Message message, GeoIpResolution resolution, String key) {
+        final GeoLocationInformation locationInformation = resolution.location();
+        if (locationInformation != null) {
             // We will store the coordinates as a "lat,long" string
-            message.addField(key + "_geolocation", locationInformation.latitude() + "," + locationInformation.longitude());
+            message.addField(key + "_geolocation", resolution.coordinates());
             message.addField(key + "_country_code", locationInformation.countryIsoCode());
             message.addField(key + "_city_name", locationInformation.cityName());
-        });
+        }
     }
 
-    private void addGIMGeoIpDataIfPresent(Message message, InetAddress address, String newFieldPrefix) {
-        ipLocationResolver.getGeoIpData(address).ifPresent(locationInformation -> {
-            message.addField(newFieldPrefix + "_geo_coordinates", locationInformation.latitude() + "," + locationInformation.longitude());
+    private void addGIMGeoIpDataIfPresent(Message message, GeoIpResolution resolution, String newFieldPrefix) {
+        final GeoLocationInformation locationInformation = resolution.location();
+        if (locationInformation != null) {
+            message.addField(newFieldPrefix + "_geo_coordinates", resolution.coordinates());
             message.addField(newFieldPrefix + "_geo_country_iso", locationInformation.countryIsoCode());
             message.addField(newFieldPrefix + "_geo_city", locationInformation.cityName());
             message.addField(newFieldPrefix + "_geo_region", locationInformation.region());
             message.addField(newFieldPrefix + "_geo_timezone", locationInformation.timeZone());
 
-            if (areValidGeoNames(locationInformation.countryName())) {
-                message.addField(newFieldPrefix + "_geo_country", locationInformation.countryName());
+            if (resolution.countryName() != null) {
+                message.addField(newFieldPrefix + "_geo_country", resolution.countryName());
             }
 
-            if (areValidGeoNames(locationInformation.cityName(), locationInformation.countryIsoCode())) {
-                String name = String.format(Locale.ENGLISH, "%s, %s", locationInformation.cityName(), locationInformation.countryIsoCode());
-                message.addField(newFieldPrefix + "_geo_name", name);
+            if (resolution.geoName() != null) {
+                message.addField(newFieldPrefix + "_geo_name", resolution.geoName());
             }
-        });
-
-        ipAsnResolver.getGeoIpData(address).ifPresent(info -> {
+        }
 
+        final GeoAsnInformation info = resolution.asn();
+        if (info != null) {
             message.addField(newFieldPrefix + "_as_organization", info.organization());
             message.addField(newFieldPrefix + "_as_number", info.asn());
-        });
+        }
     }
 
     /**
@@ -193,17 +247,6 @@ public class GeoIpResolverEngine {
         return ipAddress;
     }
 
-    private boolean areValidGeoNames(String... names) {
-
-        for (String name : names) {
-            if (StringUtils.isBlank(name) || "N/A".equalsIgnoreCase(name)) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
     @Nullable
     @VisibleForTesting
     InetAddress getIpFromFieldValue(String fieldValue) {
@@ -19,13 +19,14 @@ package org.graylog.plugins.map.geoip.processor;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import org.graylog.plugins.map.config.GeoIpProcessorConfig;
 import org.graylog.plugins.map.config.GeoIpResolverConfig;
 import org.graylog.plugins.map.config.S3GeoIpFileService;
 import org.graylog.plugins.map.geoip.GeoIpDbFileChangedEvent;
+import org.graylog.plugins.map.geoip.GeoIpResolutionCache;
 import org.graylog.plugins.map.geoip.GeoIpResolverEngine;
 import org.graylog.plugins.map.geoip.GeoIpVendorResolverService;
 import org.graylog2.cluster.ClusterConfigChangedEvent;
-import org.graylog2.plugin.Message;
 import org.graylog2.plugin.Messages;
 import org.graylog2.plugin.ServerStatus;
 import org.graylog2.plugin.cluster.ClusterConfigService;
@@ -61,6 +62,7 @@ public class GeoIpProcessor implements MessageProcessor {
     private final GeoIpVendorResolverService geoIpVendorResolverService;
     private final ServerStatus serverStatus;
     private final S3GeoIpFileService s3GeoIpFileService;
+    private final int resolverCacheSize;
 
     private final AtomicReference<GeoIpResolverEngine> filterEngine = new AtomicReference<>(null);
 
@@ -71,13 +73,15 @@ public class GeoIpProcessor implements MessageProcessor {
                           MetricRegistry metricRegistry,
                           GeoIpVendorResolverService geoIpVendorResolverService,
                           ServerStatus serverStatus,
-                          S3GeoIpFileService s3GeoIpFileService) {
+                          S3GeoIpFileService s3GeoIpFileService,
+                          @Named(GeoIpProcessorConfig.RESOLVER_CACHE_SIZE) int resolverCacheSize) {
         this.clusterConfigService = clusterConfigService;
         this.scheduler = scheduler;
         this.metricRegistry = metricRegistry;
         this.geoIpVendorResolverService = geoIpVendorResolverService;
         this.serverStatus = serverStatus;
         this.s3GeoIpFileService = s3GeoIpFileService;
+        this.resolverCacheSize = resolverCacheSize;
 
         eventBus.register(this);
     }
@@ -96,9 +100,7 @@ public class GeoIpProcessor implements MessageProcessor {
             reload();
         }
 
-        for (Message message : messages) {
-            filterEngine.get().filter(message);
-        }
+        filterEngine.get().filter(messages);
 
         return messages;
     }
@@ -116,7 +118,6 @@ public class GeoIpProcessor implements MessageProcessor {
     @Subscribe
     @SuppressWarnings("unused")
     public void onDatabaseFileChangedEvent(GeoIpDbFileChangedEvent event) {
-
         scheduler.schedule(this::reload, 0, TimeUnit.SECONDS);
     }
 
@@ -125,6 +126,8 @@ public class GeoIpProcessor implements MessageProcessor {
                 GeoIpResolverConfig.defaultConfig());
 
         LOG.debug("Updating GeoIP resolver engine - {}", newConfig);
-        filterEngine.set(new GeoIpResolverEngine(geoIpVendorResolverService, newConfig, s3GeoIpFileService, metricRegistry));
+        // The new engine starts with an empty cache, resolutions of the previous engine are never reused
+        final GeoIpResolutionCache resolutionCache = new GeoIpResolutionCache(resolverCacheSize, metricRegistry);
+        filterEngine.set(new GeoIpResolverEngine(geoIpVendorResolverService, newConfig, s3GeoIpFileService, metricRegistry, resolutionCache));
     }
 }
@@ -16,10 +16,13 @@
  */
 package org.graylog.plugins.netflow.codecs;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
 import com.google.inject.assistedinject.Assisted;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnsafeByteOperations;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
@@ -83,10 +86,12 @@ public class NetFlowCodec extends AbstractCodec implements MultiMessageCodec {
     private final NetFlowV9FieldTypeRegistry typeRegistry;
     private final NetflowV9CodecAggregator netflowV9CodecAggregator;
     private final NetFlowFormatter netFlowFormatter;
+    private final ParsedTemplateCache<NetFlowV9Template> templateCache;
+    private final ParsedTemplateCache<NetFlowV9OptionTemplate> optionTemplateCache;
 
     @Inject
     protected NetFlowCodec(@Assisted Configuration configuration, NetflowV9CodecAggregator netflowV9CodecAggregator,
-                           NetFlowFormatter netFlowFormatter) throws IOException {
+                           NetFlowFormatter netFlowFormatter, MetricRegistry metricRegistry) throws IOException {
         super(configuration);
         this.netflowV9CodecAggregator = netflowV9CodecAggregator;
         this.netFlowFormatter = netFlowFormatter;
@@ -99,6 +104,10 @@ public class NetFlowCodec extends AbstractCodec implements MultiMessageCodec {
                 this.typeRegistry = NetFlowV9FieldTypeRegistry.create(inputStream);
             }
         }
+        this.templateCache = new ParsedTemplateCache<>(NetFlowCodec.class,
+                buf -> NetFlowV9Parser.parseTemplate(buf, typeRegistry), metricRegistry);
+        this.optionTemplateCache = new ParsedTemplateCache<>(NetFlowCodec.class,
+                buf -> NetFlowV9Parser.parseOptionTemplate(buf, typeRegistry), metricRegistry);
     }
 
     @Nullable
@@ -176,23 +185,22 @@ public class NetFlowCodec extends AbstractCodec implements MultiMessageCodec {
 
     @VisibleForTesting
     List<NetFlowV9Packet> decodeV9Packets(ByteBuf buffer) throws InvalidProtocolBufferException {
-        byte[] v9JournalEntry = new byte[buffer.readableBytes()];
-        buffer.readBytes(v9JournalEntry);
-        final NetFlowV9Journal.RawNetflowV9 rawNetflowV9 = NetFlowV9Journal.RawNetflowV9.parseFrom(v9JournalEntry);
+        // The templates and packets of the journal entry are views of the buffer instead of copies
+        final CodedInputStream input = UnsafeByteOperations.unsafeWrap(buffer.nioBuffer()).newCodedInput();
+        input.enableAliasing(true);
+        final NetFlowV9Journal.RawNetflowV9 rawNetflowV9 = NetFlowV9Journal.RawNetflowV9.parser().parseFrom(input);
+        buffer.skipBytes(buffer.readableBytes());
 
-        // parse all templates used in the packet
+        // the same templates are contained in every journal entry of an exporter, so they are only parsed once
         final Map<Integer, NetFlowV9Template> templateMap = Maps.newHashMap();
-        rawNetflowV9.getTemplatesMap().forEach((templateId, byteString) -> {
-            final NetFlowV9Template netFlowV9Template = NetFlowV9Parser.parseTemplate(
-                    Unpooled.wrappedBuffer(byteString.toByteArray()), typeRegistry);
-            templateMap.put(templateId, netFlowV9Template);
-        });
+        rawNetflowV9.getTemplatesMap().forEach((templateId, byteString) ->
+                templateMap.put(templateId, templateCache.get(templateId, byteString)));
         final NetFlowV9OptionTemplate[] optionTemplate = {null};
         rawNetflowV9.getOptionTemplateMap().forEach((templateId, byteString) ->
-                optionTemplate[0] = NetFlowV9Parser.parseOptionTemplate(Unpooled.wrappedBuffer(byteString.toByteArray()), typeRegistry));
+                optionTemplate[0] = optionTemplateCache.get(templateId, byteString));
 
         return rawNetflowV9.getPacketsList().stream()
-                .map(bytes -> Unpooled.wrappedBuffer(bytes.toByteArray()))
+                .map(bytes -> Unpooled.wrappedBuffer(bytes.asReadOnlyByteBuffer()))
                 .map(buf -> NetFlowV9Parser.parsePacket(buf, typeRegistry, templateMap, optionTemplate[0]))
                 .collect(Collectors.toList());
     }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.netflow.codecs;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Caches parsed flow templates by their template id and content.
+ * <p>
+ * Journal entries of NetFlow v9 and IPFIX packets contain the raw bytes of every template their flows refer to, so
+ * the same templates would be parsed again for every entry. Templates with the same content are parsed to the same
+ * result, so a cached template is shared between exporters which send identical templates.
+ *
+ * @param <T> the type of the parsed template
+ */
+public class ParsedTemplateCache<T> {
+    private final Cache<Key, T> cache = Caffeine.newBuilder()
+            .maximumSize(5000)
+            .build();
+    private final Function<ByteBuf, T> parser;
+    private final Meter hits;
+    private final Meter misses;
+
+    /**
+     * @param owner  class whose name is used as prefix of the cache metrics
+     * @param parser parses a template from a buffer containing exactly its bytes
+     */
+    public ParsedTemplateCache(Class<?> owner, Function<ByteBuf, T> parser, MetricRegistry metricRegistry) {
+        this.parser = parser;
+        this.hits = metricRegistry.meter(name(owner, "templateCache", "hits"));
+        this.misses = metricRegistry.meter(name(owner, "templateCache", "misses"));
+    }
+
+    public T get(int templateId, ByteString bytes) {
+        final T cached = cache.getIfPresent(new Key(templateId, bytes));
+        if (cached != null) {
+            hits.mark();
+            return cached;
+        }
+        misses.mark();
+        final T template = parser.apply(Unpooled.wrappedBuffer(bytes.asReadOnlyByteBuffer()));
+        // The bytes may be a view of the complete journal entry, only a copy of the template itself is retained
+        cache.put(new Key(templateId, ByteString.copyFrom(bytes.asReadOnlyByteBuffer())), template);
+        return template;
+    }
+
+    private record Key(int templateId, ByteString bytes) {}
+}
@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.threatintel.adapters.spamhaus;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -26,16 +27,16 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import com.google.inject.assistedinject.Assisted;
-import org.apache.commons.net.util.SubnetUtils;
 import org.graylog.autovalue.WithBeanGetter;
 import org.graylog.plugins.threatintel.PluginConfigService;
 import org.graylog.plugins.threatintel.tools.AdapterDisabledException;
+import org.graylog.plugins.threatintel.tools.IpSubnetTable;
 import org.graylog2.lookup.adapters.dsvhttp.HTTPFileRetriever;
 import org.graylog2.plugin.lookup.LookupCachePurge;
 import org.graylog2.plugin.lookup.LookupDataAdapter;
 import org.graylog2.plugin.lookup.LookupDataAdapterConfiguration;
 import org.graylog2.plugin.lookup.LookupResult;
-import org.graylog2.shared.utilities.ExceptionUtils;
+import org.graylog2.shared.metrics.MetricUtils;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +48,7 @@ import jakarta.validation.constraints.Min;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
@@ -65,7 +67,9 @@ public class SpamhausEDROPDataAdapter extends LookupDataAdapter {
     // the current cache-control header says max-age 14400 seconds
     private static final Duration REFRESH_INTERVAL = Duration.standardHours(4);
 
-    private final AtomicReference<Map<String, Map<SubnetUtils.SubnetInfo, String>>> subnets = new AtomicReference<>(Collections.emptyMap());
+    private static final LookupResult NOT_LISTED = LookupResult.single(false);
+
+    private final AtomicReference<Subnets> subnets = new AtomicReference<>(Subnets.EMPTY);
     private final HTTPFileRetriever httpFileRetriever;
     private final PluginConfigService pluginConfigService;
 
@@ -79,6 +83,11 @@ public class SpamhausEDROPDataAdapter extends LookupDataAdapter {
         super(id, name, config, metricRegistry);
         this.httpFileRetriever = httpFileRetriever;
         this.pluginConfigService = pluginConfigService;
+
+        MetricUtils.reRegister(metricRegistry, MetricRegistry.name("org.graylog2.lookup.adapters", id, "entries"),
+                (Gauge<Integer>) () -> subnets.get().table().size());
+        MetricUtils.reRegister(metricRegistry, MetricRegistry.name("org.graylog2.lookup.adapters", id, "estimatedSize"),
+                (Gauge<Long>) () -> subnets.get().table().estimatedSizeInBytes());
     }
 
     @Override
@@ -86,14 +95,14 @@ public class SpamhausEDROPDataAdapter extends LookupDataAdapter {
         if (!pluginConfigService.config().getCurrent().spamhausEnabled()) {
             throw new AdapterDisabledException("Spamhaus service is disabled, not starting (E)DROP adapter. To enable it please go to System / Configurations.");
         }
-        final ImmutableMap.Builder<String, Map<SubnetUtils.SubnetInfo, String>> builder = ImmutableMap.builder();
+        final ImmutableMap.Builder<String, Map<String, String>> builder = ImmutableMap.builder();
         for (String list : lists) {
-            final Map<SubnetUtils.SubnetInfo, String> subnetMap = fetchSubnetsFromEDROPLists(list);
+            final Map<String, String> subnetMap = fetchSubnetsFromEDROPLists(list);
             if (subnetMap != null) {
                 builder.put(list, subnetMap);
             }
         }
-        this.subnets.set(builder.build());
+        this.subnets.set(Subnets.create(builder.build()));
     }
 
     @Override
@@ -115,10 +124,10 @@ public class SpamhausEDROPDataAdapter extends LookupDataAdapter {
             throw new AdapterDisabledException("Spamhaus service is disabled, not refreshing (E)DROP adapter. To enable it please go to System / Configurations.");
         }
         // keep the old results, which will get overridden if we can fetch new lists
-        final Map<String, Map<SubnetUtils.SubnetInfo, String>> result = new HashMap<>(this.subnets.get());
+        final Map<String, Map<String, String>> result = new HashMap<>(this.subnets.get().lists());
         boolean hasUpdates = false;
         for (String list : lists) {
-            final Map<SubnetUtils.SubnetInfo, String> newList = fetchSubnetsFromEDROPLists(list);
+            final Map<String, String> newList = fetchSubnetsFromEDROPLists(list);
             if (newList != null) {
                 result.put(list, newList);
                 hasUpdates = true;
@@ -128,12 +137,12 @@ public class SpamhausEDROPDataAdapter extends LookupDataAdapter {
         if (!hasUpdates) {
             return;
         }
-        this.subnets.set(ImmutableMap.copyOf(result));
+        this.subnets.set(Subnets.create(result));
         cachePurge.purgeAll();
     }
 
-    private Map<SubnetUtils.SubnetInfo, String> fetchSubnetsFromEDROPLists(String list) {
-        final ImmutableMap.Builder<SubnetUtils.SubnetInfo, String> builder = ImmutableMap.builder();
+    private Map<String, String> fetchSubnetsFromEDROPLists(String list) {
+        final Map<String, String> subnets = new LinkedHashMap<>();
         try {
             final Optional<String> body = httpFileRetriever.fetchFileIfNotModified(list);
             if (body.isPresent()) {
@@ -144,8 +153,7 @@ public class SpamhausEDROPDataAdapter extends LookupDataAdapter {
                         if (!line.isEmpty() && !line.startsWith(";") && line.contains(";")) {
                             final String[] parts = line.split(";");
 
-                            final SubnetUtils su = new SubnetUtils(parts[0].trim());
-                            builder.put(su.getInfo(), parts.length > 1 ? parts[1].trim() : "N/A");
+                            subnets.putIfAbsent(parts[0].trim(), parts.length > 1 ? parts[1].trim() : "N/A");
                         }
                     }
                 }
@@ -157,35 +165,23 @@ public class SpamhausEDROPDataAdapter extends LookupDataAdapter {
             return null;
         }
 
-        return builder.build();
+        return Collections.unmodifiableMap(subnets);
     }
 
     @Override
     public LookupResult doGet(Object key) {
-        final String ip = String.valueOf(key);
-
-        if (this.subnets.get().isEmpty()) {
+        final Subnets current = this.subnets.get();
+        if (current.lists().isEmpty()) {
             return LookupResult.empty();
         }
 
-        // TODO potentially use a RangeMap here instead of doing linear searches all the time
-        // We should be able to use ranges of the integer values of lowAddress and highAddress as keys
-        final Optional<Map.Entry<SubnetUtils.SubnetInfo, String>> match;
-        try {
-            match = subnets.get().values()
-                    .stream()
-                    .flatMap(list -> list.entrySet().stream())
-                    .filter(entry -> entry.getKey().isInRange(ip))
-                    .findFirst();
-        } catch (IllegalArgumentException e) {
+        final LookupResult result = current.table().lookup(String.valueOf(key), NOT_LISTED);
+        if (result == null) {
             // Gracefully handle the case when a blank or invalid IP is supplied.
-            LOG.debug("[{}] is an invalid IP address. Lookup aborted. {}", ip, ExceptionUtils.getRootCauseMessage(e));
+            LOG.debug("[{}] is an invalid IP address. Lookup aborted.", key);
             return LookupResult.empty();
         }
-
-        return match.map(entry -> LookupResult.multi(true,
-                ImmutableMap.of("sbl_id", entry.getValue(), "subnet", entry.getKey().getCidrSignature())
-        )).orElse(LookupResult.single(false));
+        return result;
     }
 
     @Override
@@ -193,6 +189,30 @@ public class SpamhausEDROPDataAdapter extends LookupDataAdapter {
 
     }
 
+    /**
+     * The fetched (E)DROP lists, which are kept to rebuild the lookup table if only some of them have been updated,
+     * and the lookup table with precomputed results built from them.
+     */
+    private record Subnets(Map<String, Map<String, String>> lists, IpSubnetTable<LookupResult> table) {
+        static final Subnets EMPTY = new Subnets(Collections.emptyMap(), IpSubnetTable.empty());
+
+        static Subnets create(Map<String, Map<String, String>> lists) {
+            // Keep returning the first matching subnet in list order, like the previous linear search did
+            final IpSubnetTable.Builder<LookupResult> builder = IpSubnetTable.<LookupResult>builder().firstMatch();
+            for (String list : SpamhausEDROPDataAdapter.lists) {
+                final Map<String, String> subnets = lists.getOrDefault(list, Collections.emptyMap());
+                subnets.forEach((subnet, sblId) -> {
+                    try {
+                        builder.add(subnet, LookupResult.multi(true, ImmutableMap.of("sbl_id", sblId, "subnet", subnet)));
+                    } catch (IllegalArgumentException e) {
+                        LOG.warn("Skipping invalid subnet <{}> in Spamhaus (E)DROP list <{}>: {}", subnet, list, e.getMessage());
+                    }
+                });
+            }
+            return new Subnets(ImmutableMap.copyOf(lists), builder.build());
+        }
+    }
+
     public interface Factory extends LookupDataAdapter.Factory<SpamhausEDROPDataAdapter> {
         @Override
         SpamhausEDROPDataAdapter create(@Assisted("id") String id,
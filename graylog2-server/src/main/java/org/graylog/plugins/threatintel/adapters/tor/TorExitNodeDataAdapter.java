@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.threatintel.adapters.tor;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -32,26 +33,30 @@ import okhttp3.ResponseBody;
 import org.graylog.autovalue.WithBeanGetter;
 import org.graylog.plugins.threatintel.PluginConfigService;
 import org.graylog.plugins.threatintel.tools.AdapterDisabledException;
+import org.graylog.plugins.threatintel.tools.IpSubnetTable;
 import org.graylog2.plugin.lookup.LookupCachePurge;
 import org.graylog2.plugin.lookup.LookupDataAdapter;
 import org.graylog2.plugin.lookup.LookupDataAdapterConfiguration;
 import org.graylog2.plugin.lookup.LookupResult;
+import org.graylog2.shared.metrics.MetricUtils;
 import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import jakarta.inject.Inject;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.StringJoiner;
 
 public class TorExitNodeDataAdapter extends LookupDataAdapter {
+    private static final Logger LOG = LoggerFactory.getLogger(TorExitNodeDataAdapter.class);
     public static final String NAME = "torexitnode";
     private final OkHttpClient client;
     private final TorExitNodeListParser parser;
     private final PluginConfigService pluginConfigService;
-    private Map<String, List<String>> torExitNodes = Collections.emptyMap();
+    private volatile IpSubnetTable<LookupResult> torExitNodes = IpSubnetTable.empty();
 
     @Inject
     public TorExitNodeDataAdapter(
@@ -71,6 +76,11 @@ public class TorExitNodeDataAdapter extends LookupDataAdapter {
 
         this.parser = torExitNodeListParser;
         this.pluginConfigService = pluginConfigService;
+
+        MetricUtils.reRegister(metricRegistry, MetricRegistry.name("org.graylog2.lookup.adapters", id, "entries"),
+                (Gauge<Integer>) () -> torExitNodes.size());
+        MetricUtils.reRegister(metricRegistry, MetricRegistry.name("org.graylog2.lookup.adapters", id, "estimatedSize"),
+                (Gauge<Long>) () -> torExitNodes.estimatedSizeInBytes());
     }
 
     public interface Factory extends LookupDataAdapter.Factory<TorExitNodeDataAdapter> {
@@ -100,10 +110,24 @@ public class TorExitNodeDataAdapter extends LookupDataAdapter {
 
         final ResponseBody body = torExitNodeListResponse.body();
         if (torExitNodeListResponse.isSuccessful() && body != null) {
-            this.torExitNodes = this.parser.parse(body.string());
+            this.torExitNodes = buildTable(this.parser.parse(body.string()));
         }
     }
 
+    private static IpSubnetTable<LookupResult> buildTable(Map<String, List<String>> exitNodes) {
+        final IpSubnetTable.Builder<LookupResult> builder = IpSubnetTable.builder();
+        exitNodes.forEach((ip, nodeIds) -> {
+            try {
+                final StringJoiner stringJoiner = new StringJoiner(", ");
+                nodeIds.forEach(stringJoiner::add);
+                builder.add(ip, LookupResult.multi(stringJoiner.toString(), Map.of("node_ids", nodeIds)));
+            } catch (IllegalArgumentException e) {
+                LOG.debug("Skipping invalid TOR exit node address <{}>: {}", ip, e.getMessage());
+            }
+        });
+        return builder.build();
+    }
+
     @Override
     protected void doStop() throws Exception {
     }
@@ -124,14 +148,8 @@ public class TorExitNodeDataAdapter extends LookupDataAdapter {
 
     @Override
     protected LookupResult doGet(Object key) {
-        final List<String> value = this.torExitNodes.get(key.toString());
-        if (value != null) {
-            final StringJoiner stringJoiner = new StringJoiner(", ");
-            value.forEach(stringJoiner::add);
-            return LookupResult.multi(stringJoiner.toString(), Map.of("node_ids", value));
-        } else {
-            return LookupResult.empty();
-        }
+        final LookupResult result = this.torExitNodes.lookup(key.toString());
+        return result != null ? result : LookupResult.empty();
     }
 
     @Override
@@ -0,0 +1,421 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.threatintel.tools;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable table of IPv4 and IPv6 subnets (or single addresses) mapped to values.
+ * <p>
+ * IPv4 subnets are kept as sorted arrays of primitive range bounds which are binary searched. IPv6 subnets are kept
+ * in an array-backed binary trie. If an address is contained in multiple subnets, the value of the most specific
+ * subnet is returned, or the value of the subnet which has been added first if the table has been built with
+ * {@link Builder#firstMatch()}.
+ * <p>
+ * Lookups parse the address string directly and don't allocate, which makes the table suitable for lookups on the
+ * message processing path. Updates are done by building a new table and swapping the reference.
+ *
+ * @param <V> the value type
+ */
+public final class IpSubnetTable<V> {
+    private static final IpSubnetTable<?> EMPTY = new Builder<>().build();
+    private static final int NO_VALUE = -1;
+    private static final ThreadLocal<int[]> IPV6_GROUPS = ThreadLocal.withInitial(() -> new int[8]);
+
+    // IPv4 range bounds with flipped sign bits, so they can be compared as signed integers
+    private final int[] ipv4Starts;
+    private final int[] ipv4Ends;
+    // Largest range end up to and including the index, used to stop scanning for enclosing ranges early
+    private final int[] ipv4MaxEnds;
+    private final Object[] ipv4Values;
+    // Insertion order of the IPv4 ranges, only used for first match lookups
+    private final int[] ipv4Order;
+    private final boolean firstMatch;
+
+    // IPv6 trie nodes, node 0 is the root
+    private final int[] ipv6Zero;
+    private final int[] ipv6One;
+    private final int[] ipv6ValueIndex;
+    private final Object[] ipv6Values;
+
+    private IpSubnetTable(int[] ipv4Starts, int[] ipv4Ends, int[] ipv4MaxEnds, Object[] ipv4Values, int[] ipv4Order,
+                          boolean firstMatch, int[] ipv6Zero, int[] ipv6One, int[] ipv6ValueIndex, Object[] ipv6Values) {
+        this.ipv4Starts = ipv4Starts;
+        this.ipv4Ends = ipv4Ends;
+        this.ipv4MaxEnds = ipv4MaxEnds;
+        this.ipv4Values = ipv4Values;
+        this.ipv4Order = ipv4Order;
+        this.firstMatch = firstMatch;
+        this.ipv6Zero = ipv6Zero;
+        this.ipv6One = ipv6One;
+        this.ipv6ValueIndex = ipv6ValueIndex;
+        this.ipv6Values = ipv6Values;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> IpSubnetTable<V> empty() {
+        return (IpSubnetTable<V>) EMPTY;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Returns the value of the subnet containing the given address.
+     *
+     * @param address an IPv4 or IPv6 address string
+     * @return the value or {@code null} if the address isn't contained in any subnet or isn't a valid address
+     */
+    @Nullable
+    public V lookup(@Nullable String address) {
+        return lookup(address, null);
+    }
+
+    /**
+     * Returns the value of the subnet containing the given address.
+     *
+     * @param address  an IPv4 or IPv6 address string
+     * @param notFound the value to return if the address isn't contained in any subnet
+     * @return the value, {@code notFound} if the address isn't contained in any subnet or {@code null} if the address
+     * isn't valid
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V lookup(@Nullable String address, @Nullable V notFound) {
+        if (address == null) {
+            return null;
+        }
+        final Object value;
+        if (address.indexOf(':') < 0) {
+            final long ipv4 = parseIpv4(address, 0, address.length());
+            if (ipv4 < 0) {
+                return null;
+            }
+            value = lookupIpv4((int) ipv4);
+        } else {
+            final int[] groups = IPV6_GROUPS.get();
+            if (!parseIpv6(address, groups)) {
+                return null;
+            }
+            value = lookupIpv6(groups);
+        }
+        return value == null ? notFound : (V) value;
+    }
+
+    private Object lookupIpv4(int address) {
+        final int key = address ^ Integer.MIN_VALUE;
+        // Find the last range starting at or before the address
+        int low = 0;
+        int high = ipv4Starts.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (ipv4Starts[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // Ranges are sorted by start, so the first enclosing range going backwards is the most specific one
+        int match = -1;
+        for (int i = high; i >= 0 && ipv4MaxEnds[i] >= key; i--) {
+            if (ipv4Ends[i] >= key) {
+                if (!firstMatch) {
+                    return ipv4Values[i];
+                }
+                if (match < 0 || ipv4Order[i] < ipv4Order[match]) {
+                    match = i;
+                }
+            }
+        }
+        return match < 0 ? null : ipv4Values[match];
+    }
+
+    private Object lookupIpv6(int[] groups) {
+        int node = 0;
+        int valueIndex = ipv6ValueIndex[0];
+        for (int bit = 0; bit < 128; bit++) {
+            node = isBitSet(groups, bit) ? ipv6One[node] : ipv6Zero[node];
+            if (node == 0) {
+                break;
+            }
+            final int nodeValueIndex = ipv6ValueIndex[node];
+            // Values are indexed in insertion order
+            if (nodeValueIndex != NO_VALUE && (!firstMatch || valueIndex == NO_VALUE || nodeValueIndex < valueIndex)) {
+                valueIndex = nodeValueIndex;
+            }
+        }
+        return valueIndex == NO_VALUE ? null : ipv6Values[valueIndex];
+    }
+
+    /**
+     * @return the number of subnets in the table
+     */
+    public int size() {
+        return ipv4Values.length + ipv6Values.length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the approximate number of bytes used by the table itself, not including the values
+     */
+    public long estimatedSizeInBytes() {
+        final long ints = 4L * ipv4Starts.length + 3L * ipv6Zero.length;
+        final long references = (long) ipv4Values.length + ipv6Values.length;
+        return ints * Integer.BYTES + references * 8;
+    }
+
+    private static boolean isBitSet(int[] groups, int bit) {
+        return (groups[bit >>> 4] & (0x8000 >>> (bit & 15))) != 0;
+    }
+
+    /**
+     * Parses an IPv4 address in dotted-quad notation.
+     *
+     * @return the address as unsigned integer or {@code -1} if the string isn't a valid address
+     */
+    private static long parseIpv4(String s, int from, int to) {
+        long result = 0;
+        int octets = 0;
+        int i = from;
+        while (i < to) {
+            int value = 0;
+            int digits = 0;
+            while (i < to && digits < 4) {
+                final char c = s.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > 3 || value > 255 || octets == 4) {
+                return -1;
+            }
+            result = (result << 8) | value;
+            octets++;
+            if (i < to) {
+                if (s.charAt(i) != '.' || i == to - 1) {
+                    return -1;
+                }
+                i++;
+            }
+        }
+        return octets == 4 ? result : -1;
+    }
+
+    /**
+     * Parses an IPv6 address into its eight 16-bit groups. Supports "::" compression and embedded IPv4 addresses,
+     * but no zone indices.
+     *
+     * @return {@code false} if the string isn't a valid address
+     */
+    private static boolean parseIpv6(String s, int[] groups) {
+        final int length = s.length();
+        int count = 0;
+        int compressedAt = -1;
+        int i = 0;
+        if (s.startsWith("::")) {
+            compressedAt = 0;
+            i = 2;
+        } else if (s.startsWith(":")) {
+            return false;
+        }
+        while (i < length) {
+            final int start = i;
+            int value = 0;
+            while (i < length && i - start < 5) {
+                final int digit = Character.digit(s.charAt(i), 16);
+                if (digit < 0) {
+                    break;
+                }
+                value = (value << 4) | digit;
+                i++;
+            }
+            if (i < length && s.charAt(i) == '.') {
+                // Embedded IPv4 address in the last two groups
+                final long ipv4 = parseIpv4(s, start, length);
+                if (ipv4 < 0 || count > 6) {
+                    return false;
+                }
+                groups[count++] = (int) (ipv4 >>> 16);
+                groups[count++] = (int) (ipv4 & 0xffff);
+                i = length;
+                break;
+            }
+            if (i == start || i - start > 4 || count == 8) {
+                return false;
+            }
+            groups[count++] = value;
+            if (i == length) {
+                break;
+            }
+            if (s.charAt(i) != ':') {
+                return false;
+            }
+            i++;
+            if (i < length && s.charAt(i) == ':') {
+                if (compressedAt >= 0) {
+                    return false;
+                }
+                compressedAt = count;
+                i++;
+            } else if (i == length) {
+                return false;
+            }
+        }
+        if (compressedAt < 0) {
+            return count == 8;
+        }
+        if (count > 7) {
+            return false;
+        }
+        // Move the groups after "::" to the end and fill the gap with zeros
+        final int shift = 8 - count;
+        for (int g = count - 1; g >= compressedAt; g--) {
+            groups[g + shift] = groups[g];
+        }
+        Arrays.fill(groups, compressedAt, compressedAt + shift, 0);
+        return true;
+    }
+
+    public static final class Builder<V> {
+        private final List<Ipv4Range> ipv4Ranges = new ArrayList<>();
+        private final List<Ipv6Prefix> ipv6Prefixes = new ArrayList<>();
+        private boolean firstMatch = false;
+
+        private Builder() {
+        }
+
+        /**
+         * Return the value of the subnet which has been added first instead of the most specific one, if an address
+         * is contained in multiple subnets. Lookups have to check all enclosing subnets in this case.
+         */
+        public Builder<V> firstMatch() {
+            this.firstMatch = true;
+            return this;
+        }
+
+        /**
+         * Adds a subnet in CIDR notation (e.g. {@code 192.168.0.0/16} or {@code 2001:db8::/32}) or a single address.
+         *
+         * @throws IllegalArgumentException if the subnet isn't valid
+         */
+        public Builder<V> add(String subnet, V value) {
+            final int slash = subnet.indexOf('/');
+            final String address = slash < 0 ? subnet : subnet.substring(0, slash);
+            final boolean ipv6 = address.indexOf(':') >= 0;
+            final int maxPrefixLength = ipv6 ? 128 : 32;
+            final int prefixLength;
+            try {
+                prefixLength = slash < 0 ? maxPrefixLength : Integer.parseInt(subnet.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length in subnet <" + subnet + ">", e);
+            }
+            if (prefixLength < 0 || prefixLength > maxPrefixLength) {
+                throw new IllegalArgumentException("Invalid prefix length in subnet <" + subnet + ">");
+            }
+
+            if (ipv6) {
+                final int[] groups = new int[8];
+                if (!parseIpv6(address, groups)) {
+                    throw new IllegalArgumentException("Invalid IPv6 subnet <" + subnet + ">");
+                }
+                ipv6Prefixes.add(new Ipv6Prefix(groups, prefixLength, value));
+            } else {
+                final long parsed = parseIpv4(address, 0, address.length());
+                if (parsed < 0) {
+                    throw new IllegalArgumentException("Invalid IPv4 subnet <" + subnet + ">");
+                }
+                final long mask = prefixLength == 0 ? 0 : (0xffffffffL << (32 - prefixLength)) & 0xffffffffL;
+                final long start = parsed & mask;
+                final long end = start | (~mask & 0xffffffffL);
+                ipv4Ranges.add(new Ipv4Range((int) start ^ Integer.MIN_VALUE, (int) end ^ Integer.MIN_VALUE, ipv4Ranges.size(), value));
+            }
+            return this;
+        }
+
+        public IpSubnetTable<V> build() {
+            // Sort by start and put larger ranges first for equal starts, so more specific ranges come later
+            final List<Ipv4Range> ranges = new ArrayList<>(ipv4Ranges);
+            ranges.sort(Comparator.comparingInt(Ipv4Range::start).thenComparing(Ipv4Range::end, Comparator.reverseOrder()));
+            final int[] starts = new int[ranges.size()];
+            final int[] ends = new int[ranges.size()];
+            final int[] maxEnds = new int[ranges.size()];
+            final Object[] ipv4Values = new Object[ranges.size()];
+            final int[] order = new int[ranges.size()];
+            for (int i = 0; i < ranges.size(); i++) {
+                final Ipv4Range range = ranges.get(i);
+                starts[i] = range.start();
+                ends[i] = range.end();
+                maxEnds[i] = i == 0 ? range.end() : Math.max(maxEnds[i - 1], range.end());
+                ipv4Values[i] = range.value();
+                order[i] = range.order();
+            }
+
+            int[] zero = new int[16];
+            int[] one = new int[16];
+            int[] valueIndex = new int[16];
+            valueIndex[0] = NO_VALUE;
+            int nodes = 1;
+            final Object[] ipv6Values = new Object[ipv6Prefixes.size()];
+            for (int p = 0; p < ipv6Prefixes.size(); p++) {
+                final Ipv6Prefix prefix = ipv6Prefixes.get(p);
+                int node = 0;
+                for (int bit = 0; bit < prefix.length(); bit++) {
+                    final boolean set = isBitSet(prefix.groups(), bit);
+                    int child = set ? one[node] : zero[node];
+                    if (child == 0) {
+                        if (nodes == zero.length) {
+                            zero = Arrays.copyOf(zero, nodes * 2);
+                            one = Arrays.copyOf(one, nodes * 2);
+                            valueIndex = Arrays.copyOf(valueIndex, nodes * 2);
+                        }
+                        child = nodes++;
+                        valueIndex[child] = NO_VALUE;
+                        if (set) {
+                            one[node] = child;
+                        } else {
+                            zero[node] = child;
+                        }
+                    }
+                    node = child;
+                }
+                ipv6Values[p] = prefix.value();
+                if (!firstMatch || valueIndex[node] == NO_VALUE) {
+                    valueIndex[node] = p;
+                }
+            }
+
+            return new IpSubnetTable<>(starts, ends, maxEnds, ipv4Values, order, firstMatch,
+                    Arrays.copyOf(zero, nodes), Arrays.copyOf(one, nodes), Arrays.copyOf(valueIndex, nodes), ipv6Values);
+        }
+
+        private record Ipv4Range(int start, int end, int order, Object value) {}
+
+        @SuppressWarnings("ArrayRecordComponent")
+        private record Ipv6Prefix(int[] groups, int length, Object value) {}
+    }
+}
@@ -17,9 +17,14 @@
 package org.graylog.plugins.views.search;
 
 import org.graylog2.indexer.ranges.IndexRange;
+import org.graylog2.indexer.ranges.IndexRangeStreamStats;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
 import org.graylog2.plugin.streams.Stream;
+import org.joda.time.DateTime;
 
 import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -40,4 +45,29 @@ public class IndexRangeContainsOneOfStreams {
         // Otherwise check if the index range contains any of the valid stream ids.
         return !Collections.disjoint(indexRange.streamIds(), validStreamIds);
     }
+
+    /**
+     * Like {@link #test(IndexRange, Set)}, but additionally skips index ranges in which none of the valid streams
+     * has any messages in the given time range. Index ranges without per-stream statistics are not skipped.
+     */
+    public boolean test(final IndexRange indexRange,
+                        final Set<Stream> validStreams,
+                        final TimeRange timeRange) {
+        if (!test(indexRange, validStreams)) {
+            return false;
+        }
+
+        final Map<String, IndexRangeStreamStats> streamStats = indexRange.streamStats();
+        if (streamStats == null) {
+            return true;
+        }
+
+        final DateTime from = timeRange.getFrom();
+        final DateTime to = timeRange.getTo();
+        return validStreams.stream()
+                .map(Stream::getId)
+                .map(streamStats::get)
+                .filter(Objects::nonNull)
+                .anyMatch(stats -> stats.overlaps(from, to));
+    }
 }
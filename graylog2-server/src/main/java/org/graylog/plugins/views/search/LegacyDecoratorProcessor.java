@@ -24,8 +24,11 @@ import org.graylog2.rest.resources.search.responses.SearchResponse;
 import jakarta.inject.Inject;
 
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class LegacyDecoratorProcessor {
@@ -51,6 +54,33 @@ public class LegacyDecoratorProcessor {
         return decoratorProcessor.decorate(searchResponse, searchResponseDecorators);
     }
 
+    /**
+     * Returns the message fields read by the given decorators.
+     *
+     * @return the fields read by the decorators or an empty optional if any of them might read any field
+     */
+    public Optional<Set<String>> requiredFields(List<Decorator> decorators) {
+        final Set<String> fields = new HashSet<>();
+        for (Decorator decorator : decorators) {
+            final SearchResponseDecorator.Factory factory = this.searchResponseDecorators.get(decorator.type());
+            if (factory == null) {
+                return Optional.empty();
+            }
+            final Optional<Set<String>> requiredFields;
+            try {
+                requiredFields = factory.create(decorator).requiredFields();
+            } catch (RuntimeException e) {
+                // Decorating the results reports the invalid decorator, fetch all fields until then
+                return Optional.empty();
+            }
+            if (requiredFields.isEmpty()) {
+                return Optional.empty();
+            }
+            fields.addAll(requiredFields.get());
+        }
+        return Optional.of(fields);
+    }
+
     public static class Fake extends LegacyDecoratorProcessor {
         public Fake() {
             super(null, null);
@@ -60,5 +90,10 @@ public class LegacyDecoratorProcessor {
         public SearchResponse decorateSearchResponse(SearchResponse searchResponse, List<Decorator> decorators) {
             return searchResponse;
         }
+
+        @Override
+        public Optional<Set<String>> requiredFields(List<Decorator> decorators) {
+            return Optional.of(Set.of());
+        }
     }
 }
@@ -16,35 +16,90 @@
  */
 package org.graylog.plugins.views.search.db;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.Uninterruptibles;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import jakarta.ws.rs.ForbiddenException;
 import org.bson.types.ObjectId;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
 import org.graylog.plugins.views.search.Search;
 import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.jobs.SearchJobCancelledEvent;
+import org.graylog.plugins.views.search.jobs.SearchJobState;
+import org.graylog.plugins.views.search.jobs.SearchJobStateService;
+import org.graylog.plugins.views.search.jobs.SearchJobStatus;
+import org.graylog.plugins.views.search.jobs.SearchJobType;
 import org.graylog.plugins.views.search.permissions.SearchUser;
 import org.graylog.plugins.views.search.rest.SearchJobDTO;
+import org.graylog2.events.ClusterEventBus;
 import org.graylog2.plugin.system.NodeId;
 import org.graylog2.shared.utilities.StringUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
-// TODO dummy that only holds everything in memory for now
+/**
+ * Keeps running search jobs in memory. If persistence is enabled, asynchronously executed jobs are additionally
+ * stored with the {@link SearchJobStateService}: the result of every query is written as soon as it completes and
+ * finished jobs are removed from memory once all of their results are stored. Jobs which are not in memory are
+ * loaded from storage, so their results can be served by every node.
+ */
 @Singleton
 public class InMemorySearchJobService implements SearchJobService {
+    private static final Logger LOG = LoggerFactory.getLogger(InMemorySearchJobService.class);
 
     private final Cache<String, SearchJob> cache;
     private final NodeId nodeId;
+    private final boolean persistenceEnabled;
+    @Nullable
+    private final SearchJobStateService searchJobStateService;
+    @Nullable
+    private final ClusterEventBus clusterEventBus;
 
-    @Inject
     public InMemorySearchJobService(final NodeId nodeId) {
+        this(nodeId, false, null, null);
+    }
+
+    @Inject
+    public InMemorySearchJobService(final NodeId nodeId,
+                                    @Named("search_job_persistence_enabled") final boolean persistenceEnabled,
+                                    final SearchJobStateService searchJobStateService,
+                                    final ClusterEventBus clusterEventBus,
+                                    final EventBus serverEventBus) {
+        this(nodeId, persistenceEnabled, searchJobStateService, clusterEventBus);
+        if (persistenceEnabled) {
+            serverEventBus.register(this);
+        }
+    }
+
+    @VisibleForTesting
+    InMemorySearchJobService(final NodeId nodeId,
+                             final boolean persistenceEnabled,
+                             @Nullable final SearchJobStateService searchJobStateService,
+                             @Nullable final ClusterEventBus clusterEventBus) {
         this.nodeId = nodeId;
+        this.persistenceEnabled = persistenceEnabled;
+        this.searchJobStateService = searchJobStateService;
+        this.clusterEventBus = clusterEventBus;
         cache = CacheBuilder.newBuilder()
                 .expireAfterAccess(5, TimeUnit.MINUTES)
                 .maximumSize(1000)
@@ -62,12 +117,80 @@ public class InMemorySearchJobService implements SearchJobService {
         return searchJob;
     }
 
+    @Override
+    public void trackExecution(final SearchJob searchJob) {
+        if (!persistenceEnabled) {
+            return;
+        }
+        final String id = searchJob.getId();
+        try {
+            final DateTime now = DateTime.now(DateTimeZone.UTC);
+            searchJobStateService.create(SearchJobState.builder()
+                    .identifier(searchJob.getSearchJobIdentifier())
+                    .type(SearchJobType.SEARCH_ENGINE)
+                    .status(SearchJobStatus.RUNNING)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+        } catch (Exception e) {
+            LOG.warn("Unable to persist search job <{}>, keeping it in memory only.", id, e);
+            return;
+        }
+
+        final List<CompletableFuture<Boolean>> storedResults = searchJob.getSearch().queries().stream()
+                .map(Query::id)
+                .map(searchJob::getQueryResultFuture)
+                .filter(Objects::nonNull)
+                .map(future -> future.handle((result, throwable) -> result != null && storeQueryResult(id, result)))
+                .toList();
+        CompletableFuture.allOf(storedResults.toArray(new CompletableFuture[0]))
+                .thenRun(() -> finishPersistedJob(searchJob, storedResults.stream().allMatch(CompletableFuture::join)));
+    }
+
+    private boolean storeQueryResult(final String id, final QueryResult result) {
+        try {
+            searchJobStateService.storeQueryResult(id, result);
+            return true;
+        } catch (Exception e) {
+            // e.g. if a search type result exceeds the maximum document size, the job is kept in memory instead
+            LOG.warn("Unable to persist result of query <{}> of search job <{}>, keeping it in memory only.", result.query().id(), id, e);
+            return false;
+        }
+    }
+
+    private void finishPersistedJob(final SearchJob searchJob, final boolean allResultsStored) {
+        final String id = searchJob.getId();
+        final SearchJobStatus status;
+        if (searchJob.execution().cancelled()) {
+            status = SearchJobStatus.CANCELLED;
+        } else if (!searchJob.getErrors().isEmpty()) {
+            status = SearchJobStatus.ERROR;
+        } else {
+            status = SearchJobStatus.DONE;
+        }
+        try {
+            searchJobStateService.get(id).ifPresent(state -> searchJobStateService.update(state.toBuilder()
+                    .status(status)
+                    .progress(100)
+                    .errors(Set.copyOf(searchJob.getErrors()))
+                    .build()));
+        } catch (Exception e) {
+            LOG.warn("Unable to persist state of search job <{}>, keeping it in memory only.", id, e);
+            return;
+        }
+        if (allResultsStored) {
+            // the results are served from storage from now on, there is no need to keep them on the heap
+            cache.invalidate(id);
+        }
+    }
+
     @Override
     public Optional<SearchJobDTO> load(final String id,
                                        final SearchUser searchUser) {
         final SearchJob searchJob = getFromCache(id, searchUser);
         if (searchJob == null) {
-            return Optional.empty();
+            return getPersisted(id, searchUser)
+                    .map(state -> SearchJobDTO.fromSearchJobState(state, searchJobStateService.getQueryResults(id)));
         } else {
             if (searchJob.getResultFuture() != null) {
                 try {
@@ -84,13 +207,44 @@ public class InMemorySearchJobService implements SearchJobService {
     public boolean cancel(final String id, final SearchUser searchUser) {
         final SearchJob searchJob = getFromCache(id, searchUser);
         if (searchJob == null) {
-            return false;
+            return getPersisted(id, searchUser)
+                    .map(state -> {
+                        if (state.status() == SearchJobStatus.RUNNING) {
+                            // the job is running on another node, which cancels it when receiving the event
+                            searchJobStateService.changeStatus(id, SearchJobStatus.CANCELLED);
+                            clusterEventBus.post(SearchJobCancelledEvent.create(id));
+                        }
+                        return true;
+                    })
+                    .orElse(false);
         } else {
             searchJob.cancel();
             return true;
         }
     }
 
+    @Subscribe
+    public void handleSearchJobCancelled(final SearchJobCancelledEvent event) {
+        final SearchJob searchJob = cache.getIfPresent(event.jobId());
+        if (searchJob != null) {
+            searchJob.cancel();
+        }
+    }
+
+    private Optional<SearchJobState> getPersisted(final String id, final SearchUser searchUser) {
+        if (!persistenceEnabled || !ObjectId.isValid(id)) {
+            return Optional.empty();
+        }
+        return searchJobStateService.get(id)
+                .filter(state -> state.type() == SearchJobType.SEARCH_ENGINE)
+                .map(state -> {
+                    if (!hasPermissionToAccessJob(searchUser, state.identifier().owner())) {
+                        throw new ForbiddenException(StringUtils.f("User %s cannot load search job %s that belongs to different user!", searchUser.username(), id));
+                    }
+                    return state;
+                });
+    }
+
     public SearchJob getFromCache(final String id, final SearchUser searchUser) {
         final SearchJob job = cache.getIfPresent(id);
         if (job != null) {
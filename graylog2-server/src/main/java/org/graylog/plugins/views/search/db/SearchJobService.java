@@ -31,6 +31,13 @@ public interface SearchJobService {
 
     boolean cancel(final String id, final SearchUser searchUser);
 
+    /**
+     * Called once the queries of an asynchronously executed search job have been started, so implementations can
+     * keep its results beyond the lifetime of the job on this node.
+     */
+    default void trackExecution(final SearchJob searchJob) {
+    }
+
     SearchJob getFromCache(final String id, final SearchUser searchUser);
 
     /**
@@ -16,6 +16,8 @@
  */
 package org.graylog.plugins.views.search.elasticsearch;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Sets;
 import jakarta.inject.Inject;
 import org.graylog.plugins.views.search.IndexRangeContainsOneOfStreams;
@@ -29,26 +31,30 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.stream.Collectors;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
 public class IndexLookup {
 
     private final IndexRangeService indexRangeService;
     private final StreamService streamService;
     private final IndexRangeContainsOneOfStreams indexRangeContainsOneOfStreams;
+    private final Histogram prunedIndices;
 
     @Inject
     public IndexLookup(final IndexRangeService indexRangeService,
-                       final StreamService streamService) {
-        this.indexRangeService = indexRangeService;
-        this.streamService = streamService;
-        this.indexRangeContainsOneOfStreams = new IndexRangeContainsOneOfStreams();
+                       final StreamService streamService,
+                       final MetricRegistry metricRegistry) {
+        this(indexRangeService, streamService, new IndexRangeContainsOneOfStreams(), metricRegistry);
     }
 
     IndexLookup(final IndexRangeService indexRangeService,
                 final StreamService streamService,
-                final IndexRangeContainsOneOfStreams indexRangeContainsOneOfStreams) {
+                final IndexRangeContainsOneOfStreams indexRangeContainsOneOfStreams,
+                final MetricRegistry metricRegistry) {
         this.indexRangeService = indexRangeService;
         this.streamService = streamService;
         this.indexRangeContainsOneOfStreams = indexRangeContainsOneOfStreams;
+        this.prunedIndices = metricRegistry.histogram(name(IndexLookup.class, "prunedIndices"));
     }
 
     public Set<String> indexNamesForStreamsInTimeRange(final Set<String> streamIds,
@@ -75,8 +81,10 @@ public class IndexLookup {
         final Set<Stream> usedStreams = streamService.loadByIds(nonDataStreamIds);
         final SortedSet<IndexRange> candidateIndices = indexRangeService.find(timeRange.getFrom(), timeRange.getTo());
 
-        return candidateIndices.stream()
-                .filter(i -> indexRangeContainsOneOfStreams.test(i, usedStreams))
+        final Set<IndexRange> indexRanges = candidateIndices.stream()
+                .filter(i -> indexRangeContainsOneOfStreams.test(i, usedStreams, timeRange))
                 .collect(Collectors.toSet());
+        prunedIndices.update(candidateIndices.size() - indexRanges.size());
+        return indexRanges;
     }
 }
@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.plugins.views.search.Parameter;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.searchtypes.pivot.Pivot;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResult;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResultMerger;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.DateInterval;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Time;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.TimeUnitInterval;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.graylog2.shared.metrics.MetricUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import javax.annotation.Nullable;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Keeps the closed buckets of date histogram pivots, so refreshing a widget only needs to query the buckets which can
+ * still change.
+ * <p>
+ * A bucket is closed once it ends earlier than the configured horizon before now, which has to cover the index
+ * refresh interval and late messages. Eligible pivots are split into up to three segments, which are run as separate
+ * search types of the same query: the partial bucket at the start of the time range, the buckets which have been
+ * closed since the last refresh and the open buckets at the end of the time range. The results of the segments are
+ * merged with the cached closed buckets, which are kept as long as the start of the time range stays in the same
+ * bucket.
+ * <p>
+ * Only pivots with a single time row group and a fixed interval, without sorting and (if they have a rollup) with
+ * series which can be merged are eligible. Cached buckets are keyed on the normalized query including its streams,
+ * so they are never shared between users who are allowed to see different streams.
+ */
+@Singleton
+public class IncrementalPivotCache {
+    private static final DateTime REFERENCE_DATE = new DateTime(0, DateTimeZone.UTC);
+    private static final Map<String, Long> UNIT_MILLIS = Map.of(
+            "s", TimeUnit.SECONDS.toMillis(1),
+            "m", TimeUnit.MINUTES.toMillis(1),
+            "h", TimeUnit.HOURS.toMillis(1),
+            "d", TimeUnit.DAYS.toMillis(1));
+    private static final String HEAD_SEGMENT = "@head";
+    private static final String CLOSED_SEGMENT = "@closed";
+    private static final String TAIL_SEGMENT = "@tail";
+    private static final String LEAF = "leaf";
+
+    private final boolean enabled;
+    private final long closedHorizonMs;
+    private final Clock clock;
+    private final Cache<Key, ClosedBuckets> cache;
+
+    private final Meter reusedBuckets;
+    private final Meter computedBuckets;
+    private final Counter savedQueryTime;
+
+    @Inject
+    public IncrementalPivotCache(@Named("search_incremental_pivots_enabled") boolean enabled,
+                                 @Named("search_incremental_pivots_closed_horizon") Duration closedHorizon,
+                                 @Named("search_incremental_pivots_cache_size") int cacheSize,
+                                 MetricRegistry metricRegistry) {
+        this(enabled, closedHorizon, cacheSize, metricRegistry, Clock.systemUTC());
+    }
+
+    @VisibleForTesting
+    IncrementalPivotCache(boolean enabled, Duration closedHorizon, int cacheSize, MetricRegistry metricRegistry, Clock clock) {
+        this.enabled = enabled;
+        this.closedHorizonMs = closedHorizon.toMilliseconds();
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterAccess(30, TimeUnit.MINUTES)
+                .build();
+
+        this.reusedBuckets = metricRegistry.meter(name(IncrementalPivotCache.class, "reusedBuckets"));
+        this.computedBuckets = metricRegistry.meter(name(IncrementalPivotCache.class, "computedBuckets"));
+        this.savedQueryTime = metricRegistry.counter(name(IncrementalPivotCache.class, "savedQueryTimeMs"));
+        MetricUtils.reRegister(metricRegistry, name(IncrementalPivotCache.class, "entries"), (Gauge<Long>) cache::estimatedSize);
+    }
+
+    /**
+     * Rewrites the eligible pivots of a query into the segments which need to be queried.
+     *
+     * @return the rewritten query, which has to be run instead of the original one, and a way to merge its result
+     */
+    public Rewrite rewrite(Search search, Query query) {
+        if (!enabled) {
+            return Rewrite.unchanged(query);
+        }
+
+        final List<Segments> rewrittenPivots = new ArrayList<>();
+        final ImmutableSet.Builder<SearchType> searchTypes = ImmutableSet.builder();
+        for (SearchType searchType : query.searchTypes()) {
+            final Segments segments = searchType instanceof Pivot pivot ? segmentsFor(search, query, pivot) : null;
+            if (segments == null) {
+                searchTypes.add(searchType);
+            } else {
+                rewrittenPivots.add(segments);
+                searchTypes.addAll(segments.searchTypes());
+            }
+        }
+
+        if (rewrittenPivots.isEmpty()) {
+            return Rewrite.unchanged(query);
+        }
+        return new Rewrite(query, query.toBuilder().searchTypes(searchTypes.build()).build(), rewrittenPivots, this);
+    }
+
+    @Nullable
+    private Segments segmentsFor(Search search, Query query, Pivot pivot) {
+        final Long intervalMs = fixedIntervalMs(query, pivot);
+        if (intervalMs == null) {
+            return null;
+        }
+
+        final TimeRange timeRange = query.effectiveTimeRange(pivot);
+        final long from = timeRange.getFrom().getMillis();
+        final long to = timeRange.getTo().getMillis();
+        final long closedFrom = alignUp(from, intervalMs);
+        final long closeableUntil = Math.max(closedFrom, alignDown(Math.min(to, clock.millis() - closedHorizonMs), intervalMs));
+        if (closeableUntil <= closedFrom) {
+            // nothing to reuse yet
+            return null;
+        }
+
+        final Key key = new Key(query.toBuilder().searchTypes(ImmutableSet.of(pivot)).build().withReferenceDate(REFERENCE_DATE),
+                search.parameters());
+        final ClosedBuckets cached = cache.getIfPresent(key);
+        final ClosedBuckets reusable = cached != null && cached.from() == closedFrom && cached.until() <= closeableUntil ? cached : null;
+        final long closedSegmentFrom = reusable != null ? reusable.until() : closedFrom;
+
+        final Pivot fixedIntervalPivot = withFixedInterval(pivot, query, intervalMs);
+        final Map<String, Pivot> segments = new LinkedHashMap<>();
+        if (from < closedFrom) {
+            segments.put(HEAD_SEGMENT, segment(fixedIntervalPivot, HEAD_SEGMENT, from, closedFrom));
+        }
+        if (closedSegmentFrom < closeableUntil) {
+            segments.put(CLOSED_SEGMENT, segment(fixedIntervalPivot, CLOSED_SEGMENT, closedSegmentFrom, closeableUntil));
+        }
+        if (closeableUntil < to) {
+            segments.put(TAIL_SEGMENT, segment(fixedIntervalPivot, TAIL_SEGMENT, closeableUntil, to));
+        }
+
+        return new Segments(key, pivot, AbsoluteRange.create(timeRange.getFrom(), timeRange.getTo()), closedFrom,
+                closeableUntil, reusable, segments);
+    }
+
+    @Nullable
+    private Long fixedIntervalMs(Query query, Pivot pivot) {
+        if (pivot.rowGroups().size() != 1 || !(pivot.rowGroups().get(0) instanceof Time time) || time.fields().size() != 1) {
+            return null;
+        }
+        if (!pivot.sort().isEmpty()) {
+            return null;
+        }
+        // The rollup row spans all buckets, so it has to be merged from the rollups of the segments
+        if (pivot.rollup() && !PivotResultMerger.hasMergeableSeries(pivot)) {
+            return null;
+        }
+        final TimeRange timeRange = query.effectiveTimeRange(pivot);
+        if (timeRange instanceof RelativeRange relativeRange && relativeRange.isAllMessages()) {
+            return null;
+        }
+        final DateInterval interval = time.interval().toDateInterval(timeRange);
+        if (interval == null || !UNIT_MILLIS.containsKey(interval.getUnit())) {
+            return null;
+        }
+        return interval.getQuantity().longValue() * UNIT_MILLIS.get(interval.getUnit());
+    }
+
+    private Pivot withFixedInterval(Pivot pivot, Query query, long intervalMs) {
+        final Time time = (Time) pivot.rowGroups().get(0);
+        // The interval must not be derived from the (shorter) time ranges of the segments
+        final DateInterval interval = time.interval().toDateInterval(query.effectiveTimeRange(pivot));
+        final Time fixedTime = Time.builder()
+                .fields(time.fields())
+                .interval(TimeUnitInterval.Builder.builder().timeunit(interval.toString()).build())
+                .build();
+        return pivot.toBuilder().rowGroups(List.of(fixedTime)).build();
+    }
+
+    private Pivot segment(Pivot pivot, String segment, long from, long to) {
+        return pivot.toBuilder()
+                .id(pivot.id() + segment)
+                .timerange(AbsoluteRange.create(new DateTime(from, DateTimeZone.UTC), new DateTime(to, DateTimeZone.UTC)))
+                .build();
+    }
+
+    private static long alignDown(long millis, long intervalMs) {
+        return Math.floorDiv(millis, intervalMs) * intervalMs;
+    }
+
+    private static long alignUp(long millis, long intervalMs) {
+        final long aligned = alignDown(millis, intervalMs);
+        return aligned == millis ? aligned : aligned + intervalMs;
+    }
+
+    private PivotResult mergeSegments(Segments segments, Map<String, SearchType.Result> results, long queryDuration) {
+        final Pivot pivot = segments.pivot();
+        final PivotResult head = pivotResult(results, pivot, HEAD_SEGMENT);
+        final PivotResult closed = pivotResult(results, pivot, CLOSED_SEGMENT);
+        final PivotResult tail = pivotResult(results, pivot, TAIL_SEGMENT);
+
+        final ClosedBuckets reusable = segments.reusable();
+        final PivotResult allClosed;
+        if (reusable != null) {
+            reusedBuckets.mark(leafRows(reusable.result()));
+            savedQueryTime.inc(reusable.queryDuration());
+            allClosed = closed == null ? reusable.result() : merge(pivot, reusable.result().effectiveTimerange(), reusable.result(), closed);
+        } else {
+            allClosed = closed;
+        }
+        if (allClosed != null && closed != null) {
+            final long duration = reusable == null ? queryDuration : reusable.queryDuration() + queryDuration;
+            cache.put(segments.key(), new ClosedBuckets(segments.closedFrom(), segments.closeableUntil(), allClosed, duration));
+        }
+
+        final PivotResult merged = merge(pivot, segments.effectiveTimerange(), head, allClosed, tail);
+        computedBuckets.mark(leafRows(head) + leafRows(closed) + leafRows(tail));
+        return merged;
+    }
+
+    @Nullable
+    private static PivotResult pivotResult(Map<String, SearchType.Result> results, Pivot pivot, String segment) {
+        return results.get(pivot.id() + segment) instanceof PivotResult pivotResult ? pivotResult : null;
+    }
+
+    private static long leafRows(@Nullable PivotResult result) {
+        return result == null ? 0 : result.rows().stream().filter(row -> LEAF.equals(row.source())).count();
+    }
+
+    @VisibleForTesting
+    static PivotResult merge(Pivot pivot, AbsoluteRange effectiveTimerange, PivotResult... segments) {
+        return PivotResultMerger.merge(pivot, effectiveTimerange, Arrays.stream(segments).filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * A query with its eligible pivots replaced by their segments.
+     */
+    public static class Rewrite {
+        private final Query originalQuery;
+        private final Query query;
+        private final List<Segments> segments;
+        private final IncrementalPivotCache cache;
+
+        private Rewrite(Query originalQuery, Query query, List<Segments> segments, IncrementalPivotCache cache) {
+            this.originalQuery = originalQuery;
+            this.query = query;
+            this.segments = segments;
+            this.cache = cache;
+        }
+
+        static Rewrite unchanged(Query query) {
+            return new Rewrite(query, query, List.of(), null);
+        }
+
+        public Query query() {
+            return query;
+        }
+
+        /**
+         * Merges the results of the segments of every rewritten pivot into a result for the original pivot.
+         * If one of the segments did not return a result, the original pivot has no result either.
+         */
+        public QueryResult merge(QueryResult result) {
+            if (segments.isEmpty()) {
+                return result;
+            }
+            final Map<String, SearchType.Result> searchTypeResults = new HashMap<>(result.searchTypes());
+            for (Segments pivotSegments : segments) {
+                final boolean complete = pivotSegments.segments().values().stream()
+                        .allMatch(segment -> searchTypeResults.get(segment.id()) instanceof PivotResult);
+                if (complete) {
+                    searchTypeResults.put(pivotSegments.pivot().id(),
+                            cache.mergeSegments(pivotSegments, searchTypeResults, result.executionStats().duration()));
+                }
+                pivotSegments.segments().values().forEach(segment -> searchTypeResults.remove(segment.id()));
+            }
+            return result.toBuilder()
+                    .query(originalQuery)
+                    .searchTypes(searchTypeResults)
+                    .build();
+        }
+    }
+
+    private record Key(Query query, Set<Parameter> parameters) {}
+
+    private record ClosedBuckets(long from, long until, PivotResult result, long queryDuration) {}
+
+    private record Segments(Key key,
+                            Pivot pivot,
+                            AbsoluteRange effectiveTimerange,
+                            long closedFrom,
+                            long closeableUntil,
+                            @Nullable ClosedBuckets reusable,
+                            Map<String, Pivot> segments) {
+        List<Pivot> searchTypes() {
+            return List.copyOf(segments.values());
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.graylog.plugins.views.search.GlobalOverride;
 import org.graylog.plugins.views.search.Query;
 import org.graylog.plugins.views.search.QueryResult;
 import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.SearchType;
 import org.graylog.plugins.views.search.engine.monitoring.collection.StatsCollector;
 import org.graylog.plugins.views.search.errors.QueryError;
 import org.graylog.plugins.views.search.errors.SearchError;
@@ -86,15 +87,28 @@ public interface QueryBackend<T extends GeneratedQueryContext> {
 
     // TODO we can probably push job and query into the GeneratedQueryContext to simplify the signature
     default QueryResult run(SearchJob job, Query query, GeneratedQueryContext generatedQueryContext) {
+        return run(job, query, generatedQueryContext, QueryExecutionStats.builderWithCurrentTime());
+    }
+
+    /**
+     * Like {@link #run(SearchJob, Query, GeneratedQueryContext)}, completing the given execution stats, which may
+     * already contain scheduling information.
+     */
+    default QueryResult run(SearchJob job, Query query, GeneratedQueryContext generatedQueryContext, QueryExecutionStats.Builder statsBuilder) {
         try {
             final Stopwatch stopwatch = Stopwatch.createStarted();
-            final QueryExecutionStats.Builder statsBuilder = QueryExecutionStats.builderWithCurrentTime();
             // https://www.ibm.com/developerworks/java/library/j-jtp04298/index.html#3.0
             //noinspection unchecked
             final QueryResult result = doRun(job, query, (T) generatedQueryContext);
             stopwatch.stop();
             final QueryExecutionStats stats = statsBuilder.duration(stopwatch.elapsed(TimeUnit.MILLISECONDS))
                     .effectiveTimeRange(effectiveTimeRangeForResult(query, result))
+                    .indices(result.executionStats().indices())
+                    .backendTook(result.executionStats().backendTook())
+                    .searchId(job.getSearchId())
+                    .queryId(query.id())
+                    .searchTypes(query.searchTypes().stream()
+                            .collect(Collectors.toMap(SearchType::id, SearchType::type, (first, second) -> first)))
                     .build();
             getExecutionStatsCollector().storeStats(stats);
             return result.toBuilder()
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import jakarta.inject.Inject;
+import org.graylog.plugins.views.search.GlobalOverride;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.elasticsearch.IndexLookup;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates the cost of a query for the {@link QueryScheduler} as the number of hours it spans multiplied by the
+ * number of indices it has to search.
+ */
+public class QueryCostEstimator {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryCostEstimator.class);
+    static final long DEFAULT_COST = 1L;
+
+    private final IndexLookup indexLookup;
+
+    @Inject
+    public QueryCostEstimator(IndexLookup indexLookup) {
+        this.indexLookup = indexLookup;
+    }
+
+    public long estimate(Query query) {
+        try {
+            final TimeRange timeRange = query.globalOverride().flatMap(GlobalOverride::timerange).orElse(query.timerange());
+            final long hours = Math.max(1L, new Duration(timeRange.getFrom(), timeRange.getTo()).getStandardHours());
+            final int indices = indexLookup.indexNamesForStreamsInTimeRange(query.usedStreamIds(), timeRange).size();
+            return hours * Math.max(1, indices);
+        } catch (Exception e) {
+            LOG.debug("Unable to estimate cost of query <{}>, using default cost.", query.id(), e);
+            return DEFAULT_COST;
+        }
+    }
+}
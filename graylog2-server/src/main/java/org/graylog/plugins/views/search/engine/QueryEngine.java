@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.views.search.engine;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import jakarta.inject.Inject;
@@ -38,6 +39,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -47,6 +49,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.graylog.plugins.views.search.engine.validation.DataLakeSearchValidator.containsDataLakeSearchElements;
@@ -57,27 +60,45 @@ public class QueryEngine {
     private final Set<QueryMetadataDecorator> queryMetadataDecorators;
     private final QueryParser queryParser;
 
-    // TODO proper thread pool with tunable settings
-    private final Executor indexerJobsQueryPool;
+    private final QueryScheduler indexerJobsScheduler;
     private final Executor dataLakeJobsQueryPool;
+    private final QueryCostEstimator queryCostEstimator;
     private final ElasticsearchBackendProvider elasticsearchBackendProvider;
     private final Map<String, QueryBackend<? extends GeneratedQueryContext>> unversionedBackends;
+    private final QueryResultCache queryResultCache;
+    private final IncrementalPivotCache incrementalPivotCache;
 
     @Inject
     public QueryEngine(Configuration configuration,
                        ElasticsearchBackendProvider elasticsearchBackendProvider,
                        Map<String, QueryBackend<? extends GeneratedQueryContext>> unversionedBackends,
                        Set<QueryMetadataDecorator> queryMetadataDecorators,
-                       QueryParser queryParser) {
+                       QueryParser queryParser,
+                       QueryResultCache queryResultCache,
+                       IncrementalPivotCache incrementalPivotCache,
+                       QueryCostEstimator queryCostEstimator,
+                       MetricRegistry metricRegistry) {
         this.elasticsearchBackendProvider = elasticsearchBackendProvider;
         this.unversionedBackends = unversionedBackends;
         this.queryMetadataDecorators = queryMetadataDecorators;
         this.queryParser = queryParser;
-
-        this.indexerJobsQueryPool = createThreadPool(
+        this.queryResultCache = queryResultCache;
+        this.incrementalPivotCache = incrementalPivotCache;
+        this.queryCostEstimator = queryCostEstimator;
+
+        final Map<SearchPriority, Integer> maxConcurrency = new EnumMap<>(SearchPriority.class);
+        maxConcurrency.put(SearchPriority.INTERACTIVE, configuration.searchQueryEngineInteractiveMaxConcurrency());
+        maxConcurrency.put(SearchPriority.EVENT_PROCESSOR, configuration.searchQueryEngineEventProcessorMaxConcurrency());
+        maxConcurrency.put(SearchPriority.SCRIPTING_API, configuration.searchQueryEngineScriptingApiMaxConcurrency());
+        maxConcurrency.put(SearchPriority.EXPORT, configuration.searchQueryEngineExportMaxConcurrency());
+        // the scheduler keeps the waiting queries itself and hands them to the pool only if a thread is free
+        this.indexerJobsScheduler = new QueryScheduler(
+                createThreadPool(configuration.searchQueryEngineIndexerJobsPoolSize(), 0, "query-engine-indexer-jobs-%d"),
                 configuration.searchQueryEngineIndexerJobsPoolSize(),
                 configuration.searchQueryEngineIndexerJobsQueueSize(),
-                "query-engine-indexer-jobs-%d");
+                configuration.isSearchQueryEnginePrioritySchedulingEnabled(),
+                maxConcurrency,
+                metricRegistry);
         this.dataLakeJobsQueryPool = createThreadPool(
                 configuration.searchQueryEngineDataLakeJobsPoolSize(),
                 configuration.searchQueryEngineDataLakeJobsQueueSize(),
@@ -119,20 +140,37 @@ public class QueryEngine {
 
     @WithSpan
     public SearchJob execute(SearchJob searchJob, Set<SearchError> validationErrors, DateTimeZone timezone) {
+        return execute(searchJob, validationErrors, timezone, SearchPriority.INTERACTIVE);
+    }
+
+    @WithSpan
+    public SearchJob execute(SearchJob searchJob, Set<SearchError> validationErrors, DateTimeZone timezone, SearchPriority priority) {
         final Set<Query> validQueries = searchJob.getSearch().queries()
                 .stream()
                 .filter(query -> !isQueryWithError(validationErrors, query))
                 .collect(Collectors.toSet());
 
 
-        validQueries.forEach(query -> searchJob.addQueryResultFuture(query.id(),
+        validQueries.forEach(query -> {
+            final CompletableFuture<QueryResult> queryResultFuture;
+            if (containsDataLakeSearchElements(query)) {
+                queryResultFuture = CompletableFuture.supplyAsync(() -> prepareAndRunCached(searchJob, query, validationErrors, timezone, priority, 0L, dataLakeJobsQueryPool), dataLakeJobsQueryPool);
+            } else {
+                final long cost = queryCostEstimator.estimate(query);
+                final Executor refreshExecutor = indexerJobsScheduler.executor(priority, searchJob.getOwner(), cost);
+                queryResultFuture = indexerJobsScheduler.submit(priority, searchJob.getOwner(), cost,
+                        queueTime -> prepareAndRunCached(searchJob, query, validationErrors, timezone, priority, queueTime, refreshExecutor));
+                // cancelling the job before the query has been started removes it from the queue, the backend replaces
+                // this with its own future once it runs the query
+                searchJob.setQueryExecutionFuture(query.id(), queryResultFuture);
+            }
+            searchJob.addQueryResultFuture(query.id(),
                 // generate and run each query, making sure we never let an exception escape
                 // if need be we default to an empty result with a failed state and the wrapped exception
-                CompletableFuture.supplyAsync(() -> prepareAndRun(searchJob, query, validationErrors, timezone),
-                                containsDataLakeSearchElements(query) ? dataLakeJobsQueryPool : indexerJobsQueryPool)
+                queryResultFuture
                         .handle((queryResult, throwable) -> {
                             if (throwable != null) {
-                                final Throwable cause = throwable.getCause();
+                                final Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
                                 final SearchError error;
                                 if (cause instanceof SearchException) {
                                     error = ((SearchException) cause).error();
@@ -145,24 +183,53 @@ public class QueryEngine {
                             }
                             return queryResult;
                         })
-        ));
+            );
+        });
 
         LOG.debug("Search job {} executing", searchJob.getId());
         return searchJob.seal();
     }
 
-    private QueryResult prepareAndRun(SearchJob searchJob, Query query, Set<SearchError> validationErrors, DateTimeZone timezone) {
+    private QueryResult prepareAndRunCached(SearchJob searchJob,
+                                            Query query,
+                                            Set<SearchError> validationErrors,
+                                            DateTimeZone timezone,
+                                            SearchPriority priority,
+                                            long queueTime,
+                                            Executor refreshExecutor) {
+        final QueryExecutionStats.Builder statsBuilder = QueryExecutionStats.builderWithCurrentTime()
+                .priority(priority)
+                .queueTime(queueTime);
+        // validation errors change the generated query, so only queries without any are cached
+        if (!queryResultCache.isEnabled() || !validationErrors.isEmpty()) {
+            return prepareAndRun(searchJob, query, validationErrors, timezone, statsBuilder, searchJob::addError);
+        }
+        return queryResultCache.get(searchJob.getSearch(), query, timezone,
+                errors -> prepareAndRun(searchJob, query, validationErrors, timezone, statsBuilder, errors),
+                refreshExecutor, searchJob::addError);
+    }
+
+    private QueryResult prepareAndRun(SearchJob searchJob,
+                                      Query query,
+                                      Set<SearchError> validationErrors,
+                                      DateTimeZone timezone,
+                                      QueryExecutionStats.Builder statsBuilder,
+                                      Consumer<SearchError> errors) {
         final var backend = getBackendForQuery(query);
         LOG.debug("[{}] Using {} to generate query", query.id(), backend);
         // with all the results done, we can execute the current query and eventually complete our own result
         // if any of this throws an exception, the handle in #execute will convert it to an error and return a "failed" result instead
         // if the backend already returns a "failed result" then nothing special happens here
-        final GeneratedQueryContext generatedQueryContext = backend.generate(query, validationErrors, timezone);
+        // validation errors refer to the original search types, so only queries without any are split up
+        final IncrementalPivotCache.Rewrite rewrite = validationErrors.isEmpty()
+                ? incrementalPivotCache.rewrite(searchJob.getSearch(), query)
+                : IncrementalPivotCache.Rewrite.unchanged(query);
+        final GeneratedQueryContext generatedQueryContext = backend.generate(rewrite.query(), validationErrors, timezone);
         LOG.trace("[{}] Generated query {}, running it on backend {}", query.id(), generatedQueryContext, backend);
-        final QueryResult result = backend.run(searchJob, query, generatedQueryContext);
+        final QueryResult result = rewrite.merge(backend.run(searchJob, rewrite.query(), generatedQueryContext, statsBuilder));
         LOG.debug("[{}] Query returned {}", query.id(), result);
         if (!generatedQueryContext.errors().isEmpty()) {
-            generatedQueryContext.errors().forEach(searchJob::addError);
+            generatedQueryContext.errors().forEach(errors);
         }
         return result;
     }
@@ -17,12 +17,18 @@
 package org.graylog.plugins.views.search.engine;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
 import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
 import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
+
+import java.util.Map;
+
 import static org.joda.time.DateTimeZone.UTC;
 
 @AutoValue
@@ -37,6 +43,33 @@ public abstract class QueryExecutionStats {
     @JsonProperty("effective_timerange")
     public abstract AbsoluteRange effectiveTimeRange();
 
+    @JsonProperty("queue_time")
+    public abstract long queueTime();
+
+    @JsonProperty("priority")
+    @Nullable
+    public abstract SearchPriority priority();
+
+    @JsonProperty("indices")
+    public abstract int indices();
+
+    @JsonProperty("backend_took")
+    public abstract long backendTook();
+
+    @JsonIgnore
+    @Nullable
+    public abstract String searchId();
+
+    @JsonIgnore
+    @Nullable
+    public abstract String queryId();
+
+    /**
+     * Types of the search types of the query by their ids, only used to record the execution stats.
+     */
+    @JsonIgnore
+    public abstract ImmutableMap<String, String> searchTypes();
+
     public static QueryExecutionStats empty() {
         return builder().build();
     }
@@ -58,7 +91,11 @@ public abstract class QueryExecutionStats {
             return new AutoValue_QueryExecutionStats.Builder()
                     .timestamp(DateTime.now(UTC))
                     .effectiveTimeRange(AbsoluteRange.create(DateTime.now(UTC), DateTime.now(UTC)))
-                    .duration(0L);
+                    .duration(0L)
+                    .queueTime(0L)
+                    .indices(0)
+                    .backendTook(0L)
+                    .searchTypes(ImmutableMap.of());
         }
 
         @JsonProperty("duration")
@@ -70,6 +107,24 @@ public abstract class QueryExecutionStats {
         @JsonProperty("effective_timerange")
         public abstract Builder effectiveTimeRange(AbsoluteRange effectiveTimeRange);
 
+        @JsonProperty("queue_time")
+        public abstract Builder queueTime(long queueTime);
+
+        @JsonProperty("priority")
+        public abstract Builder priority(@Nullable SearchPriority priority);
+
+        @JsonProperty("indices")
+        public abstract Builder indices(int indices);
+
+        @JsonProperty("backend_took")
+        public abstract Builder backendTook(long backendTook);
+
+        public abstract Builder searchId(@Nullable String searchId);
+
+        public abstract Builder queryId(@Nullable String queryId);
+
+        public abstract Builder searchTypes(Map<String, String> searchTypes);
+
         public abstract QueryExecutionStats build();
     }
 }
@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.joschi.jadconfig.util.Duration;
+import com.github.joschi.jadconfig.util.Size;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.plugins.views.search.Parameter;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.errors.SearchError;
+import org.graylog2.indexer.indices.events.IndicesClosedEvent;
+import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
+import org.graylog2.indexer.indices.events.IndicesReopenedEvent;
+import org.graylog2.shared.metrics.MetricUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Node-local cache for the results of identical queries, e.g. of the widgets of a dashboard which is open in many
+ * browsers at the same time.
+ * <p>
+ * Queries are cached with their normalized form, which includes the streams they run on. As these are resolved from
+ * the permissions of the searching user during normalization, results are only shared between users who are
+ * allowed to see exactly the same streams. Relative time ranges are compared without their reference date and a
+ * cached result is fresh as long as it has been computed in the current interval of the configured granularity.
+ * Results of the previous interval can optionally be returned while a fresh result is computed in the background.
+ * <p>
+ * Deleting, closing or reopening indices on this node changes the data a query would return, so it invalidates all
+ * cached results.
+ */
+@Singleton
+public class QueryResultCache {
+    private static final Logger LOG = LoggerFactory.getLogger(QueryResultCache.class);
+    private static final DateTime REFERENCE_DATE = new DateTime(0, DateTimeZone.UTC);
+
+    private final boolean enabled;
+    private final long granularityMs;
+    private final boolean staleWhileRefresh;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final Cache<Key, Entry> cache;
+    private final ConcurrentMap<Key, CompletableFuture<QueryResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final Meter hits;
+    private final Meter staleHits;
+    private final Meter misses;
+    private final Counter savedBackendTime;
+
+    @Inject
+    public QueryResultCache(@Named("search_result_cache_enabled") boolean enabled,
+                            @Named("search_result_cache_granularity") Duration granularity,
+                            @Named("search_result_cache_max_size") Size maxSize,
+                            @Named("search_result_cache_stale_while_refresh") boolean staleWhileRefresh,
+                            ObjectMapper objectMapper,
+                            MetricRegistry metricRegistry,
+                            EventBus eventBus) {
+        this(enabled, granularity, maxSize, staleWhileRefresh, objectMapper, metricRegistry, Clock.systemUTC());
+        if (enabled) {
+            eventBus.register(this);
+        }
+    }
+
+    @VisibleForTesting
+    QueryResultCache(boolean enabled,
+                     Duration granularity,
+                     Size maxSize,
+                     boolean staleWhileRefresh,
+                     ObjectMapper objectMapper,
+                     MetricRegistry metricRegistry,
+                     Clock clock) {
+        this.enabled = enabled;
+        this.granularityMs = granularity.toMilliseconds();
+        this.staleWhileRefresh = staleWhileRefresh;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, Entry entry) -> entry.weight())
+                // Entries older than the previous interval are never returned
+                .expireAfterWrite(2 * granularityMs, TimeUnit.MILLISECONDS)
+                .build();
+
+        this.hits = metricRegistry.meter(name(QueryResultCache.class, "hits"));
+        this.staleHits = metricRegistry.meter(name(QueryResultCache.class, "staleHits"));
+        this.misses = metricRegistry.meter(name(QueryResultCache.class, "misses"));
+        this.savedBackendTime = metricRegistry.counter(name(QueryResultCache.class, "savedBackendTimeMs"));
+        MetricUtils.reRegister(metricRegistry, name(QueryResultCache.class, "hitRatio"), new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                final long cacheHits = hits.getCount() + staleHits.getCount();
+                return Ratio.of(cacheHits, cacheHits + misses.getCount());
+            }
+        });
+        MetricUtils.reRegister(metricRegistry, name(QueryResultCache.class, "entries"), (Gauge<Long>) cache::estimatedSize);
+        MetricUtils.reRegister(metricRegistry, name(QueryResultCache.class, "size"), (Gauge<Long>) this::sizeInBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Loads the result of a query, which is computed by the given loader only if there is no cached result for an
+     * identical query.
+     *
+     * @param refreshExecutor executor used to refresh stale results in the background
+     * @param errors          receives the errors of the query if it is computed for this call
+     */
+    public QueryResult get(Search search,
+                           Query query,
+                           DateTimeZone timezone,
+                           Loader loader,
+                           Executor refreshExecutor,
+                           Consumer<SearchError> errors) {
+        if (!enabled) {
+            return loader.load(errors);
+        }
+
+        final Key key = new Key(query.withReferenceDate(REFERENCE_DATE), search.parameters(), timezone.getID());
+        final long currentInterval = currentInterval();
+        final Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.interval() == currentInterval) {
+            hits.mark();
+            savedBackendTime.inc(entry.result().executionStats().duration());
+            return entry.result();
+        }
+        if (entry != null && staleWhileRefresh && entry.interval() == currentInterval - 1) {
+            staleHits.mark();
+            savedBackendTime.inc(entry.result().executionStats().duration());
+            refresh(key, entry, loader, refreshExecutor);
+            return entry.result();
+        }
+
+        misses.mark();
+        return loadCoalesced(key, loader, errors);
+    }
+
+    private QueryResult loadCoalesced(Key key, Loader loader, Consumer<SearchError> errors) {
+        final CompletableFuture<QueryResult> future = new CompletableFuture<>();
+        final CompletableFuture<QueryResult> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            // An identical query is already running in another thread, wait for it instead of running it again
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+            }
+        }
+        try {
+            final QueryResult result = load(key, loader, errors);
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private void refresh(Key key, Entry entry, Loader loader, Executor refreshExecutor) {
+        if (!entry.refreshing().compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, loader, error -> LOG.debug("Refreshing cached query result failed: {}", error.description()));
+                } catch (Exception e) {
+                    LOG.debug("Refreshing cached query result failed", e);
+                } finally {
+                    entry.refreshing().set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Unable to schedule refresh of cached query result, query pool is saturated.");
+            entry.refreshing().set(false);
+        }
+    }
+
+    private QueryResult load(Key key, Loader loader, Consumer<SearchError> errors) {
+        final long interval = currentInterval();
+        final List<SearchError> loadErrors = new ArrayList<>();
+        final QueryResult result = loader.load(loadErrors::add);
+        loadErrors.forEach(errors);
+
+        if (loadErrors.isEmpty() && (result.errors() == null || result.errors().isEmpty())
+                && result.state() == QueryResult.State.COMPLETED) {
+            final int weight = weigh(result);
+            if (weight > 0) {
+                cache.put(key, new Entry(result, interval, weight, new AtomicBoolean(false)));
+            }
+        }
+        return result;
+    }
+
+    private int weigh(QueryResult result) {
+        try (CountingOutputStream out = new CountingOutputStream(ByteStreams.nullOutputStream())) {
+            objectMapper.writeValue(out, result);
+            return (int) Math.min(Integer.MAX_VALUE, out.getCount());
+        } catch (IOException e) {
+            LOG.debug("Unable to determine size of query result, not caching it", e);
+            return 0;
+        }
+    }
+
+    private long currentInterval() {
+        return clock.millis() / granularityMs;
+    }
+
+    /**
+     * Returns the weighted size of the cache as of its last maintenance, which runs asynchronously after writes.
+     * Doesn't force the maintenance, so reading the metric is cheap.
+     */
+    long sizeInBytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    @VisibleForTesting
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Subscribe
+    public void handleIndicesDeleted(IndicesDeletedEvent event) {
+        invalidateAll();
+    }
+
+    @Subscribe
+    public void handleIndicesClosed(IndicesClosedEvent event) {
+        invalidateAll();
+    }
+
+    @Subscribe
+    public void handleIndicesReopened(IndicesReopenedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Computes the result of a query, reporting its errors to the given consumer.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        QueryResult load(Consumer<SearchError> errors);
+    }
+
+    private record Key(Query query, Set<Parameter> parameters, String timezone) {}
+
+    private record Entry(QueryResult result, long interval, int weight, AtomicBoolean refreshing) {}
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import org.graylog2.shared.metrics.MetricUtils;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Runs queries on a fixed number of worker threads, deciding which of the waiting queries runs next.
+ * <p>
+ * With fair queueing enabled, every owner of a {@link SearchPriority priority class} gets its own queue and waiting
+ * queries are ordered by start-time fair queueing: every query gets a virtual start tag, which is the later one of the
+ * current virtual time and the finish tag of the previous query of its owner. The finish tag adds the estimated cost of
+ * the query divided by the weight of its priority class. Expensive queries of one user therefore push back further
+ * queries of the same user only, and classes with a higher weight get a larger share of the workers. Additionally, the
+ * number of queries of a class which run at the same time can be limited.
+ * <p>
+ * Without fair queueing, queries are run in the order they have been submitted.
+ */
+public class QueryScheduler {
+    private static final Comparator<Task<?>> TASK_ORDER = Comparator.<Task<?>>comparingDouble(task -> task.startTag)
+            .thenComparingLong(task -> task.sequence);
+    private static final int MAX_IDLE_FLOWS = 1000;
+
+    private final Executor workers;
+    private final int poolSize;
+    private final int queueSize;
+    private final boolean fairQueueing;
+    private final Map<SearchPriority, Integer> maxConcurrency;
+    private final Ticker ticker;
+
+    private final Object lock = new Object();
+    private final TreeSet<Task<?>> queue = new TreeSet<>(TASK_ORDER);
+    private final Map<Flow, Double> finishTags = new HashMap<>();
+    private final Map<SearchPriority, Integer> running = new EnumMap<>(SearchPriority.class);
+    private int runningTotal = 0;
+    private double virtualTime = 0;
+    private long sequence = 0;
+
+    private final Map<SearchPriority, Timer> queueTimers = new EnumMap<>(SearchPriority.class);
+    private final Map<SearchPriority, Timer> executionTimers = new EnumMap<>(SearchPriority.class);
+
+    /**
+     * @param workers        executor which runs every submitted task right away, it needs at least {@code poolSize} threads
+     * @param queueSize      maximum number of waiting queries, {@code 0} means unbounded
+     * @param maxConcurrency maximum number of running queries per priority class, missing classes or {@code 0} mean
+     *                       that the class may use all workers
+     */
+    public QueryScheduler(Executor workers,
+                          int poolSize,
+                          int queueSize,
+                          boolean fairQueueing,
+                          Map<SearchPriority, Integer> maxConcurrency,
+                          MetricRegistry metricRegistry) {
+        this(workers, poolSize, queueSize, fairQueueing, maxConcurrency, metricRegistry, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    QueryScheduler(Executor workers,
+                   int poolSize,
+                   int queueSize,
+                   boolean fairQueueing,
+                   Map<SearchPriority, Integer> maxConcurrency,
+                   MetricRegistry metricRegistry,
+                   Ticker ticker) {
+        this.workers = workers;
+        this.poolSize = poolSize;
+        this.queueSize = queueSize;
+        this.fairQueueing = fairQueueing;
+        this.maxConcurrency = new EnumMap<>(SearchPriority.class);
+        this.ticker = ticker;
+        for (SearchPriority priority : SearchPriority.values()) {
+            final int max = maxConcurrency.getOrDefault(priority, 0);
+            this.maxConcurrency.put(priority, fairQueueing && max > 0 ? Math.min(max, poolSize) : poolSize);
+            this.running.put(priority, 0);
+            this.queueTimers.put(priority, metricRegistry.timer(name(QueryScheduler.class, priority.value(), "queueTime")));
+            this.executionTimers.put(priority, metricRegistry.timer(name(QueryScheduler.class, priority.value(), "executionTime")));
+        }
+        MetricUtils.reRegister(metricRegistry, name(QueryScheduler.class, "queued"), (Gauge<Integer>) this::queued);
+    }
+
+    /**
+     * Queues a query. The task receives the time in milliseconds it has been waiting for a worker.
+     *
+     * @param cost estimated cost of the query, see {@link QueryCostEstimator}
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(SearchPriority priority, String owner, long cost, LongFunction<T> task) {
+        final Task<T> queued;
+        synchronized (lock) {
+            if (queueSize > 0 && queue.size() >= queueSize) {
+                throw new RejectedExecutionException("Query queue is full, " + queue.size() + " queries are waiting.");
+            }
+            final double startTag;
+            if (fairQueueing) {
+                final Flow flow = new Flow(priority, owner);
+                startTag = Math.max(virtualTime, finishTags.getOrDefault(flow, 0D));
+                finishTags.put(flow, startTag + (double) Math.max(1L, cost) / priority.weight());
+            } else {
+                startTag = 0;
+            }
+            queued = new Task<>(priority, startTag, sequence++, ticker.read(), task);
+            queue.add(queued);
+        }
+        dispatch();
+        return queued.future;
+    }
+
+    /**
+     * Executor which runs tasks with the given priority and owner, e.g. to refresh cached results.
+     */
+    public Executor executor(SearchPriority priority, String owner, long cost) {
+        return runnable -> submit(priority, owner, cost, queueTime -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    private void dispatch() {
+        while (true) {
+            final Task<?> next;
+            synchronized (lock) {
+                next = nextRunnableTask();
+                if (next == null) {
+                    return;
+                }
+                running.merge(next.priority, 1, Integer::sum);
+                runningTotal++;
+                virtualTime = Math.max(virtualTime, next.startTag);
+                if (finishTags.size() > MAX_IDLE_FLOWS) {
+                    // flows which are not ahead of the virtual time start at the virtual time anyway
+                    finishTags.values().removeIf(finishTag -> finishTag <= virtualTime);
+                }
+            }
+            try {
+                workers.execute(next);
+            } catch (RejectedExecutionException e) {
+                next.future.completeExceptionally(new CompletionException(e));
+                finished(next);
+            }
+        }
+    }
+
+    private Task<?> nextRunnableTask() {
+        if (runningTotal >= poolSize) {
+            return null;
+        }
+        final Iterator<Task<?>> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            final Task<?> task = iterator.next();
+            if (running.get(task.priority) < maxConcurrency.get(task.priority)) {
+                iterator.remove();
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private void finished(Task<?> task) {
+        synchronized (lock) {
+            running.merge(task.priority, -1, Integer::sum);
+            runningTotal--;
+        }
+    }
+
+    @VisibleForTesting
+    int queued() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    private record Flow(SearchPriority priority, String owner) {}
+
+    private class Task<T> implements Runnable {
+        private final SearchPriority priority;
+        private final double startTag;
+        private final long sequence;
+        private final long enqueuedAt;
+        private final LongFunction<T> task;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Task(SearchPriority priority, double startTag, long sequence, long enqueuedAt, LongFunction<T> task) {
+            this.priority = priority;
+            this.startTag = startTag;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (future.isCancelled()) {
+                finished(this);
+                dispatch();
+                return;
+            }
+            final long startedAt = ticker.read();
+            final long queueTime = startedAt - enqueuedAt;
+            queueTimers.get(priority).update(queueTime, TimeUnit.NANOSECONDS);
+            try {
+                future.complete(task.apply(TimeUnit.NANOSECONDS.toMillis(queueTime)));
+            } catch (Throwable t) {
+                // wrapped like CompletableFuture#supplyAsync does, callers unwrap the cause
+                future.completeExceptionally(new CompletionException(t));
+            } finally {
+                executionTimers.get(priority).update(ticker.read() - startedAt, TimeUnit.NANOSECONDS);
+                finished(this);
+                dispatch();
+            }
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -107,7 +108,9 @@ public class SearchExecutor {
 
     @WithSpan
     public SearchJob executeAsync(Search search, SearchUser searchUser, ExecutionState executionState) {
-        return prepareAndExecuteSearchJob(search, searchUser, executionState);
+        final SearchJob searchJob = prepareAndExecuteSearchJob(search, searchUser, executionState);
+        searchJobService.trackExecution(searchJob);
+        return searchJob;
     }
 
     private SearchJob prepareAndExecuteSearchJob(final Search search,
@@ -122,7 +125,8 @@ public class SearchExecutor {
         }
 
         final Search normalizedSearch = searchNormalization.postValidation(preValidationSearch, searchUser, executionState);
-        final SearchJob searchJob = queryEngine.execute(searchJobService.create(normalizedSearch, searchUser.username(), executionState.cancelAfterSeconds()), validationErrors, searchUser.timeZone().orElse(DEFAULT_TIMEZONE));
+        final SearchPriority priority = Optional.ofNullable(executionState.priority()).orElse(SearchPriority.INTERACTIVE);
+        final SearchJob searchJob = queryEngine.execute(searchJobService.create(normalizedSearch, searchUser.username(), executionState.cancelAfterSeconds()), validationErrors, searchUser.timeZone().orElse(DEFAULT_TIMEZONE), priority);
         validationErrors.forEach(searchJob::addError);
         return searchJob;
     }
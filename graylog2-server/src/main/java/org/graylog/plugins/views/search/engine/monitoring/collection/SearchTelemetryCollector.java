@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine.monitoring.collection;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog.plugins.views.search.engine.QueryExecutionStats;
+import org.graylog2.shared.metrics.MetricUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Collects the execution stats of all queries, so they can be persisted in batches by the
+ * {@link org.graylog.plugins.views.search.engine.monitoring.telemetry.SearchTelemetryPeriodical}.
+ * <p>
+ * Storing stats only adds them to a bounded buffer. If the buffer is full, because stats cannot be written fast
+ * enough, they are dropped instead of blocking the search. Recent stats are kept in memory as well if query latency
+ * monitoring is enabled.
+ */
+@Singleton
+public class SearchTelemetryCollector implements StatsCollector<QueryExecutionStats> {
+    private final StatsCollector<QueryExecutionStats> recentStats;
+    private final BlockingQueue<QueryExecutionStats> buffer;
+    private final Meter dropped;
+
+    @Inject
+    public SearchTelemetryCollector(@Named("query_latency_monitoring_enabled") boolean queryLatencyMonitoringEnabled,
+                                    @Named("query_latency_monitoring_window_size") int queryLatencyMonitoringWindowSize,
+                                    @Named("search_telemetry_buffer_size") int bufferSize,
+                                    MetricRegistry metricRegistry) {
+        this(queryLatencyMonitoringEnabled && queryLatencyMonitoringWindowSize > 0
+                        ? new InMemoryCappedStatsCollector<>(queryLatencyMonitoringWindowSize)
+                        : new NoOpStatsCollector<>(),
+                bufferSize,
+                metricRegistry);
+    }
+
+    @VisibleForTesting
+    SearchTelemetryCollector(StatsCollector<QueryExecutionStats> recentStats, int bufferSize, MetricRegistry metricRegistry) {
+        this.recentStats = recentStats;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.dropped = metricRegistry.meter(name(SearchTelemetryCollector.class, "dropped"));
+        MetricUtils.reRegister(metricRegistry, name(SearchTelemetryCollector.class, "buffered"), (Gauge<Integer>) buffer::size);
+    }
+
+    @Override
+    public void storeStats(QueryExecutionStats stats) {
+        recentStats.storeStats(stats);
+        if (!buffer.offer(stats)) {
+            dropped.mark();
+        }
+    }
+
+    @Override
+    public List<QueryExecutionStats> getAllStats() {
+        return recentStats.getAllStats();
+    }
+
+    /**
+     * Removes at most the given number of buffered stats, in the order they have been stored.
+     */
+    public List<QueryExecutionStats> drain(int maxEntries) {
+        final List<QueryExecutionStats> stats = new ArrayList<>(Math.min(maxEntries, buffer.size()));
+        buffer.drainTo(stats, maxEntries);
+        return stats;
+    }
+}
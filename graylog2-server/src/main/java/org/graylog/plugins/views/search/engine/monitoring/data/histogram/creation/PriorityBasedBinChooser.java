@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine.monitoring.data.histogram.creation;
+
+import org.graylog.plugins.views.search.engine.QueryExecutionStats;
+import org.graylog.plugins.views.search.engine.SearchPriority;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+public class PriorityBasedBinChooser implements BinChooser<String, QueryExecutionStats> {
+
+    @Override
+    public Optional<String> chooseBin(final List<String> availablePriorities, final QueryExecutionStats stats) {
+        return Optional.ofNullable(stats.priority())
+                .map(SearchPriority::value)
+                .filter(availablePriorities::contains);
+    }
+
+    @Override
+    public Optional<Comparator<String>> getBinComparator() {
+        return Optional.empty();
+    }
+}
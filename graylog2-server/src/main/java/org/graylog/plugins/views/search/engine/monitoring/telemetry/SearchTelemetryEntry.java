@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine.monitoring.telemetry;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.auto.value.AutoValue;
+import org.graylog2.database.MongoEntity;
+import org.joda.time.DateTime;
+import org.mongojack.Id;
+import org.mongojack.ObjectId;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persisted execution stats of a single query.
+ */
+@AutoValue
+@JsonDeserialize(builder = AutoValue_SearchTelemetryEntry.Builder.class)
+public abstract class SearchTelemetryEntry implements MongoEntity {
+    static final String FIELD_TIMESTAMP = "timestamp";
+    static final String FIELD_SEARCH_ID = "search_id";
+    static final String FIELD_RANGE_BUCKET = "range_bucket";
+    static final String FIELD_DURATION = "duration";
+    static final String FIELD_SEARCH_TYPE_IDS = "search_type_ids";
+
+    @Id
+    @ObjectId
+    @Nullable
+    @Override
+    @JsonProperty("_id")
+    public abstract String id();
+
+    @JsonProperty(FIELD_TIMESTAMP)
+    public abstract DateTime timestamp();
+
+    @JsonProperty("node_id")
+    public abstract String nodeId();
+
+    @JsonProperty(FIELD_SEARCH_ID)
+    @Nullable
+    public abstract String searchId();
+
+    @JsonProperty("query_id")
+    @Nullable
+    public abstract String queryId();
+
+    @JsonProperty("priority")
+    @Nullable
+    public abstract String priority();
+
+    @JsonProperty(FIELD_DURATION)
+    public abstract long duration();
+
+    @JsonProperty("queue_time")
+    public abstract long queueTime();
+
+    @JsonProperty("backend_took")
+    public abstract long backendTook();
+
+    @JsonProperty("indices")
+    public abstract int indices();
+
+    /**
+     * Length of the effective time range of the query.
+     */
+    @JsonProperty("range_ms")
+    public abstract long rangeMs();
+
+    /**
+     * The smallest of the default relative time range options which covers the effective time range of the query.
+     */
+    @JsonProperty(FIELD_RANGE_BUCKET)
+    public abstract String rangeBucket();
+
+    /**
+     * Number of search types of the query by their type.
+     */
+    @JsonProperty("search_types")
+    public abstract Map<String, Long> searchTypes();
+
+    @JsonProperty(FIELD_SEARCH_TYPE_IDS)
+    public abstract List<String> searchTypeIds();
+
+    public static Builder builder() {
+        return new AutoValue_SearchTelemetryEntry.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        @Id
+        @ObjectId
+        @JsonProperty("_id")
+        public abstract Builder id(String id);
+
+        @JsonProperty(FIELD_TIMESTAMP)
+        public abstract Builder timestamp(DateTime timestamp);
+
+        @JsonProperty("node_id")
+        public abstract Builder nodeId(String nodeId);
+
+        @JsonProperty(FIELD_SEARCH_ID)
+        public abstract Builder searchId(@Nullable String searchId);
+
+        @JsonProperty("query_id")
+        public abstract Builder queryId(@Nullable String queryId);
+
+        @JsonProperty("priority")
+        public abstract Builder priority(@Nullable String priority);
+
+        @JsonProperty(FIELD_DURATION)
+        public abstract Builder duration(long duration);
+
+        @JsonProperty("queue_time")
+        public abstract Builder queueTime(long queueTime);
+
+        @JsonProperty("backend_took")
+        public abstract Builder backendTook(long backendTook);
+
+        @JsonProperty("indices")
+        public abstract Builder indices(int indices);
+
+        @JsonProperty("range_ms")
+        public abstract Builder rangeMs(long rangeMs);
+
+        @JsonProperty(FIELD_RANGE_BUCKET)
+        public abstract Builder rangeBucket(String rangeBucket);
+
+        @JsonProperty("search_types")
+        public abstract Builder searchTypes(Map<String, Long> searchTypes);
+
+        @JsonProperty(FIELD_SEARCH_TYPE_IDS)
+        public abstract Builder searchTypeIds(List<String> searchTypeIds);
+
+        public abstract SearchTelemetryEntry build();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine.monitoring.telemetry;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.graylog.plugins.views.search.engine.QueryExecutionStats;
+import org.graylog.plugins.views.search.engine.monitoring.collection.SearchTelemetryCollector;
+import org.graylog2.plugin.periodical.Periodical;
+import org.graylog2.plugin.system.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Writes the execution stats buffered by the {@link SearchTelemetryCollector} in batches.
+ */
+public class SearchTelemetryPeriodical extends Periodical {
+    private static final Logger LOG = LoggerFactory.getLogger(SearchTelemetryPeriodical.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final boolean enabled;
+    private final SearchTelemetryCollector collector;
+    private final SearchTelemetryService telemetryService;
+    private final NodeId nodeId;
+
+    @Inject
+    public SearchTelemetryPeriodical(@Named("search_telemetry_enabled") boolean enabled,
+                                     SearchTelemetryCollector collector,
+                                     SearchTelemetryService telemetryService,
+                                     NodeId nodeId) {
+        this.enabled = enabled;
+        this.collector = collector;
+        this.telemetryService = telemetryService;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public void doRun() {
+        List<QueryExecutionStats> batch;
+        do {
+            batch = collector.drain(BATCH_SIZE);
+            try {
+                telemetryService.save(nodeId.getNodeId(), batch);
+            } catch (Exception e) {
+                LOG.warn("Unable to persist execution stats of {} queries, dropping them.", batch.size(), e);
+                return;
+            }
+        } while (batch.size() == BATCH_SIZE);
+    }
+
+    @Override
+    public boolean runsForever() {
+        return false;
+    }
+
+    @Override
+    public boolean stopOnGracefulShutdown() {
+        return true;
+    }
+
+    @Override
+    public boolean leaderOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean startOnThisNode() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isDaemon() {
+        return true;
+    }
+
+    @Override
+    public int getInitialDelaySeconds() {
+        return 10;
+    }
+
+    @Override
+    public int getPeriodSeconds() {
+        return 5;
+    }
+
+    @Override
+    protected Logger getLogger() {
+        return LOG;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine.monitoring.telemetry;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.joschi.jadconfig.util.Duration;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.WindowOutputFields;
+import com.mongodb.client.model.Windows;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import org.bson.Document;
+import org.graylog.plugins.views.search.engine.QueryExecutionStats;
+import org.graylog.plugins.views.search.engine.monitoring.data.histogram.creation.PeriodBasedBinChooser;
+import org.graylog2.database.MongoCollections;
+import org.graylog2.database.indices.MongoDbIndexTools;
+import org.graylog2.indexer.searches.SearchesClusterConfig;
+import org.joda.time.DateTime;
+import org.joda.time.Period;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.mongodb.client.model.Filters.gte;
+import static org.graylog.plugins.views.search.engine.monitoring.telemetry.SearchTelemetryEntry.FIELD_DURATION;
+import static org.graylog.plugins.views.search.engine.monitoring.telemetry.SearchTelemetryEntry.FIELD_RANGE_BUCKET;
+import static org.graylog.plugins.views.search.engine.monitoring.telemetry.SearchTelemetryEntry.FIELD_SEARCH_ID;
+import static org.graylog.plugins.views.search.engine.monitoring.telemetry.SearchTelemetryEntry.FIELD_SEARCH_TYPE_IDS;
+import static org.graylog.plugins.views.search.engine.monitoring.telemetry.SearchTelemetryEntry.FIELD_TIMESTAMP;
+
+/**
+ * Stores the execution stats of queries in MongoDB and aggregates them. Stats are removed by a TTL index once they
+ * are older than the configured retention.
+ */
+public class SearchTelemetryService {
+    public static final String COLLECTION_NAME = "search_telemetry";
+    static final String LONGER_RANGE_BUCKET = "longer";
+    private static final String FIELD_RANK = "rank";
+    private static final String FIELD_COUNT = "count";
+
+    private static final PeriodBasedBinChooser BIN_CHOOSER = new PeriodBasedBinChooser();
+    private static final List<Period> RANGE_BUCKETS = SearchesClusterConfig.createDefault().relativeTimerangeOptions().keySet().stream()
+            .filter(period -> !Period.ZERO.equals(period))
+            .sorted(BIN_CHOOSER.getBinComparator().orElseThrow())
+            .toList();
+
+    private final MongoCollection<SearchTelemetryEntry> collection;
+
+    @Inject
+    public SearchTelemetryService(MongoCollections mongoCollections,
+                                  @Named("search_telemetry_enabled") boolean enabled,
+                                  @Named("search_telemetry_retention") Duration retention) {
+        this.collection = mongoCollections.collection(COLLECTION_NAME, SearchTelemetryEntry.class);
+
+        // Without telemetry nothing is written, so the collection doesn't have to be created
+        if (enabled) {
+            MongoDbIndexTools.ensureTTLIndex(collection.withDocumentClass(Document.class),
+                    java.time.Duration.ofMillis(retention.toMilliseconds()), FIELD_TIMESTAMP);
+            collection.createIndex(Indexes.ascending(FIELD_RANGE_BUCKET, FIELD_DURATION));
+        }
+    }
+
+    public void save(String nodeId, Collection<QueryExecutionStats> stats) {
+        if (stats.isEmpty()) {
+            return;
+        }
+        collection.insertMany(stats.stream().map(s -> toEntry(nodeId, s)).toList());
+    }
+
+    static SearchTelemetryEntry toEntry(String nodeId, QueryExecutionStats stats) {
+        return SearchTelemetryEntry.builder()
+                .timestamp(stats.timestamp())
+                .nodeId(nodeId)
+                .searchId(stats.searchId())
+                .queryId(stats.queryId())
+                .priority(stats.priority() == null ? null : stats.priority().value())
+                .duration(stats.duration())
+                .queueTime(stats.queueTime())
+                .backendTook(stats.backendTook())
+                .indices(stats.indices())
+                .rangeMs(stats.effectiveTimeRange().getTo().getMillis() - stats.effectiveTimeRange().getFrom().getMillis())
+                .rangeBucket(BIN_CHOOSER.chooseBin(RANGE_BUCKETS, stats).map(Period::toString).orElse(LONGER_RANGE_BUCKET))
+                .searchTypes(stats.searchTypes().values().stream()
+                        .collect(Collectors.groupingBy(Function.identity(), Collectors.counting())))
+                .searchTypeIds(List.copyOf(stats.searchTypes().keySet()))
+                .build();
+    }
+
+    /**
+     * Computes duration percentiles of the queries which ran since the given time, by their time range bucket.
+     * Buckets without queries are left out.
+     * <p>
+     * Uses a single aggregation: the queries of every bucket are numbered by their duration and only the queries at
+     * the ranks of the percentiles are returned.
+     */
+    public List<RangeBucketPercentiles> percentilesByRangeBucket(DateTime since) {
+        final Map<String, Percentiles> percentiles = new HashMap<>();
+        collection.aggregate(List.of(
+                Aggregates.match(gte(FIELD_TIMESTAMP, since.toDate())),
+                Aggregates.setWindowFields("$" + FIELD_RANGE_BUCKET, Sorts.ascending(FIELD_DURATION),
+                        WindowOutputFields.documentNumber(FIELD_RANK),
+                        WindowOutputFields.count(FIELD_COUNT, Windows.documents(Windows.Bound.UNBOUNDED, Windows.Bound.UNBOUNDED))),
+                Aggregates.match(Filters.expr(new Document("$in", List.of("$" + FIELD_RANK, List.of(
+                        rankExpression(0.5), rankExpression(0.95), rankExpression(0.99), "$" + FIELD_COUNT))))),
+                Aggregates.project(Projections.include(FIELD_RANGE_BUCKET, FIELD_DURATION, FIELD_RANK, FIELD_COUNT))
+        ), Document.class).forEach(document -> {
+            final long count = document.get(FIELD_COUNT, Number.class).longValue();
+            percentiles.computeIfAbsent(document.getString(FIELD_RANGE_BUCKET), bucket -> new Percentiles(count))
+                    .add(document.get(FIELD_RANK, Number.class).longValue(), document.get(FIELD_DURATION, Number.class).longValue());
+        });
+
+        final List<RangeBucketPercentiles> result = new ArrayList<>();
+        final List<String> buckets = new ArrayList<>(RANGE_BUCKETS.stream().map(Period::toString).toList());
+        buckets.add(LONGER_RANGE_BUCKET);
+        for (String bucket : buckets) {
+            final Percentiles bucketPercentiles = percentiles.get(bucket);
+            if (bucketPercentiles != null) {
+                result.add(bucketPercentiles.toResult(bucket));
+            }
+        }
+        return result;
+    }
+
+    // Nearest-rank percentile: the duration of the query at rank ceil(p * n) when sorted by duration
+    private static long rank(double percentile, long count) {
+        return Math.max(1, (long) Math.ceil(percentile * count));
+    }
+
+    private static Document rankExpression(double percentile) {
+        return new Document("$max", List.of(1, new Document("$ceil", new Document("$multiply", List.of(percentile, "$" + FIELD_COUNT)))));
+    }
+
+    private static class Percentiles {
+        private final long count;
+        private long p50;
+        private long p95;
+        private long p99;
+        private long max;
+
+        private Percentiles(long count) {
+            this.count = count;
+        }
+
+        private void add(long rank, long duration) {
+            if (rank == rank(0.5, count)) {
+                p50 = duration;
+            }
+            if (rank == rank(0.95, count)) {
+                p95 = duration;
+            }
+            if (rank == rank(0.99, count)) {
+                p99 = duration;
+            }
+            if (rank == count) {
+                max = duration;
+            }
+        }
+
+        private RangeBucketPercentiles toResult(String bucket) {
+            return new RangeBucketPercentiles(bucket, count, p50, p95, p99, max);
+        }
+    }
+
+    /**
+     * Returns the search types with the highest average duration of the queries they were part of since the given
+     * time. Search types are identified by the search they belong to, mapping them to widgets is left to the client.
+     */
+    public List<SlowSearchType> slowestSearchTypes(DateTime since, int limit) {
+        final List<SlowSearchType> result = new ArrayList<>();
+        collection.aggregate(List.of(
+                Aggregates.match(gte(FIELD_TIMESTAMP, since.toDate())),
+                Aggregates.unwind("$" + FIELD_SEARCH_TYPE_IDS),
+                Aggregates.group(
+                        new Document(FIELD_SEARCH_ID, "$" + FIELD_SEARCH_ID).append("search_type_id", "$" + FIELD_SEARCH_TYPE_IDS),
+                        Accumulators.sum("count", 1),
+                        Accumulators.avg("avg_duration", "$" + FIELD_DURATION),
+                        Accumulators.max("max_duration", "$" + FIELD_DURATION)
+                ),
+                Aggregates.sort(Sorts.descending("avg_duration")),
+                Aggregates.limit(limit)
+        ), Document.class).forEach(document -> {
+            final Document id = document.get("_id", Document.class);
+            result.add(new SlowSearchType(
+                    id.getString(FIELD_SEARCH_ID),
+                    id.getString("search_type_id"),
+                    document.get("count", Number.class).longValue(),
+                    document.get("avg_duration", Number.class).doubleValue(),
+                    document.get("max_duration", Number.class).longValue()));
+        });
+        return result;
+    }
+
+    public record RangeBucketPercentiles(@JsonProperty("range_bucket") String rangeBucket,
+                                         @JsonProperty("count") long count,
+                                         @JsonProperty("p50") long p50,
+                                         @JsonProperty("p95") long p95,
+                                         @JsonProperty("p99") long p99,
+                                         @JsonProperty("max") long max) {}
+
+    public record SlowSearchType(@JsonProperty("search_id") String searchId,
+                                 @JsonProperty("search_type_id") String searchTypeId,
+                                 @JsonProperty("count") long count,
+                                 @JsonProperty("avg_duration") double avgDuration,
+                                 @JsonProperty("max_duration") long maxDuration) {}
+}
@@ -46,7 +46,8 @@ public class CommandFactory {
                 .queryString(request.queryString())
                 .streams(request.streams())
                 .fieldsInOrder(request.fieldsInOrder())
-                .chunkSize(request.chunkSize());
+                .chunkSize(request.chunkSize())
+                .preserveOrder(request.preserveOrder());
 
         request.timeZone().ifPresent(builder::timeZone);
         request.limit().ifPresent(builder::limit);
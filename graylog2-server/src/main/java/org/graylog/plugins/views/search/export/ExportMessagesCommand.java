@@ -79,6 +79,12 @@ public abstract class ExportMessagesCommand {
 
     public abstract DateTimeZone timeZone();
 
+    /**
+     * Whether messages have to be exported in timestamp order. Backends exporting in parallel can deliver messages
+     * as soon as they are available if this is {@code false}.
+     */
+    public abstract boolean preserveOrder();
+
     public static ExportMessagesCommand withDefaults() {
         return builder().build();
     }
@@ -119,6 +125,8 @@ public abstract class ExportMessagesCommand {
 
         public abstract Builder timeZone(DateTimeZone timeZone);
 
+        public abstract Builder preserveOrder(boolean preserveOrder);
+
         abstract ExportMessagesCommand autoBuild();
 
         public ExportMessagesCommand build() {
@@ -135,7 +143,8 @@ public abstract class ExportMessagesCommand {
                     .fieldsInOrder(DEFAULT_FIELDS)
                     .decorators(Collections.emptyList())
                     .chunkSize(DEFAULT_CHUNK_SIZE)
-                    .timeZone(DEFAULT_TIME_ZONE);
+                    .timeZone(DEFAULT_TIME_ZONE)
+                    .preserveOrder(true);
         }
     }
 }
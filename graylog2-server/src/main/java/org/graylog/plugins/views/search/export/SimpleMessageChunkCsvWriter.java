@@ -34,10 +34,7 @@ import java.io.OutputStreamWriter;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.List;
-
-import static java.util.stream.Collectors.toList;
+import java.util.Map;
 
 @Provider
 @Produces(MoreMediaTypes.TEXT_CSV)
@@ -80,19 +77,16 @@ public class SimpleMessageChunkCsvWriter extends SimpleMessageChunkWriter {
     }
 
     private void writeValues(SimpleMessageChunk chunk, CSVWriter csvWriter) {
-        List<String[]> valueMatrix = valuesAsStringsInOrder(chunk);
-        csvWriter.writeAll(valueMatrix);
-    }
-
-    private List<String[]> valuesAsStringsInOrder(SimpleMessageChunk simpleMessageChunk) {
-        return Arrays.stream(simpleMessageChunk.getAllValuesInOrder())
-                .map(this::toStringArray)
-                .collect(toList());
-    }
-
-    private String[] toStringArray(Object[] objects) {
-        return Arrays.stream(objects)
-                .map(o -> o == null ? null : o.toString())
-                .toArray(String[]::new);
+        final String[] fields = chunk.fieldsInOrder().toArray(new String[0]);
+        // The row is written out before the next message is processed, so it can be reused for all of them
+        final String[] row = new String[fields.length];
+        for (SimpleMessage message : chunk.messages()) {
+            final Map<String, Object> values = message.fields();
+            for (int i = 0; i < fields.length; i++) {
+                final Object value = values.get(fields[i]);
+                row[i] = value == null ? null : value.toString();
+            }
+            csvWriter.writeNext(row);
+        }
     }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.jobs;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+/**
+ * Posted on the cluster event bus if a search job has been cancelled on a node other than the one executing it.
+ */
+@AutoValue
+public abstract class SearchJobCancelledEvent {
+    @JsonProperty("job_id")
+    public abstract String jobId();
+
+    @JsonCreator
+    public static SearchJobCancelledEvent create(@JsonProperty("job_id") String jobId) {
+        return new AutoValue_SearchJobCancelledEvent(jobId);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.jobs;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.auto.value.AutoValue;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog2.database.MongoEntity;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.mongojack.Id;
+import org.mongojack.ObjectId;
+
+import javax.annotation.Nullable;
+
+/**
+ * Result of a single query of a search job, stored separately from the {@link SearchJobState} so results of
+ * different queries can be written as soon as they complete.
+ */
+@AutoValue
+@JsonDeserialize(builder = AutoValue_SearchJobQueryResult.Builder.class)
+public abstract class SearchJobQueryResult implements MongoEntity {
+    public static final String JOB_ID_FIELD = "job_id";
+    public static final String QUERY_ID_FIELD = "query_id";
+    public static final String RESULT_FIELD = "result";
+    public static final String CREATED_AT_FIELD = "created_at";
+
+    @Id
+    @ObjectId
+    @Nullable
+    @Override
+    @JsonProperty("_id")
+    public abstract String id();
+
+    @JsonProperty(JOB_ID_FIELD)
+    public abstract String jobId();
+
+    @JsonProperty(QUERY_ID_FIELD)
+    public abstract String queryId();
+
+    @JsonProperty(RESULT_FIELD)
+    public abstract QueryResult result();
+
+    @JsonProperty(CREATED_AT_FIELD)
+    public abstract DateTime createdAt();
+
+    public static SearchJobQueryResult create(String jobId, QueryResult result) {
+        return builder()
+                .jobId(jobId)
+                .queryId(result.query().id())
+                .result(result)
+                .createdAt(DateTime.now(DateTimeZone.UTC))
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_SearchJobQueryResult.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        @Id
+        @ObjectId
+        @JsonProperty("_id")
+        public abstract Builder id(String id);
+
+        @JsonProperty(JOB_ID_FIELD)
+        public abstract Builder jobId(String jobId);
+
+        @JsonProperty(QUERY_ID_FIELD)
+        public abstract Builder queryId(String queryId);
+
+        @JsonProperty(RESULT_FIELD)
+        public abstract Builder result(QueryResult result);
+
+        @JsonProperty(CREATED_AT_FIELD)
+        public abstract Builder createdAt(DateTime createdAt);
+
+        public abstract SearchJobQueryResult build();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.jobs;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.google.auto.value.AutoValue;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog2.database.MongoEntity;
+import org.joda.time.DateTime;
+import org.mongojack.Id;
+import org.mongojack.ObjectId;
+
+import javax.annotation.Nullable;
+
+/**
+ * Result of a single search type of a search job query. Search type results are stored apart from the
+ * {@link SearchJobQueryResult} of their query, so a query with many or large search types doesn't have to fit into a
+ * single document.
+ */
+@AutoValue
+@JsonDeserialize(builder = AutoValue_SearchJobSearchTypeResult.Builder.class)
+public abstract class SearchJobSearchTypeResult implements MongoEntity {
+    public static final String JOB_ID_FIELD = "job_id";
+    public static final String QUERY_ID_FIELD = "query_id";
+    public static final String SEARCH_TYPE_ID_FIELD = "search_type_id";
+    public static final String RESULT_FIELD = "result";
+    public static final String CREATED_AT_FIELD = "created_at";
+
+    @Id
+    @ObjectId
+    @Nullable
+    @Override
+    @JsonProperty("_id")
+    public abstract String id();
+
+    @JsonProperty(JOB_ID_FIELD)
+    public abstract String jobId();
+
+    @JsonProperty(QUERY_ID_FIELD)
+    public abstract String queryId();
+
+    @JsonProperty(SEARCH_TYPE_ID_FIELD)
+    public abstract String searchTypeId();
+
+    @JsonProperty(RESULT_FIELD)
+    public abstract SearchType.Result result();
+
+    @JsonProperty(CREATED_AT_FIELD)
+    public abstract DateTime createdAt();
+
+    public static SearchJobSearchTypeResult create(String jobId, String queryId, String searchTypeId,
+                                                   SearchType.Result result, DateTime createdAt) {
+        return builder()
+                .jobId(jobId)
+                .queryId(queryId)
+                .searchTypeId(searchTypeId)
+                .result(result)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new AutoValue_SearchJobSearchTypeResult.Builder();
+    }
+
+    @AutoValue.Builder
+    public abstract static class Builder {
+        @Id
+        @ObjectId
+        @JsonProperty("_id")
+        public abstract Builder id(String id);
+
+        @JsonProperty(JOB_ID_FIELD)
+        public abstract Builder jobId(String jobId);
+
+        @JsonProperty(QUERY_ID_FIELD)
+        public abstract Builder queryId(String queryId);
+
+        @JsonProperty(SEARCH_TYPE_ID_FIELD)
+        public abstract Builder searchTypeId(String searchTypeId);
+
+        @JsonProperty(RESULT_FIELD)
+        public abstract Builder result(SearchType.Result result);
+
+        @JsonProperty(CREATED_AT_FIELD)
+        public abstract Builder createdAt(DateTime createdAt);
+
+        public abstract SearchJobSearchTypeResult build();
+    }
+}
@@ -27,11 +27,14 @@ import com.mongodb.client.result.UpdateResult;
 import jakarta.inject.Inject;
 import org.bson.Document;
 import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.SearchType;
 import org.graylog2.database.MongoCollections;
 import org.graylog2.database.utils.MongoUtils;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -58,8 +61,12 @@ import static org.graylog.plugins.views.search.jobs.SearchJobType.DATA_LAKE;
 public class SearchJobStateService {
 
     public static final String COLLECTION_NAME = "search_job_states";
+    public static final String QUERY_RESULTS_COLLECTION_NAME = "search_job_query_results";
+    public static final String SEARCH_TYPE_RESULTS_COLLECTION_NAME = "search_job_search_type_results";
 
     private final MongoCollection<SearchJobState> collection;
+    private final MongoCollection<SearchJobQueryResult> queryResultsCollection;
+    private final MongoCollection<SearchJobSearchTypeResult> searchTypeResultsCollection;
     private final MongoUtils<SearchJobState> mongoUtils;
 
     @Inject
@@ -69,6 +76,12 @@ public class SearchJobStateService {
         this.collection.createIndex(Indexes.ascending(SEARCH_ID_FIELD));
         this.collection.createIndex(Indexes.ascending(OWNER_FIELD));
         this.collection.createIndex(Indexes.ascending(CREATED_AT_FIELD));
+        this.queryResultsCollection = mongoCollections.collection(QUERY_RESULTS_COLLECTION_NAME, SearchJobQueryResult.class);
+        this.queryResultsCollection.createIndex(Indexes.ascending(SearchJobQueryResult.JOB_ID_FIELD));
+        this.queryResultsCollection.createIndex(Indexes.ascending(SearchJobQueryResult.CREATED_AT_FIELD));
+        this.searchTypeResultsCollection = mongoCollections.collection(SEARCH_TYPE_RESULTS_COLLECTION_NAME, SearchJobSearchTypeResult.class);
+        this.searchTypeResultsCollection.createIndex(Indexes.ascending(SearchJobSearchTypeResult.JOB_ID_FIELD));
+        this.searchTypeResultsCollection.createIndex(Indexes.ascending(SearchJobSearchTypeResult.CREATED_AT_FIELD));
     }
 
     public Optional<SearchJobState> get(final String id) {
@@ -104,14 +117,61 @@ public class SearchJobStateService {
     }
 
     public boolean delete(final String id) {
+        queryResultsCollection.deleteMany(eq(SearchJobQueryResult.JOB_ID_FIELD, id));
+        searchTypeResultsCollection.deleteMany(eq(SearchJobSearchTypeResult.JOB_ID_FIELD, id));
         return mongoUtils.deleteById(id);
     }
 
     public long deleteOlderThan(final DateTime dateTime) {
+        queryResultsCollection.deleteMany(lte(SearchJobQueryResult.CREATED_AT_FIELD, dateTime));
+        searchTypeResultsCollection.deleteMany(lte(SearchJobSearchTypeResult.CREATED_AT_FIELD, dateTime));
         final DeleteResult deleteResult = collection.deleteMany(lte(CREATED_AT_FIELD, dateTime));
         return deleteResult.getDeletedCount();
     }
 
+    /**
+     * Stores the result of a single query of a search job, as soon as the query has completed.
+     * <p>
+     * Every search type result is stored in a document of its own, so it is only limited by the maximum document
+     * size of MongoDB (16MB). If a search type result exceeds it, nothing is stored for the query and the exception
+     * is rethrown.
+     */
+    public void storeQueryResult(final String searchJobStateID, final QueryResult result) {
+        final String queryId = result.query().id();
+        final SearchJobQueryResult queryResult = SearchJobQueryResult.create(searchJobStateID,
+                result.toBuilder().searchTypes(Map.of()).build());
+        try {
+            final List<SearchJobSearchTypeResult> searchTypeResults = result.searchTypes().entrySet().stream()
+                    .map(entry -> SearchJobSearchTypeResult.create(searchJobStateID, queryId, entry.getKey(), entry.getValue(), queryResult.createdAt()))
+                    .toList();
+            // one at a time, a batch insert of large results might exceed the maximum message size
+            searchTypeResults.forEach(searchTypeResultsCollection::insertOne);
+            queryResultsCollection.insertOne(queryResult);
+        } catch (RuntimeException e) {
+            searchTypeResultsCollection.deleteMany(and(
+                    eq(SearchJobSearchTypeResult.JOB_ID_FIELD, searchJobStateID),
+                    eq(SearchJobSearchTypeResult.QUERY_ID_FIELD, queryId)));
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the stored query results of a search job by their query id.
+     */
+    public Map<String, QueryResult> getQueryResults(final String searchJobStateID) {
+        final Map<String, Map<String, SearchType.Result>> searchTypeResults = new HashMap<>();
+        searchTypeResultsCollection.find(eq(SearchJobSearchTypeResult.JOB_ID_FIELD, searchJobStateID))
+                .forEach(searchTypeResult -> searchTypeResults.computeIfAbsent(searchTypeResult.queryId(), queryId -> new HashMap<>())
+                        .put(searchTypeResult.searchTypeId(), searchTypeResult.result()));
+
+        final Map<String, QueryResult> results = new HashMap<>();
+        queryResultsCollection.find(eq(SearchJobQueryResult.JOB_ID_FIELD, searchJobStateID))
+                .forEach(queryResult -> results.put(queryResult.queryId(), queryResult.result().toBuilder()
+                        .searchTypes(searchTypeResults.getOrDefault(queryResult.queryId(), Map.of()))
+                        .build()));
+        return results;
+    }
+
     public long expireOlderThan(final DateTime dateTime) {
         final UpdateResult updateResult = collection.updateMany(
                 and(
@@ -24,6 +24,7 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableMap;
 import org.graylog.plugins.views.search.Parameter;
+import org.graylog.plugins.views.search.engine.SearchPriority;
 import org.graylog2.indexer.searches.SearchesClusterConfig;
 
 import javax.annotation.Nullable;
@@ -49,6 +50,10 @@ public abstract class ExecutionState {
     @Nullable
     public abstract Integer cancelAfterSeconds();
 
+    @JsonProperty("priority")
+    @Nullable
+    public abstract SearchPriority priority();
+
     public static ExecutionState empty() {
         return builder().build();
     }
@@ -87,6 +92,9 @@ public abstract class ExecutionState {
         @JsonProperty("cancel_after_seconds")
         public abstract Builder setCancelAfterSeconds(@Nullable Integer cancelAfterSeconds);
 
+        @JsonProperty("priority")
+        public abstract Builder setPriority(@Nullable SearchPriority priority);
+
         public abstract ExecutionStateGlobalOverride.Builder globalOverrideBuilder();
 
         @JsonProperty
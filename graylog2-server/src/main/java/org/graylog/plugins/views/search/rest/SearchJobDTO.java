@@ -20,6 +20,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import one.util.streamex.EntryStream;
 import org.graylog.plugins.views.search.QueryResult;
 import org.graylog.plugins.views.search.SearchJob;
 import org.graylog.plugins.views.search.SearchJobIdentifier;
@@ -107,12 +108,7 @@ public record SearchJobDTO(
     }
 
     public static SearchJobDTO fromSearchJobState(final SearchJobState searchJob) {
-        final SearchJobStatus status = searchJob.status();
-        final ExecutionInfo executionInfo = new ExecutionInfo(
-                status != RUNNING,
-                status == CANCELLED || status == TIMEOUT,
-                status == ERROR
-        );
+        final ExecutionInfo executionInfo = executionInfo(searchJob.status());
         final boolean hasQuery = searchJob.result() != null
                 && searchJob.result().query() != null
                 && searchJob.result().query().id() != null;
@@ -124,4 +120,28 @@ public record SearchJobDTO(
                 searchJob.progress());
     }
 
+    /**
+     * Creates the DTO of a search job whose query results have been stored separately. Like for in-memory jobs,
+     * only completed or failed results of non-root queries are included.
+     */
+    public static SearchJobDTO fromSearchJobState(final SearchJobState searchJob,
+                                                  final Map<String, QueryResult> queryResults) {
+        return new SearchJobDTO(
+                searchJob.identifier(),
+                searchJob.errors(),
+                EntryStream.of(queryResults)
+                        .filterKeys(queryId -> !queryId.isEmpty())
+                        .filterValues(r -> (r.state() == QueryResult.State.COMPLETED) || (r.state() == QueryResult.State.FAILED))
+                        .toMap(),
+                executionInfo(searchJob.status()),
+                searchJob.progress());
+    }
+
+    private static ExecutionInfo executionInfo(final SearchJobStatus status) {
+        return new ExecutionInfo(
+                status != RUNNING,
+                status == CANCELLED || status == TIMEOUT,
+                status == ERROR
+        );
+    }
 }
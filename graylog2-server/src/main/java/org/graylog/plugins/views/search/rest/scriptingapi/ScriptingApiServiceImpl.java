@@ -22,6 +22,7 @@ import org.apache.shiro.subject.Subject;
 import org.graylog.plugins.views.search.Search;
 import org.graylog.plugins.views.search.SearchJob;
 import org.graylog.plugins.views.search.engine.SearchExecutor;
+import org.graylog.plugins.views.search.engine.SearchPriority;
 import org.graylog.plugins.views.search.events.SearchJobExecutionEvent;
 import org.graylog.plugins.views.search.permissions.SearchUser;
 import org.graylog.plugins.views.search.rest.ExecutionState;
@@ -38,6 +39,11 @@ import org.joda.time.DateTimeZone;
 
 
 public class ScriptingApiServiceImpl implements ScriptingApiService {
+    // scripts are scheduled apart from interactive searches, so they can't crowd out users of the web interface
+    private static final ExecutionState EXECUTION_STATE = ExecutionState.builder()
+            .setPriority(SearchPriority.SCRIPTING_API)
+            .build();
+
     private final SearchExecutor searchExecutor;
     private final SearchRequestSpecToSearchMapper searchCreator;
     private final MessagesTabularResponseCreator messagesTabularResponseCreator;
@@ -62,7 +68,7 @@ public class ScriptingApiServiceImpl implements ScriptingApiService {
         Search search = searchCreator.mapToSearch(messagesRequestSpec, searchUser);
 
         //Step 2: execute search as we usually do
-        final SearchJob searchJob = searchExecutor.executeSync(search, searchUser, ExecutionState.empty());
+        final SearchJob searchJob = searchExecutor.executeSync(search, searchUser, EXECUTION_STATE);
         postAuditEvent(searchJob, searchUser.getUser());
 
         //Step 3: take complex response and try to map it to simpler, tabular form
@@ -74,7 +80,7 @@ public class ScriptingApiServiceImpl implements ScriptingApiService {
         Search search = searchCreator.mapToSearch(aggregationRequestSpec, searchUser);
 
         //Step 2: execute search as we usually do
-        final SearchJob searchJob = searchExecutor.executeSync(search, searchUser, ExecutionState.empty());
+        final SearchJob searchJob = searchExecutor.executeSync(search, searchUser, EXECUTION_STATE);
         postAuditEvent(searchJob, searchUser.getUser());
 
         //Step 3: take complex response and try to map it to simpler, tabular form
@@ -36,6 +36,7 @@ import org.graylog2.contentpacks.model.entities.MessageListEntity;
 import org.graylog2.contentpacks.model.entities.SearchTypeEntity;
 import org.graylog2.decorators.Decorator;
 import org.graylog2.decorators.DecoratorImpl;
+import org.graylog2.plugin.Message;
 import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
 import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
 import org.graylog2.rest.models.messages.responses.DecorationStats;
@@ -55,6 +56,11 @@ import java.util.UUID;
 public abstract class MessageList implements SearchEngineSearchType {
     public static final String NAME = "messages";
 
+    /**
+     * Fields which are fetched for every message, even if the message list only requests some of its {@link #fields()}.
+     */
+    public static final Set<String> REQUIRED_FIELDS = Set.of(Message.FIELD_TIMESTAMP, Message.FIELD_STREAMS, Message.FIELD_GL2_MESSAGE_ID);
+
     @Override
     @JsonProperty
     public abstract String type();
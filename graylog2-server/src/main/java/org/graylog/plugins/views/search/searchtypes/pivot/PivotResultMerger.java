@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.searchtypes.pivot;
+
+import com.google.common.collect.ImmutableList;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Max;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Min;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Sum;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Merges the results of a pivot which has been run on disjoint parts of its documents, e.g. on consecutive time ranges
+ * or on the indices of different index sets.
+ * <p>
+ * Rows with the same key are merged by combining the values of their series, so only pivots whose series can be
+ * computed from the values of the parts are supported. Rows are ordered by their keys, which keeps time buckets in
+ * order, the rollup row comes last.
+ */
+public final class PivotResultMerger {
+    private static final Set<String> MERGEABLE_SERIES = Set.of(Count.NAME, Sum.NAME, Min.NAME, Max.NAME);
+    private static final String NON_LEAF = "non-leaf";
+    private static final Comparator<List<String>> KEY_ORDER = (first, second) -> {
+        for (int i = 0; i < Math.min(first.size(), second.size()); i++) {
+            final int result = first.get(i).compareTo(second.get(i));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(first.size(), second.size());
+    };
+
+    private PivotResultMerger() {
+    }
+
+    public static boolean hasMergeableSeries(Pivot pivot) {
+        return pivot.series().stream().allMatch(series -> MERGEABLE_SERIES.contains(series.type()));
+    }
+
+    public static PivotResult merge(Pivot pivot, AbsoluteRange effectiveTimerange, List<PivotResult> parts) {
+        final Map<String, String> seriesTypes = pivot.series().stream()
+                .collect(Collectors.toMap(SeriesSpec::id, SeriesSpec::type, (first, second) -> first));
+        final PivotResult.Builder builder = PivotResult.builder()
+                .id(pivot.id())
+                .effectiveTimerange(effectiveTimerange);
+        pivot.name().ifPresent(builder::name);
+
+        long total = 0;
+        final Map<RowKey, Map<List<String>, PivotResult.Value>> rows = new LinkedHashMap<>();
+        for (PivotResult part : parts) {
+            total += part.total();
+            for (PivotResult.Row row : part.rows()) {
+                final Map<List<String>, PivotResult.Value> values = rows.computeIfAbsent(new RowKey(row.key(), row.source()), key -> new LinkedHashMap<>());
+                row.values().forEach(value -> values.merge(value.key(), value,
+                        (existing, added) -> mergeValues(seriesTypes, existing, added)));
+            }
+        }
+
+        final List<RowKey> rowKeys = new ArrayList<>(rows.keySet());
+        rowKeys.sort(Comparator.comparing((RowKey rowKey) -> isRollup(rowKey))
+                .thenComparing(RowKey::key, KEY_ORDER));
+        rowKeys.forEach(rowKey -> builder.addRow(PivotResult.Row.builder()
+                .key(rowKey.key())
+                .values(ImmutableList.copyOf(rows.get(rowKey).values()))
+                .source(rowKey.source())
+                .build()));
+
+        return builder.total(total).build();
+    }
+
+    private static boolean isRollup(RowKey rowKey) {
+        return NON_LEAF.equals(rowKey.source()) && rowKey.key().isEmpty();
+    }
+
+    private static PivotResult.Value mergeValues(Map<String, String> seriesTypes, PivotResult.Value existing, PivotResult.Value added) {
+        if (existing.value() == null) {
+            return added;
+        }
+        if (added.value() == null) {
+            return existing;
+        }
+        final String seriesId = existing.key().isEmpty() ? null : existing.key().get(existing.key().size() - 1);
+        final Object merged = switch (seriesTypes.getOrDefault(seriesId, Count.NAME)) {
+            case Min.NAME -> min((Number) existing.value(), (Number) added.value());
+            case Max.NAME -> max((Number) existing.value(), (Number) added.value());
+            default -> add((Number) existing.value(), (Number) added.value());
+        };
+        return PivotResult.Value.create(existing.key(), merged, existing.rollup(), existing.source());
+    }
+
+    private static Number add(Number first, Number second) {
+        if (isIntegral(first) && isIntegral(second)) {
+            return first.longValue() + second.longValue();
+        }
+        return first.doubleValue() + second.doubleValue();
+    }
+
+    private static Number min(Number first, Number second) {
+        return Double.compare(first.doubleValue(), second.doubleValue()) <= 0 ? first : second;
+    }
+
+    private static Number max(Number first, Number second) {
+        return Double.compare(first.doubleValue(), second.doubleValue()) >= 0 ? first : second;
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte;
+    }
+
+    private record RowKey(ImmutableList<String> key, String source) {}
+}
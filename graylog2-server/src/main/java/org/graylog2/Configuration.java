@@ -23,6 +23,7 @@ import com.github.joschi.jadconfig.ValidatorMethod;
 import com.github.joschi.jadconfig.converters.StringSetConverter;
 import com.github.joschi.jadconfig.converters.TrimmedStringSetConverter;
 import com.github.joschi.jadconfig.util.Duration;
+import com.github.joschi.jadconfig.util.Size;
 import com.github.joschi.jadconfig.validators.PositiveDurationValidator;
 import com.github.joschi.jadconfig.validators.PositiveIntegerValidator;
 import com.github.joschi.jadconfig.validators.PositiveLongValidator;
@@ -266,6 +267,72 @@ public class Configuration extends CaConfiguration implements CommonNodeConfigur
     @Parameter("search_query_engine_data_lake_jobs_queue_size")
     private int searchQueryEngineDataLakeJobsQueueSize = 0;
 
+    @Parameter("search_query_engine_priority_scheduling_enabled")
+    private boolean searchQueryEnginePrioritySchedulingEnabled = true;
+
+    @Parameter(value = "search_query_engine_interactive_max_concurrency", validators = PositiveIntegerValidator.class)
+    private int searchQueryEngineInteractiveMaxConcurrency = Integer.MAX_VALUE;
+
+    @Parameter(value = "search_query_engine_event_processor_max_concurrency", validators = PositiveIntegerValidator.class)
+    private int searchQueryEngineEventProcessorMaxConcurrency = Integer.MAX_VALUE;
+
+    @Parameter(value = "search_query_engine_scripting_api_max_concurrency", validators = PositiveIntegerValidator.class)
+    private int searchQueryEngineScriptingApiMaxConcurrency = Integer.MAX_VALUE;
+
+    @Parameter(value = "search_query_engine_export_max_concurrency", validators = PositiveIntegerValidator.class)
+    private int searchQueryEngineExportMaxConcurrency = 2;
+
+    @Parameter("search_result_cache_enabled")
+    private boolean searchResultCacheEnabled = false;
+
+    @Parameter(value = "search_result_cache_granularity", validators = PositiveDurationValidator.class)
+    private Duration searchResultCacheGranularity = Duration.seconds(10L);
+
+    @Parameter("search_result_cache_max_size")
+    private Size searchResultCacheMaxSize = Size.megabytes(64L);
+
+    @Parameter("search_result_cache_stale_while_refresh")
+    private boolean searchResultCacheStaleWhileRefresh = true;
+
+    @Parameter("search_incremental_pivots_enabled")
+    private boolean searchIncrementalPivotsEnabled = false;
+
+    @Parameter(value = "search_incremental_pivots_closed_horizon", validators = PositiveDurationValidator.class)
+    private Duration searchIncrementalPivotsClosedHorizon = Duration.minutes(5L);
+
+    @Parameter(value = "search_incremental_pivots_cache_size", validators = PositiveIntegerValidator.class)
+    private int searchIncrementalPivotsCacheSize = 1000;
+
+    @Parameter("search_job_persistence_enabled")
+    private boolean searchJobPersistenceEnabled = false;
+
+    @Parameter("search_telemetry_enabled")
+    private boolean searchTelemetryEnabled = false;
+
+    @Parameter(value = "search_telemetry_retention", validators = PositiveDurationValidator.class)
+    private Duration searchTelemetryRetention = Duration.days(7L);
+
+    @Parameter(value = "search_telemetry_buffer_size", validators = PositiveIntegerValidator.class)
+    private int searchTelemetryBufferSize = 10000;
+
+    @Parameter("search_scatter_gather_enabled")
+    private boolean searchScatterGatherEnabled = false;
+
+    @Parameter(value = "search_scatter_gather_timeout", validators = PositiveDurationValidator.class)
+    private Duration searchScatterGatherTimeout = Duration.seconds(30L);
+
+    @Parameter(value = "search_scatter_gather_max_concurrent_requests_per_index_set", validators = PositiveIntegerValidator.class)
+    private int searchScatterGatherMaxConcurrentRequestsPerIndexSet = 8;
+
+    @Parameter(value = "export_parallel_slices", validators = PositiveIntegerValidator.class)
+    private int exportParallelSlices = 1;
+
+    @Parameter("input_flow_control_enabled")
+    private boolean inputFlowControlEnabled = false;
+
+    @Parameter(value = "input_flow_control_max_backlog", validators = PositiveLongValidator.class)
+    private long inputFlowControlMaxBacklog = 100_000;
+
     @Documentation("""
             Enabling this parameter will activate automatic security configuration. Graylog server will
             set a default 30-day automatic certificate renewal policy and create a self-signed CA. This CA
@@ -580,6 +647,10 @@ public class Configuration extends CaConfiguration implements CommonNodeConfigur
         return queryLatencyMonitoringEnabled;
     }
 
+    public boolean isSearchTelemetryEnabled() {
+        return searchTelemetryEnabled;
+    }
+
     public int getQueryLatencyMonitoringWindowSize() {
         return queryLatencyMonitoringWindowSize;
     }
@@ -604,6 +675,26 @@ public class Configuration extends CaConfiguration implements CommonNodeConfigur
         return searchQueryEngineDataLakeJobsQueueSize;
     }
 
+    public boolean isSearchQueryEnginePrioritySchedulingEnabled() {
+        return searchQueryEnginePrioritySchedulingEnabled;
+    }
+
+    public int searchQueryEngineInteractiveMaxConcurrency() {
+        return searchQueryEngineInteractiveMaxConcurrency;
+    }
+
+    public int searchQueryEngineEventProcessorMaxConcurrency() {
+        return searchQueryEngineEventProcessorMaxConcurrency;
+    }
+
+    public int searchQueryEngineScriptingApiMaxConcurrency() {
+        return searchQueryEngineScriptingApiMaxConcurrency;
+    }
+
+    public int searchQueryEngineExportMaxConcurrency() {
+        return searchQueryEngineExportMaxConcurrency;
+    }
+
     public static class NodeIdFileValidator implements Validator<String> {
         @Override
         public void validate(String name, String path) throws ValidationException {
@@ -34,6 +34,7 @@ import org.graylog2.periodical.IndexRangesCleanupPeriodical;
 import org.graylog2.periodical.IndexRetentionThread;
 import org.graylog2.periodical.IndexRotationThread;
 import org.graylog2.periodical.IndexerClusterCheckerThread;
+import org.graylog2.periodical.JournalCodecConfigCleanup;
 import org.graylog2.periodical.LeaderPresenceCheckPeriodical;
 import org.graylog2.periodical.NodePingThread;
 import org.graylog2.periodical.ThrottleStateUpdaterThread;
@@ -57,6 +58,7 @@ public class PeriodicalBindings extends AbstractModule {
         periodicalBinder.addBinding().to(LeaderPresenceCheckPeriodical.class);
         periodicalBinder.addBinding().to(VersionCheckThread.class);
         periodicalBinder.addBinding().to(ThrottleStateUpdaterThread.class);
+        periodicalBinder.addBinding().to(JournalCodecConfigCleanup.class);
         periodicalBinder.addBinding().to(ClusterEventPeriodical.class);
         periodicalBinder.addBinding().to(ClusterEventCleanupPeriodical.class);
         periodicalBinder.addBinding().to(IndexRangesCleanupPeriodical.class);
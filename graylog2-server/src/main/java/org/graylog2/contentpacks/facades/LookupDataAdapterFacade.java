@@ -44,6 +44,7 @@ import org.graylog2.plugin.lookup.LookupDataAdapterConfiguration;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -75,7 +76,11 @@ public class LookupDataAdapterFacade implements EntityFacade<DataAdapterDto> {
                 ValueReference.of(dataAdapterDto.name()),
                 ValueReference.of(dataAdapterDto.title()),
                 ValueReference.of(dataAdapterDto.description()),
-                toReferenceMap(configuration));
+                toReferenceMap(configuration),
+                dataAdapterDto.maxConcurrentRequests() == null ? null : ValueReference.of(dataAdapterDto.maxConcurrentRequests()),
+                dataAdapterDto.circuitBreakerFailureThreshold() == null ? null : ValueReference.of(dataAdapterDto.circuitBreakerFailureThreshold()),
+                dataAdapterDto.circuitBreakerOpenDuration() == null ? null : ValueReference.of(dataAdapterDto.circuitBreakerOpenDuration()),
+                ValueReference.ofNullable(dataAdapterDto.circuitBreakerOpenDurationUnit()));
         final JsonNode data = objectMapper.convertValue(lookupDataAdapterEntity, JsonNode.class);
         final Set<Constraint> constraints = versionConstraints(dataAdapterDto);
         return EntityV1.builder()
@@ -116,6 +121,14 @@ public class LookupDataAdapterFacade implements EntityFacade<DataAdapterDto> {
                 .name(lookupDataAdapterEntity.name().asString(parameters))
                 .title(lookupDataAdapterEntity.title().asString(parameters))
                 .description(lookupDataAdapterEntity.description().asString(parameters))
+                .maxConcurrentRequests(lookupDataAdapterEntity.maxConcurrentRequests() == null ? null
+                        : lookupDataAdapterEntity.maxConcurrentRequests().asInteger(parameters))
+                .circuitBreakerFailureThreshold(lookupDataAdapterEntity.circuitBreakerFailureThreshold() == null ? null
+                        : lookupDataAdapterEntity.circuitBreakerFailureThreshold().asInteger(parameters))
+                .circuitBreakerOpenDuration(lookupDataAdapterEntity.circuitBreakerOpenDuration() == null ? null
+                        : lookupDataAdapterEntity.circuitBreakerOpenDuration().asLong(parameters))
+                .circuitBreakerOpenDurationUnit(lookupDataAdapterEntity.circuitBreakerOpenDurationUnit() == null ? null
+                        : lookupDataAdapterEntity.circuitBreakerOpenDurationUnit().asEnum(parameters, TimeUnit.class))
                 .config(configuration)
                 .build();
 
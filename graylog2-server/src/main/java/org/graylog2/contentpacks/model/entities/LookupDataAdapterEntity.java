@@ -18,6 +18,7 @@ package org.graylog2.contentpacks.model.entities;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.auto.value.AutoValue;
 import org.graylog.autovalue.WithBeanGetter;
@@ -25,6 +26,13 @@ import org.graylog2.contentpacks.model.entities.references.ReferenceMap;
 import org.graylog2.contentpacks.model.entities.references.ValueReference;
 import org.graylog2.database.entities.DefaultEntityScope;
 
+import javax.annotation.Nullable;
+
+import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_CIRCUIT_BREAKER_OPEN_DURATION;
+import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_CIRCUIT_BREAKER_OPEN_DURATION_UNIT;
+import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_MAX_CONCURRENT_REQUESTS;
+
 @AutoValue
 @WithBeanGetter
 @JsonAutoDetect
@@ -41,16 +49,50 @@ public abstract class LookupDataAdapterEntity extends ScopedContentPackEntity {
     @JsonProperty("configuration")
     public abstract ReferenceMap configuration();
 
+    @Nullable
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(FIELD_MAX_CONCURRENT_REQUESTS)
+    public abstract ValueReference maxConcurrentRequests();
+
+    @Nullable
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(FIELD_CIRCUIT_BREAKER_FAILURE_THRESHOLD)
+    public abstract ValueReference circuitBreakerFailureThreshold();
+
+    @Nullable
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION)
+    public abstract ValueReference circuitBreakerOpenDuration();
+
+    @Nullable
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION_UNIT)
+    public abstract ValueReference circuitBreakerOpenDurationUnit();
+
+    public static LookupDataAdapterEntity create(
+            ValueReference scope,
+            ValueReference name,
+            ValueReference title,
+            ValueReference description,
+            ReferenceMap configuration) {
+        return create(scope, name, title, description, configuration, null, null, null, null);
+    }
+
     @JsonCreator
     public static LookupDataAdapterEntity create(
             @JsonProperty(FIELD_SCOPE) ValueReference scope,
             @JsonProperty("name") ValueReference name,
             @JsonProperty("title") ValueReference title,
             @JsonProperty("description") ValueReference description,
-            @JsonProperty("configuration") ReferenceMap configuration) {
+            @JsonProperty("configuration") ReferenceMap configuration,
+            @JsonProperty(FIELD_MAX_CONCURRENT_REQUESTS) @Nullable ValueReference maxConcurrentRequests,
+            @JsonProperty(FIELD_CIRCUIT_BREAKER_FAILURE_THRESHOLD) @Nullable ValueReference circuitBreakerFailureThreshold,
+            @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION) @Nullable ValueReference circuitBreakerOpenDuration,
+            @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION_UNIT) @Nullable ValueReference circuitBreakerOpenDurationUnit) {
 
         ValueReference nullSafeScope = scope == null ? ValueReference.of(DefaultEntityScope.NAME) : scope;
 
-        return new AutoValue_LookupDataAdapterEntity(nullSafeScope, name, title, description, configuration);
+        return new AutoValue_LookupDataAdapterEntity(nullSafeScope, name, title, description, configuration,
+                maxConcurrentRequests, circuitBreakerFailureThreshold, circuitBreakerOpenDuration, circuitBreakerOpenDurationUnit);
     }
 }
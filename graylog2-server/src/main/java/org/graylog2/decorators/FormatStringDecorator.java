@@ -34,6 +34,8 @@ import org.graylog2.rest.resources.search.responses.SearchResponse;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
@@ -108,6 +110,11 @@ public class FormatStringDecorator implements SearchResponseDecorator {
         usedVariables = template.getUsedVariableDescriptions();
     }
 
+    @Override
+    public Optional<Set<String>> requiredFields() {
+        return Optional.of(usedVariables.stream().map(variable -> variable.name).collect(Collectors.toSet()));
+    }
+
     @WithSpan
     @Override
     public SearchResponse apply(SearchResponse searchResponse) {
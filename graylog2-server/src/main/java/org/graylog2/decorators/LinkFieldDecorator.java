@@ -32,6 +32,8 @@ import org.graylog2.rest.resources.search.responses.SearchResponse;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
@@ -87,6 +89,11 @@ public class LinkFieldDecorator implements SearchResponseDecorator {
         this.messageFactory = messageFactory;
     }
 
+    @Override
+    public Optional<Set<String>> requiredFields() {
+        return Optional.of(Set.of(linkField));
+    }
+
     @WithSpan
     @Override
     public SearchResponse apply(SearchResponse searchResponse) {
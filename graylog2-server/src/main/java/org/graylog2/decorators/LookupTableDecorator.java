@@ -38,6 +38,8 @@ import org.graylog2.rest.resources.search.responses.SearchResponse;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -145,6 +147,11 @@ public class LookupTableDecorator implements SearchResponseDecorator {
         this.lookupTable = lookupTableService.newBuilder().lookupTable(lookupTableName).build();
     }
 
+    @Override
+    public Optional<Set<String>> requiredFields() {
+        return Optional.of(Set.of(sourceField));
+    }
+
     @WithSpan
     @Override
     public SearchResponse apply(SearchResponse searchResponse) {
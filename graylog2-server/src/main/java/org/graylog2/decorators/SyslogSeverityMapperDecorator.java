@@ -30,6 +30,8 @@ import org.graylog2.rest.resources.search.responses.SearchResponse;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
@@ -101,6 +103,11 @@ public class SyslogSeverityMapperDecorator implements SearchResponseDecorator {
         this.messageFactory = messageFactory;
     }
 
+    @Override
+    public Optional<Set<String>> requiredFields() {
+        return Optional.of(Set.of(sourceField));
+    }
+
     @WithSpan
     @Override
     public SearchResponse apply(SearchResponse searchResponse) {
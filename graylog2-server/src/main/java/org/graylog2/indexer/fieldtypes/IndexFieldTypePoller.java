@@ -16,38 +16,68 @@
  */
 package org.graylog2.indexer.fieldtypes;
 
+import com.codahale.metrics.InstrumentedExecutorService;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.graylog2.indexer.IndexSet;
 import org.graylog2.indexer.indices.Indices;
+import org.graylog2.system.shutdown.GracefulShutdownHook;
+import org.graylog2.system.shutdown.GracefulShutdownService;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
 
-import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static com.codahale.metrics.MetricRegistry.name;
 
 /**
  * This class can be used to poll index field type information for indices in an {@link IndexSet}.
+ * <p>
+ * Multiple indices of an index set are polled concurrently, bounded by the configured poll concurrency. The poll
+ * executor is shut down with the server.
  */
-public class IndexFieldTypePoller {
+@Singleton
+public class IndexFieldTypePoller implements GracefulShutdownHook {
     private final Indices indices;
     private final Timer pollTimer;
     private final IndexFieldTypePollerAdapter indexFieldTypePollerAdapter;
     private final boolean maintainsStreamBasedFieldLists;
+    private final ExecutorService pollExecutor;
 
     @Inject
     public IndexFieldTypePoller(final Indices indices,
                                 final MetricRegistry metricRegistry,
-                                final IndexFieldTypePollerAdapter indexFieldTypePollerAdapter) {
+                                final IndexFieldTypePollerAdapter indexFieldTypePollerAdapter,
+                                @Named("index_field_type_periodical_poll_concurrency") final int pollConcurrency,
+                                final GracefulShutdownService gracefulShutdownService) {
         this.indices = indices;
 
         this.pollTimer = metricRegistry.timer(name(getClass(), "indexPollTime"));
         this.indexFieldTypePollerAdapter = indexFieldTypePollerAdapter;
         this.maintainsStreamBasedFieldLists = indexFieldTypePollerAdapter.maintainsStreamBasedFieldLists();
+        this.pollExecutor = new InstrumentedExecutorService(
+                Executors.newFixedThreadPool(pollConcurrency, new ThreadFactoryBuilder()
+                        .setNameFormat("index-field-type-poller-%d")
+                        .setDaemon(true)
+                        .build()),
+                metricRegistry,
+                name(getClass(), "executor"));
+        gracefulShutdownService.register(this);
+    }
+
+    @Override
+    public void doGracefulShutdown() {
+        pollExecutor.shutdownNow();
     }
 
     /**
@@ -62,25 +92,46 @@ public class IndexFieldTypePoller {
      */
     public Set<IndexFieldTypesDTO> poll(final IndexSet indexSet, final Set<IndexFieldTypesDTO> existingIndexTypes) {
         final String activeWriteIndex = indexSet.getActiveWriteIndex();
+        final String indexSetId = indexSet.getConfig().id();
         final Set<String> existingIndexNames = existingIndexTypes.stream()
                 .map(IndexFieldTypesDTO::indexName)
                 .collect(Collectors.toSet());
+        final Set<String> indexNamesMissingStreamData = existingIndexTypes.stream()
+                .filter(x -> !x.hasStreamData())
+                .map(IndexFieldTypesDTO::indexName)
+                .collect(Collectors.toSet());
 
-        return indices.getIndices(indexSet, "open").stream()
+        final List<String> indexNamesToPoll = indices.getIndices(indexSet, "open").stream()
                 // We always poll the active write index because the mapping can change for every ingested message.
                 // Other indices will only be polled if we don't have the mapping data already.
                 .filter(indexName -> indexName.equals(activeWriteIndex) || !existingIndexNames.contains(indexName)
-                        || (maintainsStreamBasedFieldLists && missesStreamData(existingIndexTypes, indexName)))
-                .map(indexName -> pollIndex(indexName, indexSet.getConfig().id()))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toSet());
-    }
+                        || (maintainsStreamBasedFieldLists && indexNamesMissingStreamData.contains(indexName)))
+                .toList();
+
+        // Poll on the calling thread if the executor has already been shut down
+        if (indexNamesToPoll.size() <= 1 || pollExecutor.isShutdown()) {
+            return indexNamesToPoll.stream()
+                    .map(indexName -> pollIndex(indexName, indexSetId))
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.toSet());
+        }
+
+        final List<CompletableFuture<Optional<IndexFieldTypesDTO>>> futures = indexNamesToPoll.stream()
+                .map(indexName -> CompletableFuture.supplyAsync(() -> pollIndex(indexName, indexSetId), pollExecutor))
+                .toList();
 
-    private boolean missesStreamData(final Collection<IndexFieldTypesDTO> existingIndexTypes, final String indexName) {
-        return existingIndexTypes.stream()
-                .filter(x -> x.indexName().equals(indexName))
-                .anyMatch(x -> !x.hasStreamData());
+        try {
+            return futures.stream()
+                    .map(CompletableFuture::join)
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.toSet());
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
     }
 
     /**
@@ -16,6 +16,10 @@
  */
 package org.graylog2.indexer.fieldtypes;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.eventbus.EventBus;
@@ -39,16 +43,21 @@ import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static com.codahale.metrics.MetricRegistry.name;
+
 /**
  * {@link Periodical} that creates and maintains index field type information in the database.
  */
@@ -64,11 +73,18 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
     private final ServerStatus serverStatus;
     private final com.github.joschi.jadconfig.util.Duration fullRefreshInterval;
     private final ScheduledExecutorService scheduler;
+    private final Timer fullRefreshTimer;
+    private final Timer indexSetPollTimer;
+    private final Histogram changedIndicesPerCycle;
+    private final Meter changedIndices;
+    private final Meter unchangedIndices;
 
     private volatile Set<IndexSetConfig> allIndexSetConfigs;
     private volatile Instant lastFullRefresh = Instant.MIN;
     private final ConcurrentHashMap<String, Instant> lastPoll = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, Boolean> pollInProgress = new ConcurrentHashMap<>();
+    // Last field type data written to the database per index name, used to skip writes of unchanged mappings
+    private final ConcurrentHashMap<String, IndexFieldTypesDTO> lastWrittenFieldTypes = new ConcurrentHashMap<>();
 
     @Inject
     public IndexFieldTypePollerPeriodical(final IndexFieldTypePoller poller,
@@ -80,6 +96,7 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
                                           final Cluster cluster,
                                           final EventBus eventBus,
                                           final ServerStatus serverStatus,
+                                          final MetricRegistry metricRegistry,
                                           @Named("index_field_type_periodical_full_refresh_interval") final com.github.joschi.jadconfig.util.Duration fullRefreshInterval,
                                           @Named("daemonScheduler") final ScheduledExecutorService scheduler) {
         this.poller = poller;
@@ -91,6 +108,11 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
         this.serverStatus = serverStatus;
         this.fullRefreshInterval = fullRefreshInterval;
         this.scheduler = scheduler;
+        this.fullRefreshTimer = metricRegistry.timer(name(getClass(), "fullRefreshTime"));
+        this.indexSetPollTimer = metricRegistry.timer(name(getClass(), "indexSetPollTime"));
+        this.changedIndicesPerCycle = metricRegistry.histogram(name(getClass(), "changedIndicesPerCycle"));
+        this.changedIndices = metricRegistry.meter(name(getClass(), "changedIndices"));
+        this.unchangedIndices = metricRegistry.meter(name(getClass(), "unchangedIndices"));
 
         eventBus.register(this);
     }
@@ -143,28 +165,68 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
     private void refreshFieldTypes(Collection<IndexSetConfig> indexSetConfigs) {
         LOG.debug("Refreshing index field types for {} index sets.", indexSetConfigs.size());
 
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        int changedCount = 0;
         // this is the first time we run, or the index sets have changed, so we re-initialize the field types
-        indexSetConfigs.forEach(indexSetConfig -> {
-            final String indexSetId = indexSetConfig.id();
-            final String indexSetTitle = indexSetConfig.title();
-
-            try {
-                final Set<IndexFieldTypesDTO> existingIndexTypes = ImmutableSet.copyOf(dbService.findForIndexSet(indexSetId));
+        try (final Timer.Context ignored = fullRefreshTimer.time()) {
+            for (final IndexSetConfig indexSetConfig : indexSetConfigs) {
+                final String indexSetId = indexSetConfig.id();
+                final String indexSetTitle = indexSetConfig.title();
 
-                final IndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
-
-                // We check that we have the field types for all existing indices
-                LOG.debug("Refreshing index field types for index set <{}/{}>", indexSetTitle, indexSetId);
-                poller.poll(indexSet, existingIndexTypes).forEach(dbService::upsert);
+                try {
+                    final Set<IndexFieldTypesDTO> existingIndexTypes = ImmutableSet.copyOf(dbService.findForIndexSet(indexSetId));
+                    final Map<String, IndexFieldTypesDTO> existingByIndexName = existingIndexTypes.stream()
+                            .collect(Collectors.toMap(IndexFieldTypesDTO::indexName, Function.identity(), (a, b) -> a));
+
+                    final IndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
+
+                    // We check that we have the field types for all existing indices
+                    LOG.debug("Refreshing index field types for index set <{}/{}>", indexSetTitle, indexSetId);
+                    for (final IndexFieldTypesDTO polled : poller.poll(indexSet, existingIndexTypes)) {
+                        if (upsertIfChanged(polled, existingByIndexName.get(polled.indexName()))) {
+                            changedCount++;
+                        }
+                    }
 
-                // Cleanup orphaned field type entries that haven't been removed by the event handler
-                dbService.findForIndexSet(indexSetId).stream()
-                        .filter(types -> !indices.exists(types.indexName()))
-                        .forEach(types -> dbService.delete(types.id()));
-            } finally {
-                lastPoll.put(indexSetId, Instant.now());
+                    // Cleanup orphaned field type entries that haven't been removed by the event handler
+                    dbService.findForIndexSet(indexSetId).stream()
+                            .filter(types -> !indices.exists(types.indexName()))
+                            .forEach(types -> {
+                                lastWrittenFieldTypes.remove(types.indexName());
+                                dbService.delete(types.id());
+                            });
+                } finally {
+                    lastPoll.put(indexSetId, Instant.now());
+                }
             }
-        });
+        } finally {
+            changedIndicesPerCycle.update(changedCount);
+            LOG.debug("Refreshing index field types for {} index sets took {}ms, {} indices changed.",
+                    indexSetConfigs.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS), changedCount);
+        }
+    }
+
+    /**
+     * Writes the given field type data to the database unless it is identical to the previously written data
+     * for the same index.
+     *
+     * @param polled   the freshly polled field type data
+     * @param existing the field type data currently stored in the database, if known
+     * @return {@code true} if the data changed and has been written
+     */
+    private boolean upsertIfChanged(final IndexFieldTypesDTO polled, @Nullable final IndexFieldTypesDTO existing) {
+        final IndexFieldTypesDTO previous = existing != null
+                ? existing.toBuilder().id(null).build()
+                : lastWrittenFieldTypes.get(polled.indexName());
+        if (polled.equals(previous)) {
+            lastWrittenFieldTypes.put(polled.indexName(), polled);
+            unchangedIndices.mark();
+            return false;
+        }
+        dbService.upsert(polled);
+        lastWrittenFieldTypes.put(polled.indexName(), polled);
+        changedIndices.mark();
+        return true;
     }
 
     private void poll(Collection<IndexSetConfig> indexSetConfigs) {
@@ -194,6 +256,8 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
             LOG.debug("Starting poll for index set <{}>, current polls in progress {}", indexSetTitle, this.pollInProgress.keySet());
 
             final Stopwatch stopwatch = Stopwatch.createStarted();
+            final Timer.Context timerContext = indexSetPollTimer.time();
+            boolean changed = false;
             try {
                 this.pollInProgress.put(indexSetId, Boolean.TRUE);
                 final MongoIndexSet indexSet = mongoIndexSetFactory.create(indexSetConfig);
@@ -202,7 +266,9 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
                 if (activeWriteIndex != null) {
                     LOG.debug("Updating index field types for active write index <{}> in index set <{}/{}>",
                             activeWriteIndex, indexSetTitle, indexSetId);
-                    poller.pollIndex(activeWriteIndex, indexSetId).ifPresent(dbService::upsert);
+                    changed = poller.pollIndex(activeWriteIndex, indexSetId)
+                            .map(polled -> upsertIfChanged(polled, null))
+                            .orElse(false);
                 } else {
                     LOG.warn("Active write index for index set \"{}\" ({}) doesn't exist yet",
                             indexSetTitle, indexSetId);
@@ -214,8 +280,10 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
             } finally {
                 this.pollInProgress.remove(indexSetId);
                 lastPoll.put(indexSetId, Instant.now());
+                timerContext.stop();
+                changedIndicesPerCycle.update(changed ? 1 : 0);
                 stopwatch.stop();
-                LOG.debug("Polling index set <{}> took {}ms", indexSetTitle, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                LOG.debug("Polling index set <{}> took {}ms, field types changed: {}", indexSetTitle, stopwatch.elapsed(TimeUnit.MILLISECONDS), changed);
             }
         });
     }
@@ -277,6 +345,7 @@ public class IndexFieldTypePollerPeriodical extends Periodical {
         // a timely cleanup
         event.indices().forEach(indexName -> {
             LOG.debug("Removing field type information for deleted index <{}>", indexName);
+            lastWrittenFieldTypes.remove(indexName);
             dbService.delete(indexName);
         });
     }
@@ -18,8 +18,10 @@ package org.graylog2.indexer.ranges;
 
 import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 public interface IndexRange {
     String FIELD_TOOK_MS = "took_ms";
@@ -28,6 +30,7 @@ public interface IndexRange {
     String FIELD_BEGIN = "begin";
     String FIELD_INDEX_NAME = "index_name";
     String FIELD_STREAM_IDS = "stream_ids";
+    String FIELD_STREAM_STATS = "stream_stats";
     Comparator<IndexRange> COMPARATOR = new IndexRangeComparator();
 
     String indexName();
@@ -41,4 +44,14 @@ public interface IndexRange {
     int calculationDuration();
 
     List<String> streamIds();
+
+    /**
+     * Message counts and time bounds of the streams in this index, keyed by stream ID.
+     *
+     * @return {@code null} if the index range has been calculated without per-stream statistics
+     */
+    @Nullable
+    default Map<String, IndexRangeStreamStats> streamStats() {
+        return null;
+    }
 }
\ No newline at end of file
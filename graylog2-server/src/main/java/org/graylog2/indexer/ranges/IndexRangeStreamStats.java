@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.ranges;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import org.graylog.autovalue.WithBeanGetter;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Number of messages and their time bounds of a single stream in an index.
+ */
+@AutoValue
+@WithBeanGetter
+@JsonAutoDetect
+public abstract class IndexRangeStreamStats {
+    static final String FIELD_MESSAGE_COUNT = "message_count";
+    static final String FIELD_BEGIN = "begin";
+    static final String FIELD_END = "end";
+
+    @JsonProperty(FIELD_MESSAGE_COUNT)
+    public abstract long messageCount();
+
+    public abstract DateTime begin();
+
+    public abstract DateTime end();
+
+    @JsonProperty(FIELD_BEGIN)
+    private long beginMillis() {
+        return begin().getMillis();
+    }
+
+    @JsonProperty(FIELD_END)
+    private long endMillis() {
+        return end().getMillis();
+    }
+
+    /**
+     * Checks if any message of the stream might have a timestamp between the given dates. Both bounds are inclusive.
+     */
+    public boolean overlaps(DateTime from, DateTime to) {
+        return messageCount() > 0 && !begin().isAfter(to) && !end().isBefore(from);
+    }
+
+    public static IndexRangeStreamStats create(long messageCount, DateTime begin, DateTime end) {
+        return new AutoValue_IndexRangeStreamStats(messageCount, begin, end);
+    }
+
+    @JsonCreator
+    public static IndexRangeStreamStats create(@JsonProperty(FIELD_MESSAGE_COUNT) long messageCount,
+                                               @JsonProperty(FIELD_BEGIN) long beginMillis,
+                                               @JsonProperty(FIELD_END) long endMillis) {
+        return create(messageCount, new DateTime(beginMillis, DateTimeZone.UTC), new DateTime(endMillis, DateTimeZone.UTC));
+    }
+}
@@ -28,6 +28,7 @@ import org.mongojack.Id;
 
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.Map;
 
 
 @AutoValue
@@ -76,6 +77,22 @@ public abstract class MongoIndexRange implements IndexRange {
     @Nullable
     public abstract List<String> streamIds();
 
+    @JsonProperty(FIELD_STREAM_STATS)
+    @Override
+    @Nullable
+    public abstract Map<String, IndexRangeStreamStats> streamStats();
+
+    public static MongoIndexRange create(ObjectId id,
+                                         String indexName,
+                                         DateTime begin,
+                                         DateTime end,
+                                         DateTime calculatedAt,
+                                         int calculationDuration,
+                                         List<String> streamIds,
+                                         Map<String, IndexRangeStreamStats> streamStats) {
+        return new AutoValue_MongoIndexRange(id, indexName, begin, end, calculatedAt, calculationDuration, streamIds, streamStats);
+    }
+
     public static MongoIndexRange create(ObjectId id,
                                          String indexName,
                                          DateTime begin,
@@ -83,7 +100,7 @@ public abstract class MongoIndexRange implements IndexRange {
                                          DateTime calculatedAt,
                                          int calculationDuration,
                                          List<String> streamIds) {
-        return new AutoValue_MongoIndexRange(id, indexName, begin, end, calculatedAt, calculationDuration, streamIds);
+        return create(id, indexName, begin, end, calculatedAt, calculationDuration, streamIds, null);
     }
 
     @JsonCreator
@@ -93,11 +110,22 @@ public abstract class MongoIndexRange implements IndexRange {
                                          @JsonProperty(FIELD_END) long endMillis,
                                          @JsonProperty(FIELD_CALCULATED_AT) long calculatedAtMillis,
                                          @JsonProperty(FIELD_TOOK_MS) int calculationDuration,
-                                         @JsonProperty(FIELD_STREAM_IDS) @Nullable List<String> streamIds) {
+                                         @JsonProperty(FIELD_STREAM_IDS) @Nullable List<String> streamIds,
+                                         @JsonProperty(FIELD_STREAM_STATS) @Nullable Map<String, IndexRangeStreamStats> streamStats) {
         final DateTime begin = new DateTime(beginMillis, DateTimeZone.UTC);
         final DateTime end = new DateTime(endMillis, DateTimeZone.UTC);
         final DateTime calculatedAt = new DateTime(calculatedAtMillis, DateTimeZone.UTC);
-        return create(id, indexName, begin, end, calculatedAt, calculationDuration, streamIds);
+        return create(id, indexName, begin, end, calculatedAt, calculationDuration, streamIds, streamStats);
+    }
+
+    public static MongoIndexRange create(String indexName,
+                                         DateTime begin,
+                                         DateTime end,
+                                         DateTime calculatedAt,
+                                         int calculationDuration,
+                                         List<String> streamIds,
+                                         Map<String, IndexRangeStreamStats> streamStats) {
+        return create(null, indexName, begin, end, calculatedAt, calculationDuration, streamIds, streamStats);
     }
 
     public static MongoIndexRange create(String indexName,
@@ -106,7 +134,7 @@ public abstract class MongoIndexRange implements IndexRange {
                                          DateTime calculatedAt,
                                          int calculationDuration,
                                          List<String> streamIds) {
-        return create(null, indexName, begin, end, calculatedAt, calculationDuration, streamIds);
+        return create(null, indexName, begin, end, calculatedAt, calculationDuration, streamIds, null);
     }
 
     public static MongoIndexRange create(ObjectId id,
@@ -125,7 +153,8 @@ public abstract class MongoIndexRange implements IndexRange {
                 indexRange.end(),
                 indexRange.calculatedAt(),
                 indexRange.calculationDuration(),
-                indexRange.streamIds());
+                indexRange.streamIds(),
+                indexRange.streamStats());
     }
 
     public static MongoIndexRange create(String indexName,
@@ -140,7 +140,7 @@ public class MongoIndexRangeService implements IndexRangeService {
         final int duration = Ints.saturatedCast(sw.stop().elapsed(TimeUnit.MILLISECONDS));
 
         LOG.info("Calculated range of [{}] in [{}ms].", index, duration);
-        return MongoIndexRange.create(index, stats.min(), stats.max(), now, duration, stats.streamIds());
+        return MongoIndexRange.create(index, stats.min(), stats.max(), now, duration, stats.streamIds(), stats.streamStats());
     }
 
     @Override
@@ -29,12 +29,19 @@ import java.util.Map;
 
 import static org.graylog2.plugin.Tools.ES_DATE_FORMAT_FORMATTER;
 
+/**
+ * A message returned by a search. Messages parsed from the source of a search hit are only materialized when
+ * {@link #getMessage()} is called for the first time, so hits which are never looked at do not pay for parsing the
+ * timestamp and validating the fields.
+ */
 public class ResultMessage {
     private static final Logger LOG = LoggerFactory.getLogger(ResultMessage.class);
     private final MessageFactory messageFactory;
 
     private Message message;
     private String index;
+    private String sourceId;
+    private Map<String, Object> source;
 
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public Multimap<String, Range<Integer>> highlightRanges;
@@ -53,9 +60,17 @@ public class ResultMessage {
 
     public void setMessage(Message message) {
         this.message = message;
+        this.sourceId = null;
+        this.source = null;
     }
 
     public void setMessage(String id, Map<String, Object> message) {
+        this.message = null;
+        this.sourceId = id;
+        this.source = message;
+    }
+
+    private Message materialize(String id, Map<String, Object> message) {
         Map<String, Object> tmp = Maps.newHashMap();
         tmp.putAll(message);
         tmp.put(Message.FIELD_ID, id);
@@ -68,7 +83,7 @@ public class ResultMessage {
                 LOG.warn("Could not parse timestamp of message {}", message.get("id"), e);
             }
         }
-        this.message = messageFactory.createMessage(tmp);
+        return messageFactory.createMessage(tmp);
     }
 
     public void setIndex(String index) {
@@ -76,6 +91,11 @@ public class ResultMessage {
     }
 
     public Message getMessage() {
+        if (message == null && source != null) {
+            message = materialize(sourceId, source);
+            sourceId = null;
+            source = null;
+        }
         return message;
     }
 
@@ -18,17 +18,19 @@ package org.graylog2.indexer.searches;
 
 import com.google.auto.value.AutoValue;
 import org.graylog.autovalue.WithBeanGetter;
+import org.graylog2.indexer.ranges.IndexRangeStreamStats;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
 import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @AutoValue
 @WithBeanGetter
 public abstract class IndexRangeStats {
-    public static final IndexRangeStats EMPTY = create(new DateTime(0L, DateTimeZone.UTC), new DateTime(0L, DateTimeZone.UTC), Collections.emptyList());
+    public static final IndexRangeStats EMPTY = create(new DateTime(0L, DateTimeZone.UTC), new DateTime(0L, DateTimeZone.UTC), Collections.emptyList(), Collections.emptyMap());
 
     public abstract DateTime min();
 
@@ -37,8 +39,18 @@ public abstract class IndexRangeStats {
     @Nullable
     public abstract List<String> streamIds();
 
+    @Nullable
+    public abstract Map<String, IndexRangeStreamStats> streamStats();
+
+    public static IndexRangeStats create(DateTime min,
+                                         DateTime max,
+                                         @Nullable List<String> streamIds,
+                                         @Nullable Map<String, IndexRangeStreamStats> streamStats) {
+        return new AutoValue_IndexRangeStats(min, max, streamIds, streamStats);
+    }
+
     public static IndexRangeStats create(DateTime min, DateTime max, @Nullable List<String> streamIds) {
-        return new AutoValue_IndexRangeStats(min, max, streamIds);
+        return create(min, max, streamIds, null);
     }
 
     public static IndexRangeStats create(DateTime min, DateTime max) {
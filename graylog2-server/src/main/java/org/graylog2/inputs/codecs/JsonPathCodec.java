@@ -45,11 +45,13 @@ import org.graylog2.plugin.inputs.codecs.AbstractCodec;
 import org.graylog2.plugin.inputs.codecs.CodecAggregator;
 import org.graylog2.plugin.inputs.failure.InputProcessingException;
 import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.shared.utilities.JsonPathEvaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -65,6 +67,7 @@ public class JsonPathCodec extends AbstractCodec {
     public static final String CK_FLATTEN = "enable_flattening";
 
     private final JsonPath jsonPath;
+    private final JsonPathEvaluator evaluator;
     private final boolean flatten;
     private final ObjectMapper objectMapper;
     private final MessageFactory messageFactory;
@@ -75,6 +78,7 @@ public class JsonPathCodec extends AbstractCodec {
         this.messageFactory = messageFactory;
         final String pathString = configuration.getString(CK_PATH);
         jsonPath = pathString == null ? null : JsonPath.compile(pathString);
+        evaluator = jsonPath == null ? null : JsonPathEvaluator.compile(jsonPath);
         flatten = configuration.getBoolean(CK_FLATTEN);
         this.objectMapper = objectMapper;
     }
@@ -99,8 +103,11 @@ public class JsonPathCodec extends AbstractCodec {
                         "Field <%s> is empty for input with id <%s>".formatted(CK_PATH, rawMessage.getSourceNodes().get(0).inputId),
                         rawMessage);
             }
-            final String json = new String(rawMessage.getPayload(), charset);
-            fields = read(json);
+            // The payload only has to be decoded if the evaluator can't do it itself
+            final JsonPathEvaluator.Result result = StandardCharsets.UTF_8.equals(charset)
+                    ? evaluator.evaluate(rawMessage.getPayload())
+                    : evaluator.evaluate(new String(rawMessage.getPayload(), charset));
+            fields = toFields(result.read(0));
         }
 
         final Message message = messageFactory.createMessage(buildShortMessage(fields),
@@ -112,8 +119,10 @@ public class JsonPathCodec extends AbstractCodec {
 
     @VisibleForTesting
     protected Map<String, Object> read(String json) {
-        final Object result = jsonPath.read(json);
+        return toFields(evaluator.evaluate(json).read(0));
+    }
 
+    private Map<String, Object> toFields(Object result) {
         final Map<String, Object> fields = Maps.newHashMap();
 
         if (result instanceof Integer || result instanceof Double || result instanceof Long) {
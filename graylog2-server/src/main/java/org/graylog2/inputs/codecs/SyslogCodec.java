@@ -48,6 +48,7 @@ import org.graylog2.syslog4j.server.impl.event.SyslogServerEvent;
 import org.graylog2.syslog4j.server.impl.event.structured.StructuredSyslogServerEvent;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +57,7 @@ import javax.annotation.Nullable;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -82,18 +84,27 @@ public class SyslogCodec extends AbstractCodec {
     private final Timer resolveTime;
     private final Timer decodeTime;
     private final MessageFactory messageFactory;
+    @Nullable
+    private final SyslogFastParser fastParser;
 
     @AssistedInject
     public SyslogCodec(@Assisted Configuration configuration, MetricRegistry metricRegistry, MessageFactory messageFactory) {
+        this(configuration, metricRegistry, messageFactory, true);
+    }
+
+    @VisibleForTesting
+    SyslogCodec(Configuration configuration, MetricRegistry metricRegistry, MessageFactory messageFactory, boolean fastPathEnabled) {
         super(configuration);
         this.resolveTime = metricRegistry.timer(name(SyslogCodec.class, "resolveTime"));
         this.decodeTime = metricRegistry.timer(name(SyslogCodec.class, "decodeTime"));
         this.messageFactory = messageFactory;
+        // The fast path only handles UTF-8, so it doesn't have to decode the payload before parsing it
+        this.fastParser = fastPathEnabled && StandardCharsets.UTF_8.equals(charset) ? new SyslogFastParser() : null;
     }
 
     @Override
     public Optional<Message> decodeSafe(@Nonnull RawMessage rawMessage) {
-        final String msg = new String(rawMessage.getPayload(), charset);
+        final byte[] payload = rawMessage.getPayload();
         try (Timer.Context ignored = this.decodeTime.time()) {
             final ResolvableInetSocketAddress address = rawMessage.getRemoteAddress();
             final InetSocketAddress remoteAddress;
@@ -102,14 +113,51 @@ public class SyslogCodec extends AbstractCodec {
             } else {
                 remoteAddress = address.getInetSocketAddress();
             }
-            return Optional.of(parse(msg, remoteAddress == null ? null : remoteAddress.getAddress(), rawMessage.getTimestamp()));
+            return Optional.of(parse(payload, remoteAddress == null ? null : remoteAddress.getAddress(), rawMessage.getTimestamp()));
         } catch (Exception e) {
-            throw InputProcessingException.create("Could not deserialize Syslog message.", e, rawMessage, msg);
+            throw InputProcessingException.create("Could not deserialize Syslog message.", e, rawMessage, new String(payload, charset));
+        }
+    }
+
+    @Nonnull
+    private Message parse(byte[] payload, InetAddress remoteAddress, DateTime receivedTimestamp) {
+        final String timeZoneConfig = configuration.getString(CK_TIMEZONE);
+        final boolean isDefaultTimeZoneSet = StringUtils.isNotBlank(timeZoneConfig) && !DropdownField.NOT_CONFIGURED.equals(timeZoneConfig);
+        final DateTimeZone defaultTimeZone = isDefaultTimeZoneSet ? DateTimeZone.forID(timeZoneConfig) : null;
+
+        if (fastParser != null) {
+            final SyslogFastParser.Parsed parsed = fastParser.parse(payload, defaultTimeZone);
+            if (parsed != null) {
+                return createMessage(parsed, payload, remoteAddress);
+            }
         }
+        return parse(new String(payload, charset), remoteAddress, receivedTimestamp, defaultTimeZone);
+    }
+
+    /**
+     * Creates the same message as {@link #parse(String, InetAddress, DateTime, DateTimeZone)} from a message parsed
+     * by the fast path.
+     */
+    private Message createMessage(SyslogFastParser.Parsed parsed, byte[] payload, InetAddress remoteAddress) {
+        final Message m = messageFactory.createMessage(parsed.message(), parseHost(parsed.host(), remoteAddress), new DateTime(parsed.timestamp(), ISOChronology.getInstance()));
+        m.addField("facility", Tools.syslogFacilityToReadable(parsed.facility()));
+        m.addField("level", parsed.level());
+        m.addField("facility_num", parsed.facility());
+
+        if (configuration.getBoolean(CK_STORE_FULL_MESSAGE)) {
+            m.addField("full_message", new String(payload, charset));
+        }
+
+        if (parsed.structured()) {
+            final boolean expandStructuredData = configuration.getBoolean(CK_EXPAND_STRUCTURED_DATA);
+            m.addFields(structuredFields(extractFields(parsed.structuredData(), expandStructuredData), parsed.applicationName(), parsed.processId()));
+        }
+
+        return m;
     }
 
     @Nonnull
-    private Message parse(String msg, InetAddress remoteAddress, DateTime receivedTimestamp) {
+    private Message parse(String msg, InetAddress remoteAddress, DateTime receivedTimestamp, @Nullable DateTimeZone defaultTimeZone) {
         /*
          * ZOMG funny 80s neckbeard protocols. We are now deciding if to parse
          * structured (RFC5424) or unstructured (classic BSD, RFC3164) syslog
@@ -132,10 +180,7 @@ public class SyslogCodec extends AbstractCodec {
          *  http://open.spotify.com/track/2ZtQKBB8wDTtPPqDZhy7xZ
          *
          */
-        String timeZoneConfig = configuration.getString(CK_TIMEZONE);
         final SyslogServerEventIF e;
-        boolean isDefaultTimeZoneSet = StringUtils.isNotBlank(timeZoneConfig) && !DropdownField.NOT_CONFIGURED.equals(timeZoneConfig);
-        DateTimeZone defaultTimeZone = isDefaultTimeZoneSet ? DateTimeZone.forID(timeZoneConfig) : null;
         if (STRUCTURED_SYSLOG_PATTERN.matcher(msg).matches()) {
             e = new StructuredSyslogServerEvent(msg, remoteAddress, defaultTimeZone);
         } else if (CISCO_WITH_SEQUENCE_NUMBERS_PATTERN.matcher(msg).matches()) {
@@ -156,7 +201,7 @@ public class SyslogCodec extends AbstractCodec {
             syslogMessage = e.getMessage();
         }
 
-        final Message m = messageFactory.createMessage(syslogMessage, parseHost(e, remoteAddress), parseDate(e, receivedTimestamp));
+        final Message m = messageFactory.createMessage(syslogMessage, parseHost(e.getHost(), remoteAddress), parseDate(e, receivedTimestamp));
         m.addField("facility", Tools.syslogFacilityToReadable(e.getFacility()));
         m.addField("level", e.getLevel());
         m.addField("facility_num", e.getFacility());
@@ -189,23 +234,27 @@ public class SyslogCodec extends AbstractCodec {
         // Structured syslog has more data we can parse.
         if (msg instanceof StructuredSyslogServerEvent) {
             final StructuredSyslogServerEvent sMsg = (StructuredSyslogServerEvent) msg;
-            final Map<String, Object> structuredData = new HashMap<>(extractFields(sMsg, expand));
+            return structuredFields(extractFields(sMsg, expand), sMsg.getApplicationName(), sMsg.getProcessId());
+        } else {
+            return Collections.emptyMap();
+        }
+    }
 
-            if (!isNullOrEmpty(sMsg.getApplicationName())) {
-                structuredData.put("application_name", sMsg.getApplicationName());
-            }
+    private Map<String, Object> structuredFields(Map<String, Object> fields, @Nullable String applicationName, @Nullable String processId) {
+        final Map<String, Object> structuredData = new HashMap<>(fields);
 
-            if (!isNullOrEmpty(sMsg.getProcessId())) {
-                structuredData.put("process_id", sMsg.getProcessId());
-            }
+        if (!isNullOrEmpty(applicationName)) {
+            structuredData.put("application_name", applicationName);
+        }
 
-            return structuredData;
-        } else {
-            return Collections.emptyMap();
+        if (!isNullOrEmpty(processId)) {
+            structuredData.put("process_id", processId);
         }
+
+        return structuredData;
     }
 
-    private String parseHost(SyslogServerEventIF msg, InetAddress remoteAddress) {
+    private String parseHost(@Nullable String host, InetAddress remoteAddress) {
         if (remoteAddress != null && configuration.getBoolean(CK_FORCE_RDNS)) {
             try (Timer.Context ignored = this.resolveTime.time()) {
                 return Tools.rdnsLookup(remoteAddress);
@@ -214,7 +263,6 @@ public class SyslogCodec extends AbstractCodec {
             }
         }
 
-        final String host = msg.getHost();
         return isNullOrEmpty(host) && remoteAddress != null ? InetAddresses.toAddrString(remoteAddress) : host;
     }
 
@@ -326,25 +374,28 @@ public class SyslogCodec extends AbstractCodec {
     @VisibleForTesting
     Map<String, Object> extractFields(final StructuredSyslogServerEvent msg, final boolean expand) {
         try {
-            final Map<String, Map<String, String>> raw = msg.getStructuredMessage().getStructuredData();
-
-            if (raw != null && !raw.isEmpty()) {
-                final Map<String, Object> fields = new HashMap<>();
-                for (Map.Entry<String, Map<String, String>> entry : raw.entrySet()) {
-                    if (expand) {
-                        fields.putAll(prefixElements(entry.getKey(), entry.getValue()));
-                    } else {
-                        fields.putAll(entry.getValue());
-                    }
-                }
-                return fields;
-            }
+            return extractFields(msg.getStructuredMessage().getStructuredData(), expand);
         } catch (Exception e) {
             LOG.debug("Could not extract structured syslog", e);
         }
         return Collections.emptyMap();
     }
 
+    private Map<String, Object> extractFields(@Nullable Map<String, Map<String, String>> raw, boolean expand) {
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        final Map<String, Object> fields = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : raw.entrySet()) {
+            if (expand) {
+                fields.putAll(prefixElements(entry.getKey(), entry.getValue()));
+            } else {
+                fields.putAll(entry.getValue());
+            }
+        }
+        return fields;
+    }
+
     private Map<String, String> prefixElements(final String prefix, final Map<String, String> elements) {
         if (elements == null || elements.isEmpty()) {
             return Collections.emptyMap();
@@ -0,0 +1,511 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.codecs;
+
+import org.joda.time.DateTimeZone;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Parses the common shapes of RFC 5424 and RFC 3164 syslog messages directly from their UTF-8 encoded bytes.
+ * <p>
+ * The result is the same as the one of the syslog4j events used by {@link SyslogCodec}, including their quirks, e.g.
+ * the host name stays part of the message of RFC 3164 messages. Messages in any other shape, or messages which would
+ * take one of the unusual code paths of syslog4j (escaped characters in structured data, unparseable dates, missing
+ * header fields etc.), are not parsed by this class and have to be parsed by syslog4j instead.
+ * <p>
+ * Parsed timestamps are cached, as consecutive messages of a sender usually have the same timestamp.
+ */
+class SyslogFastParser {
+    private static final byte[][] MONTHS = {
+            bytes("Jan"), bytes("Feb"), bytes("Mar"), bytes("Apr"), bytes("May"), bytes("Jun"),
+            bytes("Jul"), bytes("Aug"), bytes("Sep"), bytes("Oct"), bytes("Nov"), bytes("Dec")
+    };
+    private static final byte[] EMPTY_STRUCTURED_DATA_PREFIX = bytes("- - ");
+    private static final byte[] EMPTY_STRUCTURED_DATA_MARKER = bytes("[0@0]");
+    private static final int TIMESTAMP_CACHE_SIZE = 16;
+    private static final long INVALID = Long.MIN_VALUE;
+
+    // Entries are immutable, so they can be shared between threads without synchronization
+    private final CachedTimestamp[] timestampCache = new CachedTimestamp[TIMESTAMP_CACHE_SIZE];
+
+    /**
+     * @param defaultTimeZone time zone of RFC 3164 timestamps, the default time zone of the JVM is used if it is
+     *                        {@code null}
+     * @return the parsed message or {@code null} if the message has to be parsed by syslog4j
+     */
+    @Nullable
+    Parsed parse(byte[] payload, @Nullable DateTimeZone defaultTimeZone) {
+        final int length = payload.length;
+        if (length < 3 || payload[0] != '<') {
+            return null;
+        }
+        int pos = 1;
+        int priority = 0;
+        while (pos < length && pos <= 3 && isDigit(payload[pos])) {
+            priority = priority * 10 + (payload[pos] - '0');
+            pos++;
+        }
+        if (pos == 1 || pos >= length || payload[pos] != '>') {
+            return null;
+        }
+        final int facility = priority >> 3;
+        final int level = priority - (facility << 3);
+        pos++;
+
+        if (pos >= length) {
+            return null;
+        } else if (isDigit(payload[pos])) {
+            return parseStructured(payload, pos, facility, level);
+        } else if (payload[pos] >= 'A' && payload[pos] <= 'Z') {
+            return parseUnstructured(payload, pos, facility, level, defaultTimeZone);
+        }
+        // Cisco, FortiGate or other formats
+        return null;
+    }
+
+    /**
+     * {@code VERSION SP TIMESTAMP SP HOSTNAME SP APP-NAME SP PROCID SP MSGID SP STRUCTURED-DATA [SP MSG]}
+     */
+    @Nullable
+    private Parsed parseStructured(byte[] payload, int pos, int facility, int level) {
+        final int length = payload.length;
+        int versionEnd = pos;
+        while (versionEnd < length && isDigit(payload[versionEnd])) {
+            versionEnd++;
+        }
+        if (versionEnd - pos > 3 || versionEnd >= length || payload[versionEnd] != ' ') {
+            return null;
+        }
+
+        final int timestampStart = versionEnd + 1;
+        final int timestampEnd = indexOf(payload, (byte) ' ', timestampStart, length);
+        if (timestampEnd < 0) {
+            return null;
+        }
+        final long timestamp = cachedTimestamp(payload, timestampStart, timestampEnd, null, true);
+        if (timestamp == INVALID) {
+            return null;
+        }
+
+        final int hostEnd = indexOf(payload, (byte) ' ', timestampEnd + 1, length);
+        final int appNameEnd = hostEnd < 0 ? -1 : indexOf(payload, (byte) ' ', hostEnd + 1, length);
+        final int processIdEnd = appNameEnd < 0 ? -1 : indexOf(payload, (byte) ' ', appNameEnd + 1, length);
+        if (processIdEnd < 0 || processIdEnd + 1 >= length) {
+            return null;
+        }
+        final String host = string(payload, timestampEnd + 1, hostEnd).trim();
+        final String applicationName = nilToNull(string(payload, hostEnd + 1, appNameEnd).trim());
+        final String processId = nilToNull(string(payload, appNameEnd + 1, processIdEnd).trim());
+
+        final int restStart = processIdEnd + 1;
+        final String rest = string(payload, restStart, length);
+        final StructuredData structuredData = parseStructuredData(payload, restStart);
+        if (structuredData == null) {
+            return null;
+        }
+        final String message = structuredData.message() == null ? rest : structuredData.message();
+        return new Parsed(facility, level, host, timestamp, message.isEmpty() ? rest : message,
+                applicationName, processId, structuredData.elements(), true);
+    }
+
+    /**
+     * Parses {@code MSGID SP STRUCTURED-DATA [SP MSG]} exactly like {@code StructuredSyslogMessage} of syslog4j.
+     *
+     * @return the structured data or {@code null} if syslog4j has to parse it
+     */
+    @Nullable
+    private StructuredData parseStructuredData(byte[] payload, int start) {
+        final int length = payload.length;
+        if (startsWith(payload, start, EMPTY_STRUCTURED_DATA_PREFIX)) {
+            return new StructuredData(null, string(payload, start + EMPTY_STRUCTURED_DATA_PREFIX.length, length));
+        }
+        final int open = indexOf(payload, (byte) '[', start, length);
+        if (open <= start || !isSingleToken(payload, start, open)) {
+            // syslog4j rejects these, the complete rest is used as message
+            return new StructuredData(null, null);
+        }
+        if (indexOf(payload, EMPTY_STRUCTURED_DATA_MARKER, start) >= 0) {
+            return null;
+        }
+
+        final Map<String, Map<String, String>> elements = new HashMap<>();
+        int pos = open;
+        int close = -1;
+        while (pos < length && payload[pos] == '[') {
+            close = indexOfUnescaped(payload, (byte) ']', (byte) ']', pos);
+            if (close == -2) {
+                return null;
+            } else if (close < 0) {
+                return new StructuredData(null, null);
+            }
+            final int idEnd = indexOfUnescaped(payload, (byte) ']', (byte) ' ', pos + 1);
+            if (idEnd < 0 || idEnd > close) {
+                return null;
+            }
+            final String id = string(payload, pos + 1, idEnd);
+            pos = idEnd;
+
+            final Map<String, String> parameters = new HashMap<>();
+            while (pos < close) {
+                if (payload[pos] != ' ') {
+                    return new StructuredData(null, null);
+                }
+                pos++;
+                final int equals = indexOf(payload, (byte) '=', pos, length);
+                if (equals < 0) {
+                    return new StructuredData(null, null);
+                }
+                if (equals + 1 >= length || equals > close) {
+                    return null;
+                }
+                if (payload[equals + 1] != '"') {
+                    return new StructuredData(null, null);
+                }
+                final int valueEnd = indexOfUnescaped(payload, (byte) '"', (byte) '"', equals + 2);
+                if (valueEnd == -2 || valueEnd > close) {
+                    return null;
+                } else if (valueEnd < 0) {
+                    return new StructuredData(null, null);
+                }
+                parameters.put(string(payload, pos, equals), string(payload, equals + 2, valueEnd));
+                pos = valueEnd + 1;
+            }
+            pos++;
+            elements.put(id, parameters);
+        }
+        final String message = close + 2 <= length ? string(payload, close + 2, length) : "";
+        return new StructuredData(elements, message);
+    }
+
+    /**
+     * {@code TIMESTAMP SP HOSTNAME SP MSG} with a timestamp like {@code Oct 11 22:14:15}, {@code Oct  1 22:14:15} or
+     * {@code Oct 1 22:14:15}.
+     */
+    @Nullable
+    private Parsed parseUnstructured(byte[] payload, int pos, int facility, int level, @Nullable DateTimeZone defaultTimeZone) {
+        final int length = payload.length;
+        if (length - pos <= 16 || payload[pos + 3] != ' ') {
+            return null;
+        }
+        // syslog4j supports a single digit day without padding, which shortens the timestamp
+        final int timestampLength = payload[pos + 5] == ' ' ? 14 : 15;
+        final int restStart = pos + timestampLength + 1;
+        if (payload[pos + timestampLength] != ' ' || (timestampLength == 14 && (restStart + 1 >= length || payload[restStart] < 0))) {
+            return null;
+        }
+        final long timestamp = cachedTimestamp(payload, pos, pos + timestampLength, defaultTimeZone, false);
+        if (timestamp == INVALID) {
+            return null;
+        }
+
+        final String message = string(payload, restStart, length);
+        final int hostEnd = message.indexOf(' ');
+        final String host = hostEnd > -1 ? message.substring(0, hostEnd).trim() : null;
+        return new Parsed(facility, level, host, timestamp, message, null, null, null, false);
+    }
+
+    private long cachedTimestamp(byte[] payload, int start, int end, @Nullable DateTimeZone timeZone, boolean structured) {
+        final int slot = slot(payload, start, end);
+        final CachedTimestamp cached = timestampCache[slot];
+        if (cached != null && cached.matches(payload, start, end, timeZone)) {
+            return cached.timestamp();
+        }
+        if (structured) {
+            final long timestamp = parseIsoTimestamp(payload, start, end);
+            if (timestamp != INVALID) {
+                timestampCache[slot] = new CachedTimestamp(Arrays.copyOfRange(payload, start, end), null, Long.MAX_VALUE, timestamp);
+            }
+            return timestamp;
+        }
+
+        // syslog4j uses the current year in the default time zone of the JVM
+        final Calendar now = Calendar.getInstance(TimeZone.getDefault(), Locale.ENGLISH);
+        final int year = now.get(Calendar.YEAR);
+        now.clear();
+        now.set(year + 1, Calendar.JANUARY, 1);
+        final long timestamp = parseBsdTimestamp(payload, start, year, timeZone);
+        if (timestamp != INVALID) {
+            timestampCache[slot] = new CachedTimestamp(Arrays.copyOfRange(payload, start, end), timeZone, now.getTimeInMillis(), timestamp);
+        }
+        return timestamp;
+    }
+
+    /**
+     * Parses timestamps like {@code 2003-10-11T22:14:15.003Z} or {@code 2003-08-24T05:14:15.000003-07:00}. The
+     * fraction of the second is truncated to milliseconds. Timestamps without offset are not supported.
+     */
+    private static long parseIsoTimestamp(byte[] payload, int start, int end) {
+        if (end - start < 20
+                || payload[start + 4] != '-' || payload[start + 7] != '-' || payload[start + 10] != 'T'
+                || payload[start + 13] != ':' || payload[start + 16] != ':') {
+            return INVALID;
+        }
+        final int year = digits(payload, start, 4);
+        final int month = digits(payload, start + 5, 2);
+        final int day = digits(payload, start + 8, 2);
+        final int hour = digits(payload, start + 11, 2);
+        final int minute = digits(payload, start + 14, 2);
+        final int second = digits(payload, start + 17, 2);
+        if (year < 0 || month < 0 || day < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+
+        int pos = start + 19;
+        int millis = 0;
+        if (payload[pos] == '.') {
+            final int fractionStart = ++pos;
+            while (pos < end && isDigit(payload[pos])) {
+                if (pos - fractionStart < 3) {
+                    millis = millis * 10 + (payload[pos] - '0');
+                }
+                pos++;
+            }
+            final int fractionDigits = pos - fractionStart;
+            if (fractionDigits == 0 || fractionDigits > 9) {
+                return INVALID;
+            }
+            for (int i = fractionDigits; i < 3; i++) {
+                millis *= 10;
+            }
+        }
+
+        final long offsetMillis;
+        if (pos == end - 1 && payload[pos] == 'Z') {
+            offsetMillis = 0;
+        } else if (pos == end - 6 && (payload[pos] == '+' || payload[pos] == '-') && payload[pos + 3] == ':') {
+            final int offsetHours = digits(payload, pos + 1, 2);
+            final int offsetMinutes = digits(payload, pos + 4, 2);
+            if (offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59) {
+                return INVALID;
+            }
+            final long offset = (offsetHours * 60L + offsetMinutes) * 60_000L;
+            offsetMillis = payload[pos] == '-' ? -offset : offset;
+        } else {
+            return INVALID;
+        }
+
+        final long epochDay;
+        try {
+            epochDay = LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return INVALID;
+        }
+        return epochDay * 86_400_000L + hour * 3_600_000L + minute * 60_000L + second * 1_000L + millis - offsetMillis;
+    }
+
+    /**
+     * Parses timestamps like {@code Oct 11 22:14:15}, {@code Oct  1 22:14:15} or {@code Oct 1 22:14:15} in the given
+     * year.
+     */
+    private static long parseBsdTimestamp(byte[] payload, int start, int year, @Nullable DateTimeZone timeZone) {
+        final int month = month(payload, start);
+        final int day;
+        final int timeStart;
+        if (payload[start + 5] == ' ') {
+            day = digits(payload, start + 4, 1);
+            timeStart = start + 6;
+        } else if (payload[start + 4] == ' ') {
+            day = digits(payload, start + 5, 1);
+            timeStart = start + 7;
+        } else {
+            day = digits(payload, start + 4, 2);
+            timeStart = start + 7;
+        }
+        if (month < 0 || day < 1 || payload[timeStart - 1] != ' ' || payload[timeStart + 2] != ':' || payload[timeStart + 5] != ':') {
+            return INVALID;
+        }
+        final int hour = digits(payload, timeStart, 2);
+        final int minute = digits(payload, timeStart + 3, 2);
+        final int second = digits(payload, timeStart + 6, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        try {
+            if (day > LocalDate.of(year, month, 1).lengthOfMonth()) {
+                return INVALID;
+            }
+        } catch (DateTimeException e) {
+            return INVALID;
+        }
+
+        // A calendar resolves local times in DST transitions like the date format used by syslog4j
+        final Calendar calendar = new GregorianCalendar(timeZone == null ? TimeZone.getDefault() : timeZone.toTimeZone(), Locale.ENGLISH);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        return calendar.getTimeInMillis();
+    }
+
+    private static int month(byte[] payload, int start) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (startsWith(payload, start, MONTHS[i])) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int digits(byte[] payload, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            if (!isDigit(payload[i])) {
+                return -1;
+            }
+            value = value * 10 + (payload[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Whether the range consists of a token followed by optional spaces, which is a single element if it is split at
+     * spaces.
+     */
+    private static boolean isSingleToken(byte[] payload, int start, int end) {
+        if (payload[start] == ' ') {
+            return false;
+        }
+        final int space = indexOf(payload, (byte) ' ', start, end);
+        if (space < 0) {
+            return true;
+        }
+        for (int i = space; i < end; i++) {
+            if (payload[i] != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] payload, byte b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (payload[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] payload, byte[] bytes, int start) {
+        for (int i = start; i <= payload.length - bytes.length; i++) {
+            if (startsWith(payload, i, bytes)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the first of the given bytes, {@code -1} if there is none or {@code -2} if there is an
+     * escaped character before it
+     */
+    private static int indexOfUnescaped(byte[] payload, byte b1, byte b2, int start) {
+        for (int i = start; i < payload.length; i++) {
+            if (payload[i] == '\\') {
+                return -2;
+            } else if (payload[i] == b1 || payload[i] == b2) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(byte[] payload, int start, byte[] prefix) {
+        return payload.length - start >= prefix.length
+                && Arrays.equals(payload, start, start + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static int slot(byte[] payload, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + payload[i];
+        }
+        return (hash ^ (hash >>> 16)) & (TIMESTAMP_CACHE_SIZE - 1);
+    }
+
+    @Nullable
+    private static String nilToNull(String value) {
+        return "-".equals(value) ? null : value;
+    }
+
+    private static String string(byte[] payload, int start, int end) {
+        return new String(payload, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param host            the host name, which may be empty or {@code null}
+     * @param timestamp       the timestamp in milliseconds since the epoch
+     * @param structuredData  the structured data elements of RFC 5424 messages, by their ID
+     * @param structured      whether this is a RFC 5424 message
+     */
+    record Parsed(int facility,
+                  int level,
+                  @Nullable String host,
+                  long timestamp,
+                  String message,
+                  @Nullable String applicationName,
+                  @Nullable String processId,
+                  @Nullable Map<String, Map<String, String>> structuredData,
+                  boolean structured) {}
+
+    /**
+     * @param message the message following the structured data or {@code null} if the complete rest is the message
+     */
+    private record StructuredData(@Nullable Map<String, Map<String, String>> elements, @Nullable String message) {}
+
+    private static final class CachedTimestamp {
+        private final byte[] key;
+        @Nullable
+        private final DateTimeZone timeZone;
+        private final long validUntil;
+        private final long timestamp;
+
+        CachedTimestamp(byte[] key, @Nullable DateTimeZone timeZone, long validUntil, long timestamp) {
+            this.key = key;
+            this.timeZone = timeZone;
+            this.validUntil = validUntil;
+            this.timestamp = timestamp;
+        }
+
+        long timestamp() {
+            return timestamp;
+        }
+
+        boolean matches(byte[] payload, int start, int end, @Nullable DateTimeZone timeZone) {
+            return this.timeZone == timeZone
+                    && Arrays.equals(key, 0, key.length, payload, start, end)
+                    && (validUntil == Long.MAX_VALUE || System.currentTimeMillis() < validUntil);
+        }
+    }
+}
@@ -17,9 +17,11 @@
 package org.graylog2.inputs.transports;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.InstrumentedExecutorService;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.eventbus.EventBus;
@@ -29,11 +31,14 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import jakarta.inject.Named;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.InvalidOffsetException;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.AuthorizationException;
 import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.serialization.ByteArrayDeserializer;
@@ -48,6 +53,7 @@ import org.graylog.shaded.kafka09.javaapi.consumer.ConsumerConnector;
 import org.graylog.shaded.kafka09.message.MessageAndMetadata;
 import org.graylog2.plugin.LocalMetricRegistry;
 import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.buffers.InputBuffer;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
 import org.graylog2.plugin.configuration.fields.BooleanField;
@@ -71,9 +77,18 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -109,6 +124,12 @@ public class KafkaTransport extends ThrottleableTransport {
 
     private static final Logger LOG = LoggerFactory.getLogger(KafkaTransport.class);
 
+    private static final Duration REBALANCE_DRAIN_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration STOP_DRAIN_TIMEOUT = Duration.ofSeconds(3);
+    // Consumption of all assigned partitions is paused while a consumer has this many batches which have not been
+    // written to the journal yet
+    private static final int MAX_PENDING_BATCHES = 100;
+
     private final Configuration configuration;
     private final MetricRegistry localRegistry;
     private final NodeId nodeId;
@@ -120,6 +141,9 @@ public class KafkaTransport extends ThrottleableTransport {
     private final AtomicLong lastSecBytesRead = new AtomicLong(0);
     private final AtomicLong lastSecBytesReadTmp = new AtomicLong(0);
     private final ExecutorService executor;
+    private final Histogram batchSize;
+    private final Timer batchHandoffTime;
+    private final ConcurrentMap<TopicPartition, Long> partitionLag = new ConcurrentHashMap<>();
 
     private volatile boolean stopped = false;
     private volatile boolean paused = true;
@@ -145,6 +169,8 @@ public class KafkaTransport extends ThrottleableTransport {
         this.metricRegistry = localRegistry;
         final int numThreads = configuration.getInt(CK_THREADS);
         this.executor = executorService(numThreads);
+        this.batchSize = localRegistry.histogram("batchSize");
+        this.batchHandoffTime = localRegistry.timer("batchHandoffTime");
 
         localRegistry.register("read_bytes_1sec", new Gauge<Long>() {
             @Override
@@ -231,9 +257,8 @@ public class KafkaTransport extends ThrottleableTransport {
         // Map largest -> latest, smallest -> earliest
         final String resetValue = configuration.getString(CK_OFFSET_RESET, DEFAULT_OFFSET_RESET);
         props.put("auto.offset.reset", resetValue.equals("largest") ? "latest" : "earliest");
-        // Default auto commit interval is 60 seconds. Reduce to 1 second to minimize message duplication
-        // if something breaks.
-        props.put("auto.commit.interval.ms", "1000");
+        // Offsets are committed explicitly once the messages have been written to the journal
+        props.put("enable.auto.commit", "false");
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
         props.put(org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
 
@@ -248,9 +273,11 @@ public class KafkaTransport extends ThrottleableTransport {
         IntStream.range(0, numThreads).forEach(i -> executor.submit(new ConsumerRunnable(props, input, i)));
     }
 
-    private class ConsumerRunnable implements Runnable {
+    private class ConsumerRunnable implements Runnable, ConsumerRebalanceListener {
         private final MessageInput input;
         private final KafkaConsumer<byte[], byte[]> consumer;
+        // Batches which have been handed to the input buffer but whose offsets have not been committed yet, in poll order
+        private final Deque<PendingBatch> pendingBatches = new ArrayDeque<>();
 
         public ConsumerRunnable(Properties props, MessageInput input, int threadId) {
             this.input = input;
@@ -258,38 +285,162 @@ public class KafkaTransport extends ThrottleableTransport {
             nprops.put("client.id", "gl2-" + nodeId.getShortNodeId() + "-" + input.getId() + "-" + threadId);
             consumer = new KafkaConsumer<>(nprops);
             //noinspection ConstantConditions
-            consumer.subscribe(Pattern.compile(configuration.getString(CK_TOPIC_FILTER)));
+            consumer.subscribe(Pattern.compile(configuration.getString(CK_TOPIC_FILTER)), this);
         }
 
         private void consumeRecords(ConsumerRecords<byte[], byte[]> consumerRecords) {
-            for (final ConsumerRecord<byte[], byte[]> record : consumerRecords) {
-                if (paused) {
-                    // we try not to spin here, so we wait until the lifecycle goes back to running.
-                    LOG.debug("Message processing is paused, blocking until message processing is turned back on.");
-                    Uninterruptibles.awaitUninterruptibly(pausedLatch);
+            if (consumerRecords.isEmpty()) {
+                return;
+            }
+            if (paused) {
+                // we try not to spin here, so we wait until the lifecycle goes back to running.
+                LOG.debug("Message processing is paused, blocking until message processing is turned back on.");
+                Uninterruptibles.awaitUninterruptibly(pausedLatch);
+            }
+            // check for being stopped before handing off the batch. its offsets are not committed, so it will be consumed again.
+            if (stopped) {
+                return;
+            }
+            if (isThrottled()) {
+                blockUntilUnthrottled();
+            }
+
+            final List<RawMessage> messages = new ArrayList<>(consumerRecords.count());
+            final Map<TopicPartition, Long> startOffsets = new HashMap<>();
+            final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (final TopicPartition partition : consumerRecords.partitions()) {
+                final List<ConsumerRecord<byte[], byte[]>> records = consumerRecords.records(partition);
+                startOffsets.put(partition, records.get(0).offset());
+                for (final ConsumerRecord<byte[], byte[]> record : records) {
+                    final byte[] bytes = record.value();
+
+                    // it is possible that the message is null
+                    if (bytes == null) {
+                        continue;
+                    }
+                    totalBytesRead.addAndGet(bytes.length);
+                    lastSecBytesReadTmp.addAndGet(bytes.length);
+
+                    messages.add(new RawMessage(bytes));
                 }
-                // check for being stopped before actually getting the message, otherwise we could end up losing that message
-                if (stopped) {
+                offsets.put(partition, new OffsetAndMetadata(records.get(records.size() - 1).offset() + 1));
+                updateLag(partition, consumer.currentLag(partition));
+            }
+
+            final PendingBatch batch = new PendingBatch(startOffsets, offsets);
+            pendingBatches.add(batch);
+            batchSize.update(messages.size());
+            try (Timer.Context ignored = batchHandoffTime.time()) {
+                input.processRawMessages(messages, batch);
+            }
+        }
+
+        /**
+         * Commits the offsets of all batches which have been written to the journal, up to the first batch which
+         * has not been written yet. If a batch could not be written, the consumer is rewound to it.
+         */
+        private void commitWrittenOffsets(boolean sync) {
+            final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            PendingBatch failed = null;
+            while (!pendingBatches.isEmpty() && pendingBatches.peek().isCompleted()) {
+                final PendingBatch batch = pendingBatches.poll();
+                if (batch.failure != null) {
+                    failed = batch;
                     break;
                 }
-                if (isThrottled()) {
-                    blockUntilUnthrottled();
-                }
+                offsets.putAll(batch.offsets);
+            }
+            if (!offsets.isEmpty()) {
+                commit(offsets, sync);
+            }
+            if (failed != null) {
+                rewind(failed);
+            }
+        }
 
-                // process the message, this will immediately mark the message as having been processed. this gets tricky
-                // if we get an exception about processing it down below.
-                final byte[] bytes = record.value();
+        private void commit(Map<TopicPartition, OffsetAndMetadata> offsets, boolean sync) {
+            if (sync) {
+                consumer.commitSync(offsets);
+            } else {
+                consumer.commitAsync(offsets, (committed, e) -> {
+                    if (e != null) {
+                        LOG.warn("Unable to commit offsets {}, messages might be consumed again.", committed, e);
+                    }
+                });
+            }
+        }
 
-                // it is possible that the message is null
-                if (bytes == null) {
-                    continue;
+        /**
+         * Seeks back to the first message of the failed batch, so it is consumed again. All later batches are consumed
+         * again as well, because their offsets cannot be committed without skipping the failed one.
+         */
+        private void rewind(PendingBatch failed) {
+            final Map<TopicPartition, Long> positions = new HashMap<>(failed.startOffsets);
+            pendingBatches.forEach(batch -> batch.startOffsets.forEach((partition, offset) -> positions.merge(partition, offset, Math::min)));
+            pendingBatches.clear();
+            LOG.warn("Unable to write message batch to the journal, consuming partitions {} again.", positions.keySet(), failed.failure);
+            positions.forEach(consumer::seek);
+        }
+
+        /**
+         * Pauses fetching from the assigned partitions while there are too many batches which have not been written
+         * yet and resumes it once enough of them have been committed. The consumer keeps polling while paused, so it
+         * stays in the consumer group.
+         */
+        private void limitPendingBatches() {
+            if (pendingBatches.size() >= MAX_PENDING_BATCHES) {
+                if (consumer.paused().isEmpty()) {
+                    LOG.debug("{} message batches have not been written to the journal yet, pausing consumption.", pendingBatches.size());
+                    consumer.pause(consumer.assignment());
+                }
+            } else if (!consumer.paused().isEmpty()) {
+                LOG.debug("Resuming consumption of partitions {}.", consumer.paused());
+                consumer.resume(consumer.paused());
+            }
+        }
+
+        private void awaitPendingBatches(Duration timeout) {
+            final long deadline = System.nanoTime() + timeout.toNanos();
+            for (final PendingBatch batch : pendingBatches) {
+                if (!Uninterruptibles.awaitUninterruptibly(batch.completed, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    LOG.warn("Timed out waiting for {} message batches to be written to the journal. They will be consumed again.",
+                            pendingBatches.stream().filter(b -> !b.isCompleted()).count());
+                    return;
                 }
-                totalBytesRead.addAndGet(bytes.length);
-                lastSecBytesReadTmp.addAndGet(bytes.length);
+            }
+        }
+
+        private void forgetPartitions(Collection<TopicPartition> partitions) {
+            pendingBatches.forEach(batch -> {
+                batch.startOffsets.keySet().removeAll(partitions);
+                batch.offsets.keySet().removeAll(partitions);
+            });
+            partitions.forEach(KafkaTransport.this::removeLag);
+        }
 
-                final RawMessage rawMessage = new RawMessage(bytes);
-                input.processRawMessage(rawMessage);
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            // Let the new owner of the partitions continue after the messages which have been handed off already
+            awaitPendingBatches(REBALANCE_DRAIN_TIMEOUT);
+            try {
+                commitWrittenOffsets(true);
+            } catch (KafkaException e) {
+                LOG.warn("Unable to commit offsets of revoked partitions {}, messages might be consumed again.", partitions, e);
             }
+            forgetPartitions(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            if (pendingBatches.size() >= MAX_PENDING_BATCHES) {
+                consumer.pause(partitions);
+            }
+        }
+
+        @Override
+        public void onPartitionsLost(Collection<TopicPartition> partitions) {
+            // The partitions might already be owned by another consumer, so their offsets must not be committed anymore
+            forgetPartitions(partitions);
         }
 
         private Optional<ConsumerRecords<byte[], byte[]>> tryPoll() {
@@ -323,20 +474,72 @@ public class KafkaTransport extends ThrottleableTransport {
                 }
                 try {
                     consumeRecords(consumerRecords.get());
+                    commitWrittenOffsets(false);
+                    limitPendingBatches();
                 } catch (Exception e) {
                     LOG.error("Exception in consumer thread. Stopping input", e);
                     stopped = true;
                     break;
                 }
             }
-            // explicitly commit our offsets when stopping.
-            // this might trigger a couple of times, but it won't hurt
-            consumer.commitAsync();
+            // explicitly commit the offsets of all messages which made it into the journal when stopping.
+            try {
+                awaitPendingBatches(STOP_DRAIN_TIMEOUT);
+                commitWrittenOffsets(true);
+            } catch (Exception e) {
+                LOG.warn("Unable to commit offsets when stopping, messages might be consumed again.", e);
+            }
             stopLatch.countDown();
             consumer.close(Duration.ofSeconds(5));
         }
     }
 
+    private static class PendingBatch implements InputBuffer.BatchCallback {
+        private final Map<TopicPartition, Long> startOffsets;
+        private final Map<TopicPartition, OffsetAndMetadata> offsets;
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile Throwable failure;
+
+        PendingBatch(Map<TopicPartition, Long> startOffsets, Map<TopicPartition, OffsetAndMetadata> offsets) {
+            this.startOffsets = startOffsets;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public void written() {
+            completed.countDown();
+        }
+
+        @Override
+        public void failed(Throwable cause) {
+            failure = cause;
+            completed.countDown();
+        }
+
+        boolean isCompleted() {
+            return completed.getCount() == 0;
+        }
+    }
+
+    private void updateLag(TopicPartition partition, OptionalLong lag) {
+        if (lag.isEmpty()) {
+            return;
+        }
+        if (partitionLag.put(partition, lag.getAsLong()) == null) {
+            localRegistry.gauge(lagMetricName(partition), () -> () -> partitionLag.getOrDefault(partition, 0L));
+        }
+    }
+
+    private void removeLag(TopicPartition partition) {
+        if (partitionLag.remove(partition) != null) {
+            localRegistry.remove(lagMetricName(partition));
+        }
+    }
+
+    private static String lagMetricName(TopicPartition partition) {
+        return name("partitions", partition.topic(), String.valueOf(partition.partition()), "lag");
+    }
+
     private void doLaunchLegacy(final MessageInput input) {
         final Properties props = new Properties();
 
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports;
+
+import io.netty.channel.Channel;
+import io.netty.channel.unix.UnixChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Reads the kernel statistics of UDP sockets from {@code /proc/net/udp} and {@code /proc/net/udp6}.
+ */
+class UdpSocketStatistics {
+    private static final Logger LOG = LoggerFactory.getLogger(UdpSocketStatistics.class);
+
+    static final List<Path> PROC_FILES = List.of(Paths.get("/proc/net/udp"), Paths.get("/proc/net/udp6"));
+
+    record SocketStats(long inode, int localPort, long receiveQueueBytes, long drops) {
+    }
+
+    static boolean isAvailable() {
+        return PROC_FILES.stream().anyMatch(Files::isReadable);
+    }
+
+    /**
+     * @return the statistics of all UDP sockets bound to the given port, by inode
+     */
+    static Map<Long, SocketStats> read(int localPort) {
+        final Map<Long, SocketStats> stats = new HashMap<>();
+        for (Path file : PROC_FILES) {
+            if (!Files.isReadable(file)) {
+                continue;
+            }
+            try {
+                parse(Files.readAllLines(file), localPort, stats);
+            } catch (IOException e) {
+                LOG.debug("Unable to read UDP socket statistics from {}", file, e);
+            }
+        }
+        return stats;
+    }
+
+    // Format: sl local_address rem_address st tx_queue:rx_queue tr:tm->when retrnsmt uid timeout inode ref pointer drops
+    static void parse(List<String> lines, int localPort, Map<Long, SocketStats> stats) {
+        // The first line is the header
+        for (int i = 1; i < lines.size(); i++) {
+            final String[] columns = lines.get(i).trim().split("\\s+");
+            if (columns.length < 13) {
+                continue;
+            }
+            try {
+                final String localAddress = columns[1];
+                final int port = Integer.parseInt(localAddress.substring(localAddress.lastIndexOf(':') + 1), 16);
+                if (port != localPort) {
+                    continue;
+                }
+                final String queues = columns[4];
+                final long receiveQueue = Long.parseLong(queues.substring(queues.indexOf(':') + 1), 16);
+                final long inode = Long.parseLong(columns[9]);
+                final long drops = Long.parseLong(columns[12]);
+                stats.put(inode, new SocketStats(inode, port, receiveQueue, drops));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                LOG.debug("Skipping invalid UDP socket statistics line <{}>", lines.get(i));
+            }
+        }
+    }
+
+    /**
+     * Resolves the inode of the socket of a native channel via {@code /proc/self/fd}, to match it with its statistics.
+     */
+    static OptionalLong socketInode(Channel channel) {
+        if (!(channel instanceof UnixChannel unixChannel)) {
+            return OptionalLong.empty();
+        }
+        try {
+            // The link target looks like "socket:[12345]"
+            final String target = Files.readSymbolicLink(Paths.get("/proc/self/fd", String.valueOf(unixChannel.fd().intValue()))).toString();
+            if (target.toLowerCase(Locale.ROOT).startsWith("socket:[") && target.endsWith("]")) {
+                return OptionalLong.of(Long.parseLong(target.substring(8, target.length() - 1)));
+            }
+        } catch (IOException | UnsupportedOperationException | NumberFormatException e) {
+            LOG.debug("Unable to resolve socket inode of channel {}", channel, e);
+        }
+        return OptionalLong.empty();
+    }
+}
@@ -16,8 +16,11 @@
  */
 package org.graylog2.inputs.transports;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.github.joschi.jadconfig.util.Size;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
 import com.google.common.primitives.Ints;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
@@ -29,13 +32,16 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.group.ChannelGroup;
 import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.socket.DatagramChannelConfig;
 import io.netty.channel.unix.UnixChannelOption;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.graylog2.inputs.transports.netty.DatagramChannelFactory;
+import org.graylog2.inputs.transports.netty.DatagramFlowControlHandler;
 import org.graylog2.inputs.transports.netty.DatagramPacketHandler;
+import org.graylog2.inputs.transports.netty.DatagramStatsHandler;
 import org.graylog2.inputs.transports.netty.EnvelopeMessageAggregationHandler;
 import org.graylog2.inputs.transports.netty.EnvelopeMessageHandler;
 import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
@@ -43,6 +49,9 @@ import org.graylog2.inputs.transports.netty.NettyTransportType;
 import org.graylog2.plugin.LocalMetricRegistry;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
+import org.graylog2.plugin.configuration.fields.ConfigurationField;
+import org.graylog2.plugin.configuration.fields.NumberField;
+import org.graylog2.plugin.inputs.InputCredits;
 import org.graylog2.plugin.inputs.MessageInput;
 import org.graylog2.plugin.inputs.MisfireException;
 import org.graylog2.plugin.inputs.annotations.ConfigClass;
@@ -55,15 +64,36 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
 
 public class UdpTransport extends NettyTransport {
     private static final Logger LOG = LoggerFactory.getLogger(UdpTransport.class);
 
+    public static final String CK_MAX_DATAGRAM_SIZE = "max_datagram_size";
+    public static final String CK_RECV_BATCH_SIZE = "recv_batch_size";
+    // Maximum possible UDP packet size
+    private static final int DEFAULT_MAX_DATAGRAM_SIZE = 65535;
+    private static final int DEFAULT_RECV_BATCH_SIZE = 1;
+    // Limits the receive buffer of each worker thread to 4 MiB with the default maximum datagram size
+    private static final int MAX_RECV_BATCH_SIZE = 64;
+
     private final NettyTransportConfiguration nettyTransportConfiguration;
     private final ChannelGroup channels;
+    private final int maxDatagramSize;
+    private final int recvBatchSize;
+    private final Histogram datagramSize;
+    private final AtomicInteger socketIndex = new AtomicInteger();
+    private final Supplier<Map<Long, UdpSocketStatistics.SocketStats>> socketStatistics;
     private EventLoopGroup eventLoopGroup;
     private Bootstrap bootstrap;
 
@@ -76,6 +106,21 @@ public class UdpTransport extends NettyTransport {
         super(configuration, eventLoopGroupFactory, throughputCounter, localRegistry);
         this.nettyTransportConfiguration = nettyTransportConfiguration;
         this.channels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        this.maxDatagramSize = Math.min(Math.max(configuration.getInt(CK_MAX_DATAGRAM_SIZE, DEFAULT_MAX_DATAGRAM_SIZE), 1), DEFAULT_MAX_DATAGRAM_SIZE);
+        this.recvBatchSize = Math.min(Math.max(configuration.getInt(CK_RECV_BATCH_SIZE, DEFAULT_RECV_BATCH_SIZE), 1), MAX_RECV_BATCH_SIZE);
+        this.datagramSize = localRegistry.histogram("datagramSize");
+        // All gauges of this input are usually read at once
+        this.socketStatistics = Suppliers.memoizeWithExpiration(() -> getLocalAddress() instanceof InetSocketAddress address
+                ? UdpSocketStatistics.read(address.getPort())
+                : Map.of(), 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Batched receives (recvmmsg) are only supported by the native epoll transport.
+     */
+    @VisibleForTesting
+    boolean isBatchedReceive() {
+        return recvBatchSize > 1 && nettyTransportConfiguration.getType() == NettyTransportType.EPOLL;
     }
 
     @VisibleForTesting
@@ -85,20 +130,31 @@ public class UdpTransport extends NettyTransport {
 
         eventLoopGroup = eventLoopGroupFactory.create(workerThreads, localRegistry, "workers");
 
-        return new Bootstrap()
+        final Bootstrap bootstrap = new Bootstrap()
                 .group(eventLoopGroup)
                 .channelFactory(new DatagramChannelFactory(transportType))
-                .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(65535)) // Maximum possible UDP packet size
                 .option(ChannelOption.SO_RCVBUF, getRecvBufferSize())
                 .option(UnixChannelOption.SO_REUSEPORT, true)
-                .handler(getChannelInitializer(getChannelHandlers(input)))
-                .validate();
+                .handler(getChannelInitializer(getChannelHandlers(input)));
+        if (isBatchedReceive()) {
+            // Every read receives up to recvBatchSize datagrams into slices of one buffer with a single system call
+            LOG.debug("Receiving up to {} datagrams per system call", recvBatchSize);
+            bootstrap.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, maxDatagramSize)
+                    .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maxDatagramSize * recvBatchSize));
+        } else {
+            bootstrap.option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(maxDatagramSize));
+        }
+        return bootstrap.validate();
     }
 
     @Override
     protected LinkedHashMap<String, Callable<? extends ChannelHandler>> getChannelHandlers(MessageInput input) {
         final LinkedHashMap<String, Callable<? extends ChannelHandler>> handlers = new LinkedHashMap<>(super.getChannelHandlers(input));
         handlers.put("traffic-counter", () -> throughputCounter);
+        handlers.put("datagram-stats", () -> {
+            final int index = socketIndex.getAndIncrement();
+            return new DatagramStatsHandler(index, localRegistry.meter(socketMetricName(index, "receivedDatagrams")), datagramSize, isBatchedReceive());
+        });
         handlers.put("udp-datagram", () -> DatagramPacketHandler.INSTANCE);
         handlers.putAll(getChildChannelHandlers(input));
 
@@ -107,7 +163,13 @@ public class UdpTransport extends NettyTransport {
 
     @Override
     protected LinkedHashMap<String, Callable<? extends ChannelHandler>> getChildChannelHandlers(final MessageInput input) {
-        final LinkedHashMap<String, Callable<? extends ChannelHandler>> handlerList = new LinkedHashMap<>(getCustomChildChannelHandlers(input));
+        final LinkedHashMap<String, Callable<? extends ChannelHandler>> handlerList = new LinkedHashMap<>();
+        final InputCredits credits = input.getFlowCredits();
+        if (credits != null) {
+            // Drop datagrams before decoding them while the input is out of credits
+            handlerList.put("flow-control", () -> new DatagramFlowControlHandler(credits));
+        }
+        handlerList.putAll(getCustomChildChannelHandlers(input));
 
         final CodecAggregator aggregator = getAggregator();
         if (aggregator != null) {
@@ -123,6 +185,9 @@ public class UdpTransport extends NettyTransport {
     public void launch(final MessageInput input) throws MisfireException {
         try {
             bootstrap = getBootstrap(input);
+            if (UdpSocketStatistics.isAvailable()) {
+                localRegistry.register("kernelDrops", (Gauge<Long>) this::kernelDrops);
+            }
 
             final NettyTransportType transportType = nettyTransportConfiguration.getType();
             int numChannels = (transportType == NettyTransportType.EPOLL || transportType == NettyTransportType.KQUEUE) ? workerThreads : 1;
@@ -130,6 +195,11 @@ public class UdpTransport extends NettyTransport {
                 LOG.debug("Starting channel on {}", socketAddress);
                 bootstrap.bind(socketAddress)
                         .addListener(new InputLaunchListener(channels, input, getRecvBufferSize()))
+                        .addListener((ChannelFutureListener) future -> {
+                            if (future.isSuccess()) {
+                                registerSocketMetrics(future.channel());
+                            }
+                        })
                         .syncUninterruptibly();
             }
         } catch (Exception e) {
@@ -137,6 +207,49 @@ public class UdpTransport extends NettyTransport {
         }
     }
 
+    private void registerSocketMetrics(Channel channel) {
+        final DatagramStatsHandler statsHandler = channel.pipeline().get(DatagramStatsHandler.class);
+        final OptionalLong inode = UdpSocketStatistics.socketInode(channel);
+        if (statsHandler == null || inode.isEmpty()) {
+            return;
+        }
+        final int index = statsHandler.getSocketIndex();
+        localRegistry.register(socketMetricName(index, "kernelDrops"), (Gauge<Long>) () -> {
+            final UdpSocketStatistics.SocketStats stats = socketStatistics.get().get(inode.getAsLong());
+            return stats == null ? 0L : stats.drops();
+        });
+        localRegistry.register(socketMetricName(index, "receiveQueueBytes"), (Gauge<Long>) () -> {
+            final UdpSocketStatistics.SocketStats stats = socketStatistics.get().get(inode.getAsLong());
+            return stats == null ? 0L : stats.receiveQueueBytes();
+        });
+    }
+
+    /**
+     * Datagrams dropped by the kernel, usually because the socket receive buffer was full.
+     */
+    private long kernelDrops() {
+        // Other processes might use the same port with SO_REUSEPORT, so only count our own sockets if possible
+        final Map<Long, UdpSocketStatistics.SocketStats> stats = socketStatistics.get();
+        final long[] inodes = channels.stream()
+                .map(UdpSocketStatistics::socketInode)
+                .filter(OptionalLong::isPresent)
+                .mapToLong(OptionalLong::getAsLong)
+                .toArray();
+        if (inodes.length == 0) {
+            return stats.values().stream().mapToLong(UdpSocketStatistics.SocketStats::drops).sum();
+        }
+        long drops = 0;
+        for (long inode : inodes) {
+            final UdpSocketStatistics.SocketStats socketStats = stats.get(inode);
+            drops += socketStats == null ? 0 : socketStats.drops();
+        }
+        return drops;
+    }
+
+    private static String socketMetricName(int index, String metric) {
+        return name("sockets", String.valueOf(index), metric);
+    }
+
 
     @Override
     public void stop() {
@@ -147,6 +260,8 @@ public class UdpTransport extends NettyTransport {
             eventLoopGroup.shutdownGracefully();
         }
         bootstrap = null;
+        localRegistry.removeMatching((metricName, metric) -> metricName.startsWith("sockets.") || metricName.equals("kernelDrops"));
+        socketIndex.set(0);
     }
 
     @Nullable
@@ -177,6 +292,23 @@ public class UdpTransport extends NettyTransport {
 
             final int recvBufferSize = Ints.saturatedCast(Size.kilobytes(256L).toBytes());
             r.addField(ConfigurationRequest.Templates.recvBufferSize(CK_RECV_BUFFER_SIZE, recvBufferSize));
+            r.addField(new NumberField(
+                    CK_MAX_DATAGRAM_SIZE,
+                    "Maximum datagram size",
+                    DEFAULT_MAX_DATAGRAM_SIZE,
+                    "Size in bytes of the buffer each datagram is received into. Larger datagrams are truncated. " +
+                            "Between 1 and 65535. " +
+                            "The \"datagramSize\" metric of the input shows the sizes of the received datagrams.",
+                    ConfigurationField.Optional.OPTIONAL,
+                    NumberField.Attribute.ONLY_POSITIVE));
+            r.addField(new NumberField(
+                    CK_RECV_BATCH_SIZE,
+                    "Receive batch size",
+                    DEFAULT_RECV_BATCH_SIZE,
+                    "Maximum number of datagrams each worker thread receives with a single system call. " +
+                            "Only supported with the native epoll transport on Linux, 1 disables batched receives. At most 64.",
+                    ConfigurationField.Optional.OPTIONAL,
+                    NumberField.Attribute.ONLY_POSITIVE));
 
             return r;
         }
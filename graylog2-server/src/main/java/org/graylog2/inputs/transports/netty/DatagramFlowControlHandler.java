@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports.netty;
+
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import org.graylog2.plugin.inputs.InputCredits;
+
+/**
+ * Drops datagrams while their input ran out of credits, because connectionless transports cannot stop their senders.
+ */
+public class DatagramFlowControlHandler extends ChannelInboundHandlerAdapter {
+    private final InputCredits credits;
+
+    public DatagramFlowControlHandler(InputCredits credits) {
+        this.credits = credits;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (credits.isThrottled() && msg instanceof AddressedEnvelope<?, ?>) {
+            ReferenceCountUtil.release(msg);
+            credits.dropped();
+            return;
+        }
+        super.channelRead(ctx, msg);
+    }
+}
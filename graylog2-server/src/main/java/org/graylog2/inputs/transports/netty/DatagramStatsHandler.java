@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports.netty;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+
+/**
+ * Records the size and the number of received datagrams of a UDP socket.
+ * <p>
+ * With batched receives, all datagrams of a batch share one large buffer, which is only released once all of them
+ * have been released. Datagrams are copied into buffers of their actual size in this case, so aggregators which hold on
+ * to them (e.g. for chunked GELF) do not keep the whole batch alive.
+ */
+public class DatagramStatsHandler extends ChannelInboundHandlerAdapter {
+    private final int socketIndex;
+    private final Meter receivedDatagrams;
+    private final Histogram datagramSize;
+    private final boolean copyContent;
+
+    public DatagramStatsHandler(int socketIndex, Meter receivedDatagrams, Histogram datagramSize, boolean copyContent) {
+        this.socketIndex = socketIndex;
+        this.receivedDatagrams = receivedDatagrams;
+        this.datagramSize = datagramSize;
+        this.copyContent = copyContent;
+    }
+
+    public int getSocketIndex() {
+        return socketIndex;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof DatagramPacket packet) {
+            final ByteBuf content = packet.content();
+            receivedDatagrams.mark();
+            datagramSize.update(content.readableBytes());
+            if (copyContent) {
+                final ByteBuf copy = ctx.alloc().buffer(content.readableBytes());
+                copy.writeBytes(content, content.readerIndex(), content.readableBytes());
+                final DatagramPacket compacted = new DatagramPacket(copy, packet.recipient(), packet.sender());
+                packet.release();
+                super.channelRead(ctx, compacted);
+                return;
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+}
@@ -36,6 +36,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.Delimiters;
 import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.ByteProcessor;
 
 import java.util.List;
 
@@ -87,6 +88,11 @@ public class LenientDelimiterBasedFrameDecoder extends ByteToMessageDecoder {
      * Set only when decoding with "\n" and "\r\n" as the delimiter.
      */
     private final LenientLineBasedFrameDecoder lineBasedDecoder;
+    // Single byte delimiters, like the NUL byte, are searched for in bulk
+    private final byte[] delimiterBytes;
+    private final ByteProcessor findDelimiter;
+    // Number of readable bytes which have already been searched for delimiters without a match
+    private int scannedBytes;
 
     /**
      * Creates a new instance.
@@ -206,6 +212,15 @@ public class LenientDelimiterBasedFrameDecoder extends ByteToMessageDecoder {
             }
             lineBasedDecoder = null;
         }
+        this.delimiterBytes = singleByteDelimiters(this.delimiters);
+        this.findDelimiter = delimiterBytes == null ? null : value -> {
+            for (byte delimiterByte : delimiterBytes) {
+                if (value == delimiterByte) {
+                    return false;
+                }
+            }
+            return true;
+        };
         this.maxFrameLength = maxFrameLength;
         this.stripDelimiter = stripDelimiter;
         this.failFast = failFast;
@@ -237,6 +252,23 @@ public class LenientDelimiterBasedFrameDecoder extends ByteToMessageDecoder {
         return getClass() != LenientDelimiterBasedFrameDecoder.class;
     }
 
+    /**
+     * Returns the delimiters as bytes if all of them are single bytes, {@code null} otherwise.
+     */
+    private static byte[] singleByteDelimiters(ByteBuf[] delimiters) {
+        if (delimiters == null) {
+            return null;
+        }
+        final byte[] bytes = new byte[delimiters.length];
+        for (int i = 0; i < delimiters.length; i++) {
+            if (delimiters[i].capacity() != 1) {
+                return null;
+            }
+            bytes[i] = delimiters[i].getByte(0);
+        }
+        return bytes;
+    }
+
     @Override
     protected final void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
         Object decoded = decode(ctx, in);
@@ -260,15 +292,24 @@ public class LenientDelimiterBasedFrameDecoder extends ByteToMessageDecoder {
         // Try all delimiters and choose the delimiter which yields the shortest frame.
         int minFrameLength = Integer.MAX_VALUE;
         ByteBuf minDelim = null;
-        for (ByteBuf delim : delimiters) {
-            int frameLength = indexOf(buffer, delim);
-            if (frameLength >= 0 && frameLength < minFrameLength) {
-                minFrameLength = frameLength;
-                minDelim = delim;
+        if (delimiterBytes != null) {
+            final int index = indexOfDelimiterByte(buffer);
+            if (index >= 0) {
+                minFrameLength = index - buffer.readerIndex();
+                minDelim = delimiterOf(buffer.getByte(index));
+            }
+        } else {
+            for (ByteBuf delim : delimiters) {
+                int frameLength = indexOf(buffer, delim);
+                if (frameLength >= 0 && frameLength < minFrameLength) {
+                    minFrameLength = frameLength;
+                    minDelim = delim;
+                }
             }
         }
 
         if (minDelim != null) {
+            scannedBytes = 0;
             int minDelimLength = minDelim.capacity();
             ByteBuf frame;
 
@@ -302,6 +343,7 @@ public class LenientDelimiterBasedFrameDecoder extends ByteToMessageDecoder {
 
             return frame;
         } else if (emitLastLineWithoutDelimiter && !ctx.channel().isActive()) {
+            scannedBytes = 0;
             minFrameLength = buffer.readableBytes();
             ByteBuf frame;
 
@@ -345,6 +387,8 @@ public class LenientDelimiterBasedFrameDecoder extends ByteToMessageDecoder {
                 tooLongFrameLength += buffer.readableBytes();
                 buffer.skipBytes(buffer.readableBytes());
             }
+            // Only search the bytes which are appended to the buffer next time
+            scannedBytes = buffer.readableBytes();
             return null;
         }
     }
@@ -390,6 +434,27 @@ public class LenientDelimiterBasedFrameDecoder extends ByteToMessageDecoder {
         return -1;
     }
 
+    /**
+     * Returns the buffer index of the first single byte delimiter after the already scanned bytes. -1 is
+     * returned if there is none.
+     */
+    private int indexOfDelimiterByte(ByteBuf buffer) {
+        final int from = buffer.readerIndex() + scannedBytes;
+        if (delimiterBytes.length == 1) {
+            return buffer.indexOf(from, buffer.writerIndex(), delimiterBytes[0]);
+        }
+        return buffer.forEachByte(from, buffer.writerIndex() - from, findDelimiter);
+    }
+
+    private ByteBuf delimiterOf(byte value) {
+        for (ByteBuf delimiter : delimiters) {
+            if (delimiter.getByte(0) == value) {
+                return delimiter;
+            }
+        }
+        throw new IllegalStateException("Unknown delimiter " + value);
+    }
+
     private static void validateDelimiter(ByteBuf delimiter) {
         if (delimiter == null) {
             throw new NullPointerException("delimiter");
@@ -26,11 +26,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Creates a {@link RawMessage} for every frame and hands all frames of a read event to the input at once.
+ */
 public class RawMessageHandler extends SimpleChannelInboundHandler<ByteBuf> {
     private static final Logger LOG = LoggerFactory.getLogger(NettyTransport.class);
 
     private final MessageInput input;
+    private List<RawMessage> batch = new ArrayList<>();
 
     public RawMessageHandler(MessageInput input) {
         this.input = input;
@@ -40,8 +46,32 @@ public class RawMessageHandler extends SimpleChannelInboundHandler<ByteBuf> {
     protected void channelRead0(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
         final byte[] bytes = new byte[msg.readableBytes()];
         msg.readBytes(bytes);
-        final RawMessage raw = new RawMessage(bytes, (InetSocketAddress) ctx.channel().remoteAddress());
-        input.processRawMessage(raw);
+        batch.add(new RawMessage(bytes, (InetSocketAddress) ctx.channel().remoteAddress()));
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        flush();
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        flush();
+        super.channelInactive(ctx);
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final List<RawMessage> messages = batch;
+        batch = new ArrayList<>(messages.size());
+        if (messages.size() == 1) {
+            input.processRawMessage(messages.get(0));
+        } else {
+            input.processRawMessages(messages);
+        }
     }
 
     @Override
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.lookup.dto.DataAdapterDto;
+import org.graylog2.plugin.lookup.LookupDataAdapter;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.graylog2.shared.metrics.MetricUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads values from a {@link LookupDataAdapter} on lookup cache misses.
+ * <p>
+ * Concurrent loads for the same key are coalesced into a single data adapter request, whose result is shared by all
+ * waiting callers. Optionally, the number of concurrent data adapter requests can be limited and a circuit breaker
+ * can stop sending requests to a failing data adapter for some time. Both are configured per data adapter and every
+ * data adapter instance has its own loader, so a failing data adapter doesn't affect other data adapters. Requests
+ * which are rejected by either of them return an error result, which is not cached.
+ */
+public class CoalescingDataAdapterLoader {
+    private static final Logger LOG = LoggerFactory.getLogger(CoalescingDataAdapterLoader.class);
+
+    static final Duration DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final LookupDataAdapter adapter;
+    private final ConcurrentMap<Object, CompletableFuture<LookupResult>> inFlight = new ConcurrentHashMap<>();
+    @Nullable
+    private final Semaphore requestPermits;
+    private final int circuitBreakerFailureThreshold;
+    private final Duration circuitBreakerOpenDuration;
+    private final Clock clock;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long circuitOpenUntil = 0L;
+
+    private final Meter coalescedRequests;
+    private final Meter saturatedRequests;
+    private final Meter shortCircuitedRequests;
+
+    public CoalescingDataAdapterLoader(LookupDataAdapter adapter,
+                                       int maxConcurrentRequests,
+                                       int circuitBreakerFailureThreshold,
+                                       Duration circuitBreakerOpenDuration,
+                                       MetricRegistry metricRegistry) {
+        this(adapter, maxConcurrentRequests, circuitBreakerFailureThreshold, circuitBreakerOpenDuration, metricRegistry, Clock.systemUTC());
+    }
+
+    CoalescingDataAdapterLoader(LookupDataAdapter adapter,
+                                int maxConcurrentRequests,
+                                int circuitBreakerFailureThreshold,
+                                Duration circuitBreakerOpenDuration,
+                                MetricRegistry metricRegistry,
+                                Clock clock) {
+        this.adapter = adapter;
+        this.requestPermits = maxConcurrentRequests > 0 ? new Semaphore(maxConcurrentRequests) : null;
+        this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+        this.clock = clock;
+
+        final String prefix = MetricRegistry.name("org.graylog2.lookup.adapters", adapter.id());
+        this.coalescedRequests = metricRegistry.meter(MetricRegistry.name(prefix, "coalescedRequests"));
+        this.saturatedRequests = metricRegistry.meter(MetricRegistry.name(prefix, "saturatedRequests"));
+        this.shortCircuitedRequests = metricRegistry.meter(MetricRegistry.name(prefix, "shortCircuitedRequests"));
+        final Gauge<Integer> inFlightGauge = inFlight::size;
+        MetricUtils.reRegister(metricRegistry, MetricRegistry.name(prefix, "inFlightRequests"), inFlightGauge);
+    }
+
+    /**
+     * Creates a loader with the request limits configured for the given data adapter.
+     */
+    public static CoalescingDataAdapterLoader create(DataAdapterDto dto, LookupDataAdapter adapter, MetricRegistry metricRegistry) {
+        final Duration openDuration = dto.circuitBreakerOpenDuration() != null && dto.circuitBreakerOpenDurationUnit() != null
+                ? Duration.ofMillis(dto.circuitBreakerOpenDurationUnit().toMillis(dto.circuitBreakerOpenDuration()))
+                : DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+        return new CoalescingDataAdapterLoader(adapter,
+                Optional.ofNullable(dto.maxConcurrentRequests()).orElse(0),
+                Optional.ofNullable(dto.circuitBreakerFailureThreshold()).orElse(0),
+                openDuration,
+                metricRegistry);
+    }
+
+    public LookupDataAdapter adapter() {
+        return adapter;
+    }
+
+    public LookupResult load(Object key) {
+        final CompletableFuture<LookupResult> future = new CompletableFuture<>();
+        final CompletableFuture<LookupResult> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalescedRequests.mark();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+
+        try {
+            final LookupResult result = doLoad(key);
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private LookupResult doLoad(Object key) {
+        if (isCircuitOpen()) {
+            shortCircuitedRequests.mark();
+            return rejected(String.format(Locale.ENGLISH,
+                    "Data adapter <%s> failed repeatedly, not sending requests until %s", adapter.name(), Instant.ofEpochMilli(circuitOpenUntil)));
+        }
+
+        if (requestPermits != null && !requestPermits.tryAcquire()) {
+            saturatedRequests.mark();
+            return rejected(String.format(Locale.ENGLISH,
+                    "Data adapter <%s> is saturated, too many concurrent requests", adapter.name()));
+        }
+        try {
+            final LookupResult result = adapter.get(key);
+            recordOutcome(result == null || !result.hasError());
+            return result;
+        } catch (RuntimeException e) {
+            recordOutcome(false);
+            throw e;
+        } finally {
+            if (requestPermits != null) {
+                requestPermits.release();
+            }
+        }
+    }
+
+    private static LookupResult rejected(String message) {
+        // The data adapter hasn't been asked, so the result must not be cached like an actual error of the adapter
+        return LookupResult.builder()
+                .hasError(true)
+                .cacheTTL(0L)
+                .single(message)
+                .build();
+    }
+
+    private boolean isCircuitOpen() {
+        return circuitBreakerFailureThreshold > 0 && clock.millis() < circuitOpenUntil;
+    }
+
+    private void recordOutcome(boolean success) {
+        if (circuitBreakerFailureThreshold <= 0) {
+            return;
+        }
+        if (success) {
+            consecutiveFailures.set(0);
+        } else if (consecutiveFailures.incrementAndGet() >= circuitBreakerFailureThreshold) {
+            // Let one request through after the open duration, which closes the circuit again on success
+            consecutiveFailures.set(circuitBreakerFailureThreshold - 1);
+            circuitOpenUntil = clock.millis() + circuitBreakerOpenDuration.toMillis();
+            LOG.warn("Data adapter <{}> failed {} times in a row, not sending requests for {}",
+                    adapter.name(), circuitBreakerFailureThreshold, circuitBreakerOpenDuration);
+        }
+    }
+}
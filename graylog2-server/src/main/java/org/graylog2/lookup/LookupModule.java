@@ -25,6 +25,7 @@ import org.graylog2.lookup.adapters.DnsLookupDataAdapter;
 import org.graylog2.lookup.adapters.HTTPJSONPathDataAdapter;
 import org.graylog2.lookup.caches.CaffeineLookupCache;
 import org.graylog2.lookup.caches.NullCache;
+import org.graylog2.lookup.caches.PersistentLookupCache;
 import org.graylog2.lookup.db.DBLookupTableConfigService;
 import org.graylog2.plugin.inject.Graylog2Module;
 import org.graylog2.plugin.lookup.LookupCache;
@@ -62,6 +63,11 @@ public class LookupModule extends Graylog2Module {
                 CaffeineLookupCache.Factory.class,
                 CaffeineLookupCache.Config.class);
 
+        installLookupCache(PersistentLookupCache.NAME,
+                PersistentLookupCache.class,
+                PersistentLookupCache.Factory.class,
+                PersistentLookupCache.Config.class);
+
         installLookupDataAdapter(CSVFileDataAdapter.NAME,
                 CSVFileDataAdapter.class,
                 CSVFileDataAdapter.Factory.class,
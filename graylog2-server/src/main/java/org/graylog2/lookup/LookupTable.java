@@ -53,6 +53,13 @@ public abstract class LookupTable {
 
     public abstract LookupDataAdapter dataAdapter();
 
+    /**
+     * The loader used to fetch values from the data adapter on cache misses. Falls back to calling the data adapter
+     * directly if it's not set.
+     */
+    @Nullable
+    public abstract CoalescingDataAdapterLoader dataAdapterLoader();
+
     public abstract LookupDefaultSingleValue defaultSingleValue();
 
     public abstract LookupDefaultMultiValue defaultMultiValue();
@@ -70,7 +77,9 @@ public abstract class LookupTable {
 
     @Nullable
     public LookupResult lookup(@Nonnull Object key) {
-        final LookupResult result = cache().get(LookupCacheKey.create(dataAdapter(), key), () -> dataAdapter().get(key));
+        final CoalescingDataAdapterLoader loader = dataAdapterLoader();
+        final LookupResult result = cache().get(LookupCacheKey.create(dataAdapter(), key),
+                () -> loader != null ? loader.load(key) : dataAdapter().get(key));
 
         if (result.hasError()) {
             return result;
@@ -147,6 +156,8 @@ public abstract class LookupTable {
 
         public abstract Builder dataAdapter(LookupDataAdapter dataAdapter);
 
+        public abstract Builder dataAdapterLoader(@Nullable CoalescingDataAdapterLoader dataAdapterLoader);
+
         public abstract Builder defaultSingleValue(LookupDefaultSingleValue defaultSingleValue);
 
         public abstract Builder defaultMultiValue(LookupDefaultMultiValue defaultMultiValue);
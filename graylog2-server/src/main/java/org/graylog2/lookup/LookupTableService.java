@@ -16,6 +16,7 @@
  */
 package org.graylog2.lookup;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
@@ -26,6 +27,7 @@ import com.google.common.util.concurrent.Service;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
+import org.graylog2.lookup.caches.PersistentLookupCache;
 import org.graylog2.lookup.dto.CacheDto;
 import org.graylog2.lookup.dto.DataAdapterDto;
 import org.graylog2.lookup.dto.LookupTableDto;
@@ -86,11 +88,13 @@ public class LookupTableService extends AbstractIdleService {
     private final ScheduledExecutorService scheduler;
     private final EventBus eventBus;
     private final LookupDataAdapterRefreshService adapterRefreshService;
+    private final MetricRegistry metricRegistry;
 
     private final ConcurrentMap<String, LookupTable> liveTables = new ConcurrentHashMap<>();
 
     private final ConcurrentMap<String, LookupDataAdapter> idToAdapter = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, LookupDataAdapter> liveAdapters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CoalescingDataAdapterLoader> idToAdapterLoader = new ConcurrentHashMap<>();
 
     private final ConcurrentMap<String, LookupCache> idToCache = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, LookupCache> liveCaches = new ConcurrentHashMap<>();
@@ -103,7 +107,8 @@ public class LookupTableService extends AbstractIdleService {
                               @SystemEntity Map<String, LookupDataAdapter.Factory2> systemAdapterFactories,
                               @SystemEntity Map<String, LookupCache.Factory> systemCacheFactories,
                               @Named("daemonScheduler") ScheduledExecutorService scheduler,
-                              EventBus eventBus) {
+                              EventBus eventBus,
+                              MetricRegistry metricRegistry) {
         this.configService = configService;
         this.cacheFactories = cacheFactories;
         this.adapterFactories = adapterFactories;
@@ -113,6 +118,7 @@ public class LookupTableService extends AbstractIdleService {
         this.scheduler = scheduler;
         this.eventBus = eventBus;
         this.adapterRefreshService = new LookupDataAdapterRefreshService(scheduler, liveTables);
+        this.metricRegistry = metricRegistry;
     }
 
     protected LookupTableConfigService getConfigService() {
@@ -165,6 +171,7 @@ public class LookupTableService extends AbstractIdleService {
                 @Override
                 public void terminated(State from) {
                     idToAdapter.remove(adapter.id());
+                    idToAdapterLoader.remove(adapter.id());
                     liveAdapters.remove(name);
                 }
             }, scheduler);
@@ -200,6 +207,7 @@ public class LookupTableService extends AbstractIdleService {
         public void running() {
             try {
                 idToAdapter.put(dto.id(), adapter);
+                idToAdapterLoader.put(dto.id(), CoalescingDataAdapterLoader.create(dto, adapter, metricRegistry));
                 final LookupDataAdapter existing = liveAdapters.put(dto.name(), adapter);
                 if (existing != null) {
                     replacedAdapterConsumer.accept(existing);
@@ -302,6 +310,7 @@ public class LookupTableService extends AbstractIdleService {
                 .map(idToAdapter::remove)
                 .filter(Objects::nonNull)
                 .forEach(dataAdapter -> {
+                    idToAdapterLoader.remove(dataAdapter.id());
                     liveAdapters.remove(dataAdapter.name());
                     dataAdapter.stopAsync();
                 }), 0, TimeUnit.SECONDS);
@@ -359,6 +368,15 @@ public class LookupTableService extends AbstractIdleService {
                 .filter(Objects::nonNull)
                 .forEach(lookupCache -> {
                     liveCaches.remove(lookupCache.name());
+                    if (lookupCache instanceof PersistentLookupCache persistentCache) {
+                        // The cache files of deleted caches are not needed anymore
+                        persistentCache.addListener(new Listener() {
+                            @Override
+                            public void terminated(State from) {
+                                persistentCache.deleteCacheFiles();
+                            }
+                        }, scheduler);
+                    }
                     lookupCache.stopAsync();
                 }), 0, TimeUnit.SECONDS);
     }
@@ -525,6 +543,7 @@ public class LookupTableService extends AbstractIdleService {
                 .title(dto.title())
                 .cache(cache)
                 .dataAdapter(adapter)
+                .dataAdapterLoader(adapterLoader(adapter))
                 .defaultSingleValue(defaultSingleValue)
                 .defaultMultiValue(defaultMultiValue)
                 .build();
@@ -541,6 +560,13 @@ public class LookupTableService extends AbstractIdleService {
         return table;
     }
 
+    @Nullable
+    private CoalescingDataAdapterLoader adapterLoader(LookupDataAdapter adapter) {
+        // Lookup tables sharing a data adapter instance share the loader, so their requests are coalesced as well
+        final CoalescingDataAdapterLoader loader = idToAdapterLoader.get(adapter.id());
+        return loader != null && loader.adapter() == adapter ? loader : null;
+    }
+
     public Optional<CachePurge> newCachePurge(String tableName) {
         final LookupTable table = getTable(tableName);
         if (table != null) {
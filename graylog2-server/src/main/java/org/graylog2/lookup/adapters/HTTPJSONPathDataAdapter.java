@@ -31,7 +31,6 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
 import com.google.inject.assistedinject.Assisted;
-import com.jayway.jsonpath.DocumentContext;
 import com.jayway.jsonpath.InvalidJsonException;
 import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
@@ -53,6 +52,7 @@ import org.graylog2.plugin.lookup.LookupCachePurge;
 import org.graylog2.plugin.lookup.LookupDataAdapter;
 import org.graylog2.plugin.lookup.LookupDataAdapterConfiguration;
 import org.graylog2.plugin.lookup.LookupResult;
+import org.graylog2.shared.utilities.JsonPathEvaluator;
 import org.graylog2.system.urlwhitelist.UrlNotWhitelistedException;
 import org.graylog2.system.urlwhitelist.UrlWhitelistNotificationService;
 import org.graylog2.system.urlwhitelist.UrlWhitelistService;
@@ -78,6 +78,9 @@ public class HTTPJSONPathDataAdapter extends LookupDataAdapter {
     private static final Logger LOG = LoggerFactory.getLogger(HTTPJSONPathDataAdapter.class);
     public static final String NAME = "httpjsonpath";
 
+    private static final int SINGLE_VALUE_PATH = 0;
+    private static final int MULTI_VALUE_PATH = 1;
+
     private final Config config;
     private final Engine templateEngine;
     private final OkHttpClient httpClient;
@@ -91,6 +94,7 @@ public class HTTPJSONPathDataAdapter extends LookupDataAdapter {
 
     private JsonPath singleJsonPath = null;
     private JsonPath multiJsonPath = null;
+    private JsonPathEvaluator jsonPathEvaluator = null;
     private Headers headers;
 
     @Inject
@@ -130,6 +134,7 @@ public class HTTPJSONPathDataAdapter extends LookupDataAdapter {
         if (config.multiValueJSONPath().isPresent() && !isNullOrEmpty(config.multiValueJSONPath().get())) {
             this.multiJsonPath = JsonPath.compile(config.multiValueJSONPath().get());
         }
+        this.jsonPathEvaluator = compileEvaluator(singleJsonPath, multiJsonPath);
 
         final Headers.Builder headersBuilder = new Headers.Builder()
                 .add(HttpHeaders.USER_AGENT, config.userAgent())
@@ -198,7 +203,7 @@ public class HTTPJSONPathDataAdapter extends LookupDataAdapter {
                 return getErrorResult();
             }
 
-            final LookupResult result = parseBody(singleJsonPath, multiJsonPath, response.body().byteStream());
+            final LookupResult result = parseBody(jsonPathEvaluator, multiJsonPath != null, response.body().byteStream());
             if (result == null) {
                 return getErrorResult();
             }
@@ -222,14 +227,25 @@ public class HTTPJSONPathDataAdapter extends LookupDataAdapter {
 
     @VisibleForTesting
     static LookupResult parseBody(JsonPath singleJsonPath, @Nullable JsonPath multiJsonPath, InputStream body) {
+        return parseBody(compileEvaluator(singleJsonPath, multiJsonPath), multiJsonPath != null, body);
+    }
+
+    // Both paths are evaluated in a single pass over the response body
+    private static JsonPathEvaluator compileEvaluator(JsonPath singleJsonPath, @Nullable JsonPath multiJsonPath) {
+        return multiJsonPath == null
+                ? JsonPathEvaluator.compile(singleJsonPath)
+                : JsonPathEvaluator.compile(singleJsonPath, multiJsonPath);
+    }
+
+    private static LookupResult parseBody(JsonPathEvaluator evaluator, boolean hasMultiValue, InputStream body) {
         try {
-            final DocumentContext documentContext = JsonPath.parse(body);
+            final JsonPathEvaluator.Result document = evaluator.evaluate(body.readAllBytes());
 
             LookupResult.Builder builder = LookupResult.builder().cacheTTL(Long.MAX_VALUE);
 
-            if (multiJsonPath != null) {
+            if (hasMultiValue) {
                 try {
-                    final Object multiValue = documentContext.read(multiJsonPath);
+                    final Object multiValue = document.read(MULTI_VALUE_PATH);
 
                     if (multiValue instanceof Map) {
                         //noinspection unchecked
@@ -250,7 +266,7 @@ public class HTTPJSONPathDataAdapter extends LookupDataAdapter {
             }
 
             try {
-                final Object singleValue = documentContext.read(singleJsonPath);
+                final Object singleValue = document.read(SINGLE_VALUE_PATH);
 
                 if (singleValue instanceof CharSequence) {
                     return builder.single((CharSequence) singleValue).build();
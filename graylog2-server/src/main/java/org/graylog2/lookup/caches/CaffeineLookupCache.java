@@ -43,7 +43,6 @@ import org.graylog2.plugin.lookup.LookupResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Locale;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
@@ -155,44 +154,14 @@ public class CaffeineLookupCache extends LookupCache {
 
     @Override
     public LookupResult get(LookupCacheKey key, Callable<LookupResult> loader) {
-        final Function<LookupCacheKey, LookupResult> mapFunction = unused -> {
-            try {
-                final LookupResult result = loader.call();
-                if (result.hasError()) {
-                    // Bubble up errors unaltered
-                    return result;
-                }
-                if (isResultEmpty(result)) {
-                    if (Boolean.TRUE.equals(config.ignoreNull())) {
-                        LOG.trace("Ignoring empty lookup for key {}", key);
-                        return LookupResult.builder()
-                                .cacheTTL(0L)
-                                .build();
-                    } else {
-                        LOG.trace("Empty lookup for key {} with TTL {}", key, ttlEmptyMillis());
-                        return LookupResult.builder()
-                                .cacheTTL(ttlEmptyMillis())
-                                .build();
-                    }
-                }
-                return result;
-            } catch (Exception e) {
-                LOG.warn("Loading value from data adapter failed for key {}, returning empty result", key, e);
-                return LookupResult.withError(
-                        String.format(Locale.ENGLISH, "Loading value from data adapter failed for key <%s>: %s", key.toString(), e.getMessage()));
-            }
-        };
+        final Function<LookupCacheKey, LookupResult> mapFunction = unused ->
+                LookupResultLoader.load(key, loader, Boolean.TRUE.equals(config.ignoreNull()), ttlEmptyMillis());
 
         try (final Timer.Context ignored = lookupTimer()) {
             return cache.get(key, mapFunction);
         }
     }
 
-    private boolean isResultEmpty(LookupResult result) {
-        return (result == null ||
-                (result.singleValue() == null && result.multiValue() == null && result.stringListValue() == null));
-    }
-
     private long ttlEmptyMillis() {
         if (config.ttlEmpty() != null && config.ttlEmptyUnit() != null) {
             return config.ttlEmptyUnit().toMillis(config.ttlEmpty());
@@ -331,7 +300,7 @@ public class CaffeineLookupCache extends LookupCache {
         }
     }
 
-    private static class MetricStatsCounter implements StatsCounter {
+    static class MetricStatsCounter implements StatsCounter {
         private final LookupCache cache;
 
         MetricStatsCounter(LookupCache cache) {
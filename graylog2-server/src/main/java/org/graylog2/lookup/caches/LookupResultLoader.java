@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.caches;
+
+import org.graylog2.plugin.lookup.LookupCacheKey;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * Loads lookup results from a data adapter on cache misses and applies the "ignore null" and "TTL empty" settings
+ * of the cache to empty results.
+ */
+final class LookupResultLoader {
+    private static final Logger LOG = LoggerFactory.getLogger(LookupResultLoader.class);
+
+    private LookupResultLoader() {
+    }
+
+    static LookupResult load(LookupCacheKey key, Callable<LookupResult> loader, boolean ignoreNull, long ttlEmptyMillis) {
+        try {
+            final LookupResult result = loader.call();
+            if (result != null && result.hasError()) {
+                // Bubble up errors unaltered
+                return result;
+            }
+            if (isResultEmpty(result)) {
+                if (ignoreNull) {
+                    LOG.trace("Ignoring empty lookup for key {}", key);
+                    return LookupResult.builder()
+                            .cacheTTL(0L)
+                            .build();
+                } else {
+                    LOG.trace("Empty lookup for key {} with TTL {}", key, ttlEmptyMillis);
+                    return LookupResult.builder()
+                            .cacheTTL(ttlEmptyMillis)
+                            .build();
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            LOG.warn("Loading value from data adapter failed for key {}, returning empty result", key, e);
+            return LookupResult.withError(
+                    String.format(Locale.ENGLISH, "Loading value from data adapter failed for key <%s>: %s", key.toString(), e.getMessage()));
+        }
+    }
+
+    private static boolean isResultEmpty(LookupResult result) {
+        return (result == null ||
+                (result.singleValue() == null && result.multiValue() == null && result.stringListValue() == null));
+    }
+}
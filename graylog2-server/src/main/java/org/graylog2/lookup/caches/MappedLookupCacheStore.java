@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.caches;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A fixed-size, memory-mapped hash table which stores serialized cache entries in a file.
+ * <p>
+ * The file consists of a small header followed by a fixed number of slots of {@code slotSize} bytes each. Slots are
+ * grouped in buckets of {@link #SLOTS_PER_BUCKET}; a key can only be stored in the bucket selected by its hash. If a
+ * bucket is full, the entry expiring first is replaced. Entries which don't fit into a slot are not stored.
+ * <p>
+ * Slot layout:
+ * <pre>
+ *  0: int  total length of key and value bytes (0 marks an empty slot)
+ *  4: long hash of the key bytes
+ * 12: long hash of the key prefix, used to purge all keys of a data adapter
+ * 20: long expiration timestamp in milliseconds since the epoch
+ * 28: int  length of the key bytes
+ * 32: key bytes followed by value bytes
+ * </pre>
+ * The store only deals with opaque byte arrays, (de)serialization of keys and values is up to the caller.
+ */
+class MappedLookupCacheStore implements Closeable {
+    static final int SLOTS_PER_BUCKET = 4;
+    static final int SLOT_HEADER_SIZE = 32;
+
+    private static final int MAGIC = 0x474c4c43; // "GLLC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int LOCK_STRIPES = 64;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int bucketCount;
+    private final int slotSize;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    MappedLookupCacheStore(Path file, int maxEntries, int slotSize) throws IOException {
+        if (slotSize <= SLOT_HEADER_SIZE) {
+            throw new IllegalArgumentException("Slot size must be larger than " + SLOT_HEADER_SIZE + " bytes");
+        }
+        this.bucketCount = Math.max(1, (maxEntries + SLOTS_PER_BUCKET - 1) / SLOTS_PER_BUCKET);
+        this.slotSize = slotSize;
+        final long fileSize = HEADER_SIZE + (long) bucketCount * SLOTS_PER_BUCKET * slotSize;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cache file for " + maxEntries + " entries of " + slotSize + " bytes exceeds 2 GiB");
+        }
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final boolean compatible = channel.size() == fileSize && hasCompatibleHeader(channel);
+        if (!compatible) {
+            // Layout changed or the file is new/corrupt, start over with an empty store
+            channel.truncate(0);
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        if (!compatible) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, bucketCount);
+            buffer.putInt(12, slotSize);
+        }
+    }
+
+    private boolean hasCompatibleHeader(FileChannel channel) throws IOException {
+        final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 16);
+        return header.getInt(0) == MAGIC
+                && header.getInt(4) == VERSION
+                && header.getInt(8) == bucketCount
+                && header.getInt(12) == slotSize;
+    }
+
+    static long hash(byte[] bytes) {
+        return HASH_FUNCTION.hashBytes(bytes).asLong();
+    }
+
+    static long hash(String string) {
+        return HASH_FUNCTION.hashString(string, StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * Returns the value stored for the given key together with its expiration timestamp.
+     *
+     * @param key the serialized key
+     * @param now the current time in milliseconds since the epoch
+     * @return the entry or {@code null} if there is no unexpired entry for the key
+     */
+    @Nullable
+    Entry get(byte[] key, long now) {
+        final long keyHash = hash(key);
+        final int bucket = bucket(keyHash);
+        synchronized (lock(bucket)) {
+            final int offset = find(bucket, keyHash, key);
+            if (offset < 0) {
+                return null;
+            }
+            final long expiresAt = buffer.getLong(offset + 20);
+            if (expiresAt <= now) {
+                buffer.putInt(offset, 0);
+                return null;
+            }
+            final int length = buffer.getInt(offset);
+            if (length < key.length || SLOT_HEADER_SIZE + length > slotSize) {
+                // Corrupt slot, e.g. after a crash while the file was being written
+                buffer.putInt(offset, 0);
+                return null;
+            }
+            final byte[] value = new byte[length - key.length];
+            buffer.get(offset + SLOT_HEADER_SIZE + key.length, value);
+            return new Entry(value, expiresAt);
+        }
+    }
+
+    /**
+     * Stores the value for the given key.
+     *
+     * @return {@code false} if the entry is too large to be stored
+     */
+    boolean put(byte[] key, long prefixHash, byte[] value, long expiresAt, long now) {
+        final int length = key.length + value.length;
+        if (SLOT_HEADER_SIZE + length > slotSize) {
+            return false;
+        }
+        final long keyHash = hash(key);
+        final int bucket = bucket(keyHash);
+        synchronized (lock(bucket)) {
+            int offset = find(bucket, keyHash, key);
+            if (offset < 0) {
+                offset = victim(bucket, now);
+            }
+            // Mark the slot as empty while it's being rewritten
+            buffer.putInt(offset, 0);
+            buffer.putLong(offset + 4, keyHash);
+            buffer.putLong(offset + 12, prefixHash);
+            buffer.putLong(offset + 20, expiresAt);
+            buffer.putInt(offset + 28, key.length);
+            buffer.put(offset + SLOT_HEADER_SIZE, key);
+            buffer.put(offset + SLOT_HEADER_SIZE + key.length, value);
+            buffer.putInt(offset, length);
+        }
+        return true;
+    }
+
+    void remove(byte[] key) {
+        final long keyHash = hash(key);
+        final int bucket = bucket(keyHash);
+        synchronized (lock(bucket)) {
+            final int offset = find(bucket, keyHash, key);
+            if (offset >= 0) {
+                buffer.putInt(offset, 0);
+            }
+        }
+    }
+
+    void removeByPrefix(long prefixHash) {
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            synchronized (lock(bucket)) {
+                for (int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+                    final int offset = offset(bucket, slot);
+                    if (buffer.getInt(offset) != 0 && buffer.getLong(offset + 12) == prefixHash) {
+                        buffer.putInt(offset, 0);
+                    }
+                }
+            }
+        }
+    }
+
+    void clear() {
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            synchronized (lock(bucket)) {
+                for (int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+                    buffer.putInt(offset(bucket, slot), 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the occupied slots. This scans the slot headers of the whole file and shouldn't be called on hot paths.
+     */
+    long size() {
+        long size = 0;
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            for (int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+                if (buffer.getInt(offset(bucket, slot)) != 0) {
+                    size++;
+                }
+            }
+        }
+        return size;
+    }
+
+    private int find(int bucket, long keyHash, byte[] key) {
+        for (int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+            final int offset = offset(bucket, slot);
+            if (buffer.getInt(offset) != 0
+                    && buffer.getLong(offset + 4) == keyHash
+                    && buffer.getInt(offset + 28) == key.length
+                    && keyEquals(offset, key)) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int offset, byte[] key) {
+        final byte[] stored = new byte[key.length];
+        buffer.get(offset + SLOT_HEADER_SIZE, stored);
+        return Arrays.equals(stored, key);
+    }
+
+    private int victim(int bucket, long now) {
+        int victim = offset(bucket, 0);
+        long earliestExpiration = Long.MAX_VALUE;
+        for (int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+            final int offset = offset(bucket, slot);
+            if (buffer.getInt(offset) == 0) {
+                return offset;
+            }
+            final long expiresAt = buffer.getLong(offset + 20);
+            if (expiresAt <= now) {
+                return offset;
+            }
+            if (expiresAt < earliestExpiration) {
+                earliestExpiration = expiresAt;
+                victim = offset;
+            }
+        }
+        return victim;
+    }
+
+    private int bucket(long keyHash) {
+        return (int) Long.remainderUnsigned(keyHash, bucketCount);
+    }
+
+    private int offset(int bucket, int slot) {
+        return HEADER_SIZE + (bucket * SLOTS_PER_BUCKET + slot) * slotSize;
+    }
+
+    private Object lock(int bucket) {
+        return locks[bucket % LOCK_STRIPES];
+    }
+
+    void flush() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    static final class Entry {
+        private final byte[] value;
+        private final long expiresAt;
+
+        Entry(byte[] value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        byte[] value() {
+            return value;
+        }
+
+        long expiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.caches;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.auto.value.AutoValue;
+import com.google.common.hash.Hashing;
+import com.google.inject.assistedinject.Assisted;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.validation.constraints.Min;
+import org.graylog.autovalue.WithBeanGetter;
+import org.graylog2.plugin.lookup.LookupCache;
+import org.graylog2.plugin.lookup.LookupCacheConfiguration;
+import org.graylog2.plugin.lookup.LookupCacheKey;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.graylog2.shared.metrics.MetricUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Two-tier lookup cache with an on-heap L1 cache and a memory-mapped L2 cache file in the data directory.
+ * <p>
+ * The L2 tier survives server restarts, so data adapters with slow or rate-limited backends don't have to re-fetch
+ * every key after a restart. Results are written to both tiers after they have been loaded from the data adapter
+ * and L1 misses are served from L2 if possible. Entries expire from the L2 tier based on the result TTL or the
+ * "expire after write" setting, the "expire after access" setting only applies to the L1 tier.
+ * <p>
+ * Cache files are removed when the cache is reconfigured or deleted.
+ */
+public class PersistentLookupCache extends LookupCache {
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentLookupCache.class);
+
+    public static final String NAME = "persistent_cache";
+    public static final String MAX_SIZE = "max_size";
+    public static final String EXPIRE_AFTER_ACCESS = "expire_after_access";
+    public static final String EXPIRE_AFTER_ACCESS_UNIT = "expire_after_access_unit";
+    public static final String EXPIRE_AFTER_WRITE = "expire_after_write";
+    public static final String EXPIRE_AFTER_WRITE_UNIT = "expire_after_write_unit";
+    public static final String IGNORE_NULL = "ignore_null";
+    public static final String TTL_EMPTY = "ttl_empty";
+    public static final String TTL_EMPTY_UNIT = "ttl_empty_unit";
+    public static final String DISK_MAX_SIZE = "disk_max_size";
+    public static final String DISK_MAX_ENTRY_SIZE = "disk_max_entry_size";
+
+    static final String CACHE_DIRECTORY = "lookup-caches";
+
+    private final Config config;
+    private final Path dataDir;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final Cache<LookupCacheKey, LookupResult> cache;
+    private final Meter diskHitCount;
+    private final Meter diskMissCount;
+    private final Meter diskWriteCount;
+    private final Timer diskLookupTimer;
+
+    private volatile MappedLookupCacheStore store;
+
+    @Inject
+    public PersistentLookupCache(@Assisted("id") String id,
+                                 @Assisted("name") String name,
+                                 @Assisted LookupCacheConfiguration c,
+                                 MetricRegistry metricRegistry,
+                                 ObjectMapper objectMapper,
+                                 @Named("data_dir") Path dataDir) {
+        this(id, name, c, metricRegistry, objectMapper, dataDir, Clock.systemUTC());
+    }
+
+    PersistentLookupCache(String id,
+                          String name,
+                          LookupCacheConfiguration c,
+                          MetricRegistry metricRegistry,
+                          ObjectMapper objectMapper,
+                          Path dataDir,
+                          Clock clock) {
+        super(id, name, c, metricRegistry);
+        this.config = (Config) c;
+        this.dataDir = dataDir;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .recordStats(() -> new CaffeineLookupCache.MetricStatsCounter(this))
+                .maximumSize(config.maxSize())
+                .expireAfter(buildExpiry())
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .build();
+
+        final String metricPrefix = MetricRegistry.name("org.graylog2.lookup.caches", id, "disk");
+        this.diskHitCount = metricRegistry.meter(MetricRegistry.name(metricPrefix, "hits"));
+        this.diskMissCount = metricRegistry.meter(MetricRegistry.name(metricPrefix, "misses"));
+        this.diskWriteCount = metricRegistry.meter(MetricRegistry.name(metricPrefix, "writes"));
+        this.diskLookupTimer = metricRegistry.timer(MetricRegistry.name(metricPrefix, "lookupTime"));
+        final Gauge<Long> diskEntriesGauge = this::diskEntryCount;
+        MetricUtils.reRegister(metricRegistry, MetricRegistry.name(metricPrefix, "entries"), diskEntriesGauge);
+    }
+
+    private Expiry<LookupCacheKey, LookupResult> buildExpiry() {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(@Nonnull LookupCacheKey lookupCacheKey, @Nonnull LookupResult lookupResult, long currentTime) {
+                if (lookupResult.hasTTL()) {
+                    return TimeUnit.MILLISECONDS.toNanos(lookupResult.cacheTTL());
+                }
+                return expireAfterWriteMillis() == Long.MAX_VALUE ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(expireAfterWriteMillis());
+            }
+
+            @Override
+            public long expireAfterUpdate(@Nonnull LookupCacheKey lookupCacheKey, @Nonnull LookupResult lookupResult, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+
+            @Override
+            public long expireAfterRead(@Nonnull LookupCacheKey lookupCacheKey, @Nonnull LookupResult lookupResult, long currentTime, long currentDuration) {
+                if (config.ttlEmpty() != null && !Boolean.TRUE.equals(config.ignoreNull()) && lookupResult.isEmpty()) {
+                    return currentDuration;
+                }
+                if (config.expireAfterAccess() > 0 && config.expireAfterAccessUnit() != null) {
+                    //noinspection ConstantConditions
+                    return config.expireAfterAccessUnit().toNanos(config.expireAfterAccess());
+                }
+                return currentDuration;
+            }
+        };
+    }
+
+    @Override
+    public long entryCount() {
+        return cache.estimatedSize();
+    }
+
+    public long diskEntryCount() {
+        final MappedLookupCacheStore currentStore = store;
+        return currentStore == null ? 0L : currentStore.size();
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        final Path file = cacheDirectory().resolve(cacheFileName());
+        store = new MappedLookupCacheStore(file, config.diskMaxSize(), config.diskMaxEntrySize());
+        LOG.debug("Opened persistent cache file {} for cache <{}>", file, name());
+        // Files of previous configurations of this cache are not used anymore
+        deleteCacheFiles(path -> !path.equals(file));
+    }
+
+    /**
+     * Deletes the cache files of this cache. This has to be called after the cache has been stopped for good, e.g.
+     * because it has been deleted.
+     */
+    public void deleteCacheFiles() {
+        deleteCacheFiles(path -> true);
+    }
+
+    private void deleteCacheFiles(Predicate<Path> filter) {
+        final Path directory = cacheDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory, id() + ".*cache")) {
+            for (final Path file : files) {
+                if (filter.test(file)) {
+                    LOG.debug("Deleting unused persistent cache file {} of cache <{}>", file, name());
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Couldn't delete unused persistent cache files of cache <{}>", name(), e);
+        }
+    }
+
+    private Path cacheDirectory() {
+        return dataDir.resolve(CACHE_DIRECTORY);
+    }
+
+    /**
+     * The file name contains a fingerprint of the cache configuration, so a reconfigured cache starts with a new file
+     * while the previous instance may still be using the old one.
+     */
+    private String cacheFileName() throws IOException {
+        final String fingerprint = Hashing.murmur3_32_fixed().hashBytes(objectMapper.writeValueAsBytes(config)).toString();
+        return id() + "." + fingerprint + ".cache";
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        final MappedLookupCacheStore currentStore = store;
+        store = null;
+        if (currentStore != null) {
+            currentStore.close();
+        }
+    }
+
+    @Override
+    public LookupResult get(LookupCacheKey key, Callable<LookupResult> loader) {
+        final Function<LookupCacheKey, LookupResult> mapFunction = unused -> {
+            final LookupResult persisted = getFromDisk(key);
+            if (persisted != null) {
+                return persisted;
+            }
+            final LookupResult result = LookupResultLoader.load(key, loader, Boolean.TRUE.equals(config.ignoreNull()), ttlEmptyMillis());
+            putToDisk(key, result);
+            return result;
+        };
+
+        try (final Timer.Context ignored = lookupTimer()) {
+            return cache.get(key, mapFunction);
+        }
+    }
+
+    @Nullable
+    private LookupResult getFromDisk(LookupCacheKey key) {
+        final MappedLookupCacheStore currentStore = store;
+        if (currentStore == null) {
+            return null;
+        }
+        try (final Timer.Context ignored = diskLookupTimer.time()) {
+            final long now = clock.millis();
+            final MappedLookupCacheStore.Entry entry = currentStore.get(serializeKey(key), now);
+            if (entry == null) {
+                diskMissCount.mark();
+                return null;
+            }
+            diskHitCount.mark();
+            final LookupResult result = objectMapper.readValue(entry.value(), LookupResult.class);
+            // Keep the remaining lifetime instead of restarting it in the L1 tier
+            final long ttl = entry.expiresAt() == Long.MAX_VALUE ? Long.MAX_VALUE : entry.expiresAt() - now;
+            return LookupResult.createFromJSON(result.singleValue(), result.multiValue(), result.stringListValue(), false, ttl);
+        } catch (IOException e) {
+            LOG.warn("Couldn't read persisted lookup result for key {}", key, e);
+            diskMissCount.mark();
+            return null;
+        }
+    }
+
+    private void putToDisk(LookupCacheKey key, LookupResult result) {
+        final MappedLookupCacheStore currentStore = store;
+        if (currentStore == null || result.hasError() || result.cacheTTL() <= 0) {
+            return;
+        }
+        final long now = clock.millis();
+        final long ttl = result.hasTTL() ? result.cacheTTL() : expireAfterWriteMillis();
+        final long expiresAt = ttl == Long.MAX_VALUE ? Long.MAX_VALUE : now + ttl;
+        try {
+            if (currentStore.put(serializeKey(key), MappedLookupCacheStore.hash(key.prefix()),
+                    objectMapper.writeValueAsBytes(result), expiresAt, now)) {
+                diskWriteCount.mark();
+            } else {
+                LOG.trace("Lookup result for key {} exceeds the maximum entry size, not persisting it", key);
+            }
+        } catch (IOException e) {
+            LOG.warn("Couldn't persist lookup result for key {}", key, e);
+        }
+    }
+
+    private byte[] serializeKey(LookupCacheKey key) throws IOException {
+        // Keys of different types can have the same JSON representation, e.g. the Integer 1 and the Long 1
+        final String keyType = key.key() == null ? null : key.key().getClass().getName();
+        return objectMapper.writeValueAsBytes(new PersistedKey(key.prefix(), keyType, key.key()));
+    }
+
+    private record PersistedKey(String prefix, @Nullable String type, @Nullable Object key) {
+    }
+
+    private long expireAfterWriteMillis() {
+        if (config.expireAfterWrite() > 0 && config.expireAfterWriteUnit() != null) {
+            //noinspection ConstantConditions
+            return config.expireAfterWriteUnit().toMillis(config.expireAfterWrite());
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private long ttlEmptyMillis() {
+        if (config.ttlEmpty() != null && config.ttlEmptyUnit() != null) {
+            return config.ttlEmptyUnit().toMillis(config.ttlEmpty());
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public LookupResult getIfPresent(LookupCacheKey key) {
+        final LookupResult cacheEntry = cache.getIfPresent(key);
+        if (cacheEntry != null) {
+            return cacheEntry;
+        }
+        final LookupResult persisted = getFromDisk(key);
+        return persisted == null ? LookupResult.empty() : persisted;
+    }
+
+    @Override
+    public void purge() {
+        cache.invalidateAll();
+        final MappedLookupCacheStore currentStore = store;
+        if (currentStore != null) {
+            currentStore.clear();
+        }
+    }
+
+    @Override
+    public void purge(LookupCacheKey purgeKey) {
+        final MappedLookupCacheStore currentStore = store;
+        if (purgeKey.isPrefixOnly()) {
+            // If the key to purge only contains a prefix, invalidate all keys with that prefix
+            cache.invalidateAll(
+                    cache.asMap().keySet().stream()
+                            .filter(lookupCacheKey -> purgeKey.prefix().equals(lookupCacheKey.prefix()))
+                            .collect(Collectors.toSet())
+            );
+            if (currentStore != null) {
+                currentStore.removeByPrefix(MappedLookupCacheStore.hash(purgeKey.prefix()));
+            }
+        } else {
+            cache.invalidate(purgeKey);
+            if (currentStore != null) {
+                try {
+                    currentStore.remove(serializeKey(purgeKey));
+                } catch (IOException e) {
+                    LOG.warn("Couldn't purge persisted lookup result for key {}", purgeKey, e);
+                }
+            }
+        }
+    }
+
+    public interface Factory extends LookupCache.Factory {
+        @Override
+        PersistentLookupCache create(@Assisted("id") String id, @Assisted("name") String name, LookupCacheConfiguration configuration);
+
+        @Override
+        Descriptor getDescriptor();
+    }
+
+    public static class Descriptor extends LookupCache.Descriptor<PersistentLookupCache.Config> {
+        public Descriptor() {
+            super(NAME, PersistentLookupCache.Config.class);
+        }
+
+        @Override
+        public Config defaultConfiguration() {
+            return Config.builder()
+                    .type(NAME)
+                    .maxSize(1000)
+                    .expireAfterAccess(60)
+                    .expireAfterAccessUnit(TimeUnit.SECONDS)
+                    .expireAfterWrite(1)
+                    .expireAfterWriteUnit(TimeUnit.DAYS)
+                    .ignoreNull(false)
+                    .diskMaxSize(100_000)
+                    .diskMaxEntrySize(1024)
+                    .build();
+        }
+    }
+
+    @JsonAutoDetect
+    @AutoValue
+    @WithBeanGetter
+    @JsonDeserialize(builder = AutoValue_PersistentLookupCache_Config.Builder.class)
+    @JsonTypeName(NAME)
+    public abstract static class Config implements LookupCacheConfiguration {
+
+        @Min(0)
+        @JsonProperty(MAX_SIZE)
+        public abstract int maxSize();
+
+        @Min(0)
+        @JsonProperty(EXPIRE_AFTER_ACCESS)
+        public abstract long expireAfterAccess();
+
+        @Nullable
+        @JsonProperty(EXPIRE_AFTER_ACCESS_UNIT)
+        public abstract TimeUnit expireAfterAccessUnit();
+
+        @Min(0)
+        @JsonProperty(EXPIRE_AFTER_WRITE)
+        public abstract long expireAfterWrite();
+
+        @Nullable
+        @JsonProperty(EXPIRE_AFTER_WRITE_UNIT)
+        public abstract TimeUnit expireAfterWriteUnit();
+
+        @Nullable
+        @JsonProperty(IGNORE_NULL)
+        public abstract Boolean ignoreNull();
+
+        @Min(0)
+        @Nullable
+        @JsonProperty(TTL_EMPTY)
+        public abstract Long ttlEmpty();
+
+        @Nullable
+        @JsonProperty(TTL_EMPTY_UNIT)
+        public abstract TimeUnit ttlEmptyUnit();
+
+        @Min(1)
+        @JsonProperty(DISK_MAX_SIZE)
+        public abstract int diskMaxSize();
+
+        @Min(MappedLookupCacheStore.SLOT_HEADER_SIZE + 1)
+        @JsonProperty(DISK_MAX_ENTRY_SIZE)
+        public abstract int diskMaxEntrySize();
+
+        public static Builder builder() {
+            return new AutoValue_PersistentLookupCache_Config.Builder();
+        }
+
+        @AutoValue.Builder
+        public abstract static class Builder {
+            @JsonProperty("type")
+            public abstract Builder type(String type);
+
+            @JsonProperty(MAX_SIZE)
+            public abstract Builder maxSize(int maxSize);
+
+            @JsonProperty(EXPIRE_AFTER_ACCESS)
+            public abstract Builder expireAfterAccess(long expireAfterAccess);
+
+            @JsonProperty(EXPIRE_AFTER_ACCESS_UNIT)
+            public abstract Builder expireAfterAccessUnit(@Nullable TimeUnit expireAfterAccessUnit);
+
+            @JsonProperty(EXPIRE_AFTER_WRITE)
+            public abstract Builder expireAfterWrite(long expireAfterWrite);
+
+            @JsonProperty(EXPIRE_AFTER_WRITE_UNIT)
+            public abstract Builder expireAfterWriteUnit(@Nullable TimeUnit expireAfterWriteUnit);
+
+            @JsonProperty(IGNORE_NULL)
+            public abstract Builder ignoreNull(@Nullable Boolean ignoreNull);
+
+            @JsonProperty(TTL_EMPTY)
+            public abstract Builder ttlEmpty(@Nullable Long ttlEmpty);
+
+            @JsonProperty(TTL_EMPTY_UNIT)
+            public abstract Builder ttlEmptyUnit(@Nullable TimeUnit ttlEmptyUnit);
+
+            @JsonProperty(DISK_MAX_SIZE)
+            public abstract Builder diskMaxSize(int diskMaxSize);
+
+            @JsonProperty(DISK_MAX_ENTRY_SIZE)
+            public abstract Builder diskMaxEntrySize(int diskMaxEntrySize);
+
+            public abstract Config build();
+        }
+    }
+}
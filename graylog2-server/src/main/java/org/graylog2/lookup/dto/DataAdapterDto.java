@@ -35,6 +35,10 @@ public abstract class DataAdapterDto extends ScopedEntity {
     public static final String FIELD_CUSTOM_ERROR_TTL = "custom_error_ttl";
     public static final String FIELD_CUSTOM_ERROR_TTL_ENABLED = "custom_error_ttl_enabled";
     public static final String FIELD_CUSTOM_ERROR_TTL_UNIT = "custom_error_ttl_unit";
+    public static final String FIELD_MAX_CONCURRENT_REQUESTS = "max_concurrent_requests";
+    public static final String FIELD_CIRCUIT_BREAKER_FAILURE_THRESHOLD = "circuit_breaker_failure_threshold";
+    public static final String FIELD_CIRCUIT_BREAKER_OPEN_DURATION = "circuit_breaker_open_duration";
+    public static final String FIELD_CIRCUIT_BREAKER_OPEN_DURATION_UNIT = "circuit_breaker_open_duration_unit";
 
     @JsonProperty(FIELD_TITLE)
     public abstract String title();
@@ -57,6 +61,22 @@ public abstract class DataAdapterDto extends ScopedEntity {
     @JsonProperty(FIELD_CUSTOM_ERROR_TTL_UNIT)
     public abstract TimeUnit customErrorTTLUnit();
 
+    @Nullable
+    @JsonProperty(FIELD_MAX_CONCURRENT_REQUESTS)
+    public abstract Integer maxConcurrentRequests();
+
+    @Nullable
+    @JsonProperty(FIELD_CIRCUIT_BREAKER_FAILURE_THRESHOLD)
+    public abstract Integer circuitBreakerFailureThreshold();
+
+    @Nullable
+    @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION)
+    public abstract Long circuitBreakerOpenDuration();
+
+    @Nullable
+    @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION_UNIT)
+    public abstract TimeUnit circuitBreakerOpenDurationUnit();
+
     @JsonProperty("content_pack")
     @Nullable
     public abstract String contentPack();
@@ -96,6 +116,18 @@ public abstract class DataAdapterDto extends ScopedEntity {
         @JsonProperty(FIELD_CUSTOM_ERROR_TTL_UNIT)
         public abstract Builder customErrorTTLUnit(@Nullable TimeUnit unit);
 
+        @JsonProperty(FIELD_MAX_CONCURRENT_REQUESTS)
+        public abstract Builder maxConcurrentRequests(@Nullable Integer maxConcurrentRequests);
+
+        @JsonProperty(FIELD_CIRCUIT_BREAKER_FAILURE_THRESHOLD)
+        public abstract Builder circuitBreakerFailureThreshold(@Nullable Integer failureThreshold);
+
+        @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION)
+        public abstract Builder circuitBreakerOpenDuration(@Nullable Long openDuration);
+
+        @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION_UNIT)
+        public abstract Builder circuitBreakerOpenDurationUnit(@Nullable TimeUnit unit);
+
         @JsonProperty("content_pack")
         public abstract Builder contentPack(@Nullable String contentPack);
 
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.periodical;
+
+import jakarta.inject.Inject;
+import org.graylog2.plugin.periodical.Periodical;
+import org.graylog2.shared.journal.CodecConfigRegistry;
+import org.graylog2.shared.journal.Journal;
+import org.graylog2.shared.journal.LocalKafkaJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Removes the codec configurations of the journal which aren't used anymore. Journal entries only refer to the
+ * configurations registered since the start of the node once all entries from before the start have been removed
+ * from the journal.
+ */
+public class JournalCodecConfigCleanup extends Periodical {
+    private static final Logger LOG = LoggerFactory.getLogger(JournalCodecConfigCleanup.class);
+
+    private final LocalKafkaJournal journal;
+    private final CodecConfigRegistry codecConfigRegistry;
+
+    @Inject
+    public JournalCodecConfigCleanup(Journal journal, CodecConfigRegistry codecConfigRegistry) {
+        this.journal = journal instanceof LocalKafkaJournal localKafkaJournal ? localKafkaJournal : null;
+        this.codecConfigRegistry = codecConfigRegistry;
+    }
+
+    @Override
+    public void doRun() {
+        if (journal.containsEntriesFromPreviousRuns()) {
+            LOG.debug("Journal still contains entries from before the start, keeping codec configurations.");
+            return;
+        }
+        final int removed = codecConfigRegistry.removeUnused();
+        if (removed > 0) {
+            LOG.debug("Removed {} unused codec configurations of the journal.", removed);
+        }
+    }
+
+    @Override
+    public boolean runsForever() {
+        return false;
+    }
+
+    @Override
+    public boolean stopOnGracefulShutdown() {
+        return true;
+    }
+
+    @Override
+    public boolean leaderOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean startOnThisNode() {
+        // the configurations are only written if the journal is enabled
+        return journal != null;
+    }
+
+    @Override
+    public boolean isDaemon() {
+        return true;
+    }
+
+    @Override
+    public int getInitialDelaySeconds() {
+        return 60;
+    }
+
+    @Override
+    public int getPeriodSeconds() {
+        return 10 * 60;
+    }
+
+    @Override
+    @Nonnull
+    protected Logger getLogger() {
+        return LOG;
+    }
+}
@@ -18,6 +18,40 @@ package org.graylog2.plugin.buffers;
 
 import org.graylog2.plugin.journal.RawMessage;
 
+import java.util.List;
+
 public interface InputBuffer extends EventBuffer {
     void insert(RawMessage message);
+
+    /**
+     * Inserts a batch of messages at once.
+     */
+    default void insert(List<RawMessage> messages) {
+        messages.forEach(this::insert);
+    }
+
+    /**
+     * Inserts a batch of messages and notifies the given callback once all of them have been written to the journal,
+     * or handed to the process buffer if the journal is disabled, or once writing them failed.
+     */
+    default void insert(List<RawMessage> messages, BatchCallback callback) {
+        messages.forEach(this::insert);
+        callback.written();
+    }
+
+    /**
+     * Notified about the outcome of a batch of messages, exactly one of the methods is called.
+     */
+    interface BatchCallback {
+        /**
+         * All messages of the batch have been written. Messages which could not be encoded for the journal are
+         * dropped and count as written, because they would fail again.
+         */
+        void written();
+
+        /**
+         * Writing the messages of the batch failed, they have to be read again.
+         */
+        void failed(Throwable cause);
+    }
 }
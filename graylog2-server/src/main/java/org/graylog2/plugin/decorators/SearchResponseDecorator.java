@@ -21,10 +21,22 @@ import org.graylog2.plugin.DescriptorWithHumanName;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
 import org.graylog2.rest.resources.search.responses.SearchResponse;
 
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 @FunctionalInterface
 public interface SearchResponseDecorator extends Function<SearchResponse, SearchResponse> {
+    /**
+     * Returns the message fields this decorator reads. Searches which only fetch some fields of their messages make
+     * sure these are fetched as well.
+     *
+     * @return the fields read by this decorator or an empty optional if it might read any field
+     */
+    default Optional<Set<String>> requiredFields() {
+        return Optional.empty();
+    }
+
     interface Factory {
         SearchResponseDecorator create(Decorator decorator);
         Config getConfig();
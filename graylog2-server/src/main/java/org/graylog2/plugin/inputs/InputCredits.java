@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.plugin.inputs;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Token bucket limiting the number of messages an input may read while the node is overloaded.
+ * <p>
+ * Every message processed by the input uses one credit. As long as the node keeps up with its message load, the
+ * credits are unlimited. Otherwise, the node grants credits to the input at a rate based on its share of the
+ * processing throughput. Transports are notified as soon as the input runs out of credits and as soon as enough
+ * credits have been granted again, so they can stop and resume reading.
+ */
+public class InputCredits {
+    private static final Logger LOG = LoggerFactory.getLogger(InputCredits.class);
+
+    // Resuming with a nearly empty bucket would pause the input again right away
+    private static final double RESUME_RATIO = 0.1;
+    private static final double MIN_BURST = 100;
+
+    private final String inputId;
+    private final int weight;
+    private final ScheduledExecutorService scheduler;
+    private final LongSupplier nanoClock;
+    private final MetricRegistry metricRegistry;
+    private final String metricPrefix;
+    private final Meter grantedCredits;
+    private final Meter usedCredits;
+    private final Meter droppedMessages;
+    private final Counter throttledTime;
+    private final AtomicLong usedSinceLastAllocation = new AtomicLong();
+    private final List<Consumer<Boolean>> listeners = new CopyOnWriteArrayList<>();
+    // Serializes the notifications, so listeners always end up with the current state
+    private final Object notificationLock = new Object();
+
+    private volatile boolean limited = false;
+    private volatile boolean throttled = false;
+    private volatile boolean closed = false;
+
+    // Guarded by this
+    private double credits;
+    private double capacity;
+    private double creditsPerNano;
+    private long lastRefill;
+    private double ungrantedFraction;
+    private long throttledSince;
+    private ScheduledFuture<?> resumeTask;
+
+    // Guarded by notificationLock
+    private boolean notifiedThrottled = false;
+
+    public InputCredits(String inputId,
+                        int weight,
+                        MetricRegistry metricRegistry,
+                        String metricPrefix,
+                        ScheduledExecutorService scheduler,
+                        LongSupplier nanoClock) {
+        this.inputId = inputId;
+        this.weight = weight;
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+        this.metricRegistry = metricRegistry;
+        this.metricPrefix = name(metricPrefix, "flowControl");
+        this.grantedCredits = metricRegistry.meter(name(this.metricPrefix, "grantedCredits"));
+        this.usedCredits = metricRegistry.meter(name(this.metricPrefix, "usedCredits"));
+        this.droppedMessages = metricRegistry.meter(name(this.metricPrefix, "droppedMessages"));
+        this.throttledTime = metricRegistry.counter(name(this.metricPrefix, "throttledTimeMs"));
+    }
+
+    public String getInputId() {
+        return inputId;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Whether the input ran out of credits and should stop reading messages.
+     */
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    /**
+     * Registers a listener, which is called with {@code true} when the input runs out of credits and with
+     * {@code false} when it may read messages again. Listeners are called one at a time and must not block.
+     */
+    public void addListener(Consumer<Boolean> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<Boolean> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Uses credits for messages which have been read by the input.
+     */
+    public void use(int count) {
+        usedCredits.mark(count);
+        usedSinceLastAllocation.addAndGet(count);
+        if (!limited) {
+            grantedCredits.mark(count);
+            return;
+        }
+        final boolean nowThrottled;
+        synchronized (this) {
+            if (!limited || closed) {
+                return;
+            }
+            refill();
+            // Messages which have already been read are never rejected, the input may go into debt instead
+            credits -= count;
+            nowThrottled = !throttled && credits < 1;
+            if (nowThrottled) {
+                throttled = true;
+                throttledSince = nanoClock.getAsLong();
+                scheduleResume();
+            }
+        }
+        if (nowThrottled) {
+            LOG.debug("Input <{}> ran out of credits, throttling it.", inputId);
+            notifyListeners();
+        }
+    }
+
+    /**
+     * Counts a message which has been dropped because the input ran out of credits and cannot stop reading.
+     */
+    public void dropped() {
+        droppedMessages.mark();
+    }
+
+    /**
+     * Returns the number of credits which have been used since the last call.
+     */
+    public long drainUsage() {
+        return usedSinceLastAllocation.getAndSet(0);
+    }
+
+    /**
+     * Limits the input to the given rate of credits.
+     */
+    public void limit(double creditsPerSecond) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (limited) {
+                refill();
+            } else {
+                lastRefill = nanoClock.getAsLong();
+            }
+            creditsPerNano = creditsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            capacity = Math.max(creditsPerSecond, MIN_BURST);
+            if (!limited) {
+                // Start with a full bucket, so inputs are not throttled as soon as the node is overloaded
+                credits = capacity;
+                limited = true;
+            }
+            credits = Math.min(credits, capacity);
+            if (throttled) {
+                scheduleResume();
+            }
+        }
+    }
+
+    /**
+     * Lifts the limit of the input.
+     */
+    public void unlimit() {
+        final boolean resumed;
+        synchronized (this) {
+            limited = false;
+            resumed = resume();
+        }
+        if (resumed) {
+            notifyListeners();
+        }
+    }
+
+    @VisibleForTesting
+    void tryResume() {
+        final boolean resumed;
+        synchronized (this) {
+            resumeTask = null;
+            if (!throttled || closed) {
+                return;
+            }
+            if (limited) {
+                refill();
+            }
+            if (!limited || credits >= resumeLevel()) {
+                resumed = resume();
+            } else {
+                scheduleResume();
+                resumed = false;
+            }
+        }
+        if (resumed) {
+            LOG.debug("Input <{}> has been granted credits again, resuming it.", inputId);
+            notifyListeners();
+        }
+    }
+
+    public void close() {
+        final boolean resumed;
+        synchronized (this) {
+            closed = true;
+            limited = false;
+            resumed = resume();
+        }
+        if (resumed) {
+            notifyListeners();
+        }
+        listeners.clear();
+        metricRegistry.removeMatching((metricName, metric) -> metricName.startsWith(metricPrefix + "."));
+    }
+
+    // Must be called while holding the lock
+    private boolean resume() {
+        if (resumeTask != null) {
+            resumeTask.cancel(false);
+            resumeTask = null;
+        }
+        if (!throttled) {
+            return false;
+        }
+        throttled = false;
+        throttledTime.inc(TimeUnit.NANOSECONDS.toMillis(nanoClock.getAsLong() - throttledSince));
+        return true;
+    }
+
+    // Must be called while holding the lock
+    private void refill() {
+        final long now = nanoClock.getAsLong();
+        final double granted = Math.min((now - lastRefill) * creditsPerNano, capacity - credits);
+        lastRefill = now;
+        if (granted > 0) {
+            credits += granted;
+            ungrantedFraction += granted;
+            final long whole = (long) ungrantedFraction;
+            if (whole > 0) {
+                grantedCredits.mark(whole);
+                ungrantedFraction -= whole;
+            }
+        }
+    }
+
+    // Must be called while holding the lock
+    private void scheduleResume() {
+        if (resumeTask != null) {
+            resumeTask.cancel(false);
+        }
+        final double missing = Math.max(resumeLevel() - credits, 1);
+        final long delay = creditsPerNano > 0 ? (long) Math.ceil(missing / creditsPerNano) : TimeUnit.SECONDS.toNanos(1);
+        resumeTask = scheduler.schedule(this::tryResume, Math.min(delay, TimeUnit.SECONDS.toNanos(1)), TimeUnit.NANOSECONDS);
+    }
+
+    private double resumeLevel() {
+        return Math.max(1, capacity * RESUME_RATIO);
+    }
+
+    /**
+     * Notifies the listeners about the current state, which might already have changed again since the caller
+     * changed it. Concurrent state changes are therefore never delivered out of order.
+     */
+    private void notifyListeners() {
+        synchronized (notificationLock) {
+            final boolean isThrottled = throttled;
+            if (isThrottled == notifiedThrottled) {
+                return;
+            }
+            notifiedThrottled = isThrottled;
+            for (Consumer<Boolean> listener : new ArrayList<>(listeners)) {
+                try {
+                    listener.accept(isThrottled);
+                } catch (Exception e) {
+                    LOG.error("Flow control listener of input <{}> failed.", inputId, e);
+                }
+                if (notifiedThrottled != isThrottled) {
+                    // A listener changed the state, all listeners have been notified about the new one already
+                    return;
+                }
+            }
+        }
+    }
+}
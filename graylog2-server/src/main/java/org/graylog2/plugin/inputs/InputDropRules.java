@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.plugin.inputs;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Bytes;
+import org.graylog2.plugin.ResolvableInetSocketAddress;
+import org.graylog2.plugin.journal.RawMessage;
+
+import javax.annotation.Nullable;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Rules which drop raw messages of an input before they are written to the journal, so messages which are not needed
+ * at all don't cost any journal I/O or processing.
+ * <p>
+ * Every line of the configuration is a rule, empty lines and lines starting with {@code #} are ignored:
+ * <pre>
+ * drop prefix "DEBUG"              # drops all messages starting with DEBUG
+ * drop contains "GET /health"      # drops all messages containing GET /health
+ * sample 10 contains "level=debug" # keeps 10 percent of the messages containing level=debug
+ * limit 1000 per source            # keeps up to 1000 messages per second from every source address
+ * </pre>
+ * Every rule can be restricted to messages starting with or containing a text, which is matched against the raw bytes
+ * of the message in UTF-8. Sampling is deterministic, the same message is always either kept or dropped. Rules are
+ * evaluated in order and a message is dropped by the first rule which drops it.
+ */
+public class InputDropRules {
+    public static final String CK_DROP_RULES = "drop_rules";
+
+    private static final int MAX_SOURCES = 100_000;
+
+    private final List<Rule> rules;
+
+    private InputDropRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    public static InputDropRules empty() {
+        return new InputDropRules(List.of());
+    }
+
+    /**
+     * Parses the given rules.
+     *
+     * @param metricRegistry registry for the number of messages dropped by every rule
+     * @throws IllegalArgumentException if a rule is invalid
+     */
+    public static InputDropRules parse(@Nullable String rules, MetricRegistry metricRegistry) {
+        return parse(rules, metricRegistry, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    static InputDropRules parse(@Nullable String rules, MetricRegistry metricRegistry, LongSupplier nanoClock) {
+        if (rules == null || rules.isBlank()) {
+            return empty();
+        }
+        final List<Rule> parsed = new ArrayList<>();
+        final String[] lines = rules.split("\\R");
+        for (int i = 0; i < lines.length; i++) {
+            final String line = lines[i].strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                parsed.add(parseRule(tokenize(line), metricRegistry.counter(name("dropRules", String.valueOf(parsed.size() + 1), "droppedMessages")), nanoClock));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid drop rule in line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return new InputDropRules(List.copyOf(parsed));
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Whether the given message should be dropped.
+     */
+    public boolean drop(RawMessage rawMessage) {
+        final byte[] payload = rawMessage.getPayload();
+        for (Rule rule : rules) {
+            if (rule.matcher().matches(payload) && rule.action().drop(rawMessage, payload)) {
+                rule.dropped().inc();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Rule parseRule(List<String> tokens, Counter dropped, LongSupplier nanoClock) {
+        int next;
+        final Action action;
+        switch (tokens.get(0).toLowerCase(Locale.ROOT)) {
+            case "drop" -> {
+                action = (rawMessage, payload) -> true;
+                next = 1;
+            }
+            case "sample" -> {
+                final double percent = parseNumber(tokens, 1);
+                if (percent < 0 || percent > 100) {
+                    throw new IllegalArgumentException("Sample rate must be between 0 and 100 percent");
+                }
+                action = new Sample(percent);
+                next = 2;
+            }
+            case "limit" -> {
+                final double limit = parseNumber(tokens, 1);
+                if (limit < 1 || limit != Math.floor(limit)) {
+                    throw new IllegalArgumentException("Limit must be a positive number of messages per second");
+                }
+                if (tokens.size() < 4 || !"per".equalsIgnoreCase(tokens.get(2)) || !"source".equalsIgnoreCase(tokens.get(3))) {
+                    throw new IllegalArgumentException("Expected \"per source\" after the limit");
+                }
+                action = new SourceRateLimit((long) limit, nanoClock);
+                next = 4;
+            }
+            default -> throw new IllegalArgumentException("Unknown action <" + tokens.get(0) + ">, expected drop, sample or limit");
+        }
+
+        Matcher matcher = payload -> true;
+        if (next < tokens.size()) {
+            if (next + 2 != tokens.size()) {
+                throw new IllegalArgumentException("Expected prefix or contains followed by a quoted text");
+            }
+            final byte[] text = tokens.get(next + 1).getBytes(StandardCharsets.UTF_8);
+            matcher = switch (tokens.get(next).toLowerCase(Locale.ROOT)) {
+                case "prefix" -> payload -> startsWith(payload, text);
+                case "contains" -> payload -> Bytes.indexOf(payload, text) >= 0;
+                default -> throw new IllegalArgumentException("Unknown condition <" + tokens.get(next) + ">, expected prefix or contains");
+            };
+        }
+        return new Rule(matcher, action, dropped);
+    }
+
+    private static double parseNumber(List<String> tokens, int index) {
+        if (tokens.size() <= index) {
+            throw new IllegalArgumentException("Missing number after <" + tokens.get(index - 1) + ">");
+        }
+        try {
+            return Double.parseDouble(tokens.get(index));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number <" + tokens.get(index) + ">");
+        }
+    }
+
+    /**
+     * Splits a rule into words and quoted texts, which may contain escaped quotes and backslashes.
+     */
+    private static List<String> tokenize(String line) {
+        final List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < line.length()) {
+            final char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '#') {
+                break;
+            } else if (c == '"') {
+                final StringBuilder text = new StringBuilder();
+                i++;
+                while (i < line.length() && line.charAt(i) != '"') {
+                    if (line.charAt(i) == '\\' && i + 1 < line.length()) {
+                        i++;
+                    }
+                    text.append(line.charAt(i++));
+                }
+                if (i == line.length()) {
+                    throw new IllegalArgumentException("Missing closing quote");
+                }
+                if (text.isEmpty()) {
+                    throw new IllegalArgumentException("Empty text");
+                }
+                tokens.add(text.toString());
+                i++;
+            } else {
+                final int start = i;
+                while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+                    i++;
+                }
+                tokens.add(line.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean startsWith(byte[] payload, byte[] prefix) {
+        if (payload.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (payload[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record Rule(Matcher matcher, Action action, Counter dropped) {
+    }
+
+    @FunctionalInterface
+    private interface Matcher {
+        boolean matches(byte[] payload);
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        boolean drop(RawMessage rawMessage, byte[] payload);
+    }
+
+    private static class Sample implements Action {
+        private static final int SCALE = 10_000;
+
+        private final int threshold;
+
+        Sample(double percent) {
+            this.threshold = (int) Math.round(percent * SCALE / 100);
+        }
+
+        @Override
+        public boolean drop(RawMessage rawMessage, byte[] payload) {
+            final int hash = Hashing.murmur3_32_fixed().hashBytes(payload).asInt();
+            return Math.floorMod(hash, SCALE) >= threshold;
+        }
+    }
+
+    private static class SourceRateLimit implements Action {
+        private final long limit;
+        private final LongSupplier nanoClock;
+        private final Cache<InetAddress, Window> windows = Caffeine.newBuilder()
+                .expireAfterAccess(1, TimeUnit.MINUTES)
+                .maximumSize(MAX_SOURCES)
+                .build();
+        // Messages without a remote address share a window
+        private final Window unknownSource = new Window();
+
+        SourceRateLimit(long limit, LongSupplier nanoClock) {
+            this.limit = limit;
+            this.nanoClock = nanoClock;
+        }
+
+        @Override
+        public boolean drop(RawMessage rawMessage, byte[] payload) {
+            final ResolvableInetSocketAddress remoteAddress = rawMessage.getRemoteAddress();
+            final Window window = remoteAddress == null
+                    ? unknownSource
+                    : windows.get(remoteAddress.getAddress(), address -> new Window());
+            return !window.tryAcquire(TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong()), limit);
+        }
+    }
+
+    private static class Window {
+        private long second = Long.MIN_VALUE;
+        private long count;
+
+        synchronized boolean tryAcquire(long now, long limit) {
+            if (now != second) {
+                second = now;
+                count = 0;
+            }
+            return ++count <= limit;
+        }
+    }
+}
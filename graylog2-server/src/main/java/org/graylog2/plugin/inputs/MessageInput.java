@@ -35,6 +35,8 @@ import org.graylog2.plugin.buffers.InputBuffer;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationException;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
+import org.graylog2.plugin.configuration.fields.ConfigurationField;
+import org.graylog2.plugin.configuration.fields.TextField;
 import org.graylog2.plugin.inputs.codecs.Codec;
 import org.graylog2.plugin.inputs.transports.Transport;
 import org.graylog2.plugin.journal.RawMessage;
@@ -42,7 +44,10 @@ import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -85,6 +90,7 @@ public abstract class MessageInput implements Stoppable {
     private final Configuration codecConfig;
     private final Counter globalIncomingMessages;
     private final Counter emptyMessages;
+    private final InputDropRules dropRules;
     private final Counter globalRawSize;
 
     protected String title;
@@ -99,6 +105,8 @@ public abstract class MessageInput implements Stoppable {
     protected InputBuffer inputBuffer;
     private String nodeId;
     private MetricSet transportMetrics;
+    @Nullable
+    private volatile InputCredits flowCredits;
 
     protected MessageInput(MetricRegistry metricRegistry,
                         Configuration configuration,
@@ -124,6 +132,7 @@ public abstract class MessageInput implements Stoppable {
         incomingMessages = localRegistry.meter("incomingMessages");
         globalIncomingMessages = metricRegistry.counter(GlobalMetricNames.INPUT_THROUGHPUT);
         emptyMessages = localRegistry.counter("emptyMessages");
+        dropRules = dropRules(configuration, localRegistry);
         sequenceNr = new AtomicLong(0);
     }
 
@@ -151,6 +160,24 @@ public abstract class MessageInput implements Stoppable {
     public void checkConfiguration() throws ConfigurationException {
         final ConfigurationRequest cr = getRequestedConfiguration();
         cr.check(getConfiguration());
+        try {
+            InputDropRules.parse(getConfiguration().getString(InputDropRules.CK_DROP_RULES), new MetricRegistry());
+        } catch (IllegalArgumentException e) {
+            throw new ConfigurationException(e.getMessage());
+        }
+    }
+
+    private InputDropRules dropRules(@Nullable Configuration configuration, MetricRegistry localRegistry) {
+        if (configuration == null) {
+            return InputDropRules.empty();
+        }
+        try {
+            return InputDropRules.parse(configuration.getString(InputDropRules.CK_DROP_RULES), localRegistry);
+        } catch (IllegalArgumentException e) {
+            // Inputs are validated when they are saved, don't keep inputs with outdated rules from starting
+            LOG.error("Ignoring invalid drop rules: {}", e.getMessage());
+            return InputDropRules.empty();
+        }
     }
 
     public void launch(final InputBuffer buffer, InputFailureRecorder inputFailureRecorder) throws MisfireException {
@@ -175,13 +202,39 @@ public abstract class MessageInput implements Stoppable {
     @Override
     public void stop() {
         transport.stop();
+        closeFlowCredits();
         cleanupMetrics();
     }
 
     public void terminate() {
+        closeFlowCredits();
         cleanupMetrics();
     }
 
+    /**
+     * Sets the credits of this input if per-input flow control is enabled. Must be called before the input is
+     * launched, so the transport can stop reading when the input runs out of credits.
+     */
+    public void setFlowCredits(@Nullable InputCredits flowCredits) {
+        this.flowCredits = flowCredits;
+    }
+
+    /**
+     * @return the credits of this input or {@code null} if per-input flow control is disabled
+     */
+    @Nullable
+    public InputCredits getFlowCredits() {
+        return flowCredits;
+    }
+
+    private void closeFlowCredits() {
+        final InputCredits credits = flowCredits;
+        if (credits != null) {
+            credits.close();
+            flowCredits = null;
+        }
+    }
+
     private void cleanupMetrics() {
         if (localRegistry != null && localRegistry.getMetrics() != null) {
             for (String metricName : localRegistry.getMetrics().keySet()) {
@@ -380,6 +433,53 @@ public abstract class MessageInput implements Stoppable {
     }
 
     public void processRawMessage(RawMessage rawMessage) {
+        if (!prepareRawMessage(rawMessage)) {
+            return;
+        }
+
+        inputBuffer.insert(rawMessage);
+
+        markProcessed(1, rawMessage.getPayload().length);
+    }
+
+    /**
+     * Processes a batch of messages with a single hand-off to the input buffer.
+     *
+     * @param rawMessages the messages read by the transport
+     */
+    public void processRawMessages(List<RawMessage> rawMessages) {
+        final List<RawMessage> accepted = prepareRawMessages(rawMessages);
+
+        inputBuffer.insert(accepted);
+
+        markProcessed(accepted);
+    }
+
+    /**
+     * Processes a batch of messages with a single hand-off to the input buffer.
+     *
+     * @param rawMessages the messages read by the transport
+     * @param callback    notified once all messages have been written to the journal or once that failed
+     */
+    public void processRawMessages(List<RawMessage> rawMessages, InputBuffer.BatchCallback callback) {
+        final List<RawMessage> accepted = prepareRawMessages(rawMessages);
+
+        inputBuffer.insert(accepted, callback);
+
+        markProcessed(accepted);
+    }
+
+    private List<RawMessage> prepareRawMessages(List<RawMessage> rawMessages) {
+        final List<RawMessage> accepted = new ArrayList<>(rawMessages.size());
+        for (RawMessage rawMessage : rawMessages) {
+            if (prepareRawMessage(rawMessage)) {
+                accepted.add(rawMessage);
+            }
+        }
+        return accepted;
+    }
+
+    private boolean prepareRawMessage(RawMessage rawMessage) {
         final int payloadLength = rawMessage.getPayload().length;
         if (payloadLength == 0) {
             LOG.debug("Discarding empty message {} from input {} (remote address {}). Turn logger org.graylog2.plugin.journal.RawMessage to TRACE to see originating stack trace.",
@@ -387,7 +487,10 @@ public abstract class MessageInput implements Stoppable {
                     toIdentifier(),
                     rawMessage.getRemoteAddress() == null ? "unknown" : rawMessage.getRemoteAddress());
             emptyMessages.inc();
-            return;
+            return false;
+        }
+        if (dropRules.drop(rawMessage)) {
+            return false;
         }
 
         // add the common message metadata for this input/codec
@@ -396,11 +499,24 @@ public abstract class MessageInput implements Stoppable {
         rawMessage.addSourceNode(getId(), serverStatus.getNodeId());
         // Wrap at unsigned int maximum
         rawMessage.setSequenceNr((int) sequenceNr.getAndUpdate(i -> i == 0xFFFF_FFFFL ? 0 : i + 1));
+        return true;
+    }
 
-        inputBuffer.insert(rawMessage);
+    private void markProcessed(List<RawMessage> rawMessages) {
+        long payloadLength = 0;
+        for (RawMessage rawMessage : rawMessages) {
+            payloadLength += rawMessage.getPayload().length;
+        }
+        markProcessed(rawMessages.size(), payloadLength);
+    }
 
-        incomingMessages.mark();
-        globalIncomingMessages.inc();
+    private void markProcessed(int count, long payloadLength) {
+        final InputCredits credits = flowCredits;
+        if (credits != null && count > 0) {
+            credits.use(count);
+        }
+        incomingMessages.mark(count);
+        globalIncomingMessages.inc(count);
         rawSize.mark(payloadLength);
         globalRawSize.inc(payloadLength);
     }
@@ -453,6 +569,15 @@ public abstract class MessageInput implements Stoppable {
             final ConfigurationRequest r = new ConfigurationRequest();
             r.putAll(transport.getFields());
             r.putAll(codec.getFields());
+            r.addField(new TextField(
+                    InputDropRules.CK_DROP_RULES,
+                    "Drop rules",
+                    "",
+                    "Drops messages before they are written to the journal. One rule per line, e.g. " +
+                            "'drop prefix \"DEBUG\"', 'drop contains \"GET /health\"', 'sample 10 contains \"level=debug\"' " +
+                            "(keeps 10 percent) or 'limit 1000 per source' (messages per second and source address).",
+                    ConfigurationField.Optional.OPTIONAL,
+                    TextField.Attribute.TEXTAREA));
 
             // give the codec the opportunity to override default values for certain configuration fields,
             // this is commonly being used to default to some well known port for protocols such as GELF or syslog
@@ -48,6 +48,7 @@ import org.graylog2.inputs.transports.netty.ByteBufMessageAggregationHandler;
 import org.graylog2.inputs.transports.netty.ChannelRegistrationHandler;
 import org.graylog2.inputs.transports.netty.EventLoopGroupFactory;
 import org.graylog2.inputs.transports.netty.ExceptionLoggingChannelHandler;
+import org.graylog2.inputs.transports.netty.FlowControlHandler;
 import org.graylog2.inputs.transports.netty.RawMessageHandler;
 import org.graylog2.inputs.transports.netty.ServerSocketChannelFactory;
 import org.graylog2.plugin.LocalMetricRegistry;
@@ -57,6 +58,7 @@ import org.graylog2.plugin.configuration.fields.BooleanField;
 import org.graylog2.plugin.configuration.fields.ConfigurationField;
 import org.graylog2.plugin.configuration.fields.DropdownField;
 import org.graylog2.plugin.configuration.fields.TextField;
+import org.graylog2.plugin.inputs.InputCredits;
 import org.graylog2.plugin.inputs.MessageInput;
 import org.graylog2.plugin.inputs.MisfireException;
 import org.graylog2.plugin.inputs.annotations.ConfigClass;
@@ -216,6 +218,11 @@ public abstract class AbstractTcpTransport extends NettyTransport {
 
     @Override
     public void launch(final MessageInput input) throws MisfireException {
+        final InputCredits credits = input.getFlowCredits();
+        if (credits != null) {
+            // Stop reading from all connections while the input is out of credits
+            credits.addListener(throttled -> childChannels.forEach(channel -> channel.config().setAutoRead(!throttled)));
+        }
         try {
             bootstrap = getBootstrap(input);
             bootstrap.bind(socketAddress)
@@ -261,6 +268,10 @@ public abstract class AbstractTcpTransport extends NettyTransport {
         handlers.put("channel-registration", () -> new ChannelRegistrationHandler(childChannels));
         handlers.put("traffic-counter", () -> throughputCounter);
         handlers.put("connection-counter", () -> connectionCounter);
+        final InputCredits credits = input.getFlowCredits();
+        if (credits != null) {
+            handlers.put("flow-control", () -> new FlowControlHandler(credits));
+        }
         if (tlsEnable) {
             LOG.info("Enabled TLS for input {}. key-file=\"{}\" cert-file=\"{}\"", input.toIdentifier(), tlsKeyFile, tlsCertFile);
             handlers.put("tls", getSslHandlerCallable(input));
@@ -203,6 +203,7 @@ public abstract class NettyTransport implements Transport {
                     ConfigurationField.Optional.OPTIONAL,
                     NumberField.Attribute.ONLY_POSITIVE)
             );
+            r.addField(ThrottleableTransport.flowControlWeightField());
 
             return r;
         }
@@ -22,8 +22,12 @@ import org.graylog2.plugin.ThrottleState;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.configuration.ConfigurationRequest;
 import org.graylog2.plugin.configuration.fields.BooleanField;
+import org.graylog2.plugin.configuration.fields.ConfigurationField;
+import org.graylog2.plugin.configuration.fields.NumberField;
+import org.graylog2.plugin.inputs.InputCredits;
 import org.graylog2.plugin.inputs.MessageInput;
 import org.graylog2.plugin.inputs.MisfireException;
+import org.graylog2.shared.inputs.InputFlowControl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,10 +67,25 @@ public abstract class ThrottleableTransport implements Transport {
                     "If you regularly poll an external system, e.g. via HTTP, you normally want to leave this disabled."
 
             ));
+            request.addField(flowControlWeightField());
             return request;
         }
     }
 
+    /**
+     * Configuration field for the weight of an input in the per-input flow control.
+     */
+    public static ConfigurationField flowControlWeightField() {
+        return new NumberField(
+                InputFlowControl.CK_FLOW_CONTROL_WEIGHT,
+                "Flow control weight",
+                InputFlowControl.DEFAULT_WEIGHT,
+                "Share of the processing capacity this input gets relative to other inputs while Graylog is overloaded. " +
+                        "Only used if per-input flow control is enabled in the server configuration.",
+                ConfigurationField.Optional.OPTIONAL,
+                NumberField.Attribute.ONLY_POSITIVE);
+    }
+
     public ThrottleableTransport(EventBus eventBus, Configuration configuration) {
         this.eventBus = eventBus;
         this.throttlingAllowed = configuration.getBoolean(CK_THROTTLING_ALLOWED);
@@ -77,8 +96,23 @@ public abstract class ThrottleableTransport implements Transport {
         // Call this before registering on the event bus. There might be stuff in doLaunch() that needs to run first.
         doLaunch(input);
 
-        // only listen for updates if we are allowed to be throttled at all
-        if (throttlingAllowed) {
+        startThrottling(input);
+    }
+
+    /**
+     * Starts listening for changes of the throttle state if this transport is allowed to be throttled at all.
+     * <p>
+     * With per-input flow control, the transport is throttled as soon as its input runs out of credits. Otherwise,
+     * it is throttled based on the node-wide {@link ThrottleState}.
+     */
+    protected void startThrottling(MessageInput input) {
+        if (!throttlingAllowed) {
+            return;
+        }
+        final InputCredits credits = input.getFlowCredits();
+        if (credits != null) {
+            credits.addListener(this::setThrottled);
+        } else {
             eventBus.register(this);
         }
     }
@@ -125,8 +159,10 @@ public abstract class ThrottleableTransport implements Transport {
         if (!throttlingAllowed) {
             return;
         }
-        // check if we are throttled
-        final boolean throttled = determineIfThrottled(throttleState);
+        setThrottled(determineIfThrottled(throttleState));
+    }
+
+    private synchronized void setThrottled(boolean throttled) {
         if (currentlyThrottled.get()) {
             // no need to unblock
             if (throttled) {
@@ -141,9 +177,9 @@ public abstract class ThrottleableTransport implements Transport {
             handleChangedThrottledState(false);
             blockLatch.countDown();
         } else if (throttled) {
+            blockLatch = new CountDownLatch(1);
             currentlyThrottled.set(true);
             handleChangedThrottledState(true);
-            blockLatch = new CountDownLatch(1);
         }
     }
 
@@ -37,10 +37,7 @@ public abstract class ThrottleableTransport2 extends ThrottleableTransport {
         // Call this before registering on the event bus. There might be stuff in doLaunch() that needs to run first.
         doLaunch(input, inputFailureRecorder);
 
-        // only listen for updates if we are allowed to be throttled at all
-        if (throttlingAllowed) {
-            eventBus.register(this);
-        }
+        startThrottling(input);
     }
 
     @Override
@@ -3035,6 +3035,35 @@ public final class JournalMessages {
      */
     com.google.protobuf.ByteString
         getConfigBytes();
+
+    /**
+     * <pre>
+     * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+     * </pre>
+     *
+     * <code>optional string config_id = 3;</code>
+     * @return Whether the configId field is set.
+     */
+    boolean hasConfigId();
+    /**
+     * <pre>
+     * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+     * </pre>
+     *
+     * <code>optional string config_id = 3;</code>
+     * @return The configId.
+     */
+    java.lang.String getConfigId();
+    /**
+     * <pre>
+     * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+     * </pre>
+     *
+     * <code>optional string config_id = 3;</code>
+     * @return The bytes for configId.
+     */
+    com.google.protobuf.ByteString
+        getConfigIdBytes();
   }
   /**
    * Protobuf type {@code org.graylog2.plugin.journal.CodecInfo}
@@ -3051,6 +3080,7 @@ public final class JournalMessages {
     private CodecInfo() {
       name_ = "";
       config_ = "";
+      configId_ = "";
     }
 
     @java.lang.Override
@@ -3187,6 +3217,67 @@ public final class JournalMessages {
       }
     }
 
+    public static final int CONFIG_ID_FIELD_NUMBER = 3;
+    @SuppressWarnings("serial")
+    private volatile java.lang.Object configId_ = "";
+    /**
+     * <pre>
+     * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+     * </pre>
+     *
+     * <code>optional string config_id = 3;</code>
+     * @return Whether the configId field is set.
+     */
+    @java.lang.Override
+    public boolean hasConfigId() {
+      return ((bitField0_ & 0x00000004) != 0);
+    }
+    /**
+     * <pre>
+     * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+     * </pre>
+     *
+     * <code>optional string config_id = 3;</code>
+     * @return The configId.
+     */
+    @java.lang.Override
+    public java.lang.String getConfigId() {
+      java.lang.Object ref = configId_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          configId_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <pre>
+     * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+     * </pre>
+     *
+     * <code>optional string config_id = 3;</code>
+     * @return The bytes for configId.
+     */
+    @java.lang.Override
+    public com.google.protobuf.ByteString
+        getConfigIdBytes() {
+      java.lang.Object ref = configId_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        configId_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
     private byte memoizedIsInitialized = -1;
     @java.lang.Override
     public final boolean isInitialized() {
@@ -3207,6 +3298,9 @@ public final class JournalMessages {
       if (((bitField0_ & 0x00000002) != 0)) {
         com.google.protobuf.GeneratedMessageV3.writeString(output, 2, config_);
       }
+      if (((bitField0_ & 0x00000004) != 0)) {
+        com.google.protobuf.GeneratedMessageV3.writeString(output, 3, configId_);
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -3222,6 +3316,9 @@ public final class JournalMessages {
       if (((bitField0_ & 0x00000002) != 0)) {
         size += com.google.protobuf.GeneratedMessageV3.computeStringSize(2, config_);
       }
+      if (((bitField0_ & 0x00000004) != 0)) {
+        size += com.google.protobuf.GeneratedMessageV3.computeStringSize(3, configId_);
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSize = size;
       return size;
@@ -3247,6 +3344,11 @@ public final class JournalMessages {
         if (!getConfig()
             .equals(other.getConfig())) return false;
       }
+      if (hasConfigId() != other.hasConfigId()) return false;
+      if (hasConfigId()) {
+        if (!getConfigId()
+            .equals(other.getConfigId())) return false;
+      }
       if (!getUnknownFields().equals(other.getUnknownFields())) return false;
       return true;
     }
@@ -3266,6 +3368,10 @@ public final class JournalMessages {
         hash = (37 * hash) + CONFIG_FIELD_NUMBER;
         hash = (53 * hash) + getConfig().hashCode();
       }
+      if (hasConfigId()) {
+        hash = (37 * hash) + CONFIG_ID_FIELD_NUMBER;
+        hash = (53 * hash) + getConfigId().hashCode();
+      }
       hash = (29 * hash) + getUnknownFields().hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -3399,6 +3505,7 @@ public final class JournalMessages {
         bitField0_ = 0;
         name_ = "";
         config_ = "";
+        configId_ = "";
         return this;
       }
 
@@ -3441,6 +3548,10 @@ public final class JournalMessages {
           result.config_ = config_;
           to_bitField0_ |= 0x00000002;
         }
+        if (((from_bitField0_ & 0x00000004) != 0)) {
+          result.configId_ = configId_;
+          to_bitField0_ |= 0x00000004;
+        }
         result.bitField0_ |= to_bitField0_;
       }
 
@@ -3498,6 +3609,11 @@ public final class JournalMessages {
           bitField0_ |= 0x00000002;
           onChanged();
         }
+        if (other.hasConfigId()) {
+          configId_ = other.configId_;
+          bitField0_ |= 0x00000004;
+          onChanged();
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         onChanged();
         return this;
@@ -3534,6 +3650,11 @@ public final class JournalMessages {
                 bitField0_ |= 0x00000002;
                 break;
               } // case 18
+              case 26: {
+                configId_ = input.readBytes();
+                bitField0_ |= 0x00000004;
+                break;
+              } // case 26
               default: {
                 if (!super.parseUnknownField(input, extensionRegistry, tag)) {
                   done = true; // was an endgroup tag
@@ -3740,6 +3861,110 @@ public final class JournalMessages {
         onChanged();
         return this;
       }
+
+      private java.lang.Object configId_ = "";
+      /**
+       * <pre>
+       * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+       * </pre>
+       *
+       * <code>optional string config_id = 3;</code>
+       * @return Whether the configId field is set.
+       */
+      public boolean hasConfigId() {
+        return ((bitField0_ & 0x00000004) != 0);
+      }
+      /**
+       * <pre>
+       * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+       * </pre>
+       *
+       * <code>optional string config_id = 3;</code>
+       * @return The configId.
+       */
+      public java.lang.String getConfigId() {
+        java.lang.Object ref = configId_;
+        if (!(ref instanceof java.lang.String)) {
+          com.google.protobuf.ByteString bs =
+              (com.google.protobuf.ByteString) ref;
+          java.lang.String s = bs.toStringUtf8();
+          if (bs.isValidUtf8()) {
+            configId_ = s;
+          }
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <pre>
+       * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+       * </pre>
+       *
+       * <code>optional string config_id = 3;</code>
+       * @return The bytes for configId.
+       */
+      public com.google.protobuf.ByteString
+          getConfigIdBytes() {
+        java.lang.Object ref = configId_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          configId_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <pre>
+       * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+       * </pre>
+       *
+       * <code>optional string config_id = 3;</code>
+       * @param value The configId to set.
+       * @return This builder for chaining.
+       */
+      public Builder setConfigId(
+          java.lang.String value) {
+        if (value == null) { throw new NullPointerException(); }
+        configId_ = value;
+        bitField0_ |= 0x00000004;
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+       * </pre>
+       *
+       * <code>optional string config_id = 3;</code>
+       * @return This builder for chaining.
+       */
+      public Builder clearConfigId() {
+        configId_ = getDefaultInstance().getConfigId();
+        bitField0_ = (bitField0_ & ~0x00000004);
+        onChanged();
+        return this;
+      }
+      /**
+       * <pre>
+       * fingerprint of the configuration in the codec configuration registry, used instead of the JSON description
+       * </pre>
+       *
+       * <code>optional string config_id = 3;</code>
+       * @param value The bytes for configId to set.
+       * @return This builder for chaining.
+       */
+      public Builder setConfigIdBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) { throw new NullPointerException(); }
+        configId_ = value;
+        bitField0_ |= 0x00000004;
+        onChanged();
+        return this;
+      }
       @java.lang.Override
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
@@ -4808,13 +5033,13 @@ public final class JournalMessages {
       "org.graylog2.plugin.journal.RemoteAddres" +
       "s\022\017\n\007payload\030\010 \001(\014\022\023\n\013sequence_nr\030\t \001(\r\"" +
       "@\n\rRemoteAddress\022\017\n\007address\030\001 \001(\014\022\014\n\004por" +
-      "t\030\002 \001(\r\022\020\n\010resolved\030\003 \001(\t\")\n\tCodecInfo\022\014" +
-      "\n\004name\030\001 \001(\t\022\016\n\006config\030\002 \001(\t\"\215\001\n\nSourceN" +
-      "ode\022\n\n\002id\030\001 \001(\t\022B\n\004type\030\002 \001(\0162,.org.gray" +
-      "log2.plugin.journal.SourceNode.Type:\006SER" +
-      "VER\022\020\n\010input_id\030\003 \001(\t\"\035\n\004Type\022\n\n\006SERVER\020" +
-      "\000\022\t\n\005RADIO\020\001B.\n\033org.graylog2.plugin.jour" +
-      "nalB\017JournalMessages"
+      "t\030\002 \001(\r\022\020\n\010resolved\030\003 \001(\t\"<\n\tCodecInfo\022\014" +
+      "\n\004name\030\001 \001(\t\022\016\n\006config\030\002 \001(\t\022\021\n\tconfig_i" +
+      "d\030\003 \001(\t\"\215\001\n\nSourceNode\022\n\n\002id\030\001 \001(\t\022B\n\004ty" +
+      "pe\030\002 \001(\0162,.org.graylog2.plugin.journal.S" +
+      "ourceNode.Type:\006SERVER\022\020\n\010input_id\030\003 \001(\t" +
+      "\"\035\n\004Type\022\n\n\006SERVER\020\000\022\t\n\005RADIO\020\001B.\n\033org.g" +
+      "raylog2.plugin.journalB\017JournalMessages"
     };
     descriptor = com.google.protobuf.Descriptors.FileDescriptor
       .internalBuildGeneratedFileFrom(descriptorData,
@@ -4837,7 +5062,7 @@ public final class JournalMessages {
     internal_static_org_graylog2_plugin_journal_CodecInfo_fieldAccessorTable = new
       com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_org_graylog2_plugin_journal_CodecInfo_descriptor,
-        new java.lang.String[] { "Name", "Config", });
+        new java.lang.String[] { "Name", "Config", "ConfigId", });
     internal_static_org_graylog2_plugin_journal_SourceNode_descriptor =
       getDescriptor().getMessageTypes().get(3);
     internal_static_org_graylog2_plugin_journal_SourceNode_fieldAccessorTable = new
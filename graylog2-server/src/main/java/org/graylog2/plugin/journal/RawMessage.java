@@ -43,6 +43,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -72,6 +73,9 @@ public class RawMessage implements Serializable {
     private final Object messageQueueId;
     private int sequenceNr;
     private Configuration codecConfig;
+    // Identifies the codec configuration of messages read from the journal, either by its fingerprint or, for
+    // entries written by older versions, by its JSON description
+    private transient String codecConfigKey;
 
     public RawMessage(@Nonnull byte[] payload) {
         this(payload, (ResolvableInetSocketAddress) null);
@@ -125,11 +129,28 @@ public class RawMessage implements Serializable {
     }
 
     public RawMessage(JournalMessage journalMessage, Object messageQueueId) {
+        this(journalMessage, messageQueueId, configId -> null);
+    }
+
+    /**
+     * @param codecConfigs resolves the codec configuration of journal entries which only contain its fingerprint
+     */
+    public RawMessage(JournalMessage journalMessage, Object messageQueueId, Function<String, Configuration> codecConfigs) {
         this.messageQueueId = messageQueueId;
         sequenceNr = journalMessage.getSequenceNr();
         id = new UUID(journalMessage.getUuidTime(), journalMessage.getUuidClockseq());
         msgBuilder = JournalMessage.newBuilder(journalMessage);
-        codecConfig = Configuration.deserializeFromJson(journalMessage.getCodec().getConfig());
+        final JournalMessages.CodecInfo codec = journalMessage.getCodec();
+        if (codec.hasConfigId()) {
+            codecConfigKey = codec.getConfigId();
+            codecConfig = codecConfigs.apply(codecConfigKey);
+            if (codecConfig == null) {
+                throw new IllegalStateException("Unknown codec configuration <" + codec.getConfigId() + ">");
+            }
+        } else {
+            codecConfigKey = codec.getConfig();
+            codecConfig = Configuration.deserializeFromJson(codecConfigKey);
+        }
     }
 
     @Nullable
@@ -152,26 +173,55 @@ public class RawMessage implements Serializable {
 
     @Nullable
     public static RawMessage decode(final byte[] buffer, final long journalOffset) {
+        return decode(buffer, journalOffset, configId -> null);
+    }
+
+    /**
+     * Decodes a journal entry which may only contain the fingerprint of its codec configuration.
+     *
+     * @param codecConfigs resolves codec configurations by their fingerprint, see {@link #encode(String)}
+     */
+    @Nullable
+    public static RawMessage decode(final byte[] buffer, final long journalOffset, Function<String, Configuration> codecConfigs) {
         try {
             final JournalMessage journalMessage = JournalMessage.parseFrom(buffer);
 
             // TODO validate message based on field contents and version number
 
-            return new RawMessage(journalMessage, journalOffset);
+            return new RawMessage(journalMessage, journalOffset, codecConfigs);
         } catch (IOException e) {
             log.error("Cannot read raw message from journal, ignoring this message.", e);
             return null;
+        } catch (IllegalStateException e) {
+            log.error("Cannot resolve codec configuration of raw message at offset {}, ignoring this message: {}",
+                    journalOffset, e.getMessage());
+            return null;
         }
     }
 
     public byte[] encode() {
+        return encode(null);
+    }
+
+    /**
+     * Encodes the message for the journal.
+     *
+     * @param codecConfigId fingerprint of the codec configuration which is written instead of the configuration
+     *                      itself, or {@code null} to embed the configuration
+     */
+    public byte[] encode(@Nullable String codecConfigId) {
         try {
             final JournalMessages.CodecInfo codec = msgBuilder.getCodec();
             final JournalMessages.CodecInfo.Builder builder = JournalMessages.CodecInfo.newBuilder(codec);
 
-            final String codecConfigJson = codecConfig.serializeToJson();
-            if (codecConfigJson != null) {
-                builder.setConfig(codecConfigJson);
+            if (codecConfigId != null) {
+                builder.clearConfig().setConfigId(codecConfigId);
+            } else {
+                builder.clearConfigId();
+                final String codecConfigJson = codecConfig.serializeToJson();
+                if (codecConfigJson != null) {
+                    builder.setConfig(codecConfigJson);
+                }
             }
             msgBuilder.setCodec(builder.build());
 
@@ -257,6 +307,18 @@ public class RawMessage implements Serializable {
 
     public void setCodecConfig(Configuration codecConfig) {
         this.codecConfig = codecConfig;
+        this.codecConfigKey = null;
+    }
+
+    /**
+     * Returns a key which identifies the codec configuration of a message read from the journal. Two messages with
+     * the same key have equal codec configurations.
+     *
+     * @return the key or {@code null} if the message has not been read from the journal
+     */
+    @Nullable
+    public String getCodecConfigKey() {
+        return codecConfigKey;
     }
 
     public List<SourceNode> getSourceNodes() {
@@ -27,6 +27,7 @@ import org.graylog2.plugin.lookup.LookupDataAdapterConfiguration;
 
 import javax.annotation.Nullable;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 
@@ -35,6 +36,10 @@ import java.util.concurrent.TimeUnit;
 import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_CUSTOM_ERROR_TTL;
 import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_CUSTOM_ERROR_TTL_ENABLED;
 import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_CUSTOM_ERROR_TTL_UNIT;
+import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_CIRCUIT_BREAKER_OPEN_DURATION;
+import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_CIRCUIT_BREAKER_OPEN_DURATION_UNIT;
+import static org.graylog2.lookup.dto.DataAdapterDto.FIELD_MAX_CONCURRENT_REQUESTS;
 
 @AutoValue
 @JsonAutoDetect
@@ -73,6 +78,25 @@ public abstract class DataAdapterApi implements ScopedResponse {
     @JsonProperty(FIELD_CUSTOM_ERROR_TTL_UNIT)
     public abstract TimeUnit customErrorTTLUnit();
 
+    @Nullable
+    @Min(0)
+    @JsonProperty(FIELD_MAX_CONCURRENT_REQUESTS)
+    public abstract Integer maxConcurrentRequests();
+
+    @Nullable
+    @Min(0)
+    @JsonProperty(FIELD_CIRCUIT_BREAKER_FAILURE_THRESHOLD)
+    public abstract Integer circuitBreakerFailureThreshold();
+
+    @Nullable
+    @Min(0)
+    @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION)
+    public abstract Long circuitBreakerOpenDuration();
+
+    @Nullable
+    @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION_UNIT)
+    public abstract TimeUnit circuitBreakerOpenDurationUnit();
+
     @JsonProperty("content_pack")
     @Nullable
     public abstract String contentPack();
@@ -95,6 +119,10 @@ public abstract class DataAdapterApi implements ScopedResponse {
                 .customErrorTTLEnabled(dto.customErrorTTLEnabled())
                 .customErrorTTL(dto.customErrorTTL())
                 .customErrorTTLUnit(dto.customErrorTTLUnit())
+                .maxConcurrentRequests(dto.maxConcurrentRequests())
+                .circuitBreakerFailureThreshold(dto.circuitBreakerFailureThreshold())
+                .circuitBreakerOpenDuration(dto.circuitBreakerOpenDuration())
+                .circuitBreakerOpenDurationUnit(dto.circuitBreakerOpenDurationUnit())
                 .contentPack(dto.contentPack())
                 .config(dto.config())
                 .build();
@@ -110,6 +138,10 @@ public abstract class DataAdapterApi implements ScopedResponse {
                 .customErrorTTLEnabled(customErrorTTLEnabled())
                 .customErrorTTL(customErrorTTL())
                 .customErrorTTLUnit(customErrorTTLUnit())
+                .maxConcurrentRequests(maxConcurrentRequests())
+                .circuitBreakerFailureThreshold(circuitBreakerFailureThreshold())
+                .circuitBreakerOpenDuration(circuitBreakerOpenDuration())
+                .circuitBreakerOpenDurationUnit(circuitBreakerOpenDurationUnit())
                 .contentPack(contentPack())
                 .config(config())
                 .build();
@@ -141,6 +173,18 @@ public abstract class DataAdapterApi implements ScopedResponse {
         @JsonProperty(FIELD_CUSTOM_ERROR_TTL_UNIT)
         public abstract Builder customErrorTTLUnit(@Nullable TimeUnit unit);
 
+        @JsonProperty(FIELD_MAX_CONCURRENT_REQUESTS)
+        public abstract Builder maxConcurrentRequests(@Nullable Integer maxConcurrentRequests);
+
+        @JsonProperty(FIELD_CIRCUIT_BREAKER_FAILURE_THRESHOLD)
+        public abstract Builder circuitBreakerFailureThreshold(@Nullable Integer failureThreshold);
+
+        @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION)
+        public abstract Builder circuitBreakerOpenDuration(@Nullable Long openDuration);
+
+        @JsonProperty(FIELD_CIRCUIT_BREAKER_OPEN_DURATION_UNIT)
+        public abstract Builder circuitBreakerOpenDurationUnit(@Nullable TimeUnit unit);
+
         @JsonProperty("content_pack")
         public abstract Builder contentPack(@Nullable String contentPack);
 
@@ -19,14 +19,20 @@ package org.graylog2.rest.resources.system.monitoring;
 import com.codahale.metrics.annotation.Timed;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
 import jakarta.inject.Inject;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.apache.shiro.authz.annotation.RequiresPermissions;
 import org.graylog.plugins.views.search.engine.QueryExecutionStats;
+import org.graylog.plugins.views.search.engine.SearchPriority;
 import org.graylog.plugins.views.search.engine.monitoring.collection.StatsCollector;
 import org.graylog.plugins.views.search.engine.monitoring.data.histogram.Histogram;
 import org.graylog.plugins.views.search.engine.monitoring.data.histogram.creation.AverageValueComputation;
@@ -34,16 +40,22 @@ import org.graylog.plugins.views.search.engine.monitoring.data.histogram.creatio
 import org.graylog.plugins.views.search.engine.monitoring.data.histogram.creation.MultiValueSingleInputHistogramCreation;
 import org.graylog.plugins.views.search.engine.monitoring.data.histogram.creation.PercentageValueComputation;
 import org.graylog.plugins.views.search.engine.monitoring.data.histogram.creation.PeriodBasedBinChooser;
+import org.graylog.plugins.views.search.engine.monitoring.data.histogram.creation.PriorityBasedBinChooser;
 import org.graylog.plugins.views.search.engine.monitoring.data.histogram.creation.ValueComputation;
+import org.graylog.plugins.views.search.engine.monitoring.telemetry.SearchTelemetryService;
 import org.graylog2.indexer.searches.SearchesClusterConfig;
 import org.graylog2.rest.MoreMediaTypes;
 import org.graylog2.shared.rest.resources.RestResource;
 import org.graylog2.shared.security.RestPermissions;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.joda.time.Period;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.graylog2.shared.rest.documentation.generator.Generator.CLOUD_VISIBLE;
@@ -56,14 +68,21 @@ public class MonitoringResource extends RestResource {
     public static final String AVG_FUNCTION_NAME = "Avg. duration (ms)";
     public static final String MAX_FUNCTION_NAME = "Max. duration (ms)";
     public static final String PERCENT_FUNCTION_NAME = "Percent. of recent queries";
+    public static final String AVG_QUEUE_TIME_FUNCTION_NAME = "Avg. queue time (ms)";
+    public static final String MAX_QUEUE_TIME_FUNCTION_NAME = "Max. queue time (ms)";
     public static final String TIMERANGE = "Timerange";
+    public static final String PRIORITY = "Priority";
     private final StatsCollector<QueryExecutionStats> executionStatsCollector;
+    private final SearchTelemetryService searchTelemetryService;
     private final MultiValueSingleInputHistogramCreation<Period, QueryExecutionStats> histogramCreator;
+    private final MultiValueSingleInputHistogramCreation<String, QueryExecutionStats> priorityHistogramCreator;
 
 
     @Inject
-    public MonitoringResource(final StatsCollector<QueryExecutionStats> executionStatsCollector) {
+    public MonitoringResource(final StatsCollector<QueryExecutionStats> executionStatsCollector,
+                              final SearchTelemetryService searchTelemetryService) {
         this.executionStatsCollector = executionStatsCollector;
+        this.searchTelemetryService = searchTelemetryService;
         Map<String, ValueComputation<QueryExecutionStats, Long>> valueFunctions = new LinkedHashMap<>();
         valueFunctions.put(MonitoringResource.AVG_FUNCTION_NAME, new AverageValueComputation<>(QueryExecutionStats::duration));
         valueFunctions.put(MonitoringResource.MAX_FUNCTION_NAME, new MaxValueComputation<>(QueryExecutionStats::duration));
@@ -74,6 +93,17 @@ public class MonitoringResource extends RestResource {
                 valueFunctions,
                 TIMERANGE
         );
+
+        Map<String, ValueComputation<QueryExecutionStats, Long>> priorityValueFunctions = new LinkedHashMap<>();
+        priorityValueFunctions.put(MonitoringResource.AVG_QUEUE_TIME_FUNCTION_NAME, new AverageValueComputation<>(QueryExecutionStats::queueTime));
+        priorityValueFunctions.put(MonitoringResource.MAX_QUEUE_TIME_FUNCTION_NAME, new MaxValueComputation<>(QueryExecutionStats::queueTime));
+        priorityValueFunctions.putAll(valueFunctions);
+        this.priorityHistogramCreator = new MultiValueSingleInputHistogramCreation<>(
+                Arrays.stream(SearchPriority.values()).map(SearchPriority::value).toList(),
+                new PriorityBasedBinChooser(),
+                priorityValueFunctions,
+                PRIORITY
+        );
     }
 
     @GET
@@ -87,5 +117,46 @@ public class MonitoringResource extends RestResource {
         return histogramCreator.create(allStats);
     }
 
+    @GET
+    @Timed
+    @ApiOperation(value = "Get priority-based histogram of queries queue times, durations and percentage in recent query population")
+    @Path("query_priority_histogram")
+    @Produces({MediaType.APPLICATION_JSON, MoreMediaTypes.TEXT_CSV})
+    @RequiresPermissions({RestPermissions.MONITORING_READ})
+    public Histogram getQueryPriorityHistogram() {
+        final Collection<QueryExecutionStats> allStats = executionStatsCollector.getAllStats();
+        return priorityHistogramCreator.create(allStats);
+    }
+
+    @GET
+    @Timed
+    @ApiOperation(value = "Get duration percentiles of persisted queries by their time range")
+    @Path("search_telemetry/percentiles")
+    @Produces(MediaType.APPLICATION_JSON)
+    @RequiresPermissions({RestPermissions.MONITORING_READ})
+    public List<SearchTelemetryService.RangeBucketPercentiles> getSearchTelemetryPercentiles(
+            @ApiParam(name = "range", value = "Only include queries of the last seconds")
+            @QueryParam("range") @DefaultValue("86400") @Min(1) int range) {
+        return searchTelemetryService.percentilesByRangeBucket(since(range));
+    }
+
+    @GET
+    @Timed
+    @ApiOperation(value = "Get the search types of persisted queries with the highest average duration")
+    @Path("search_telemetry/slowest_search_types")
+    @Produces(MediaType.APPLICATION_JSON)
+    @RequiresPermissions({RestPermissions.MONITORING_READ})
+    public List<SearchTelemetryService.SlowSearchType> getSlowestSearchTypes(
+            @ApiParam(name = "range", value = "Only include queries of the last seconds")
+            @QueryParam("range") @DefaultValue("86400") @Min(1) int range,
+            @ApiParam(name = "limit", value = "Maximum number of search types")
+            @QueryParam("limit") @DefaultValue("10") @Min(1) @Max(1000) int limit) {
+        return searchTelemetryService.slowestSearchTypes(since(range), limit);
+    }
+
+    private static DateTime since(int rangeSeconds) {
+        return DateTime.now(DateTimeZone.UTC).minusSeconds(rangeSeconds);
+    }
+
 }
 
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers;
+
+import org.graylog2.plugin.buffers.InputBuffer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared by the events of a batch of messages, notifies the {@link InputBuffer.BatchCallback callback} of the batch
+ * once every message has been acknowledged or as soon as one of them failed.
+ */
+class BatchAcknowledgement {
+    private final AtomicInteger remaining;
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private final InputBuffer.BatchCallback callback;
+
+    BatchAcknowledgement(int size, InputBuffer.BatchCallback callback) {
+        this.remaining = new AtomicInteger(size);
+        this.callback = callback;
+    }
+
+    void acknowledge() {
+        if (remaining.decrementAndGet() == 0 && completed.compareAndSet(false, true)) {
+            callback.written();
+        }
+    }
+
+    void fail(Throwable cause) {
+        if (completed.compareAndSet(false, true)) {
+            callback.failed(cause);
+        }
+    }
+}
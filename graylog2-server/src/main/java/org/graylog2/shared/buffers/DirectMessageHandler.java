@@ -36,10 +36,16 @@ class DirectMessageHandler implements WorkHandler<RawMessageEvent> {
     @Override
     public void onEvent(RawMessageEvent event) throws Exception {
         final RawMessage rawMessage = event.getRawMessage();
-        processBuffer.insertBlocking(rawMessage);
+        try {
+            processBuffer.insertBlocking(rawMessage);
+        } catch (Exception e) {
+            event.fail(e);
+            throw e;
+        }
         if (rawMessage != null) {
             processingStatusRecorder.updateIngestReceiveTime(rawMessage.getTimestamp());
         }
+        event.acknowledge();
         // clear out for gc and to avoid promoting the raw message event to a tenured gen
         event.clear();
     }
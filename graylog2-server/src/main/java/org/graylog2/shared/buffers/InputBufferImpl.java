@@ -32,10 +32,13 @@ import org.graylog2.plugin.journal.RawMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Singleton;
 
+import java.util.List;
 import java.util.concurrent.ThreadFactory;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -108,6 +111,40 @@ public class InputBufferImpl implements InputBuffer {
         incomingMessages.mark();
     }
 
+    @Override
+    public void insert(List<RawMessage> messages) {
+        publish(messages, null);
+    }
+
+    @Override
+    public void insert(List<RawMessage> messages, BatchCallback callback) {
+        if (messages.isEmpty()) {
+            callback.written();
+            return;
+        }
+        publish(messages, new BatchAcknowledgement(messages.size(), callback));
+    }
+
+    private void publish(List<RawMessage> messages, @Nullable BatchAcknowledgement acknowledgement) {
+        // Claim the slots for the whole batch at once, a batch can't be larger than the ring buffer though
+        final int chunkSize = ringBuffer.getBufferSize();
+        for (int offset = 0; offset < messages.size(); offset += chunkSize) {
+            final int count = Math.min(messages.size() - offset, chunkSize);
+            final long hi = ringBuffer.next(count);
+            final long lo = hi - (count - 1);
+            try {
+                for (int i = 0; i < count; i++) {
+                    final RawMessageEvent event = ringBuffer.get(lo + i);
+                    event.setRawMessage(messages.get(offset + i));
+                    event.setAcknowledgement(acknowledgement);
+                }
+            } finally {
+                ringBuffer.publish(lo, hi);
+            }
+        }
+        incomingMessages.mark(messages.size());
+    }
+
     @Override
     public long getUsage() {
         return ringBuffer.getBufferSize() - ringBuffer.remainingCapacity();
@@ -117,5 +154,4 @@ public class InputBufferImpl implements InputBuffer {
         final ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("inputbufferprocessor-%d").build();
         return new InstrumentedThreadFactory(threadFactory, metricRegistry, name(this.getClass(), "thread-factory"));
     }
-
 }
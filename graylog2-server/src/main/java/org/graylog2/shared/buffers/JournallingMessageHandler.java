@@ -41,6 +41,7 @@ public class JournallingMessageHandler implements EventHandler<RawMessageEvent>
 
     private final List<RawMessageEvent> batch = Lists.newArrayList();
     private final Counter byteCounter;
+    private final Counter droppedMessages;
     private final MessageQueueWriter messageQueueWriter;
     private final ProcessingStatusRecorder processingStatusRecorder;
 
@@ -51,6 +52,7 @@ public class JournallingMessageHandler implements EventHandler<RawMessageEvent>
         this.messageQueueWriter = messageQueueWriter;
         this.processingStatusRecorder = processingStatusRecorder;
         byteCounter = metrics.counter(MetricRegistry.name(JournallingMessageHandler.class, "written_bytes"));
+        droppedMessages = metrics.counter(MetricRegistry.name(JournallingMessageHandler.class, "dropped_messages"));
     }
 
     @Override
@@ -69,12 +71,22 @@ public class JournallingMessageHandler implements EventHandler<RawMessageEvent>
             // call the update on the recorder service for every message. (less contention)
             processingStatusRecorder.updateIngestReceiveTime(metricsFilter.getLatestReceiveTime());
 
-            messageQueueWriter.write(entries);
+            try {
+                messageQueueWriter.write(entries);
+            } catch (Exception e) {
+                // Let the inputs read the messages again, if they are able to
+                entries.forEach(journalled -> journalled.fail(e));
+                throw e;
+            }
 
-            // Release objects for GC
+            // Release objects for GC, after letting the inputs know that their messages have been written. Skipped
+            // messages are acknowledged as well, they can't be encoded and would never be written.
             batch.stream()
                     .filter(Objects::nonNull)
-                    .forEach(RawMessageEvent::clear);
+                    .forEach(journalled -> {
+                        journalled.acknowledge();
+                        journalled.clear();
+                    });
 
             batch.clear();
         }
@@ -101,6 +113,7 @@ public class JournallingMessageHandler implements EventHandler<RawMessageEvent>
 
             if (input.getEncodedRawMessage() == null) {
                 log.error("Skipping RawMessageEvent with null encodedRawMessage");
+                droppedMessages.inc();
                 return null;
             }
             // stats
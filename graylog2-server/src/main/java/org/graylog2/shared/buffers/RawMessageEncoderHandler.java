@@ -18,6 +18,8 @@ package org.graylog2.shared.buffers;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.shared.journal.CodecConfigRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,16 +30,20 @@ import static com.codahale.metrics.MetricRegistry.name;
 public class RawMessageEncoderHandler implements WorkHandler<RawMessageEvent> {
     private static final Logger log = LoggerFactory.getLogger(RawMessageEncoderHandler.class);
     private final Meter incomingMessages;
+    private final CodecConfigRegistry codecConfigRegistry;
 
     @Inject
-    public RawMessageEncoderHandler(MetricRegistry metricRegistry) {
+    public RawMessageEncoderHandler(MetricRegistry metricRegistry, CodecConfigRegistry codecConfigRegistry) {
+        this.codecConfigRegistry = codecConfigRegistry;
         incomingMessages = metricRegistry.meter(name(RawMessageEncoderHandler.class, "incomingMessages"));
     }
 
     @Override
     public void onEvent(RawMessageEvent event) throws Exception {
         incomingMessages.mark();
-        event.setEncodedRawMessage(event.getRawMessage().encode());
+        final RawMessage rawMessage = event.getRawMessage();
+        // Only the fingerprint of the codec configuration is written to the journal
+        event.setEncodedRawMessage(rawMessage.encode(codecConfigRegistry.register(rawMessage.getCodecConfig())));
         event.setMessageIdBytes(event.getRawMessage().getIdBytes());
 
         if (log.isTraceEnabled()) {
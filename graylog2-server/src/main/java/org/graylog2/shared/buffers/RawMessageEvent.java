@@ -23,6 +23,7 @@ import com.lmax.disruptor.EventTranslatorOneArg;
 import org.graylog2.plugin.journal.RawMessage;
 import org.joda.time.DateTime;
 
+import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
 
 public class RawMessageEvent {
@@ -37,6 +38,9 @@ public class RawMessageEvent {
     // We need access to the raw message timestamp after the raw message has been cleared
     private DateTime messageTimestamp;
 
+    // Notified once the message has been written to the journal or handed to the process buffer
+    private BatchAcknowledgement acknowledgement;
+
     public static final EventFactory<RawMessageEvent> FACTORY = new EventFactory<RawMessageEvent>() {
         @Override
         public RawMessageEvent newInstance() {
@@ -47,6 +51,7 @@ public class RawMessageEvent {
         @Override
         public void translateTo(RawMessageEvent event, long sequence, RawMessage arg0) {
             event.setRawMessage(arg0);
+            event.setAcknowledgement(null);
         }
     };
 
@@ -91,6 +96,33 @@ public class RawMessageEvent {
         this.messageTimestamp = messageTimestamp;
     }
 
+    void setAcknowledgement(@Nullable BatchAcknowledgement acknowledgement) {
+        this.acknowledgement = acknowledgement;
+    }
+
+    /**
+     * Acknowledges that the message has been written to the journal or handed to the process buffer, or that it
+     * has been dropped because it can never be written.
+     */
+    public void acknowledge() {
+        final BatchAcknowledgement ack = acknowledgement;
+        acknowledgement = null;
+        if (ack != null) {
+            ack.acknowledge();
+        }
+    }
+
+    /**
+     * Signals that writing the message failed, which fails the whole batch it belongs to.
+     */
+    public void fail(Throwable cause) {
+        final BatchAcknowledgement ack = acknowledgement;
+        acknowledgement = null;
+        if (ack != null) {
+            ack.fail(cause);
+        }
+    }
+
     // performance doesn't matter, it's only being called during tracing
     public UUID getMessageId() {
         final ByteBuffer wrap = ByteBuffer.wrap(messageIdBytes);
@@ -102,5 +134,6 @@ public class RawMessageEvent {
         this.encodedRawMessage = null;
         this.messageIdBytes = null;
         this.messageTimestamp = null;
+        this.acknowledgement = null;
     }
 }
@@ -19,6 +19,8 @@ package org.graylog2.shared.buffers.processors;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.net.InetAddresses;
@@ -46,6 +48,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 import static com.codahale.metrics.MetricRegistry.name;
@@ -66,6 +69,12 @@ public class DecodingProcessor implements EventHandler<MessageEvent> {
     private final MessageQueueAcknowledger acknowledger;
     private final FailureSubmissionService failureSubmissionService;
     private final Timer parseTime;
+    // Creating a codec can be expensive (e.g. compiling patterns), so they are reused for messages with the same
+    // codec configuration. Every processor has its own codecs, as they are not required to be thread-safe.
+    private final Cache<CodecKey, Codec> codecs = Caffeine.newBuilder()
+            .maximumSize(100)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
 
     @AssistedInject
     public DecodingProcessor(Map<String, Codec.Factory<? extends Codec>> codecFactory,
@@ -135,7 +144,10 @@ public class DecodingProcessor implements EventHandler<MessageEvent> {
             return;
         }
 
-        final Codec codec = factory.create(raw.getCodecConfig());
+        // Messages read from the journal carry a new configuration object each, so they are identified by their key
+        final Object codecConfigKey = raw.getCodecConfigKey() != null ? raw.getCodecConfigKey() : raw.getCodecConfig();
+        final Codec codec = codecs.get(new CodecKey(raw.getCodecName(), codecConfigKey),
+                key -> factory.create(raw.getCodecConfig()));
         final String baseMetricName = name(codec.getClass(), inputIdOnCurrentNode);
 
         Optional<Message> message = Optional.empty();
@@ -279,4 +291,11 @@ public class DecodingProcessor implements EventHandler<MessageEvent> {
         decodedTrafficCounter.inc(message.getSize());
         return message;
     }
+
+    /**
+     * The configuration is either the {@link RawMessage#getCodecConfigKey() key} of the codec configuration or, for
+     * messages which have not been read from the journal, the configuration object itself. Configuration objects are
+     * compared by identity, inputs pass the same instance with each of their messages.
+     */
+    private record CodecKey(String codecName, Object configuration) {}
 }
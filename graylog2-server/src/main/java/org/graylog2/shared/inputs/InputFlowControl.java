@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.inputs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog2.plugin.ThrottleState;
+import org.graylog2.plugin.inputs.InputCredits;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-input flow control, which replaces the node-wide throttling of inputs based on the journal utilization.
+ * <p>
+ * As long as the journal backlog is below the configured limit, inputs are not limited at all. Otherwise, every input
+ * gets a share of the current processing throughput of the node, weighted by its configured weight. Inputs which
+ * need less than their share only get what they used recently plus some headroom, and the rest is distributed among
+ * the other inputs. This keeps a noisy input from throttling low-volume inputs.
+ * <p>
+ * The shares are updated with every {@link ThrottleState}, but inputs are paused and resumed by their
+ * {@link InputCredits} as soon as they run out of credits or have been granted enough credits again.
+ */
+@Singleton
+public class InputFlowControl {
+    private static final Logger LOG = LoggerFactory.getLogger(InputFlowControl.class);
+
+    public static final String CK_FLOW_CONTROL_WEIGHT = "flow_control_weight";
+    public static final int DEFAULT_WEIGHT = 1;
+
+    // Admit less than the processing throughput to drain the backlog
+    private static final double DRAIN_RATIO = 0.9;
+    // Allows inputs which use less than their share to grow
+    private static final double HEADROOM = 1.25;
+    private static final double MIN_CREDITS_PER_SECOND = 10;
+
+    private final boolean enabled;
+    private final long maxBacklog;
+    private final MetricRegistry metricRegistry;
+    private final ScheduledExecutorService scheduler;
+    private final LongSupplier nanoClock;
+    private final ConcurrentMap<String, InputCredits> inputs = new ConcurrentHashMap<>();
+
+    private long lastUpdate;
+
+    @Inject
+    public InputFlowControl(@Named("input_flow_control_enabled") boolean enabled,
+                            @Named("input_flow_control_max_backlog") long maxBacklog,
+                            MetricRegistry metricRegistry,
+                            EventBus eventBus,
+                            @Named("daemonScheduler") ScheduledExecutorService scheduler) {
+        this(enabled, maxBacklog, metricRegistry, scheduler, System::nanoTime);
+        if (enabled) {
+            eventBus.register(this);
+        }
+    }
+
+    @VisibleForTesting
+    InputFlowControl(boolean enabled,
+                     long maxBacklog,
+                     MetricRegistry metricRegistry,
+                     ScheduledExecutorService scheduler,
+                     LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.maxBacklog = maxBacklog;
+        this.metricRegistry = metricRegistry;
+        this.scheduler = scheduler;
+        this.nanoClock = nanoClock;
+        this.lastUpdate = nanoClock.getAsLong();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers the given input, which has to use its credits for every message it reads and close them when it is
+     * stopped.
+     *
+     * @return the credits of the input or {@code null} if flow control is disabled
+     */
+    @Nullable
+    public InputCredits register(MessageInput input) {
+        if (!enabled) {
+            return null;
+        }
+        final int weight = Math.max(1, input.getConfiguration().getInt(CK_FLOW_CONTROL_WEIGHT, DEFAULT_WEIGHT));
+        // Close the credits of a previous launch first, they share the same metrics
+        final InputCredits previous = inputs.remove(input.getId());
+        if (previous != null) {
+            previous.close();
+        }
+        final InputCredits credits = new InputCredits(input.getId(), weight, metricRegistry, input.getUniqueReadableId(), scheduler, nanoClock);
+        inputs.put(input.getId(), credits);
+        return credits;
+    }
+
+    @Subscribe
+    public void updateThrottleState(ThrottleState state) {
+        final long now = nanoClock.getAsLong();
+        final double seconds = Math.max((now - lastUpdate) / (double) TimeUnit.SECONDS.toNanos(1), 0.001);
+        lastUpdate = now;
+
+        // Inputs close their credits when they are stopped
+        inputs.values().removeIf(InputCredits::isClosed);
+        final List<InputCredits> current = new ArrayList<>(inputs.values());
+        if (state.uncommittedJournalEntries <= maxBacklog && state.processBufferCapacity > 0) {
+            current.forEach(credits -> {
+                credits.drainUsage();
+                credits.unlimit();
+            });
+            return;
+        }
+
+        final double throughput = Math.max(state.readEventsPerSec * DRAIN_RATIO, MIN_CREDITS_PER_SECOND * current.size());
+        final Map<InputCredits, Double> shares = allocate(current, throughput, seconds);
+        LOG.debug("Journal backlog of {} entries, distributing {} credits per second among {} inputs.", state.uncommittedJournalEntries, throughput, shares.size());
+        shares.forEach(InputCredits::limit);
+    }
+
+    /**
+     * Distributes the throughput among the inputs by weighted max-min fairness, based on their recent usage.
+     */
+    private static Map<InputCredits, Double> allocate(List<InputCredits> inputs, double throughput, double seconds) {
+        final Map<InputCredits, Double> demands = new HashMap<>();
+        for (InputCredits credits : inputs) {
+            demands.put(credits, Math.max(credits.drainUsage() / seconds * HEADROOM, MIN_CREDITS_PER_SECOND));
+        }
+        // Inputs with the lowest demand relative to their weight are satisfied first
+        final List<InputCredits> sorted = new ArrayList<>(inputs);
+        sorted.sort(Comparator.comparingDouble(credits -> demands.get(credits) / credits.getWeight()));
+
+        final Map<InputCredits, Double> shares = new HashMap<>();
+        double remaining = throughput;
+        long remainingWeight = sorted.stream().mapToLong(InputCredits::getWeight).sum();
+        for (InputCredits credits : sorted) {
+            final double fairShare = remaining * credits.getWeight() / remainingWeight;
+            final double share = Math.max(Math.min(demands.get(credits), fairShare), MIN_CREDITS_PER_SECOND);
+            shares.put(credits, share);
+            remaining = Math.max(remaining - share, 0);
+            remainingWeight -= credits.getWeight();
+        }
+        return shares;
+    }
+}
@@ -48,11 +48,12 @@ public class InputLauncher {
     private final Configuration configuration;
     private final LeaderElectionService leaderElectionService;
     private final FeatureFlags featureFlags;
+    private final InputFlowControl flowControl;
 
     @Inject
     public InputLauncher(IOState.Factory<MessageInput> inputStateFactory, InputBuffer inputBuffer, PersistedInputs persistedInputs,
                          InputRegistry inputRegistry, MetricRegistry metricRegistry, Configuration configuration, LeaderElectionService leaderElectionService,
-                         FeatureFlags featureFlags) {
+                         FeatureFlags featureFlags, InputFlowControl flowControl) {
         this.inputStateFactory = inputStateFactory;
         this.inputBuffer = inputBuffer;
         this.persistedInputs = persistedInputs;
@@ -61,6 +62,7 @@ public class InputLauncher {
         this.configuration = configuration;
         this.leaderElectionService = leaderElectionService;
         this.featureFlags = featureFlags;
+        this.flowControl = flowControl;
     }
 
     private ExecutorService executorService(final MetricRegistry metricRegistry) {
@@ -104,6 +106,7 @@ public class InputLauncher {
                 try {
                     input.checkConfiguration();
                     inputState.setState(IOState.Type.STARTING);
+                    input.setFlowCredits(flowControl.register(input));
                     input.launch(inputBuffer, new InputFailureRecorder(inputState));
                     inputState.setState(IOState.Type.RUNNING);
                     String msg = "Completed starting [" + input.getClass().getCanonicalName() + "] input " + input.toIdentifier();
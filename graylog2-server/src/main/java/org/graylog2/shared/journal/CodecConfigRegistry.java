@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.journal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.Hashing;
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.graylog2.plugin.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of the codec configurations of the messages in the journal.
+ * <p>
+ * Instead of the full JSON description of its codec configuration, every journal entry only contains a fingerprint
+ * of it. The configurations are written to the data directory before the first message referencing them is written
+ * to the journal, so messages can still be decoded after a restart. Configurations which have not been registered
+ * since the start of the node are removed by {@link #removeUnused()} once the journal doesn't contain any entries
+ * from before the start anymore.
+ * <p>
+ * The fingerprint contains the version of the storage format, so the format can be changed without breaking the
+ * decoding of older journal entries.
+ */
+@Singleton
+public class CodecConfigRegistry {
+    private static final Logger LOG = LoggerFactory.getLogger(CodecConfigRegistry.class);
+
+    static final String DIRECTORY = "journal_codec_configs";
+    private static final String VERSION_PREFIX = "v1-";
+    private static final String FILE_SUFFIX = ".json";
+    private static final Pattern FINGERPRINT = Pattern.compile("v1-[0-9a-f]+");
+
+    private final Path directory;
+    // Inputs pass the same configuration object with each of their messages, so it is only serialized once
+    private final Cache<Configuration, String> fingerprints = Caffeine.newBuilder().weakKeys().build();
+    private final ConcurrentMap<String, Configuration> configurations = new ConcurrentHashMap<>();
+    // Fingerprints which might be referenced by journal entries written since the start of the node
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public CodecConfigRegistry(@Named("data_dir") Path dataDir) {
+        this.directory = dataDir.resolve(DIRECTORY);
+    }
+
+    /**
+     * Registers the given configuration and returns its fingerprint.
+     *
+     * @return the fingerprint or {@code null} if the configuration is empty or could not be persisted, in which case
+     * it has to be written to the journal entry itself
+     */
+    @Nullable
+    public String register(@Nullable Configuration configuration) {
+        if (configuration == null) {
+            return null;
+        }
+        final String known = fingerprints.getIfPresent(configuration);
+        if (known != null) {
+            return known;
+        }
+
+        final String json = configuration.serializeToJson();
+        if (json == null) {
+            return null;
+        }
+        final String fingerprint = VERSION_PREFIX + Hashing.murmur3_128().hashString(json, StandardCharsets.UTF_8);
+        if (!registered.contains(fingerprint)) {
+            synchronized (this) {
+                try {
+                    persist(fingerprint, json);
+                } catch (IOException e) {
+                    LOG.warn("Unable to persist codec configuration, writing it to every journal entry instead.", e);
+                    return null;
+                }
+                configurations.putIfAbsent(fingerprint, configuration);
+                registered.add(fingerprint);
+            }
+        }
+        fingerprints.put(configuration, fingerprint);
+        return fingerprint;
+    }
+
+    /**
+     * Removes the persisted configurations which have not been registered since the start of the node. Must only be
+     * called if the journal doesn't contain entries written before the start, because they might refer to them.
+     *
+     * @return the number of removed configurations
+     */
+    public synchronized int removeUnused() {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                final String fileName = file.getFileName().toString();
+                final String fingerprint = fileName.substring(0, fileName.length() - FILE_SUFFIX.length());
+                if (FINGERPRINT.matcher(fingerprint).matches() && !registered.contains(fingerprint)) {
+                    Files.deleteIfExists(file);
+                    configurations.remove(fingerprint);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Unable to remove unused codec configurations from {}.", directory, e);
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the configuration with the given fingerprint.
+     *
+     * @return the configuration or {@code null} if there is no configuration with this fingerprint
+     */
+    @Nullable
+    public Configuration get(String fingerprint) {
+        return configurations.computeIfAbsent(fingerprint, this::load);
+    }
+
+    private void persist(String fingerprint, String json) throws IOException {
+        final Path file = file(fingerprint);
+        if (Files.exists(file)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        final Path tmpFile = Files.createTempFile(directory, fingerprint, ".tmp");
+        try {
+            Files.writeString(tmpFile, json, StandardCharsets.UTF_8);
+            Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    @Nullable
+    private Configuration load(String fingerprint) {
+        if (!FINGERPRINT.matcher(fingerprint).matches()) {
+            LOG.error("Unsupported codec configuration fingerprint <{}>.", fingerprint);
+            return null;
+        }
+        try {
+            return Configuration.deserializeFromJson(Files.readString(file(fingerprint), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            LOG.error("Codec configuration <{}> does not exist in {}.", fingerprint, directory);
+            return null;
+        } catch (IOException e) {
+            LOG.error("Unable to read codec configuration <{}>.", fingerprint, e);
+            return null;
+        }
+    }
+
+    private Path file(String fingerprint) {
+        return directory.resolve(fingerprint + FILE_SUFFIX);
+    }
+}
@@ -147,6 +147,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
 
     private final LogManager logManager;
     private final Log kafkaLog;
+    private final long logEndOffsetAtStart;
     private final File committedReadOffsetFile;
     private final AtomicLong committedOffset = new AtomicLong(DEFAULT_COMMITTED_OFFSET);
     private final MetricRegistry metricRegistry;
@@ -341,6 +342,7 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
             } else {
                 kafkaLog = messageLog.get();
             }
+            logEndOffsetAtStart = kafkaLog.logEndOffset();
 
             // Set up more metrics
             this.metricRegistry.register(name(metricPrefix, METRIC_NAME_SIZE), (Gauge<Long>) kafkaLog::size);
@@ -952,6 +954,15 @@ public class LocalKafkaJournal extends AbstractIdleService implements Journal {
         return segment.baseOffset();
     }
 
+    /**
+     * Returns whether the journal still contains entries which have been written before this node has been started.
+     *
+     * @return {@code true} until all segments with older entries have been removed
+     */
+    public boolean containsEntriesFromPreviousRuns() {
+        return getLogStartOffset() < logEndOffsetAtStart;
+    }
+
     /**
      * returns the offset for the next value to be inserted in the entire journal.
      *
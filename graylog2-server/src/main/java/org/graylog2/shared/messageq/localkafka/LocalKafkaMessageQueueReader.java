@@ -24,6 +24,7 @@ import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.Uninterruptibles;
 import org.graylog2.plugin.journal.RawMessage;
 import org.graylog2.shared.buffers.ProcessBuffer;
+import org.graylog2.shared.journal.CodecConfigRegistry;
 import org.graylog2.shared.journal.Journal;
 import org.graylog2.shared.messageq.AbstractMessageQueueReader;
 import org.graylog2.shared.messageq.MessageQueueReader;
@@ -48,6 +49,7 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
     private final ProcessBuffer processBuffer;
     private final Semaphore journalFilled;
     private final MetricRegistry metricRegistry;
+    private final CodecConfigRegistry codecConfigRegistry;
     private final Meter readMessages;
     private final Metrics readerMetrics;
     private Histogram requestedReadCount;
@@ -60,7 +62,8 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
                                         @Named("JournalSignal") Semaphore journalFilled,
                                         MetricRegistry metricRegistry,
                                         EventBus eventBus,
-                                        MessageQueueReader.Metrics readerMetrics) {
+                                        MessageQueueReader.Metrics readerMetrics,
+                                        CodecConfigRegistry codecConfigRegistry) {
 
         super(eventBus);
 
@@ -68,6 +71,7 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
         this.processBuffer = processBuffer;
         this.journalFilled = journalFilled;
         this.metricRegistry = metricRegistry;
+        this.codecConfigRegistry = codecConfigRegistry;
         readBlocked = metricRegistry.counter(name(this.getClass(), "readBlocked"));
         readMessages = metricRegistry.meter(name(this.getClass(), "readMessages"));
         this.readerMetrics = readerMetrics;
@@ -128,7 +132,7 @@ public class LocalKafkaMessageQueueReader extends AbstractMessageQueueReader {
                 log.debug("Processing {} messages from journal.", encodedRawMessages.size());
                 for (final Journal.JournalReadEntry encodedRawMessage : encodedRawMessages) {
                     final RawMessage rawMessage = RawMessage.decode(encodedRawMessage.getPayload(),
-                            encodedRawMessage.getOffset());
+                            encodedRawMessage.getOffset(), codecConfigRegistry::get);
                     readerMetrics.readBytes().mark(encodedRawMessage.getPayload().length);
                     if (rawMessage == null) {
                         // never insert null objects into the ringbuffer, as that is useless
@@ -0,0 +1,448 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.utilities;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Evaluates several JSON paths in a single pass over a JSON document.
+ * <p>
+ * Paths which only consist of properties, array indices and wildcards (e.g. {@code $.store.book[0].author} or
+ * {@code $.items[*].id}) are evaluated while reading the document with a streaming parser, which skips all subtrees
+ * that cannot match and only builds values which have been selected. If any path uses other features, like filters,
+ * slices or deep scans, or the document is not strict JSON, all paths are evaluated by {@link JsonPath} instead.
+ * <p>
+ * Results are the same as those of {@link DocumentContext#read(JsonPath, com.jayway.jsonpath.Predicate...)} with the
+ * default configuration.
+ */
+public class JsonPathEvaluator {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    // Builds selected values with the same types as JsonPath
+    private static final JsonProvider JSON_PROVIDER = Configuration.defaultConfiguration().jsonProvider();
+
+    private final List<JsonPath> paths;
+    // Null if any of the paths cannot be evaluated while streaming
+    @Nullable
+    private final List<List<Step>> compiledPaths;
+
+    private JsonPathEvaluator(List<JsonPath> paths, @Nullable List<List<Step>> compiledPaths) {
+        this.paths = paths;
+        this.compiledPaths = compiledPaths;
+    }
+
+    public static JsonPathEvaluator compile(List<JsonPath> paths) {
+        final List<List<Step>> compiledPaths = new ArrayList<>(paths.size());
+        for (JsonPath path : paths) {
+            final Optional<List<Step>> steps = compileSteps(path);
+            if (steps.isEmpty()) {
+                return new JsonPathEvaluator(ImmutableList.copyOf(paths), null);
+            }
+            compiledPaths.add(steps.get());
+        }
+        return new JsonPathEvaluator(ImmutableList.copyOf(paths), compiledPaths);
+    }
+
+    public static JsonPathEvaluator compile(JsonPath... paths) {
+        return compile(List.of(paths));
+    }
+
+    /**
+     * Whether all paths are evaluated while streaming.
+     */
+    public boolean isStreaming() {
+        return compiledPaths != null;
+    }
+
+    /**
+     * Evaluates all paths on the given JSON document.
+     *
+     * @param json the document, encoded in UTF-8
+     * @throws com.jayway.jsonpath.InvalidJsonException if the document cannot be parsed
+     */
+    public Result evaluate(byte[] json) {
+        if (compiledPaths != null) {
+            try (final JsonParser parser = JSON_FACTORY.createParser(json)) {
+                final Optional<Result> result = evaluate(parser);
+                if (result.isPresent()) {
+                    return result.get();
+                }
+            } catch (IOException e) {
+                // Not strict JSON, which might still be parsed by JsonPath
+            }
+        }
+        return new DocumentResult(JsonPath.parse(new ByteArrayInputStream(json)), paths);
+    }
+
+    /**
+     * Evaluates all paths on the given JSON document.
+     *
+     * @throws com.jayway.jsonpath.InvalidJsonException if the document cannot be parsed
+     */
+    public Result evaluate(String json) {
+        if (compiledPaths != null) {
+            try (final JsonParser parser = JSON_FACTORY.createParser(json)) {
+                final Optional<Result> result = evaluate(parser);
+                if (result.isPresent()) {
+                    return result.get();
+                }
+            } catch (IOException e) {
+                // Not strict JSON, which might still be parsed by JsonPath
+            }
+        }
+        return new DocumentResult(JsonPath.parse(json), paths);
+    }
+
+    private Optional<Result> evaluate(JsonParser parser) throws IOException {
+        if (parser.nextToken() == null) {
+            return Optional.empty();
+        }
+        final StreamingResult result = new StreamingResult(paths);
+        final List<Cursor> cursors = new ArrayList<>(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            cursors.add(new Cursor(i, 0));
+        }
+        walk(parser, cursors, result);
+        // Trailing content is left to JsonPath to decide about
+        if (parser.nextToken() != null) {
+            return Optional.empty();
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * Walks the value at the current token of the parser, with all cursors pointing at that value.
+     */
+    private void walk(JsonParser parser, List<Cursor> cursors, StreamingResult result) throws IOException {
+        if (cursors.stream().anyMatch(this::isComplete)) {
+            // The value is selected by a path, so it has to be built anyway
+            final Object value = readValue(parser);
+            for (Cursor cursor : cursors) {
+                collect(value, compiledPaths.get(cursor.path()), cursor.step(), cursor.path(), result);
+            }
+            return;
+        }
+
+        final JsonToken token = parser.currentToken();
+        final boolean[] matched = new boolean[cursors.size()];
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.currentName();
+                parser.nextToken();
+                final List<Cursor> children = new ArrayList<>(cursors.size());
+                for (int i = 0; i < cursors.size(); i++) {
+                    if (nextStep(cursors.get(i)).matches(name)) {
+                        matched[i] = true;
+                        children.add(cursors.get(i).next());
+                    }
+                }
+                if (children.isEmpty()) {
+                    parser.skipChildren();
+                } else {
+                    walk(parser, children, result);
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                final List<Cursor> children = new ArrayList<>(cursors.size());
+                for (int i = 0; i < cursors.size(); i++) {
+                    if (nextStep(cursors.get(i)).matches(index)) {
+                        matched[i] = true;
+                        children.add(cursors.get(i).next());
+                    }
+                }
+                if (children.isEmpty()) {
+                    parser.skipChildren();
+                } else {
+                    walk(parser, children, result);
+                }
+                index++;
+            }
+        }
+        for (int i = 0; i < cursors.size(); i++) {
+            if (!matched[i]) {
+                final Cursor cursor = cursors.get(i);
+                notFound(compiledPaths.get(cursor.path()), cursor.step(), cursor.path(),
+                        token == JsonToken.START_OBJECT, token == JsonToken.START_ARRAY, result);
+            }
+        }
+    }
+
+    private boolean isComplete(Cursor cursor) {
+        return cursor.step() == compiledPaths.get(cursor.path()).size();
+    }
+
+    private Step nextStep(Cursor cursor) {
+        return compiledPaths.get(cursor.path()).get(cursor.step());
+    }
+
+    /**
+     * Evaluates the remaining steps of a path on a value which has already been built.
+     */
+    private static void collect(@Nullable Object value, List<Step> steps, int step, int path, StreamingResult result) {
+        if (step == steps.size()) {
+            result.add(path, value);
+            return;
+        }
+        final Step next = steps.get(step);
+        boolean matched = false;
+        if (JSON_PROVIDER.isMap(value)) {
+            for (String key : JSON_PROVIDER.getPropertyKeys(value)) {
+                if (next.matches(key)) {
+                    matched = true;
+                    collect(JSON_PROVIDER.getMapValue(value, key), steps, step + 1, path, result);
+                }
+            }
+        } else if (JSON_PROVIDER.isArray(value)) {
+            final int length = JSON_PROVIDER.length(value);
+            for (int i = 0; i < length; i++) {
+                if (next.matches(i)) {
+                    matched = true;
+                    collect(JSON_PROVIDER.getArrayIndex(value, i), steps, step + 1, path, result);
+                }
+            }
+        }
+        if (!matched) {
+            notFound(steps, step, path, JSON_PROVIDER.isMap(value), JSON_PROVIDER.isArray(value), result);
+        }
+    }
+
+    /**
+     * Handles a step which didn't match anything. Like JsonPath, this only fails the path if none of the previous
+     * steps are wildcards and the step requires a different type of value or is missing a property which is not
+     * the last step of the path.
+     */
+    private static void notFound(List<Step> steps, int step, int path, boolean isMap, boolean isArray, StreamingResult result) {
+        final Step next = steps.get(step);
+        if (next.isWildcard() || steps.subList(0, step).stream().anyMatch(Step::isWildcard)) {
+            return;
+        }
+        if (next.property() != null ? !isMap || step < steps.size() - 1 : !isArray) {
+            result.fail(path);
+        }
+    }
+
+    /**
+     * Builds the value at the current token like the default JSON provider of {@link JsonPath}.
+     */
+    @Nullable
+    private static Object readValue(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                final Object map = JSON_PROVIDER.createMap();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String name = parser.currentName();
+                    parser.nextToken();
+                    JSON_PROVIDER.setProperty(map, name, readValue(parser));
+                }
+                return map;
+            case START_ARRAY:
+                final Object array = JSON_PROVIDER.createArray();
+                int index = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    JSON_PROVIDER.setArrayIndex(array, index++, readValue(parser));
+                }
+                return array;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                // Integer, Long or BigInteger, depending on the magnitude
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                final String number = parser.getText();
+                // The default JSON provider only keeps the precision of long numbers
+                return number.length() > 18 ? new BigDecimal(number) : Double.valueOf(number);
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new JsonProcessingException("Unexpected token " + parser.currentToken(), parser.currentLocation()) {
+                };
+        }
+    }
+
+    /**
+     * Compiles the normalized form of the path, e.g. {@code $['store']['book'][0]['author']}.
+     */
+    @VisibleForTesting
+    static Optional<List<Step>> compileSteps(JsonPath path) {
+        final String normalized = path.getPath();
+        if (!normalized.startsWith("$")) {
+            return Optional.empty();
+        }
+        final List<Step> steps = new ArrayList<>();
+        int i = 1;
+        while (i < normalized.length()) {
+            if (normalized.startsWith("['", i)) {
+                final int end = normalized.indexOf("']", i + 2);
+                if (end < 0) {
+                    return Optional.empty();
+                }
+                final String property = normalized.substring(i + 2, end);
+                // Multiple properties or escaped quotes
+                if (property.contains("'") || property.contains("\\")) {
+                    return Optional.empty();
+                }
+                steps.add(Step.property(property));
+                i = end + 2;
+            } else if (normalized.startsWith("[*]", i)) {
+                steps.add(Step.wildcard());
+                i += 3;
+            } else if (normalized.charAt(i) == '[') {
+                final int end = normalized.indexOf(']', i);
+                if (end < 0) {
+                    return Optional.empty();
+                }
+                final String index = normalized.substring(i + 1, end);
+                // Only a single, non-negative index
+                if (index.isEmpty() || index.length() > 9 || !index.chars().allMatch(Character::isDigit)) {
+                    return Optional.empty();
+                }
+                steps.add(Step.index(Integer.parseInt(index)));
+                i = end + 1;
+            } else {
+                // Deep scans and functions
+                return Optional.empty();
+            }
+        }
+        return Optional.of(steps);
+    }
+
+    /**
+     * The results of all paths of a single document.
+     */
+    public interface Result {
+        /**
+         * Returns the result of the path with the given index. Definite paths return the selected value, other paths
+         * a list of all selected values.
+         *
+         * @throws PathNotFoundException if a definite path does not select any value
+         */
+        @Nullable
+        Object read(int path);
+    }
+
+    private static class DocumentResult implements Result {
+        private final DocumentContext documentContext;
+        private final List<JsonPath> paths;
+
+        private DocumentResult(DocumentContext documentContext, List<JsonPath> paths) {
+            this.documentContext = documentContext;
+            this.paths = paths;
+        }
+
+        @Override
+        public Object read(int path) {
+            return documentContext.read(paths.get(path));
+        }
+    }
+
+    private static class StreamingResult implements Result {
+        private final List<JsonPath> paths;
+        private final Object[] values;
+        private final boolean[] found;
+        private final boolean[] failed;
+
+        private StreamingResult(List<JsonPath> paths) {
+            this.paths = paths;
+            this.values = new Object[paths.size()];
+            this.found = new boolean[paths.size()];
+            this.failed = new boolean[paths.size()];
+            for (int i = 0; i < paths.size(); i++) {
+                if (!paths.get(i).isDefinite()) {
+                    values[i] = JSON_PROVIDER.createArray();
+                    found[i] = true;
+                }
+            }
+        }
+
+        private void fail(int path) {
+            failed[path] = true;
+        }
+
+        private void add(int path, @Nullable Object value) {
+            if (paths.get(path).isDefinite()) {
+                values[path] = value;
+                found[path] = true;
+            } else {
+                JSON_PROVIDER.setArrayIndex(values[path], JSON_PROVIDER.length(values[path]), value);
+            }
+        }
+
+        @Override
+        public Object read(int path) {
+            if (failed[path] || !found[path]) {
+                throw new PathNotFoundException("No results for path: " + paths.get(path).getPath());
+            }
+            return values[path];
+        }
+    }
+
+    private record Cursor(int path, int step) {
+        Cursor next() {
+            return new Cursor(path, step + 1);
+        }
+    }
+
+    @VisibleForTesting
+    record Step(@Nullable String property, int index) {
+        static Step property(String property) {
+            return new Step(property, -1);
+        }
+
+        static Step index(int index) {
+            return new Step(null, index);
+        }
+
+        static Step wildcard() {
+            return new Step(null, -1);
+        }
+
+        boolean matches(String name) {
+            return property == null ? index < 0 : property.equals(name);
+        }
+
+        boolean isWildcard() {
+            return property == null && index < 0;
+        }
+
+        boolean matches(int i) {
+            return property == null && (index < 0 || index == i);
+        }
+    }
+}
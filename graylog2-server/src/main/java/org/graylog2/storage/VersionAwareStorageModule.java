@@ -26,6 +26,7 @@ import org.graylog.plugins.views.search.engine.QueryBackend;
 import org.graylog.plugins.views.search.engine.QueryExecutionStats;
 import org.graylog.plugins.views.search.engine.monitoring.collection.InMemoryCappedStatsCollector;
 import org.graylog.plugins.views.search.engine.monitoring.collection.NoOpStatsCollector;
+import org.graylog.plugins.views.search.engine.monitoring.collection.SearchTelemetryCollector;
 import org.graylog.plugins.views.search.engine.monitoring.collection.StatsCollector;
 import org.graylog2.Configuration;
 import org.graylog2.indexer.IndexToolsAdapter;
@@ -99,7 +100,10 @@ public class VersionAwareStorageModule extends AbstractModule {
     }
 
     private void bindQueryBackend() {
-        if (configuration.isQueryLatencyMonitoringEnabled() && configuration.getQueryLatencyMonitoringWindowSize() > 0) {
+        if (configuration.isSearchTelemetryEnabled()) {
+            bind(new TypeLiteral<StatsCollector<QueryExecutionStats>>() {})
+                    .to(SearchTelemetryCollector.class);
+        } else if (configuration.isQueryLatencyMonitoringEnabled() && configuration.getQueryLatencyMonitoringWindowSize() > 0) {
             bind(new TypeLiteral<StatsCollector<QueryExecutionStats>>() {})
                     .toInstance(new InMemoryCappedStatsCollector<>(configuration.getQueryLatencyMonitoringWindowSize()));
         } else {
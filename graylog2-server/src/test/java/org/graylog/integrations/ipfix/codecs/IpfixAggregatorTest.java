@@ -16,6 +16,7 @@
  */
 package org.graylog.integrations.ipfix.codecs;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
 import io.netty.buffer.ByteBuf;
@@ -109,7 +110,7 @@ public class IpfixAggregatorTest {
         final Map<String, Object> configMap = getIxiaConfigmap();
         final Configuration configuration = new Configuration(configMap);
 
-        final IpfixCodec codec = new IpfixCodec(configuration, ipfixAggregator, messageFactory);
+        final IpfixCodec codec = new IpfixCodec(configuration, ipfixAggregator, messageFactory, new MetricRegistry());
 
         AtomicInteger messageCount = new AtomicInteger();
         try (InputStream stream = Resources.getResource("data-datatemplate.pcap").openStream()) {
@@ -145,7 +146,7 @@ public class IpfixAggregatorTest {
     public void ixFlowTest() throws IOException, URISyntaxException {
         final IpfixAggregator ipfixAggregator = new IpfixAggregator();
         final Map<String, Object> configMap = getIxiaConfigmap();
-        final IpfixCodec codec = new IpfixCodec(new Configuration(configMap), ipfixAggregator, messageFactory);
+        final IpfixCodec codec = new IpfixCodec(new Configuration(configMap), ipfixAggregator, messageFactory, new MetricRegistry());
         final List<Message> messages = new ArrayList<>();
 
         // ixflow.pcap contains 4 packets, the first has the data templates and option templates
@@ -193,7 +194,7 @@ public class IpfixAggregatorTest {
     @Test
     public void ignoreTrailingRecordPadding() throws IOException {
         final IpfixAggregator ipfixAggregator = new IpfixAggregator();
-        final IpfixCodec codec = new IpfixCodec(new Configuration(Map.of()), ipfixAggregator, messageFactory);
+        final IpfixCodec codec = new IpfixCodec(new Configuration(Map.of()), ipfixAggregator, messageFactory, new MetricRegistry());
         final List<Message> messages = new ArrayList<>();
 
         try (InputStream stream = Resources.getResource("trailingpadding.pcap").openStream()) {
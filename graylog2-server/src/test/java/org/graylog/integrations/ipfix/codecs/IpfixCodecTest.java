@@ -16,6 +16,7 @@
  */
 package org.graylog.integrations.ipfix.codecs;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import jakarta.validation.constraints.NotNull;
@@ -55,7 +56,7 @@ public class IpfixCodecTest {
     @Before
     public void setUp() throws Exception {
         ipfixAggregator = new IpfixAggregator();
-        codec = new IpfixCodec(Configuration.EMPTY_CONFIGURATION, ipfixAggregator, messageFactory);
+        codec = new IpfixCodec(Configuration.EMPTY_CONFIGURATION, ipfixAggregator, messageFactory, new MetricRegistry());
     }
 
     @Ignore("Invalid CK_IPFIX_DEFINITION_PATH does not throw IOException, feature not ready.")
@@ -67,7 +68,7 @@ public class IpfixCodecTest {
                 IpfixCodec.CK_IPFIX_DEFINITION_PATH, definitionsFile.getAbsolutePath());
         final Configuration configuration = new Configuration(configMap);
         assertThatExceptionOfType(IOException.class)
-                .isThrownBy(() -> new IpfixCodec(configuration, ipfixAggregator, messageFactory))
+                .isThrownBy(() -> new IpfixCodec(configuration, ipfixAggregator, messageFactory, new MetricRegistry()))
                 .withMessageEndingWith("(No such file or directory)");
     }
 
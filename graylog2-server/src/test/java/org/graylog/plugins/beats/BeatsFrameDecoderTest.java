@@ -16,8 +16,11 @@
  */
 package org.graylog.plugins.beats;
 
+import com.codahale.metrics.MetricRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -28,7 +31,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.Deflater;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -231,6 +241,72 @@ public class BeatsFrameDecoderTest {
         }
     }
 
+    @Test
+    public void decodeCompressedWindowInWindowedMode() throws Exception {
+        final BeatsFrameDecoder windowedDecoder = new BeatsFrameDecoder(null, new MetricRegistry());
+        final EmbeddedChannel windowedChannel = new EmbeddedChannel(windowedDecoder);
+
+        final ByteBuf buffer = Unpooled.copiedBuffer(
+                buildWindowSizeFrame(2),
+                buildCompressedFrame(Unpooled.copiedBuffer(
+                        buildJsonFrame("{\"answer\": 1}".getBytes(StandardCharsets.UTF_8), 1),
+                        buildJsonFrame("{\"answer\": 2}".getBytes(StandardCharsets.UTF_8), 2)).array(), 3)
+        );
+        windowedChannel.writeInbound(buffer);
+        windowedChannel.finish();
+
+        final BeatsWindow window = windowedChannel.readInbound();
+        assertThat(window.sequenceNum()).isEqualTo(2L);
+        assertThat(window.events())
+                .extracting(event -> event.toString(StandardCharsets.UTF_8))
+                .containsExactly("{\"answer\": 1}", "{\"answer\": 2}");
+        assertThat((Object) windowedChannel.readInbound()).isNull();
+        // Windows are acknowledged by the BeatsWindowHandler
+        assertThat((Object) windowedChannel.readOutbound()).isNull();
+    }
+
+    @Test
+    public void decodeWindowsInOrderWithDecodeExecutor() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("beats-decoder-test-%d").build());
+        try {
+            final CountDownLatch inflating = new CountDownLatch(1);
+            // Hold back the inflation of the compressed window until the following window has been received
+            final Executor blockingExecutor = command -> executor.execute(() -> {
+                Uninterruptibles.awaitUninterruptibly(inflating);
+                command.run();
+            });
+            final BeatsFrameDecoder windowedDecoder = new BeatsFrameDecoder(blockingExecutor, new MetricRegistry());
+            final EmbeddedChannel windowedChannel = new EmbeddedChannel(windowedDecoder);
+
+            windowedChannel.writeInbound(Unpooled.copiedBuffer(
+                    buildWindowSizeFrame(1),
+                    buildCompressedFrame(buildJsonFrame("{\"window\": 1}".getBytes(StandardCharsets.UTF_8), 1).array(), 3),
+                    buildJsonFrame("{\"window\": 2}".getBytes(StandardCharsets.UTF_8), 1)
+            ));
+            assertThat((Object) windowedChannel.readInbound()).isNull();
+
+            inflating.countDown();
+            final List<BeatsWindow> windows = new ArrayList<>();
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (windows.size() < 2 && System.nanoTime() < deadline) {
+                windowedChannel.runPendingTasks();
+                final BeatsWindow window = windowedChannel.readInbound();
+                if (window != null) {
+                    windows.add(window);
+                } else {
+                    Thread.sleep(10);
+                }
+            }
+
+            assertThat(windows)
+                    .extracting(window -> window.events().get(0).toString(StandardCharsets.UTF_8))
+                    .containsExactly("{\"window\": 1}", "{\"window\": 2}");
+            windowedChannel.finish();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private long extractSequenceNumber(ByteBuf buffer) {
         assertThat(buffer.readByte()).isEqualTo((byte) '2');
         assertThat(buffer.readByte()).isEqualTo((byte) 'A');
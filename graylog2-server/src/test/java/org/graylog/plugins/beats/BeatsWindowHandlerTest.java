@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.beats;
+
+import com.codahale.metrics.MetricRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.graylog2.plugin.buffers.InputBuffer;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.journal.RawMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class BeatsWindowHandlerTest {
+    private final MessageInput input = mock(MessageInput.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        channel = new EmbeddedChannel(new BeatsWindowHandler(input, metricRegistry)) {
+            @Override
+            public InetSocketAddress remoteAddress() {
+                return new InetSocketAddress("127.0.0.1", 5044);
+            }
+        };
+    }
+
+    @Test
+    void handsOffWindowAsOneBatch() {
+        channel.writeInbound(window(2, "first", "second"));
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<RawMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(input).processRawMessages(captor.capture(), any());
+        assertThat(captor.getValue())
+                .extracting(rawMessage -> new String(rawMessage.getPayload(), StandardCharsets.UTF_8))
+                .containsExactly("first", "second");
+        assertThat(metricRegistry.histogram("connectionThroughput").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void acknowledgesWindowOnceWritten() {
+        channel.writeInbound(window(1, "first"));
+
+        final ArgumentCaptor<InputBuffer.BatchCallback> onWritten = ArgumentCaptor.forClass(InputBuffer.BatchCallback.class);
+        verify(input).processRawMessages(any(), onWritten.capture());
+        assertThat((Object) channel.readOutbound()).isNull();
+
+        onWritten.getValue().written();
+        channel.runPendingTasks();
+
+        assertThat(sequenceNumber(channel.readOutbound())).isEqualTo(1L);
+    }
+
+    @Test
+    void acknowledgesWindowsInOrder() {
+        channel.writeInbound(window(1, "first"));
+        channel.writeInbound(window(2, "second", "third"));
+
+        final ArgumentCaptor<InputBuffer.BatchCallback> onWritten = ArgumentCaptor.forClass(InputBuffer.BatchCallback.class);
+        verify(input, times(2)).processRawMessages(any(), onWritten.capture());
+
+        onWritten.getAllValues().get(1).written();
+        channel.runPendingTasks();
+        assertThat((Object) channel.readOutbound()).isNull();
+
+        onWritten.getAllValues().get(0).written();
+        channel.runPendingTasks();
+        assertThat(sequenceNumber(channel.readOutbound())).isEqualTo(1L);
+        assertThat(sequenceNumber(channel.readOutbound())).isEqualTo(2L);
+    }
+
+    private static BeatsWindow window(long sequenceNum, String... events) {
+        final List<ByteBuf> buffers = Arrays.stream(events)
+                .map(event -> Unpooled.copiedBuffer(event, StandardCharsets.UTF_8))
+                .toList();
+        return new BeatsWindow(sequenceNum, buffers);
+    }
+
+    private static long sequenceNumber(ByteBuf ack) {
+        assertThat(ack.readByte()).isEqualTo((byte) '2');
+        assertThat(ack.readByte()).isEqualTo((byte) 'A');
+        return ack.readUnsignedInt();
+    }
+}
@@ -48,6 +48,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class GeoIpResolverEngineTest {
@@ -357,4 +359,35 @@ public class GeoIpResolverEngineTest {
         assertFalse("Message should not be filtered out", filtered);
         assertEquals("Filter should not add new message fields", messageFields.size(), message.getFields().size());
     }
+
+    @Test
+    public void resolvedAddressesAreCached() {
+        final GeoIpResolverEngine engine = new GeoIpResolverEngine(geoIpVendorResolverService, config, s3GeoIpFileService, metricRegistry,
+                new GeoIpResolutionCache(100, metricRegistry));
+
+        final List<Message> messages = List.of(
+                messageFactory.createMessage(Map.of("_id", java.util.UUID.randomUUID().toString(), "source_ip", publicIp.getHostAddress())),
+                messageFactory.createMessage(Map.of("_id", java.util.UUID.randomUUID().toString(), "destination_ip", publicIp.getHostAddress())));
+        engine.filter(messages);
+
+        final Message message = messageFactory.createMessage(Map.of("_id", java.util.UUID.randomUUID().toString(), "host_ip", publicIp.getHostAddress()));
+        engine.filter(message);
+
+        Assertions.assertEquals(maxMindLocationInfo.cityName(), messages.get(0).getField("source_geo_city"));
+        Assertions.assertEquals(maxMindLocationInfo.cityName(), messages.get(1).getField("destination_geo_city"));
+        Assertions.assertEquals(maxMindAsnInfo.asn(), message.getField("host_as_number"));
+        verify(maxMindCityResolver, times(1)).getGeoIpData(publicIp);
+        verify(maxMindAsnResolver, times(1)).getGeoIpData(publicIp);
+    }
+
+    @Test
+    public void cacheMetricsReportMostRecentCache() {
+        final GeoIpResolutionCache previous = new GeoIpResolutionCache(100, metricRegistry);
+        previous.get(publicIp, address -> GeoIpResolution.RESERVED);
+        assertEquals(1L, metricRegistry.getGauges().get(MetricRegistry.name(GeoIpResolutionCache.class, "size")).getValue());
+
+        new GeoIpResolutionCache(100, metricRegistry);
+
+        assertEquals(0L, metricRegistry.getGauges().get(MetricRegistry.name(GeoIpResolutionCache.class, "size")).getValue());
+    }
 }
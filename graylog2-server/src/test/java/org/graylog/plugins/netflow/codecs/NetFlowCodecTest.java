@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.netflow.codecs;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Resources;
 import org.graylog.plugins.netflow.flows.FlowException;
@@ -56,7 +57,7 @@ public class NetFlowCodecTest {
     @Before
     public void setUp() throws Exception {
         codecAggregator = new NetflowV9CodecAggregator();
-        codec = new NetFlowCodec(Configuration.EMPTY_CONFIGURATION, codecAggregator, netFlowFormatter);
+        codec = new NetFlowCodec(Configuration.EMPTY_CONFIGURATION, codecAggregator, netFlowFormatter, new MetricRegistry());
     }
 
     @Test
@@ -69,7 +70,7 @@ public class NetFlowCodecTest {
         final Configuration configuration = new Configuration(configMap);
 
         assertThatExceptionOfType(FileNotFoundException.class)
-                .isThrownBy(() -> new NetFlowCodec(configuration, codecAggregator, netFlowFormatter))
+                .isThrownBy(() -> new NetFlowCodec(configuration, codecAggregator, netFlowFormatter, new MetricRegistry()))
                 .withMessageEndingWith("(No such file or directory)");
     }
 
@@ -79,7 +80,7 @@ public class NetFlowCodecTest {
                 NetFlowCodec.CK_NETFLOW9_DEFINITION_PATH, "");
         final Configuration configuration = new Configuration(configMap);
 
-        assertThat(new NetFlowCodec(configuration, codecAggregator, netFlowFormatter)).isNotNull();
+        assertThat(new NetFlowCodec(configuration, codecAggregator, netFlowFormatter, new MetricRegistry())).isNotNull();
     }
 
     @Test
@@ -88,7 +89,7 @@ public class NetFlowCodecTest {
                 NetFlowCodec.CK_NETFLOW9_DEFINITION_PATH, "   ");
         final Configuration configuration = new Configuration(configMap);
 
-        assertThat(new NetFlowCodec(configuration, codecAggregator, netFlowFormatter)).isNotNull();
+        assertThat(new NetFlowCodec(configuration, codecAggregator, netFlowFormatter, new MetricRegistry())).isNotNull();
     }
 
     @Test
@@ -101,7 +102,7 @@ public class NetFlowCodecTest {
         final Configuration configuration = new Configuration(configMap);
 
         assertThatIllegalArgumentException()
-                .isThrownBy(() -> new NetFlowCodec(configuration, codecAggregator, netFlowFormatter))
+                .isThrownBy(() -> new NetFlowCodec(configuration, codecAggregator, netFlowFormatter, new MetricRegistry()))
                 .withMessageMatching("Unable to parse NetFlow 9 definitions");
     }
 
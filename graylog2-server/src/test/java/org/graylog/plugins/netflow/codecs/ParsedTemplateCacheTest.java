@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.netflow.codecs;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.protobuf.ByteString;
+import io.netty.buffer.ByteBuf;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParsedTemplateCacheTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final AtomicInteger parsed = new AtomicInteger();
+    private final ParsedTemplateCache<String> cache = new ParsedTemplateCache<>(ParsedTemplateCacheTest.class, this::parse, metricRegistry);
+
+    private String parse(ByteBuf buf) {
+        parsed.incrementAndGet();
+        return "template-" + buf.readableBytes();
+    }
+
+    @Test
+    void parsesTemplatesWithSameIdAndContentOnce() {
+        final ByteString entry = ByteString.copyFrom(new byte[]{0, 1, 2, 3, 4, 5, 6, 7});
+
+        assertThat(cache.get(256, entry.substring(2, 6))).isEqualTo("template-4");
+        assertThat(cache.get(256, ByteString.copyFrom(new byte[]{2, 3, 4, 5}))).isEqualTo("template-4");
+
+        assertThat(parsed).hasValue(1);
+        assertThat(metricRegistry.meter("org.graylog.plugins.netflow.codecs.ParsedTemplateCacheTest.templateCache.hits").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("org.graylog.plugins.netflow.codecs.ParsedTemplateCacheTest.templateCache.misses").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void parsesChangedTemplatesAgain() {
+        cache.get(256, ByteString.copyFrom(new byte[]{1, 2}));
+        cache.get(256, ByteString.copyFrom(new byte[]{1, 3}));
+        cache.get(257, ByteString.copyFrom(new byte[]{1, 2}));
+
+        assertThat(parsed).hasValue(3);
+    }
+}
@@ -90,7 +90,7 @@ public class SpamhausEDROPDataAdapterTest {
         this.adapter = new SpamhausEDROPDataAdapter("foobar",
                 "foobar",
                 mock(LookupDataAdapterConfiguration.class),
-                mock(MetricRegistry.class),
+                new MetricRegistry(),
                 httpFileRetriever,
                 pluginConfigService);
     }
@@ -166,6 +166,17 @@ public class SpamhausEDROPDataAdapterTest {
         assertLookupResultHasMultiValue(edropLookupResult2, entry("sbl_id", "SBL2342"), entry("subnet", "10.1.0.0/16"));
     }
 
+    @Test
+    public void overlappingSubnetsReturnFirstMatchInListOrder() throws Exception {
+        when(httpFileRetriever.fetchFileIfNotModified("https://www.spamhaus.org/drop/drop.txt")).thenReturn(Optional.of("10.0.0.0/8 ; SBL0815\n"));
+        when(httpFileRetriever.fetchFileIfNotModified("https://www.spamhaus.org/drop/edrop.txt")).thenReturn(Optional.of("10.1.0.0/16 ; SBL2342\n"));
+
+        adapter.doStart();
+
+        final LookupResult lookupResult = adapter.doGet("10.1.0.1");
+        assertLookupResultHasMultiValue(lookupResult, entry("sbl_id", "SBL0815"), entry("subnet", "10.0.0.0/8"));
+    }
+
     @Test
     public void verifyEmptyResultWithNullKey() throws Exception {
         when(httpFileRetriever.fetchFileIfNotModified("https://www.spamhaus.org/drop/drop.txt")).thenReturn(Optional.of(dropSnapshot));
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.threatintel.tools;
+
+import com.google.common.io.Resources;
+import org.apache.commons.net.util.SubnetUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IpSubnetTableTest {
+    @Test
+    void looksUpIpv4SubnetsAndAddresses() {
+        final IpSubnetTable<String> table = IpSubnetTable.<String>builder()
+                .add("10.0.0.0/8", "ten")
+                .add("10.1.0.0/16", "ten-one")
+                .add("192.168.1.1", "single")
+                .add("0.0.0.0/1", "lower-half")
+                .build();
+
+        assertThat(table.lookup("10.2.3.4")).isEqualTo("ten");
+        assertThat(table.lookup("10.1.3.4")).isEqualTo("ten-one");
+        assertThat(table.lookup("10.255.255.255")).isEqualTo("ten");
+        assertThat(table.lookup("11.0.0.0")).isEqualTo("lower-half");
+        assertThat(table.lookup("192.168.1.1")).isEqualTo("single");
+        assertThat(table.lookup("192.168.1.2")).isNull();
+        assertThat(table.lookup("255.255.255.255")).isNull();
+        assertThat(table.size()).isEqualTo(4);
+    }
+
+    @Test
+    void looksUpIpv6Subnets() {
+        final IpSubnetTable<String> table = IpSubnetTable.<String>builder()
+                .add("2001:db8::/32", "documentation")
+                .add("2001:db8:1::/48", "documentation-one")
+                .add("::1", "loopback")
+                .add("::ffff:0:0/96", "mapped")
+                .build();
+
+        assertThat(table.lookup("2001:db8:ffff::1")).isEqualTo("documentation");
+        assertThat(table.lookup("2001:DB8:1:0:0:0:0:1")).isEqualTo("documentation-one");
+        assertThat(table.lookup("0:0:0:0:0:0:0:1")).isEqualTo("loopback");
+        assertThat(table.lookup("::ffff:192.168.1.1")).isEqualTo("mapped");
+        assertThat(table.lookup("2001:db9::1")).isNull();
+        assertThat(table.lookup("::2")).isNull();
+    }
+
+    @Test
+    void firstMatchReturnsSubnetAddedFirst() {
+        final IpSubnetTable<String> table = IpSubnetTable.<String>builder()
+                .firstMatch()
+                .add("10.1.0.0/16", "ten-one")
+                .add("10.0.0.0/8", "ten")
+                .add("10.1.2.0/24", "ten-one-two")
+                .add("2001:db8:1::/48", "documentation-one")
+                .add("2001:db8::/32", "documentation")
+                .add("2001:db8:1::/48", "documentation-one-again")
+                .build();
+
+        assertThat(table.lookup("10.1.2.3")).isEqualTo("ten-one");
+        assertThat(table.lookup("10.2.3.4")).isEqualTo("ten");
+        assertThat(table.lookup("2001:db8:1::1")).isEqualTo("documentation-one");
+        assertThat(table.lookup("2001:db8:2::1")).isEqualTo("documentation");
+    }
+
+    @Test
+    void includesNetworkAndBroadcastAddresses() {
+        // Unlike SubnetUtils.SubnetInfo#isInRange(), which excludes them by default
+        final IpSubnetTable<String> table = IpSubnetTable.<String>builder()
+                .add("192.168.1.0/24", "subnet")
+                .build();
+
+        assertThat(table.lookup("192.168.1.0")).isEqualTo("subnet");
+        assertThat(table.lookup("192.168.1.255")).isEqualTo("subnet");
+    }
+
+    @Test
+    void distinguishesInvalidAddressesFromMisses() {
+        final IpSubnetTable<String> table = IpSubnetTable.<String>builder()
+                .add("10.0.0.0/8", "ten")
+                .build();
+
+        assertThat(table.lookup("11.0.0.1", "miss")).isEqualTo("miss");
+        assertThat(table.lookup("2001:db8::1", "miss")).isEqualTo("miss");
+        for (String invalid : List.of("", "foo", "1.2.3", "1.2.3.4.", "1.2.3.256", "1..2.3", "1.2.3.4.5",
+                "1:2:3:4:5:6:7", "1::2::3", ":1::", "1:2:3:4:5:6:7:8:9", "12345::", "fe80::1%eth0")) {
+            assertThat(table.lookup(invalid, "miss")).as(invalid).isNull();
+        }
+        assertThat(table.lookup(null, "miss")).isNull();
+    }
+
+    @Test
+    void rejectsInvalidSubnets() {
+        final IpSubnetTable.Builder<String> builder = IpSubnetTable.builder();
+
+        assertThatThrownBy(() -> builder.add("10.0.0.0/33", "value")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.add("10.0.0.0/a", "value")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.add("10.0.0/8", "value")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.add("2001:db8::/129", "value")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void matchesSubnetUtilsForSpamhausDropList() throws Exception {
+        final String dropList = Resources.toString(Resources.getResource(
+                "org/graylog/plugins/threatintel/adapters/spamhaus/drop.txt-snapshot-201709291400"), StandardCharsets.UTF_8);
+        final List<SubnetUtils.SubnetInfo> subnets = new ArrayList<>();
+        final IpSubnetTable.Builder<String> builder = IpSubnetTable.builder();
+        for (String line : dropList.split("\n")) {
+            if (!line.isBlank() && !line.startsWith(";")) {
+                final String cidr = line.split(";")[0].trim();
+                final SubnetUtils subnetUtils = new SubnetUtils(cidr);
+                // The table contains the network and broadcast addresses of a subnet as well
+                subnetUtils.setInclusiveHostCount(true);
+                subnets.add(subnetUtils.getInfo());
+                builder.add(cidr, cidr);
+            }
+        }
+        final IpSubnetTable<String> table = builder.build();
+
+        final Random random = new Random(42);
+        final List<String> addresses = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            addresses.add(String.format(Locale.ENGLISH, "%d.%d.%d.%d",
+                    random.nextInt(256), random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+        }
+        // Also check addresses which are known to be in the list
+        subnets.forEach(subnet -> {
+            addresses.add(subnet.getLowAddress());
+            addresses.add(subnet.getHighAddress());
+        });
+
+        for (String address : addresses) {
+            final boolean listed = subnets.stream().anyMatch(subnet -> subnet.isInRange(address));
+            assertThat(table.lookup(address) != null).as(address).isEqualTo(listed);
+        }
+    }
+}
@@ -17,7 +17,12 @@
 package org.graylog.plugins.views.search;
 
 import org.graylog2.indexer.ranges.IndexRange;
+import org.graylog2.indexer.ranges.IndexRangeStreamStats;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.graylog2.plugin.indexer.searches.timeranges.TimeRange;
 import org.graylog2.plugin.streams.Stream;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,6 +32,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -119,4 +126,31 @@ class IndexRangeContainsOneOfStreamsTest {
         verify(stream2.getIndexSet(), never()).isManagedIndex(any());
         verify(indexRange, never()).indexName();
     }
+
+    @Test
+    public void indexRangeShouldNotMatchIfStreamsHaveNoMessagesInTimeRange() {
+        final DateTime begin = new DateTime(2024, 1, 1, 0, 0, DateTimeZone.UTC);
+        when(indexRange.streamIds()).thenReturn(List.of("stream1", "stream3"));
+        when(indexRange.streamStats()).thenReturn(Map.of(
+                "stream1", IndexRangeStreamStats.create(3L, begin, begin.plusHours(1)),
+                "stream3", IndexRangeStreamStats.create(1000L, begin, begin.plusDays(1))));
+        when(stream1.getId()).thenReturn("stream1");
+        when(stream2.getId()).thenReturn("stream2");
+
+        final TimeRange laterTimeRange = AbsoluteRange.create(begin.plusHours(2), begin.plusHours(3));
+        assertThat(toTest.test(indexRange, Set.of(stream1, stream2), laterTimeRange)).isFalse();
+
+        final TimeRange overlappingTimeRange = AbsoluteRange.create(begin.minusHours(1), begin.plusMinutes(30));
+        assertThat(toTest.test(indexRange, Set.of(stream1, stream2), overlappingTimeRange)).isTrue();
+    }
+
+    @Test
+    public void indexRangeWithoutStreamStatsShouldMatchRegardlessOfTimeRange() {
+        final DateTime begin = new DateTime(2024, 1, 1, 0, 0, DateTimeZone.UTC);
+        when(indexRange.streamIds()).thenReturn(List.of("stream1"));
+        when(indexRange.streamStats()).thenReturn(null);
+        when(stream1.getId()).thenReturn("stream1");
+
+        assertThat(toTest.test(indexRange, Set.of(stream1), AbsoluteRange.create(begin, begin.plusHours(1)))).isTrue();
+    }
 }
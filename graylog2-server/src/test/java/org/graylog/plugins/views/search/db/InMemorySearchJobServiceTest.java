@@ -16,20 +16,44 @@
  */
 package org.graylog.plugins.views.search.db;
 
+import com.google.common.collect.ImmutableSet;
 import jakarta.ws.rs.ForbiddenException;
 import org.assertj.core.api.Assertions;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
 import org.graylog.plugins.views.search.Search;
 import org.graylog.plugins.views.search.SearchJob;
+import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.jobs.SearchJobCancelledEvent;
+import org.graylog.plugins.views.search.jobs.SearchJobState;
+import org.graylog.plugins.views.search.jobs.SearchJobStateService;
+import org.graylog.plugins.views.search.jobs.SearchJobStatus;
+import org.graylog.plugins.views.search.jobs.SearchJobType;
 import org.graylog.plugins.views.search.permissions.SearchUser;
 import org.graylog.plugins.views.search.rest.SearchJobDTO;
 import org.graylog.plugins.views.search.rest.TestSearchUser;
+import org.graylog2.events.ClusterEventBus;
+import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
 import org.graylog2.plugin.system.SimpleNodeId;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.graylog.plugins.views.search.SearchJob.NO_CANCELLATION;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class InMemorySearchJobServiceTest {
 
@@ -69,4 +93,104 @@ public class InMemorySearchJobServiceTest {
                 .build();
     }
 
+    @Test
+    public void storesResultsOfTrackedJobsAndServesThemFromStorage() throws Exception {
+        final SearchJobStateService stateService = mock(SearchJobStateService.class);
+        final InMemorySearchJobService service = new InMemorySearchJobService(new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"), true, stateService, mock(ClusterEventBus.class));
+        final Query query = Query.builder()
+                .id("query-1")
+                .timerange(RelativeRange.create(300))
+                .query(ElasticsearchQueryString.of("source:foo"))
+                .build();
+        final QueryResult result = QueryResult.builder().query(query).searchTypes(Map.of()).build();
+        final SearchJob job = service.create(Search.builder().queries(ImmutableSet.of(query)).build(), "Jannette", NO_CANCELLATION);
+        final SearchJobState runningState = persistedState(job, SearchJobStatus.RUNNING);
+        when(stateService.get(job.getId())).thenReturn(Optional.of(runningState));
+        job.addQueryResultFuture(query.id(), CompletableFuture.completedFuture(result));
+        job.seal();
+
+        service.trackExecution(job);
+
+        verify(stateService).storeQueryResult(job.getId(), result);
+        final ArgumentCaptor<SearchJobState> finished = ArgumentCaptor.forClass(SearchJobState.class);
+        verify(stateService).update(finished.capture());
+        Assertions.assertThat(finished.getValue().status()).isEqualTo(SearchJobStatus.DONE);
+        Assertions.assertThat(service.isInCache(job.getId())).isFalse();
+
+        when(stateService.get(job.getId())).thenReturn(Optional.of(finished.getValue()));
+        when(stateService.getQueryResults(job.getId())).thenReturn(Map.of(query.id(), result));
+        final Optional<SearchJobDTO> loaded = service.load(job.getId(), searchUser("Jannette"));
+        Assertions.assertThat(loaded).hasValueSatisfying(dto -> {
+            Assertions.assertThat(dto.results()).containsOnly(Map.entry(query.id(), result));
+            Assertions.assertThat(dto.execution().done()).isTrue();
+        });
+        Assertions.assertThatThrownBy(() -> service.load(job.getId(), searchUser("Michelle")))
+                .isInstanceOf(ForbiddenException.class);
+    }
+
+    @Test
+    public void keepsJobInMemoryIfResultCannotBeStored() throws Exception {
+        final SearchJobStateService stateService = mock(SearchJobStateService.class);
+        final InMemorySearchJobService service = new InMemorySearchJobService(new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"), true, stateService, mock(ClusterEventBus.class));
+        final Query query = Query.builder()
+                .id("query-1")
+                .timerange(RelativeRange.create(300))
+                .query(ElasticsearchQueryString.of("source:foo"))
+                .build();
+        final SearchJob job = service.create(Search.builder().queries(ImmutableSet.of(query)).build(), "Jannette", NO_CANCELLATION);
+        when(stateService.get(job.getId())).thenReturn(Optional.of(persistedState(job, SearchJobStatus.RUNNING)));
+        doThrow(new IllegalStateException("Document too large")).when(stateService).storeQueryResult(anyString(), any());
+        job.addQueryResultFuture(query.id(), CompletableFuture.completedFuture(QueryResult.builder().query(query).searchTypes(Map.of()).build()));
+        job.seal();
+
+        service.trackExecution(job);
+
+        Assertions.assertThat(service.isInCache(job.getId())).isTrue();
+    }
+
+    @Test
+    public void cancelsJobsRunningOnOtherNodes() {
+        final SearchJobStateService stateService = mock(SearchJobStateService.class);
+        final ClusterEventBus clusterEventBus = mock(ClusterEventBus.class);
+        final InMemorySearchJobService service = new InMemorySearchJobService(new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"), true, stateService, clusterEventBus);
+        final SearchJob remoteJob = new SearchJob("777fd86ae6db8b71a8e10000", Search.builder().build(), "Jannette", "other-node");
+        when(stateService.get(remoteJob.getId())).thenReturn(Optional.of(persistedState(remoteJob, SearchJobStatus.RUNNING)));
+
+        Assertions.assertThat(service.cancel(remoteJob.getId(), searchUser("Jannette"))).isTrue();
+
+        verify(stateService).changeStatus(remoteJob.getId(), SearchJobStatus.CANCELLED);
+        verify(clusterEventBus).post(SearchJobCancelledEvent.create(remoteJob.getId()));
+    }
+
+    @Test
+    public void cancelsLocalJobWhenReceivingCancellationEvent() {
+        final InMemorySearchJobService service = new InMemorySearchJobService(new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"), true, mock(SearchJobStateService.class), mock(ClusterEventBus.class));
+        final SearchJob job = service.create(Search.builder().build(), "Jannette", NO_CANCELLATION);
+        final CompletableFuture<Void> execution = new CompletableFuture<>();
+        job.setQueryExecutionFuture("query-1", execution);
+
+        service.handleSearchJobCancelled(SearchJobCancelledEvent.create(job.getId()));
+
+        Assertions.assertThat(execution).isCancelled();
+    }
+
+    @Test
+    public void doesNotLoadFromStorageIfPersistenceIsDisabled() {
+        final SearchJobStateService stateService = mock(SearchJobStateService.class);
+        final InMemorySearchJobService service = new InMemorySearchJobService(new SimpleNodeId("5ca1ab1e-0000-4000-a000-000000000000"), false, stateService, mock(ClusterEventBus.class));
+
+        Assertions.assertThat(service.load("777fd86ae6db8b71a8e10000", searchUser("Jannette"))).isEmpty();
+        verify(stateService, never()).get(anyString());
+    }
+
+    private static SearchJobState persistedState(SearchJob job, SearchJobStatus status) {
+        return SearchJobState.builder()
+                .identifier(job.getSearchJobIdentifier())
+                .type(SearchJobType.SEARCH_ENGINE)
+                .status(status)
+                .errors(Set.of())
+                .createdAt(DateTime.now(DateTimeZone.UTC))
+                .updatedAt(DateTime.now(DateTimeZone.UTC))
+                .build();
+    }
 }
@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.views.search.elasticsearch;
 
+import com.codahale.metrics.MetricRegistry;
 import org.graylog.plugins.views.search.IndexRangeContainsOneOfStreams;
 import org.graylog2.indexer.ranges.IndexRange;
 import org.graylog2.indexer.ranges.IndexRangeService;
@@ -47,6 +48,7 @@ class IndexLookupTest {
     private final TimeRange timeRangeWithNoIndexRanges = KeywordRange.create("42 years ago", TimeZone.getDefault().getID());
     private final TimeRange timeRangeWithMatchingIndexRange = KeywordRange.create("1 years ago", TimeZone.getDefault().getID());
     private final Set<String> streamIds = Set.of("s-1", "s-2");
+    private final MetricRegistry metricRegistry = new MetricRegistry();
 
     @Test
     void findsIndicesBelongingToStreamsInTimeRange() {
@@ -57,22 +59,25 @@ class IndexLookupTest {
         final IndexLookup sut = new IndexLookup(
                 mockIndexRangeService(indexRanges, timeRangeWithMatchingIndexRange),
                 mockStreamService(streamIds),
-                mockIndexRangeContains(indexRange1));
+                mockIndexRangeContains(indexRange1),
+                metricRegistry);
 
         Set<String> result = sut.indexNamesForStreamsInTimeRange(streamIds, timeRangeWithMatchingIndexRange);
         assertThat(result).containsExactly(indexRange1.indexName());
+        assertThat(metricRegistry.histogram("org.graylog.plugins.views.search.elasticsearch.IndexLookup.prunedIndices").getSnapshot().getValues())
+                .containsExactly(1L);
     }
 
     @Test
     void returnsEmptySetForEmptyStreamIds() {
-        final IndexLookup sut = new IndexLookup(mock(IndexRangeService.class), mockStreamService(Collections.emptySet()), mock(IndexRangeContainsOneOfStreams.class));
+        final IndexLookup sut = new IndexLookup(mock(IndexRangeService.class), mockStreamService(Collections.emptySet()), mock(IndexRangeContainsOneOfStreams.class), new MetricRegistry());
         Set<String> result = sut.indexNamesForStreamsInTimeRange(emptySet(), timeRangeWithNoIndexRanges);
         assertThat(result).isEmpty();
     }
 
     @Test
     void returnsEmptySetIfNoIndicesFound() {
-        final IndexLookup sut = new IndexLookup(mock(IndexRangeService.class), mockStreamService(streamIds), mock(IndexRangeContainsOneOfStreams.class));
+        final IndexLookup sut = new IndexLookup(mock(IndexRangeService.class), mockStreamService(streamIds), mock(IndexRangeContainsOneOfStreams.class), new MetricRegistry());
         Set<String> result = sut.indexNamesForStreamsInTimeRange(streamIds, timeRangeWithNoIndexRanges);
         assertThat(result).isEmpty();
     }
@@ -85,7 +90,7 @@ class IndexLookupTest {
 
     private static IndexRangeContainsOneOfStreams mockIndexRangeContains(IndexRange matchingIndexRange) {
         IndexRangeContainsOneOfStreams indexRangeContainsOneOfStreams = mock(IndexRangeContainsOneOfStreams.class);
-        doReturn(true).when(indexRangeContainsOneOfStreams).test(eq(matchingIndexRange), any());
+        doReturn(true).when(indexRangeContainsOneOfStreams).test(eq(matchingIndexRange), any(), any());
         return indexRangeContainsOneOfStreams;
     }
 
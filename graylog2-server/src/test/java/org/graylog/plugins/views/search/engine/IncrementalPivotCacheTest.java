@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.SearchType;
+import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.searchtypes.pivot.Pivot;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResult;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotSort;
+import org.graylog.plugins.views.search.searchtypes.pivot.SortSpec;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Time;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.TimeUnitInterval;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Max;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+import org.threeten.extra.MutableClock;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalPivotCacheTest {
+    private static final Count COUNT = Count.builder().build();
+    private static final Max MAX = Max.builder().field("took_ms").build();
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final MutableClock clock = MutableClock.of(Instant.parse("2024-01-01T12:03:00Z"), ZoneOffset.UTC);
+    private final IncrementalPivotCache cache = new IncrementalPivotCache(true, Duration.minutes(5), 100, metricRegistry, clock);
+
+    private static Pivot.Builder pivot() {
+        return Pivot.builder()
+                .id("histogram")
+                .rowGroups(Time.builder().field("timestamp").interval(TimeUnitInterval.Builder.builder().timeunit("10m").build()).build())
+                .series(COUNT, MAX)
+                .rollup(true);
+    }
+
+    private Query query(SearchType... searchTypes) throws Exception {
+        return Query.builder()
+                .id("query-1")
+                .timerange(RelativeRange.create(7200).withReferenceDate(new DateTime(clock.millis(), DateTimeZone.UTC)))
+                .query(ElasticsearchQueryString.of("source:foo"))
+                .searchTypes(ImmutableSet.copyOf(searchTypes))
+                .build();
+    }
+
+    private static Search search(Query query) {
+        return Search.builder().id("search-1").queries(ImmutableSet.of(query)).build();
+    }
+
+    private static Map<String, AbsoluteRange> segmentRanges(Query query) {
+        return query.searchTypes().stream()
+                .collect(Collectors.toMap(SearchType::id, searchType -> (AbsoluteRange) searchType.timerange().orElseThrow().effectiveTimeRange(query, searchType)));
+    }
+
+    private static AbsoluteRange range(String from, String to) {
+        return AbsoluteRange.create(from, to);
+    }
+
+    private static PivotResult segmentResult(String id, long total, long count, double max, String... buckets) {
+        final PivotResult.Builder builder = PivotResult.builder()
+                .id(id)
+                .effectiveTimerange(range("2024-01-01T00:00:00.000Z", "2024-01-01T00:00:00.000Z"))
+                .total(total);
+        for (String bucket : buckets) {
+            builder.addRow(PivotResult.Row.builder()
+                    .key(ImmutableList.of(bucket))
+                    .values(ImmutableList.of(PivotResult.Value.create(ImmutableList.of(COUNT.id()), 1L, true, "row-leaf")))
+                    .source("leaf")
+                    .build());
+        }
+        return builder.addRow(PivotResult.Row.builder()
+                        .key(ImmutableList.of())
+                        .values(ImmutableList.of(
+                                PivotResult.Value.create(ImmutableList.of(COUNT.id()), count, true, "row-inner"),
+                                PivotResult.Value.create(ImmutableList.of(MAX.id()), max, true, "row-inner")))
+                        .source("non-leaf")
+                        .build())
+                .build();
+    }
+
+    private static QueryResult queryResult(Query query, PivotResult... results) {
+        final Map<String, SearchType.Result> searchTypes = new HashMap<>();
+        for (PivotResult result : results) {
+            searchTypes.put(result.id(), result);
+        }
+        return QueryResult.builder()
+                .query(query)
+                .searchTypes(searchTypes)
+                .executionStats(QueryExecutionStats.builder().duration(250L).build())
+                .build();
+    }
+
+    @Test
+    void splitsPivotIntoPartialClosedAndOpenSegments() throws Exception {
+        final Query query = query(pivot().build());
+
+        final IncrementalPivotCache.Rewrite rewrite = cache.rewrite(search(query), query);
+
+        assertThat(segmentRanges(rewrite.query())).containsOnly(
+                Map.entry("histogram@head", range("2024-01-01T10:03:00.000Z", "2024-01-01T10:10:00.000Z")),
+                Map.entry("histogram@closed", range("2024-01-01T10:10:00.000Z", "2024-01-01T11:50:00.000Z")),
+                Map.entry("histogram@tail", range("2024-01-01T11:50:00.000Z", "2024-01-01T12:03:00.000Z")));
+    }
+
+    @Test
+    void leavesIneligiblePivotsUntouched() throws Exception {
+        final Pivot sorted = pivot().id("sorted").sort(ImmutableList.<SortSpec>of(PivotSort.create("timestamp", SortSpec.Direction.Descending))).build();
+        final Query query = query(sorted);
+
+        final IncrementalPivotCache.Rewrite rewrite = cache.rewrite(search(query), query);
+
+        assertThat(rewrite.query()).isSameAs(query);
+    }
+
+    @Test
+    void mergesSegmentsAndReusesClosedBucketsOnRefresh() throws Exception {
+        final Query query = query(pivot().build());
+        final IncrementalPivotCache.Rewrite rewrite = cache.rewrite(search(query), query);
+
+        final QueryResult result = rewrite.merge(queryResult(rewrite.query(),
+                segmentResult("histogram@head", 1, 1, 5.0, "10:00"),
+                segmentResult("histogram@closed", 10, 10, 50.0, "10:10", "10:20", "11:40"),
+                segmentResult("histogram@tail", 2, 2, 7.0, "11:50", "12:00")));
+
+        assertThat(result.query()).isSameAs(query);
+        assertThat(result.searchTypes()).containsOnlyKeys("histogram");
+        final PivotResult merged = (PivotResult) result.searchTypes().get("histogram");
+        assertThat(merged.total()).isEqualTo(13);
+        assertThat(merged.effectiveTimerange()).isEqualTo(range("2024-01-01T10:03:00.000Z", "2024-01-01T12:03:00.000Z"));
+        assertThat(merged.rows()).extracting(row -> String.join(",", row.key()))
+                .containsExactly("10:00", "10:10", "10:20", "11:40", "11:50", "12:00", "");
+        assertThat(merged.rows().get(6).values()).extracting(PivotResult.Value::value).containsExactly(13L, 50.0);
+
+        // One minute later the closed buckets are still valid, only the partial and the open buckets are queried
+        clock.add(java.time.Duration.ofMinutes(1));
+        final Query refreshedQuery = query(pivot().build());
+        final IncrementalPivotCache.Rewrite refresh = cache.rewrite(search(refreshedQuery), refreshedQuery);
+
+        assertThat(segmentRanges(refresh.query())).containsOnlyKeys("histogram@head", "histogram@tail");
+
+        final QueryResult refreshed = refresh.merge(queryResult(refresh.query(),
+                segmentResult("histogram@head", 0, 0, 0.0),
+                segmentResult("histogram@tail", 3, 3, 60.0, "11:50", "12:00")));
+        final PivotResult refreshedPivot = (PivotResult) refreshed.searchTypes().get("histogram");
+        assertThat(refreshedPivot.total()).isEqualTo(13);
+        assertThat(refreshedPivot.rows()).extracting(row -> String.join(",", row.key()))
+                .containsExactly("10:10", "10:20", "11:40", "11:50", "12:00", "");
+        assertThat(refreshedPivot.rows().get(5).values()).extracting(PivotResult.Value::value).containsExactly(13L, 60.0);
+
+        assertThat(metricRegistry.meter("org.graylog.plugins.views.search.engine.IncrementalPivotCache.reusedBuckets").getCount()).isEqualTo(3);
+        assertThat(metricRegistry.counter("org.graylog.plugins.views.search.engine.IncrementalPivotCache.savedQueryTimeMs").getCount()).isEqualTo(250);
+    }
+
+    @Test
+    void dropsResultIfSegmentIsMissing() throws Exception {
+        final Query query = query(pivot().build());
+        final IncrementalPivotCache.Rewrite rewrite = cache.rewrite(search(query), query);
+
+        final QueryResult result = rewrite.merge(queryResult(rewrite.query(),
+                segmentResult("histogram@head", 1, 1, 5.0, "10:00"),
+                segmentResult("histogram@tail", 2, 2, 7.0, "11:50", "12:00")));
+
+        assertThat(result.searchTypes()).isEmpty();
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+import com.github.joschi.jadconfig.util.Size;
+import com.google.common.collect.ImmutableSet;
+import org.graylog.plugins.views.search.Query;
+import org.graylog.plugins.views.search.QueryResult;
+import org.graylog.plugins.views.search.Search;
+import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.errors.QueryError;
+import org.graylog.plugins.views.search.errors.SearchError;
+import org.graylog.plugins.views.search.filter.StreamFilter;
+import org.graylog2.indexer.indices.events.IndicesDeletedEvent;
+import org.graylog2.plugin.indexer.searches.timeranges.RelativeRange;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+import org.threeten.extra.MutableClock;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryResultCacheTest {
+    private static final DateTimeZone TIMEZONE = DateTimeZone.UTC;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final MutableClock clock = MutableClock.of(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final List<SearchError> errors = new ArrayList<>();
+
+    private QueryResultCache cache(boolean staleWhileRefresh) {
+        return new QueryResultCache(true, Duration.seconds(10), Size.megabytes(1), staleWhileRefresh,
+                new ObjectMapperProvider().get(), metricRegistry, clock);
+    }
+
+    private Query query(String streamId, DateTime now) throws Exception {
+        return Query.builder()
+                .id("query-1")
+                .timerange(RelativeRange.create(300).withReferenceDate(now))
+                .filter(StreamFilter.ofId(streamId))
+                .query(ElasticsearchQueryString.of("source:foo"))
+                .build();
+    }
+
+    private Search search(Query query) {
+        return Search.builder().id("search-1").queries(ImmutableSet.of(query)).build();
+    }
+
+    private QueryResult get(QueryResultCache cache, Query query) {
+        return cache.get(search(query), query, TIMEZONE, loadErrors -> {
+            loads.incrementAndGet();
+            return QueryResult.builder()
+                    .query(query)
+                    .searchTypes(Map.of())
+                    .executionStats(QueryExecutionStats.builder().duration(100L).build())
+                    .build();
+        }, Runnable::run, errors::add);
+    }
+
+    private DateTime now() {
+        return new DateTime(clock.millis(), DateTimeZone.UTC);
+    }
+
+    @Test
+    void returnsCachedResultForIdenticalQueryWithinInterval() throws Exception {
+        final QueryResultCache cache = cache(false);
+
+        final QueryResult first = get(cache, query("stream-1", now()));
+        clock.add(java.time.Duration.ofSeconds(5));
+        final QueryResult second = get(cache, query("stream-1", now()));
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+        assertThat(metricRegistry.meter("org.graylog.plugins.views.search.engine.QueryResultCache.hits").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("org.graylog.plugins.views.search.engine.QueryResultCache.savedBackendTimeMs").getCount()).isEqualTo(100);
+        cache.cleanUp();
+        assertThat(cache.sizeInBytes()).isPositive();
+    }
+
+    @Test
+    void doesNotShareResultsBetweenDifferentStreams() throws Exception {
+        final QueryResultCache cache = cache(false);
+
+        get(cache, query("stream-1", now()));
+        get(cache, query("stream-2", now()));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void returnsStaleResultWhileRefreshing() throws Exception {
+        final QueryResultCache cache = cache(true);
+
+        final QueryResult first = get(cache, query("stream-1", now()));
+        clock.add(java.time.Duration.ofSeconds(10));
+
+        // The refresh runs synchronously in this test, the stale result is returned nevertheless
+        assertThat(get(cache, query("stream-1", now()))).isSameAs(first);
+        assertThat(loads).hasValue(2);
+        assertThat(metricRegistry.meter("org.graylog.plugins.views.search.engine.QueryResultCache.staleHits").getCount()).isEqualTo(1);
+
+        final QueryResult refreshed = get(cache, query("stream-1", now()));
+        assertThat(refreshed).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void doesNotReturnResultsOlderThanThePreviousInterval() throws Exception {
+        final QueryResultCache cache = cache(true);
+
+        get(cache, query("stream-1", now()));
+        clock.add(java.time.Duration.ofSeconds(20));
+        get(cache, query("stream-1", now()));
+
+        assertThat(loads).hasValue(2);
+        assertThat(metricRegistry.meter("org.graylog.plugins.views.search.engine.QueryResultCache.misses").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void doesNotCacheResultsWithErrors() throws Exception {
+        final QueryResultCache cache = cache(false);
+        final Query query = query("stream-1", now());
+        final QueryResultCache.Loader failingLoader = loadErrors -> {
+            loads.incrementAndGet();
+            loadErrors.accept(new QueryError(query, "Boom"));
+            return QueryResult.builder().query(query).searchTypes(Map.of()).build();
+        };
+
+        cache.get(search(query), query, TIMEZONE, failingLoader, Runnable::run, errors::add);
+        cache.get(search(query), query, TIMEZONE, failingLoader, Runnable::run, errors::add);
+
+        assertThat(loads).hasValue(2);
+        assertThat(errors).hasSize(2);
+    }
+
+    @Test
+    void invalidatesResultsIfIndicesAreDeleted() throws Exception {
+        final QueryResultCache cache = cache(false);
+
+        get(cache, query("stream-1", now()));
+        cache.handleIndicesDeleted(IndicesDeletedEvent.create("graylog_0"));
+        get(cache, query("stream-1", now()));
+
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QuerySchedulerTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final List<Runnable> workers = new ArrayList<>();
+    private final List<String> executed = new ArrayList<>();
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private QueryScheduler scheduler(int poolSize, int queueSize, boolean fairQueueing, Map<SearchPriority, Integer> maxConcurrency) {
+        return new QueryScheduler(workers::add, poolSize, queueSize, fairQueueing, maxConcurrency, metricRegistry, ticker);
+    }
+
+    private CompletableFuture<String> submit(QueryScheduler scheduler, SearchPriority priority, String owner, long cost, String name) {
+        return scheduler.submit(priority, owner, cost, queueTime -> {
+            executed.add(name);
+            return name;
+        });
+    }
+
+    private void runWorkers() {
+        while (!workers.isEmpty()) {
+            workers.remove(0).run();
+        }
+    }
+
+    @Test
+    void runsQueriesInSubmissionOrderWithoutFairQueueing() {
+        final QueryScheduler scheduler = scheduler(1, 0, false, Map.of());
+
+        submit(scheduler, SearchPriority.EXPORT, "alice", 1000, "first");
+        submit(scheduler, SearchPriority.EXPORT, "alice", 1000, "second");
+        submit(scheduler, SearchPriority.INTERACTIVE, "bob", 1, "third");
+        runWorkers();
+
+        assertThat(executed).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void expensiveQueriesOfOneUserDoNotHoldUpOtherUsers() {
+        final QueryScheduler scheduler = scheduler(1, 0, true, Map.of());
+
+        submit(scheduler, SearchPriority.INTERACTIVE, "alice", 100, "alice-1");
+        submit(scheduler, SearchPriority.INTERACTIVE, "alice", 100, "alice-2");
+        submit(scheduler, SearchPriority.INTERACTIVE, "alice", 100, "alice-3");
+        submit(scheduler, SearchPriority.INTERACTIVE, "bob", 1, "bob-1");
+        runWorkers();
+
+        assertThat(executed).containsExactly("alice-1", "bob-1", "alice-2", "alice-3");
+    }
+
+    @Test
+    void higherWeightedClassesGetLargerShare() {
+        final QueryScheduler scheduler = scheduler(1, 0, true, Map.of());
+
+        submit(scheduler, SearchPriority.INTERACTIVE, "alice", 8, "blocker");
+        for (int i = 1; i <= 3; i++) {
+            submit(scheduler, SearchPriority.EXPORT, "alice", 8, "export-" + i);
+            submit(scheduler, SearchPriority.INTERACTIVE, "alice", 8, "interactive-" + i);
+        }
+        runWorkers();
+
+        assertThat(executed).containsExactly("blocker", "export-1", "interactive-1", "interactive-2", "interactive-3", "export-2", "export-3");
+    }
+
+    @Test
+    void limitsConcurrentQueriesPerClass() {
+        final QueryScheduler scheduler = scheduler(2, 0, true, Map.of(SearchPriority.EXPORT, 1));
+
+        submit(scheduler, SearchPriority.EXPORT, "alice", 1, "export-1");
+        submit(scheduler, SearchPriority.EXPORT, "alice", 1, "export-2");
+        submit(scheduler, SearchPriority.INTERACTIVE, "bob", 1000, "interactive");
+
+        // the second export waits for the first one although a worker is free
+        assertThat(workers).hasSize(2);
+        assertThat(scheduler.queued()).isEqualTo(1);
+
+        runWorkers();
+        assertThat(executed).containsExactly("export-1", "interactive", "export-2");
+    }
+
+    @Test
+    void rejectsQueriesIfQueueIsFull() {
+        final QueryScheduler scheduler = scheduler(1, 1, true, Map.of());
+
+        submit(scheduler, SearchPriority.INTERACTIVE, "alice", 1, "running");
+        submit(scheduler, SearchPriority.INTERACTIVE, "alice", 1, "waiting");
+
+        assertThatThrownBy(() -> submit(scheduler, SearchPriority.INTERACTIVE, "alice", 1, "rejected"))
+                .isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void reportsQueueTimeAndFailures() {
+        final QueryScheduler scheduler = scheduler(1, 0, true, Map.of());
+        final List<Long> queueTimes = new ArrayList<>();
+
+        final CompletableFuture<Object> failing = scheduler.submit(SearchPriority.SCRIPTING_API, "alice", 1, queueTime -> {
+            throw new IllegalStateException("Boom");
+        });
+        scheduler.submit(SearchPriority.SCRIPTING_API, "alice", 1, queueTimes::add);
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        runWorkers();
+
+        assertThat(failing).isCompletedExceptionally();
+        assertThat(failing.handle((result, throwable) -> throwable))
+                .isCompletedWithValueMatching(t -> t instanceof CompletionException && t.getCause() instanceof IllegalStateException);
+        assertThat(queueTimes).containsExactly(250L);
+        assertThat(metricRegistry.timer("org.graylog.plugins.views.search.engine.QueryScheduler.scripting_api.queueTime").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void skipsQueriesCancelledWhileQueued() {
+        final QueryScheduler scheduler = scheduler(1, 0, false, Map.of());
+
+        submit(scheduler, SearchPriority.INTERACTIVE, "alice", 1, "first");
+        final CompletableFuture<String> second = submit(scheduler, SearchPriority.INTERACTIVE, "alice", 1, "second");
+        submit(scheduler, SearchPriority.INTERACTIVE, "alice", 1, "third");
+        second.cancel(true);
+        runWorkers();
+
+        assertThat(executed).containsExactly("first", "third");
+        assertThat(scheduler.queued()).isZero();
+    }
+}
@@ -102,7 +102,7 @@ public class SearchExecutorTest {
                                 )
                         )
                 ), streamService));
-        when(queryEngine.execute(any(), any(), any())).thenAnswer(invocation -> {
+        when(queryEngine.execute(any(), any(), any(), any())).thenAnswer(invocation -> {
             final SearchJob searchJob = invocation.getArgument(0);
             searchJob.addQueryResultFuture("query", CompletableFuture.completedFuture(QueryResult.emptyResult()));
             searchJob.seal();
@@ -155,7 +155,7 @@ public class SearchExecutorTest {
                 .build();
         this.searchExecutor.executeSync("search1", searchUser, executionState);
 
-        verify(queryEngine, times(1)).execute(searchJobCaptor.capture(), anySet(), any());
+        verify(queryEngine, times(1)).execute(searchJobCaptor.capture(), anySet(), any(), any());
 
         final SearchJob executedJob = searchJobCaptor.getValue();
 
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine.monitoring.collection;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog.plugins.views.search.engine.QueryExecutionStats;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchTelemetryCollectorTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    private static QueryExecutionStats stats(long duration) {
+        return QueryExecutionStats.builder().duration(duration).build();
+    }
+
+    @Test
+    void buffersStatsAndKeepsRecentOnes() {
+        final SearchTelemetryCollector collector = new SearchTelemetryCollector(new InMemoryCappedStatsCollector<>(1), 10, metricRegistry);
+
+        collector.storeStats(stats(1));
+        collector.storeStats(stats(2));
+
+        assertThat(collector.getAllStats()).extracting(QueryExecutionStats::duration).containsExactly(2L);
+        assertThat(collector.drain(1)).extracting(QueryExecutionStats::duration).containsExactly(1L);
+        assertThat(collector.drain(10)).extracting(QueryExecutionStats::duration).containsExactly(2L);
+        assertThat(collector.drain(10)).isEmpty();
+    }
+
+    @Test
+    void dropsStatsIfBufferIsFull() {
+        final SearchTelemetryCollector collector = new SearchTelemetryCollector(new NoOpStatsCollector<>(), 2, metricRegistry);
+
+        collector.storeStats(stats(1));
+        collector.storeStats(stats(2));
+        collector.storeStats(stats(3));
+
+        assertThat(collector.drain(10)).extracting(QueryExecutionStats::duration).containsExactly(1L, 2L);
+        assertThat(metricRegistry.meter("org.graylog.plugins.views.search.engine.monitoring.collection.SearchTelemetryCollector.dropped").getCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.engine.monitoring.telemetry;
+
+import com.github.joschi.jadconfig.util.Duration;
+import org.graylog.plugins.views.search.engine.QueryExecutionStats;
+import org.graylog.plugins.views.search.engine.SearchPriority;
+import org.graylog.testing.mongodb.MongoDBExtension;
+import org.graylog.testing.mongodb.MongoDBTestService;
+import org.graylog.testing.mongodb.MongoJackExtension;
+import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
+import org.graylog2.database.MongoCollections;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MongoDBExtension.class)
+@ExtendWith(MongoJackExtension.class)
+class SearchTelemetryServiceTest {
+    private static final DateTime NOW = DateTime.now(DateTimeZone.UTC);
+
+    private SearchTelemetryService service;
+
+    @BeforeEach
+    void setUp(MongoDBTestService mongodb, MongoJackObjectMapperProvider objectMapperProvider) {
+        service = new SearchTelemetryService(new MongoCollections(objectMapperProvider, mongodb.mongoConnection()), true, Duration.days(7));
+    }
+
+    private static QueryExecutionStats stats(String searchId, long duration, int rangeMinutes, Map<String, String> searchTypes) {
+        return QueryExecutionStats.builder()
+                .timestamp(NOW)
+                .searchId(searchId)
+                .queryId("query-1")
+                .priority(SearchPriority.INTERACTIVE)
+                .duration(duration)
+                .backendTook(duration / 2)
+                .indices(3)
+                .effectiveTimeRange(AbsoluteRange.create(NOW.minusMinutes(rangeMinutes), NOW))
+                .searchTypes(searchTypes)
+                .build();
+    }
+
+    @Test
+    void convertsStatsToEntries() {
+        final SearchTelemetryEntry entry = SearchTelemetryService.toEntry("node-1",
+                stats("search-1", 100, 3, Map.of("st-1", "pivot", "st-2", "pivot", "st-3", "messages")));
+
+        assertThat(entry.nodeId()).isEqualTo("node-1");
+        assertThat(entry.priority()).isEqualTo("interactive");
+        assertThat(entry.rangeMs()).isEqualTo(180_000);
+        assertThat(entry.rangeBucket()).isEqualTo("PT5M");
+        assertThat(entry.searchTypes()).containsOnly(Map.entry("pivot", 2L), Map.entry("messages", 1L));
+        assertThat(entry.searchTypeIds()).containsExactlyInAnyOrder("st-1", "st-2", "st-3");
+
+        assertThat(SearchTelemetryService.toEntry("node-1", stats("search-1", 100, 60 * 24 * 365, Map.of())).rangeBucket())
+                .isEqualTo(SearchTelemetryService.LONGER_RANGE_BUCKET);
+    }
+
+    @Test
+    void computesPercentilesByRangeBucket() {
+        service.save("node-1", IntStream.rangeClosed(1, 100)
+                .mapToObj(i -> stats("search-1", i, 5, Map.of()))
+                .toList());
+        service.save("node-1", List.of(stats("search-2", 1000, 60, Map.of())));
+
+        assertThat(service.percentilesByRangeBucket(NOW.minusMinutes(1))).containsExactly(
+                new SearchTelemetryService.RangeBucketPercentiles("PT5M", 100, 50, 95, 99, 100),
+                new SearchTelemetryService.RangeBucketPercentiles("PT1H", 1, 1000, 1000, 1000, 1000));
+        assertThat(service.percentilesByRangeBucket(NOW.plusMinutes(1))).isEmpty();
+    }
+
+    @Test
+    void returnsSlowestSearchTypes() {
+        service.save("node-1", List.of(
+                stats("search-1", 100, 5, Map.of("fast", "messages", "slow", "pivot")),
+                stats("search-1", 900, 5, Map.of("slow", "pivot")),
+                stats("search-2", 300, 5, Map.of("other", "pivot"))));
+
+        assertThat(service.slowestSearchTypes(NOW.minusMinutes(1), 2)).containsExactly(
+                new SearchTelemetryService.SlowSearchType("search-1", "slow", 2, 500.0, 900),
+                new SearchTelemetryService.SlowSearchType("search-2", "other", 1, 300.0, 300));
+    }
+}
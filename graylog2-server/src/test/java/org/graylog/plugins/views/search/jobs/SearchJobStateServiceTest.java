@@ -16,14 +16,17 @@
  */
 package org.graylog.plugins.views.search.jobs;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.graylog.plugins.views.search.Query;
 import org.graylog.plugins.views.search.QueryResult;
 import org.graylog.plugins.views.search.SearchJobIdentifier;
 import org.graylog.plugins.views.search.elasticsearch.ElasticsearchQueryString;
+import org.graylog.plugins.views.search.searchtypes.pivot.PivotResult;
 import org.graylog.testing.mongodb.MongoDBInstance;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.MongoCollections;
 import org.graylog2.database.MongoConnection;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
 import org.graylog2.plugin.indexer.searches.timeranges.KeywordRange;
 import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
 import org.joda.time.DateTime;
@@ -54,7 +57,9 @@ public class SearchJobStateServiceTest {
     @Before
     public void setUp() {
         final MongoConnection mongoConnection = mongodb.mongoConnection();
-        final MongoJackObjectMapperProvider objectMapperProvider = new MongoJackObjectMapperProvider(new ObjectMapperProvider().get());
+        final ObjectMapper objectMapper = new ObjectMapperProvider().get();
+        objectMapper.registerSubtypes(PivotResult.class);
+        final MongoJackObjectMapperProvider objectMapperProvider = new MongoJackObjectMapperProvider(objectMapper);
         this.toTest = new SearchJobStateService(new MongoCollections(objectMapperProvider, mongoConnection));
     }
 
@@ -370,6 +375,52 @@ public class SearchJobStateServiceTest {
                 .build();
     }
 
+    @Test
+    public void testStoreAndDeleteQueryResults() {
+        final SearchJobState saved = toTest.create(SearchJobState.builder()
+                .identifier(new SearchJobIdentifier(null, "677fd86ae6db8b71a8e10e3e", "john", "dcae52e4-777e-4e3f-8e69-61df7a607016"))
+                .type(SearchJobType.SEARCH_ENGINE)
+                .status(SearchJobStatus.RUNNING)
+                .createdAt(DateTime.now(DateTimeZone.UTC))
+                .updatedAt(DateTime.now(DateTimeZone.UTC))
+                .build());
+        toTest.storeQueryResult(saved.id(), noResult("0000000000000042"));
+        toTest.storeQueryResult(saved.id(), noResult("0000000000000043"));
+
+        final Map<String, QueryResult> results = toTest.getQueryResults(saved.id());
+        assertEquals(Set.of("0000000000000042", "0000000000000043"), results.keySet());
+        assertEquals("0000000000000042", results.get("0000000000000042").query().id());
+
+        assertTrue(toTest.delete(saved.id()));
+        assertTrue(toTest.getQueryResults(saved.id()).isEmpty());
+    }
+
+    @Test
+    public void testStoresSearchTypeResultsSeparately() {
+        final SearchJobState saved = toTest.create(SearchJobState.builder()
+                .identifier(new SearchJobIdentifier(null, "677fd86ae6db8b71a8e10e3e", "john", "dcae52e4-777e-4e3f-8e69-61df7a607016"))
+                .type(SearchJobType.SEARCH_ENGINE)
+                .status(SearchJobStatus.RUNNING)
+                .createdAt(DateTime.now(DateTimeZone.UTC))
+                .updatedAt(DateTime.now(DateTimeZone.UTC))
+                .build());
+        final PivotResult pivotResult = PivotResult.builder()
+                .id("pivot-1")
+                .effectiveTimerange(AbsoluteRange.create(DateTime.now(DateTimeZone.UTC).minusHours(1), DateTime.now(DateTimeZone.UTC)))
+                .total(42)
+                .build();
+        toTest.storeQueryResult(saved.id(), noResult("0000000000000042").toBuilder()
+                .searchTypes(Map.of("pivot-1", pivotResult))
+                .build());
+
+        final QueryResult result = toTest.getQueryResults(saved.id()).get("0000000000000042");
+        assertEquals(Set.of("pivot-1"), result.searchTypes().keySet());
+        assertEquals(42, ((PivotResult) result.searchTypes().get("pivot-1")).total());
+
+        assertTrue(toTest.delete(saved.id()));
+        assertTrue(toTest.getQueryResults(saved.id()).isEmpty());
+    }
+
     private QueryResult noResult(final String id) {
         return QueryResult.builder()
                 .searchTypes(Collections.emptyMap())
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog.plugins.views.search.searchtypes.pivot;
+
+import com.google.common.collect.ImmutableList;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.Time;
+import org.graylog.plugins.views.search.searchtypes.pivot.buckets.TimeUnitInterval;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Average;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Count;
+import org.graylog.plugins.views.search.searchtypes.pivot.series.Max;
+import org.graylog2.plugin.indexer.searches.timeranges.AbsoluteRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PivotResultMergerTest {
+    private static final Count COUNT = Count.builder().build();
+    private static final Max MAX = Max.builder().field("took_ms").build();
+    private static final AbsoluteRange RANGE = AbsoluteRange.create("2024-01-01T00:00:00.000Z", "2024-01-01T01:00:00.000Z");
+
+    private static Pivot pivot() {
+        return Pivot.builder()
+                .id("histogram")
+                .rowGroups(Time.builder().field("timestamp").interval(TimeUnitInterval.Builder.builder().timeunit("10m").build()).build())
+                .series(COUNT, MAX)
+                .rollup(true)
+                .build();
+    }
+
+    private static PivotResult.Row row(String key, long count, double max) {
+        return PivotResult.Row.builder()
+                .key(key.isEmpty() ? ImmutableList.of() : ImmutableList.of(key))
+                .values(ImmutableList.of(
+                        PivotResult.Value.create(ImmutableList.of(COUNT.id()), count, key.isEmpty(), key.isEmpty() ? "row-inner" : "row-leaf"),
+                        PivotResult.Value.create(ImmutableList.of(MAX.id()), max, key.isEmpty(), key.isEmpty() ? "row-inner" : "row-leaf")))
+                .source(key.isEmpty() ? "non-leaf" : "leaf")
+                .build();
+    }
+
+    private static PivotResult result(long total, PivotResult.Row... rows) {
+        return PivotResult.builder()
+                .id("histogram")
+                .effectiveTimerange(RANGE)
+                .total(total)
+                .rows(ImmutableList.copyOf(rows))
+                .build();
+    }
+
+    @Test
+    void mergesRowsWithSameKeyAndKeepsThemOrdered() {
+        final PivotResult merged = PivotResultMerger.merge(pivot(), RANGE, List.of(
+                result(5, row("00:10", 2, 7.0), row("00:30", 3, 2.0), row("", 5, 7.0)),
+                result(4, row("00:00", 1, 1.0), row("00:10", 3, 9.0), row("", 4, 9.0))));
+
+        assertThat(merged.total()).isEqualTo(9);
+        assertThat(merged.rows()).extracting(row -> String.join(",", row.key()))
+                .containsExactly("00:00", "00:10", "00:30", "");
+        assertThat(merged.rows().get(1).values()).extracting(PivotResult.Value::value).containsExactly(5L, 9.0);
+        assertThat(merged.rows().get(3).values()).extracting(PivotResult.Value::value).containsExactly(9L, 9.0);
+    }
+
+    @Test
+    void onlySupportsSeriesWhichCanBeMerged() {
+        assertThat(PivotResultMerger.hasMergeableSeries(pivot())).isTrue();
+        assertThat(PivotResultMerger.hasMergeableSeries(pivot().toBuilder()
+                .series(Average.builder().field("took_ms").build())
+                .build())).isFalse();
+    }
+}
@@ -51,6 +51,7 @@ import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -103,6 +104,36 @@ public class LookupDataAdapterFacadeTest {
         assertThat(lookupDataAdapterEntity.configuration()).containsEntry("type", ValueReference.of("FallbackAdapterConfig"));
     }
 
+    @Test
+    public void exportAndImportKeepRequestLimits() {
+        final DataAdapterDto dataAdapterDto = DataAdapterDto.builder()
+                .id("1234567890")
+                .name("data-adapter-name")
+                .title("Data Adapter Title")
+                .description("Data Adapter Description")
+                .maxConcurrentRequests(5)
+                .circuitBreakerFailureThreshold(3)
+                .circuitBreakerOpenDuration(30L)
+                .circuitBreakerOpenDurationUnit(TimeUnit.SECONDS)
+                .config(new FallbackAdapterConfig())
+                .build();
+        final EntityDescriptor descriptor = EntityDescriptor.create(dataAdapterDto.id(), ModelTypes.LOOKUP_ADAPTER_V1);
+        final Entity entity = facade.exportNativeEntity(dataAdapterDto, EntityDescriptorIds.of(descriptor));
+
+        final LookupDataAdapterEntity lookupDataAdapterEntity = objectMapper.convertValue(((EntityV1) entity).data(), LookupDataAdapterEntity.class);
+        assertThat(lookupDataAdapterEntity.maxConcurrentRequests()).isEqualTo(ValueReference.of(5));
+        assertThat(lookupDataAdapterEntity.circuitBreakerFailureThreshold()).isEqualTo(ValueReference.of(3));
+        assertThat(lookupDataAdapterEntity.circuitBreakerOpenDuration()).isEqualTo(ValueReference.of(30L));
+        assertThat(lookupDataAdapterEntity.circuitBreakerOpenDurationUnit()).isEqualTo(ValueReference.of(TimeUnit.SECONDS));
+
+        final DataAdapterDto imported = facade.createNativeEntity(entity, Collections.emptyMap(), Collections.emptyMap(), "username").entity();
+
+        assertThat(imported.maxConcurrentRequests()).isEqualTo(5);
+        assertThat(imported.circuitBreakerFailureThreshold()).isEqualTo(3);
+        assertThat(imported.circuitBreakerOpenDuration()).isEqualTo(30L);
+        assertThat(imported.circuitBreakerOpenDurationUnit()).isEqualTo(TimeUnit.SECONDS);
+    }
+
     @Test
     @MongoDBFixtures("LookupDataAdapterFacadeTest.json")
     public void exportEntityDescriptor() {
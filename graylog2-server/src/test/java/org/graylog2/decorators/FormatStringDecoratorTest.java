@@ -73,6 +73,15 @@ public class FormatStringDecoratorTest {
         assertThat(response.messages().get(3).message().get("message")).isEqualTo(":");
     }
 
+    @Test
+    public void requiresFieldsUsedInTemplate() {
+        final DecoratorImpl decorator = getDecoratorConfig("${field_a}: ${field_b}", "message", false);
+
+        final FormatStringDecorator formatStringDecorator = new FormatStringDecorator(decorator, templateEngine, messageFactory);
+
+        assertThat(formatStringDecorator.requiredFields()).contains(ImmutableSet.of("field_a", "field_b"));
+    }
+
     private SearchResponse getSearchResponse() {
         final IndexRangeSummary indexRangeSummary = IndexRangeSummary.create("graylog_0",
                                                                              Tools.nowUTC().minusDays(1),
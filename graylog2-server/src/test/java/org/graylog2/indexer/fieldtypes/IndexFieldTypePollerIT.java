@@ -37,6 +37,7 @@ import org.graylog2.indexer.rotation.strategies.MessageCountRotationStrategy;
 import org.graylog2.indexer.rotation.strategies.MessageCountRotationStrategyConfig;
 import org.graylog2.plugin.Message;
 import org.graylog2.plugin.system.SimpleNodeId;
+import org.graylog2.system.shutdown.GracefulShutdownService;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -105,10 +106,10 @@ public abstract class IndexFieldTypePollerIT extends ElasticsearchBaseTest {
         );
         final Configuration withStreamAwarenessOff = spy(new Configuration());
         doReturn(false).when(withStreamAwarenessOff).maintainsStreamAwareFieldTypes();
-        pollerWithoutStreamAwareness = new IndexFieldTypePoller(indices, new MetricRegistry(), createIndexFieldTypePollerAdapter(withStreamAwarenessOff));
+        pollerWithoutStreamAwareness = new IndexFieldTypePoller(indices, new MetricRegistry(), createIndexFieldTypePollerAdapter(withStreamAwarenessOff), 2, mock(GracefulShutdownService.class));
         final Configuration withStreamAwarenessOn = spy(new Configuration());
         doReturn(true).when(withStreamAwarenessOn).maintainsStreamAwareFieldTypes();
-        pollerWithStreamAwareness = new IndexFieldTypePoller(indices, new MetricRegistry(), createIndexFieldTypePollerAdapter(withStreamAwarenessOn));
+        pollerWithStreamAwareness = new IndexFieldTypePoller(indices, new MetricRegistry(), createIndexFieldTypePollerAdapter(withStreamAwarenessOn), 2, mock(GracefulShutdownService.class));
 
         indexSet = new TestIndexSet(indexSetConfig);
         indexSetId = indexSet.getConfig().id();
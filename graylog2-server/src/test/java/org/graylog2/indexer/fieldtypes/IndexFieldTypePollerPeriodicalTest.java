@@ -16,6 +16,7 @@
  */
 package org.graylog2.indexer.fieldtypes;
 
+import com.codahale.metrics.MetricRegistry;
 import com.github.joschi.jadconfig.util.Duration;
 import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -35,6 +36,7 @@ import org.mockito.stubbing.Answer;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -73,6 +75,7 @@ class IndexFieldTypePollerPeriodicalTest {
                 cluster,
                 eventBus,
                 serverStatus,
+                new MetricRegistry(),
                 Duration.seconds(0),
                 scheduler);
         when(serverStatus.getLifecycle()).thenReturn(Lifecycle.RUNNING);
@@ -139,4 +142,41 @@ class IndexFieldTypePollerPeriodicalTest {
 
         verify(indexFieldTypePoller, times(1)).pollIndex(anyString(), anyString());
     }
+
+    @Test
+    void unchangedFieldTypesOfActiveWriteIndexAreOnlyWrittenOnce() {
+        final IndexSetConfig indexSet = IndexSetConfig.builder()
+                .id("indexSet1")
+                .title("Test Index Set")
+                .indexPrefix("test")
+                .shards(2)
+                .creationDate(ZonedDateTime.now())
+                .indexAnalyzer("standard")
+                .indexTemplateName("test")
+                .indexOptimizationMaxNumSegments(2048)
+                .indexOptimizationDisabled(false)
+                .fieldTypeRefreshInterval(org.joda.time.Duration.millis(1))
+                .retentionStrategyConfig(NoopRetentionStrategyConfig.createDefault())
+                .rotationStrategyConfig(MessageCountRotationStrategyConfig.createDefault())
+                .replicas(1)
+                .build();
+        when(indexSetService.findAll()).thenReturn(List.of(indexSet));
+
+        final MongoIndexSet mongoIndexSet = mock(MongoIndexSet.class);
+        when(mongoIndexSet.getActiveWriteIndex()).thenReturn("test_0");
+        when(mongoIndexSetFactory.create(eq(indexSet))).thenReturn(mongoIndexSet);
+
+        final IndexFieldTypesDTO fieldTypes = IndexFieldTypesDTO.create("indexSet1", "test_0",
+                Set.of(FieldTypeDTO.create("message", "text")));
+        when(indexFieldTypePoller.pollIndex("test_0", "indexSet1")).thenReturn(Optional.of(fieldTypes));
+
+        periodical.doRun();
+        await().atMost(1, TimeUnit.MINUTES).until(() -> scheduler.getCompletedTaskCount() == 1);
+
+        periodical.doRun();
+        await().atMost(1, TimeUnit.MINUTES).until(() -> scheduler.getCompletedTaskCount() == 2);
+
+        verify(indexFieldTypePoller, times(2)).pollIndex("test_0", "indexSet1");
+        verify(indexFieldTypesService, times(1)).upsert(fieldTypes);
+    }
 }
@@ -24,6 +24,9 @@ import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class MongoIndexRangeTest {
@@ -62,4 +65,22 @@ public class MongoIndexRangeTest {
         assertThat((long) JsonPath.read(document, "$." + MongoIndexRange.FIELD_CALCULATED_AT)).isEqualTo(calculatedAt.getMillis());
         assertThat((int) JsonPath.read(document, "$." + MongoIndexRange.FIELD_TOOK_MS)).isEqualTo(calculationDuration);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testJsonMappingOfStreamStats() throws Exception {
+        DateTime begin = new DateTime(2015, 1, 1, 0, 0, DateTimeZone.UTC);
+        DateTime end = new DateTime(2015, 2, 1, 0, 0, DateTimeZone.UTC);
+        Map<String, IndexRangeStreamStats> streamStats = Map.of(
+                "stream-1", IndexRangeStreamStats.create(23L, begin, begin.plusDays(1)),
+                "stream-2", IndexRangeStreamStats.create(42L, end.minusDays(1), end));
+        MongoIndexRange indexRange = MongoIndexRange.create("test", begin, end, end, 42, List.of("stream-1", "stream-2"), streamStats);
+
+        ObjectMapper objectMapper = new ObjectMapperProvider().get();
+        String json = objectMapper.writeValueAsString(indexRange);
+        Object document = Configuration.defaultConfiguration().jsonProvider().parse(json);
+
+        assertThat((int) JsonPath.read(document, "$." + MongoIndexRange.FIELD_STREAM_STATS + ".stream-2.message_count")).isEqualTo(42);
+        assertThat((long) JsonPath.read(document, "$." + MongoIndexRange.FIELD_STREAM_STATS + ".stream-2.begin")).isEqualTo(end.minusDays(1).getMillis());
+        assertThat(objectMapper.readValue(json, MongoIndexRange.class).streamStats()).isEqualTo(streamStats);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.indexer.results;
+
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageFactory;
+import org.graylog2.plugin.TestMessageFactory;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ResultMessageTest {
+    private final MessageFactory messageFactory = spy(new TestMessageFactory());
+    private final ResultMessageFactory resultMessageFactory = new DefaultResultMessageFactory(messageFactory);
+
+    @Test
+    void materializesMessageOnFirstAccess() {
+        final ResultMessage resultMessage = resultMessageFactory.parseFromSource("message-1", "graylog_0", Map.of(
+                "message", "hello",
+                "source", "example.org",
+                "timestamp", "2024-01-01 12:00:00.000"
+        ));
+
+        assertThat(resultMessage.getIndex()).isEqualTo("graylog_0");
+        verify(messageFactory, never()).createMessage(anyMap());
+
+        final Message message = resultMessage.getMessage();
+        assertThat(message.getId()).isEqualTo("message-1");
+        assertThat(message.getMessage()).isEqualTo("hello");
+        assertThat(message.getTimestamp()).isEqualTo(new DateTime(2024, 1, 1, 12, 0, DateTimeZone.UTC));
+
+        assertThat(resultMessage.getMessage()).isSameAs(message);
+        verify(messageFactory, times(1)).createMessage(anyMap());
+    }
+}
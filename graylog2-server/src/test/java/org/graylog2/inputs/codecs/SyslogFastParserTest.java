@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.codecs;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageFactory;
+import org.graylog2.plugin.TestMessageFactory;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.journal.RawMessage;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the messages of the fast path with the ones of syslog4j for a corpus of well-formed and malformed messages.
+ */
+class SyslogFastParserTest {
+    private static final List<String> ZONES = List.of("", "UTC", "Europe/Berlin", "America/New_York", "Australia/Lord_Howe");
+    private static final List<String> MONTHS = List.of("Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec");
+
+    private final MessageFactory messageFactory = new TestMessageFactory();
+
+    private static List<String> corpus() {
+        final List<String> corpus = new ArrayList<>(List.of(
+                // RFC 5424
+                "<165>1 2012-12-25T22:14:15.003Z mymachine.example.com evntslog - ID47 [exampleSDID@32473 iut=\"3\" eventSource=\"Application\" eventID=\"1011\"] BOMAn application event log entry",
+                "<190>1 2015-01-06T20:56:33.287Z app-1 app - - [mdc@18060 ip=\"::ffff:132.123.15.30\" logger=\"{c.corp.Handler}\" session=\"4ot7\"] User page 13 requested",
+                "<128>1 2015-01-11T16:35:21.335797+01:00 s000000.example.com - - - - tralala",
+                "<14>1 2014-05-01T08:26:51.179Z fw01 RT_FLOW - RT_FLOW_SESSION_DENY [junos@2636.1.1.1.2.39 source-address=\"1.2.3.4\" source-port=\"56639\"]",
+                "<34>1 2003-10-11T22:14:15.003Z mymachine.example.com su - ID47 - BOM'su root' failed for lonvick on /dev/pts/8",
+                "<165>1 2003-08-24T05:14:15.000003-07:00 192.0.2.1 myproc 8710 - - %% It's time to make the do-nuts.",
+                "<165>1 2003-10-11T22:14:15.003Z mymachine.example.com evntslog - ID47 [exampleSDID@32473 iut=\"3\" eventSource=\"Application\" eventID=\"1011\"][examplePriority@32473 class=\"high\"]",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"1\"][b@1 x=\"2\"] colliding parameters",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"1\"][a@1 y=\"2\"] duplicate elements",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"1\"]no space",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"1\"]",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1]",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"\"] empty value",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"a\\\"b\"] escaped quote",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"a\\]b\"] escaped bracket",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"C:\\\\temp\"] escaped backslash",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=1] unquoted",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"1] unterminated",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"1\" y] missing value",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [0@0] empty marker",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"äöü €\"] Ünïcödé message ✓",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 - [a@1 x=\"1\"] nil message id",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 ID2 [a@1 x=\"1\"] two message ids",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 [a@1 x=\"1\"] missing message id",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 - no structured data",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 - C:\\temp message with backslash",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 - -",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 - - ",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 - - message with newline\n",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1 ",
+                "<165>1 2003-10-11T22:14:15.003Z host app 1",
+                "<165>1 2003-10-11T22:14:15.003Z host app",
+                "<165>1 2003-10-11T22:14:15.003Z host",
+                "<165>1 2003-10-11T22:14:15.003Z  app 1 - - empty host",
+                "<165>1 2003-10-11T22:14:15.003Z - - - - - nil everything",
+                "<165>1 - host app 1 - - nil timestamp",
+                "<165>1 2003-10-11T22:14:15 host app 1 - - timestamp without offset",
+                "<165>1 2003-10-11 host app 1 - - date only",
+                "<165>1 2003-02-29T22:14:15Z host app 1 - - invalid day",
+                "<165>1 2004-02-29T22:14:15Z host app 1 - - leap day",
+                "<165>1 2003-10-11T24:00:00Z host app 1 - - hour 24",
+                "<165>1 2003-12-31T23:59:60Z host app 1 - - leap second",
+                "<165>1 2003-10-11T22:14:15.1234567890Z host app 1 - - ten fraction digits",
+                "<165>1 2003-10-11T22:14:15.Z host app 1 - - empty fraction",
+                "<165>1 2003-10-11T22:14:15+14:00 host app 1 - - large offset",
+                "<165>1 2003-10-11T22:14:15-00:30 host app 1 - - negative offset",
+                "<165>1 2003-10-11t22:14:15z host app 1 - - lower case",
+                "<165>12 2003-10-11T22:14:15Z host app 1 - - two digit version",
+                "<165>1234 2003-10-11T22:14:15Z host app 1 - - four digit version",
+                "<165>1\t2003-10-11T22:14:15Z host app 1 - - tab after version",
+                "<6>0 2017-02-15T16:01:07.000+01:00 hostname test - - -  test 4",
+                "<0>1 2003-10-11T22:14:15Z host app 1 - - priority 0",
+                "<191>1 2003-10-11T22:14:15Z host app 1 - - priority 191",
+                "<007>1 2003-10-11T22:14:15Z host app 1 - - padded priority",
+                "<1000>1 2003-10-11T22:14:15Z host app 1 - - four digit priority",
+                "<>1 2003-10-11T22:14:15Z host app 1 - - empty priority",
+                // RFC 3164
+                "<45>Oct 21 12:09:37 c4dc57ba1ebb syslog-ng[7208]: syslog-ng starting up; version='3.5.3'",
+                "<34>Oct 11 22:14:15 mymachine su: 'su root' failed for lonvick on /dev/pts/8",
+                "<13>Feb  5 17:32:18 10.0.0.99 Use the BFG!",
+                "<13>Feb 5 17:32:18 10.0.0.99 Use the BFG!",
+                "<13>Feb 5 17:32:18 h",
+                "<13>Feb 5 17:32:18 é",
+                "<13>Feb 5 17:32:18 éé",
+                "<13>Feb 05 17:32:18 host",
+                "<13>Feb 05 17:32:18 ",
+                "<13>Feb 05 17:32:18 x",
+                "<13>Feb 5  17:32:18 host two spaces after day",
+                "<13>Feb 30 17:32:18 host invalid day",
+                "<13>Feb 00 17:32:18 host day zero",
+                "<13>Feb 12 25:32:18 host invalid hour",
+                "<13>Feb 12 17:32:18.123 host fraction",
+                "<13>feb 12 17:32:18 host lower case month",
+                "<13>FEB 12 17:32:18 host upper case month",
+                "<13>Foo 12 17:32:18 host invalid month",
+                "<13>Feb 12 17:32:18 singletoken",
+                "<13>Feb 12 17:32:18 host ünïcödé ✓",
+                "<165>Aug 24 05:34:00 CST 1987 mymachine myproc[10]: %% It's time to make the do-nuts.",
+                "<0>1990 Oct 22 10:52:01 TZ-6 scapegoat.dmz.example.org 10.1.2.3 sched[0]: That's All Folks!",
+                "<6>2016-10-12T14:10:18Z hostname testmsg[20]: Test",
+                // Other formats
+                "<186>1541800: Feb 27 06:08:59.485: %HARDWARE-2-FAN_ERROR: Fan Failure",
+                "<190>: 2017 Mar 06 09:22:34 CET: %AUTHPRIV-6-SYSTEM_MSG: START: rsync pid=4311 from=::ffff:IP - xinetd[6219]",
+                "<45>date=2017-03-06 time=12:53:10 devname=DEVICENAME devid=DEVICEID logid=0000000013 type=traffic level=notice",
+                "no priority at all",
+                "<13>"
+        ));
+        for (int fractionDigits = 1; fractionDigits <= 9; fractionDigits++) {
+            corpus.add("<165>1 2003-10-11T22:14:15." + "987654321".substring(0, fractionDigits) + "+05:30 host app 1 - - fraction");
+        }
+        // Every day of the year at times within the DST transitions of the tested time zones
+        for (String month : MONTHS) {
+            for (int day = 1; day <= 31; day++) {
+                for (String time : List.of("00:30:00", "01:30:00", "02:00:00", "02:30:00", "03:00:00")) {
+                    corpus.add("<13>" + month + (day < 10 ? "  " : " ") + day + " " + time + " host message");
+                }
+            }
+        }
+        return corpus;
+    }
+
+    private static Configuration configuration(String timeZone, boolean expand) {
+        final Map<String, Object> config = new HashMap<>();
+        config.put(SyslogCodec.CK_TIMEZONE, timeZone);
+        config.put(SyslogCodec.CK_EXPAND_STRUCTURED_DATA, expand);
+        config.put(SyslogCodec.CK_STORE_FULL_MESSAGE, true);
+        config.put(SyslogCodec.CK_ALLOW_OVERRIDE_DATE, false);
+        return new Configuration(config);
+    }
+
+    private static Object decode(SyslogCodec codec, String message) {
+        final RawMessage rawMessage = new RawMessage(message.getBytes(StandardCharsets.UTF_8), new InetSocketAddress("127.0.0.1", 5140));
+        try {
+            final Message decoded = codec.decodeSafe(rawMessage).orElseThrow();
+            final Map<String, Object> fields = new HashMap<>(decoded.getFields());
+            fields.remove(Message.FIELD_ID);
+            return fields;
+        } catch (Exception e) {
+            return e.getClass();
+        }
+    }
+
+    @Test
+    void decodesCorpusLikeSyslog4j() {
+        final List<String> corpus = corpus();
+        final List<String> mismatches = new ArrayList<>();
+        int parsed = 0;
+        for (String timeZone : ZONES) {
+            for (boolean expand : List.of(false, true)) {
+                final Configuration configuration = configuration(timeZone, expand);
+                final SyslogCodec fast = new SyslogCodec(configuration, new MetricRegistry(), messageFactory, true);
+                final SyslogCodec syslog4j = new SyslogCodec(configuration, new MetricRegistry(), messageFactory, false);
+                // Decode everything twice to cover cached timestamps
+                for (int i = 0; i < 2; i++) {
+                    for (String message : corpus) {
+                        // Everything else takes the same code path in both codecs and may depend on the current time
+                        if (parse(new SyslogFastParser(), message, timeZone) == null) {
+                            continue;
+                        }
+                        parsed++;
+                        final Object expected = decode(syslog4j, message);
+                        final Object actual = decode(fast, message);
+                        if (!expected.equals(actual)) {
+                            mismatches.add("[" + timeZone + ", expand=" + expand + "] " + message + "\n  expected: " + expected + "\n  actual:   " + actual);
+                        }
+                    }
+                }
+            }
+        }
+        assertThat(mismatches).isEmpty();
+        assertThat(parsed).isGreaterThan(corpus.size());
+    }
+
+    @Test
+    void parsesCommonMessages() {
+        final SyslogFastParser parser = new SyslogFastParser();
+
+        assertThat(parse(parser, "<165>1 2012-12-25T22:14:15.003Z mymachine.example.com evntslog - ID47 [exampleSDID@32473 iut=\"3\" eventSource=\"Application\"] BOMAn application event log entry"))
+                .isEqualTo(new SyslogFastParser.Parsed(20, 5, "mymachine.example.com", 1356473655003L, "BOMAn application event log entry",
+                        "evntslog", null, Map.of("exampleSDID@32473", Map.of("iut", "3", "eventSource", "Application")), true));
+        assertThat(parse(parser, "<128>1 2015-01-11T16:35:21.335797+01:00 s000000.example.com - - - - tralala"))
+                .isEqualTo(new SyslogFastParser.Parsed(16, 0, "s000000.example.com", 1420990521335L, "tralala", null, null, null, true));
+        assertThat(parse(parser, "<45>Oct 21 12:09:37 c4dc57ba1ebb syslog-ng[7208]: syslog-ng starting up"))
+                .satisfies(parsed -> {
+                    assertThat(parsed.host()).isEqualTo("c4dc57ba1ebb");
+                    assertThat(parsed.message()).isEqualTo("c4dc57ba1ebb syslog-ng[7208]: syslog-ng starting up");
+                    assertThat(parsed.structured()).isFalse();
+                });
+    }
+
+    @Test
+    void leavesUnusualMessagesToSyslog4j() {
+        final SyslogFastParser parser = new SyslogFastParser();
+
+        assertThat(parse(parser, "<165>1 2003-10-11T22:14:15.003Z host app 1 ID1 [a@1 x=\"a\\\"b\"] escaped quote")).isNull();
+        assertThat(parse(parser, "<165>1 - host app 1 - - nil timestamp")).isNull();
+        assertThat(parse(parser, "<13>Feb 30 17:32:18 host invalid day")).isNull();
+        assertThat(parse(parser, "<186>1541800: Feb 27 06:08:59.485: %HARDWARE-2-FAN_ERROR: Fan Failure")).isNull();
+        assertThat(parse(parser, "<45>date=2017-03-06 time=12:53:10 devname=DEVICENAME")).isNull();
+    }
+
+    private static SyslogFastParser.Parsed parse(SyslogFastParser parser, String message) {
+        return parse(parser, message, "UTC");
+    }
+
+    private static SyslogFastParser.Parsed parse(SyslogFastParser parser, String message, String timeZone) {
+        return parser.parse(message.getBytes(StandardCharsets.UTF_8), timeZone.isEmpty() ? null : DateTimeZone.forID(timeZone));
+    }
+}
@@ -22,6 +22,7 @@ import org.apache.kafka.clients.producer.ProducerRecord;
 import org.graylog.testing.kafka.KafkaContainer;
 import org.graylog2.plugin.LocalMetricRegistry;
 import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.buffers.InputBuffer;
 import org.graylog2.plugin.configuration.Configuration;
 import org.graylog2.plugin.inputs.MessageInput;
 import org.graylog2.plugin.journal.RawMessage;
@@ -37,6 +38,7 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Executors;
@@ -56,7 +58,10 @@ class KafkaTransportIT {
     private static final KafkaContainer KAFKA = KafkaContainer.create();
 
     @Captor
-    ArgumentCaptor<RawMessage> messageCaptor;
+    ArgumentCaptor<List<RawMessage>> messagesCaptor;
+
+    @Captor
+    ArgumentCaptor<InputBuffer.BatchCallback> onWrittenCaptor;
 
     @Test
     @SuppressForbidden("Executors.newSingleThreadScheduledExecutor is okay in tests")
@@ -94,11 +99,13 @@ class KafkaTransportIT {
         transport.lifecycleStateChange(Lifecycle.RUNNING); // Required to set paused=false
         transport.launch(input);
 
-        verify(input, timeout(5_000).times(1)).processRawMessage(messageCaptor.capture());
+        verify(input, timeout(5_000).times(1)).processRawMessages(messagesCaptor.capture(), onWrittenCaptor.capture());
 
-        assertThat(messageCaptor.getValue()).isNotNull().satisfies(rawMessage -> {
+        assertThat(messagesCaptor.getValue()).singleElement().satisfies(rawMessage -> {
             assertThat(rawMessage.getId()).isNotNull();
             assertThat(rawMessage.getPayload()).isEqualTo(messageValue);
         });
+        // Offsets are only committed once the batch has been written to the journal
+        onWrittenCaptor.getValue().written();
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UdpSocketStatisticsTest {
+    private static final List<String> PROC_NET_UDP = List.of(
+            "   sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode ref pointer drops",
+            "  123: 00000000:3039 00000000:0000 07 00000000:00000000 00:00000000 00000000  1100        0 4711 2 0000000000000000 0",
+            "  124: 00000000:3039 00000000:0000 07 00000000:00001A00 00:00000000 00000000  1100        0 4712 2 0000000000000000 42",
+            "  125: 0100007F:0035 00000000:0000 07 00000000:00000000 00:00000000 00000000   102        0 1234 2 0000000000000000 7",
+            "  126: invalid");
+
+    @Test
+    void parsesSocketsBoundToPort() {
+        final Map<Long, UdpSocketStatistics.SocketStats> stats = new HashMap<>();
+
+        UdpSocketStatistics.parse(PROC_NET_UDP, 12345, stats);
+
+        assertThat(stats).containsOnlyKeys(4711L, 4712L);
+        assertThat(stats.get(4711L)).isEqualTo(new UdpSocketStatistics.SocketStats(4711, 12345, 0, 0));
+        assertThat(stats.get(4712L)).isEqualTo(new UdpSocketStatistics.SocketStats(4712, 12345, 0x1A00, 42));
+    }
+
+    @Test
+    void parsesIpv6Sockets() {
+        final Map<Long, UdpSocketStatistics.SocketStats> stats = new HashMap<>();
+
+        UdpSocketStatistics.parse(List.of(
+                "  sl  local_address                         remote_address                        st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode ref pointer drops",
+                "  10: 00000000000000000000000000000000:3039 00000000000000000000000000000000:0000 07 00000000:00000000 00:00000000 00000000  1100        0 815 2 0000000000000000 3"
+        ), 12345, stats);
+
+        assertThat(stats).containsOnlyKeys(815L);
+        assertThat(stats.get(815L).drops()).isEqualTo(3);
+    }
+}
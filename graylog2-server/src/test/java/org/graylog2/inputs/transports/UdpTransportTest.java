@@ -27,6 +27,7 @@ import io.netty.channel.ChannelInboundHandler;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.Epoll;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.util.ReferenceCountUtil;
@@ -39,6 +40,7 @@ import org.graylog2.plugin.inputs.MessageInput;
 import org.graylog2.plugin.inputs.MisfireException;
 import org.graylog2.plugin.inputs.transports.NettyTransport;
 import org.graylog2.plugin.inputs.util.ThroughputCounter;
+import org.graylog2.plugin.journal.RawMessage;
 import org.graylog2.shared.SuppressForbidden;
 import org.junit.After;
 import org.junit.Before;
@@ -59,6 +61,8 @@ import java.util.concurrent.TimeUnit;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -179,6 +183,19 @@ public class UdpTransportTest {
         assertThat(udpTransport.getBootstrap(mock(MessageInput.class)).config().options().get(ChannelOption.SO_RCVBUF)).isEqualTo(recvBufferSize);
     }
 
+    @Test
+    public void maxDatagramSizeIsLimitedToValidRange() {
+        for (int maxDatagramSize : new int[]{0, -1, 100_000}) {
+            final Configuration config = new Configuration(ImmutableMap.of(
+                    NettyTransport.CK_BIND_ADDRESS, BIND_ADDRESS,
+                    NettyTransport.CK_PORT, PORT,
+                    UdpTransport.CK_MAX_DATAGRAM_SIZE, maxDatagramSize));
+            final UdpTransport udpTransport = new UdpTransport(config, eventLoopGroupFactory, nettyTransportConfiguration, throughputCounter, new LocalMetricRegistry());
+
+            assertThat(udpTransport.getBootstrap(mock(MessageInput.class)).config().options().get(ChannelOption.RCVBUF_ALLOCATOR)).isNotNull();
+        }
+    }
+
     @Test
     public void getMetricSetReturnsLocalMetricRegistry() {
         assertThat(udpTransport.getMetricSet()).isSameAs(localMetricRegistry);
@@ -216,6 +233,66 @@ public class UdpTransportTest {
         assertThat(gauges.get(ThroughputCounter.READ_BYTES_TOTAL).getValue()).isEqualTo(1024L);
     }
 
+    @Test
+    public void recordsDatagramMetrics() throws Exception {
+        final MessageInput messageInput = mock(MessageInput.class);
+        udpTransport.launch(messageInput);
+        try {
+            await().atMost(5, TimeUnit.SECONDS).until(() -> udpTransport.getLocalAddress() != null);
+            final InetSocketAddress localAddress = (InetSocketAddress) udpTransport.getLocalAddress();
+
+            sendUdpDatagram(BIND_ADDRESS, localAddress.getPort(), 100);
+            sendUdpDatagram(BIND_ADDRESS, localAddress.getPort(), 300);
+            await().atMost(5, TimeUnit.SECONDS).until(() -> localMetricRegistry.histogram("datagramSize").getCount() == 2);
+
+            assertThat(localMetricRegistry.histogram("datagramSize").getSnapshot().getMax()).isEqualTo(300);
+            assertThat(localMetricRegistry.meter("sockets.0.receivedDatagrams").getCount()).isEqualTo(2);
+            if (SystemUtils.IS_OS_LINUX) {
+                assertThat(localMetricRegistry.getGauges()).containsKey("kernelDrops");
+            }
+        } finally {
+            udpTransport.stop();
+        }
+    }
+
+    @Test
+    public void transportReceivesBatchesWithEpoll() throws Exception {
+        assumeTrue("Skipping test intended for systems with native epoll support", Epoll.isAvailable());
+
+        final NettyTransportConfiguration epollConfiguration = new NettyTransportConfiguration("epoll", "jdk", 1);
+        final EventLoopGroupFactory epollEventLoopGroupFactory = new EventLoopGroupFactory(epollConfiguration);
+        final Configuration configuration = new Configuration(ImmutableMap.of(
+                NettyTransport.CK_BIND_ADDRESS, BIND_ADDRESS,
+                NettyTransport.CK_PORT, PORT,
+                NettyTransport.CK_RECV_BUFFER_SIZE, 1024 * 1024,
+                NettyTransport.CK_NUMBER_WORKER_THREADS, 1,
+                UdpTransport.CK_RECV_BATCH_SIZE, 8));
+        final LocalMetricRegistry metricRegistry = new LocalMetricRegistry();
+        final UdpTransport transport = new UdpTransport(configuration, epollEventLoopGroupFactory, epollConfiguration, throughputCounter, metricRegistry);
+        assertThat(transport.isBatchedReceive()).isTrue();
+
+        final List<Integer> payloadSizes = new CopyOnWriteArrayList<>();
+        final MessageInput messageInput = mock(MessageInput.class);
+        doAnswer(invocation -> payloadSizes.add(invocation.<RawMessage>getArgument(0).getPayload().length))
+                .when(messageInput).processRawMessage(any(RawMessage.class));
+
+        transport.launch(messageInput);
+        try {
+            await().atMost(5, TimeUnit.SECONDS).until(() -> transport.getLocalAddress() != null);
+            final InetSocketAddress localAddress = (InetSocketAddress) transport.getLocalAddress();
+
+            sendUdpDatagram(BIND_ADDRESS, localAddress.getPort(), 100);
+            sendUdpDatagram(BIND_ADDRESS, localAddress.getPort(), 200);
+            sendUdpDatagram(BIND_ADDRESS, localAddress.getPort(), 65507);
+            await().atMost(5, TimeUnit.SECONDS).until(() -> payloadSizes.size() == 3);
+
+            assertThat(payloadSizes).containsExactlyInAnyOrder(100, 200, 65507);
+            assertThat(metricRegistry.getGauges()).containsKeys("sockets.0.kernelDrops", "sockets.0.receiveQueueBytes");
+        } finally {
+            transport.stop();
+        }
+    }
+
     private UdpTransport launchTransportForBootStrapTest(final ChannelInboundHandler channelHandler) throws MisfireException {
         final UdpTransport transport = new UdpTransport(CONFIGURATION, eventLoopGroupFactory, nettyTransportConfiguration, throughputCounter, new LocalMetricRegistry()) {
             @Override
@@ -250,4 +250,48 @@ public class LenientDelimiterBasedFrameDecoderTest {
         buf.release();
         buf2.release();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDecodeNulDelimitedFrameSplitAcrossReads() {
+        EmbeddedChannel ch = new EmbeddedChannel(new LenientDelimiterBasedFrameDecoder(8192, Delimiters.nulDelimiter()));
+
+        ch.writeInbound(Unpooled.copiedBuffer("fir", CharsetUtil.US_ASCII));
+        assertNull(ch.readInbound());
+        ch.writeInbound(Unpooled.copiedBuffer("st", CharsetUtil.US_ASCII));
+        assertNull(ch.readInbound());
+        ch.writeInbound(Unpooled.copiedBuffer("\0sec", CharsetUtil.US_ASCII));
+        ch.writeInbound(Unpooled.copiedBuffer("ond\0", CharsetUtil.US_ASCII));
+
+        ByteBuf buf = ch.readInbound();
+        assertEquals("first", buf.toString(CharsetUtil.US_ASCII));
+        ByteBuf buf2 = ch.readInbound();
+        assertEquals("second", buf2.toString(CharsetUtil.US_ASCII));
+        assertNull(ch.readInbound());
+        assertFalse(ch.finish());
+
+        buf.release();
+        buf2.release();
+    }
+
+    @Test
+    public void testDecodeWithMultipleSingleByteDelimiters() {
+        EmbeddedChannel ch = new EmbeddedChannel(new LenientDelimiterBasedFrameDecoder(8192,
+                Unpooled.wrappedBuffer(new byte[]{'|'}), Unpooled.wrappedBuffer(new byte[]{';'})));
+
+        ch.writeInbound(Unpooled.copiedBuffer("a|bb;c", CharsetUtil.US_ASCII));
+        ch.writeInbound(Unpooled.copiedBuffer("cc|", CharsetUtil.US_ASCII));
+
+        ByteBuf buf = ch.readInbound();
+        assertEquals("a", buf.toString(CharsetUtil.US_ASCII));
+        ByteBuf buf2 = ch.readInbound();
+        assertEquals("bb", buf2.toString(CharsetUtil.US_ASCII));
+        ByteBuf buf3 = ch.readInbound();
+        assertEquals("ccc", buf3.toString(CharsetUtil.US_ASCII));
+        assertNull(ch.readInbound());
+        assertFalse(ch.finish());
+
+        buf.release();
+        buf2.release();
+        buf3.release();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.inputs.transports.netty;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.graylog2.plugin.journal.RawMessage;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class RawMessageHandlerTest {
+    private final MessageInput input = mock(MessageInput.class);
+
+    private EmbeddedChannel channel() {
+        return new EmbeddedChannel(new RawMessageHandler(input)) {
+            @Override
+            public InetSocketAddress remoteAddress() {
+                return new InetSocketAddress("127.0.0.1", 12201);
+            }
+        };
+    }
+
+    @Test
+    void handsOffAllFramesOfReadAtOnce() {
+        final EmbeddedChannel channel = channel();
+
+        channel.writeInbound(
+                Unpooled.copiedBuffer("first", StandardCharsets.UTF_8),
+                Unpooled.copiedBuffer("second", StandardCharsets.UTF_8),
+                Unpooled.copiedBuffer("third", StandardCharsets.UTF_8));
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<RawMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(input).processRawMessages(captor.capture());
+        verify(input, never()).processRawMessage(any());
+        assertThat(captor.getValue())
+                .extracting(rawMessage -> new String(rawMessage.getPayload(), StandardCharsets.UTF_8))
+                .containsExactly("first", "second", "third");
+        channel.finish();
+    }
+
+    @Test
+    void handsOffSingleFrame() {
+        final EmbeddedChannel channel = channel();
+
+        channel.writeInbound(Unpooled.copiedBuffer("first", StandardCharsets.UTF_8));
+
+        final ArgumentCaptor<RawMessage> captor = ArgumentCaptor.forClass(RawMessage.class);
+        verify(input).processRawMessage(captor.capture());
+        assertThat(captor.getValue().getPayload()).isEqualTo("first".getBytes(StandardCharsets.UTF_8));
+        channel.finish();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.graylog2.lookup.dto.DataAdapterDto;
+import org.graylog2.plugin.lookup.LookupDataAdapter;
+import org.graylog2.plugin.lookup.LookupDataAdapterConfiguration;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.threeten.extra.MutableClock;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CoalescingDataAdapterLoaderTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final MutableClock clock = MutableClock.of(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+    private final ExecutorService executor = Executors.newFixedThreadPool(4,
+            new ThreadFactoryBuilder().setNameFormat("coalescing-loader-test-%d").build());
+    private LookupDataAdapter adapter;
+
+    @BeforeEach
+    void setUp() {
+        adapter = mock(LookupDataAdapter.class);
+        when(adapter.id()).thenReturn("adapter-id");
+        when(adapter.name()).thenReturn("adapter");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private CoalescingDataAdapterLoader loader(int maxConcurrentRequests, int failureThreshold) {
+        return new CoalescingDataAdapterLoader(adapter, maxConcurrentRequests, failureThreshold,
+                Duration.ofSeconds(30), metricRegistry, clock);
+    }
+
+    @Test
+    void concurrentLoadsOfSameKeyAreCoalesced() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        when(adapter.get("key")).thenAnswer(invocation -> {
+            release.await();
+            return LookupResult.single("value");
+        });
+        final CoalescingDataAdapterLoader loader = loader(0, 0);
+
+        final Future<LookupResult> first = executor.submit(() -> loader.load("key"));
+        await().until(() -> metricRegistry.getGauges().get("org.graylog2.lookup.adapters.adapter-id.inFlightRequests").getValue().equals(1));
+        final Future<LookupResult> second = executor.submit(() -> loader.load("key"));
+        await().until(() -> metricRegistry.meter("org.graylog2.lookup.adapters.adapter-id.coalescedRequests").getCount() == 1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).singleValue()).isEqualTo("value");
+        assertThat(second.get(5, TimeUnit.SECONDS).singleValue()).isEqualTo("value");
+        verify(adapter, times(1)).get("key");
+    }
+
+    @Test
+    void saturatedAdapterReturnsErrorResult() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        when(adapter.get("slow")).thenAnswer(invocation -> {
+            release.await();
+            return LookupResult.single("value");
+        });
+        final CoalescingDataAdapterLoader loader = loader(1, 0);
+
+        final Future<LookupResult> slow = executor.submit(() -> loader.load("slow"));
+        await().until(() -> metricRegistry.getGauges().get("org.graylog2.lookup.adapters.adapter-id.inFlightRequests").getValue().equals(1));
+
+        final LookupResult rejected = loader.load("other");
+        assertThat(rejected.hasError()).isTrue();
+        assertThat(rejected.cacheTTL()).isZero();
+        assertThat(metricRegistry.meter("org.graylog2.lookup.adapters.adapter-id.saturatedRequests").getCount()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS).hasError()).isFalse();
+    }
+
+    @Test
+    void circuitBreakerOpensAfterConsecutiveFailures() {
+        when(adapter.get(any())).thenReturn(LookupResult.withError());
+        final CoalescingDataAdapterLoader loader = loader(0, 2);
+
+        loader.load("key");
+        loader.load("key");
+        final LookupResult shortCircuited = loader.load("key");
+        assertThat(shortCircuited.hasError()).isTrue();
+        assertThat(shortCircuited.cacheTTL()).isZero();
+        verify(adapter, times(2)).get("key");
+        assertThat(metricRegistry.meter("org.graylog2.lookup.adapters.adapter-id.shortCircuitedRequests").getCount()).isEqualTo(1);
+
+        // A successful request after the open duration closes the circuit again
+        clock.add(Duration.ofSeconds(31));
+        when(adapter.get(any())).thenReturn(LookupResult.single("value"));
+        assertThat(loader.load("key").singleValue()).isEqualTo("value");
+        assertThat(loader.load("key").singleValue()).isEqualTo("value");
+        verify(adapter, times(4)).get("key");
+    }
+
+    @Test
+    void limitsAreTakenFromDataAdapterConfiguration() {
+        when(adapter.get(any())).thenReturn(LookupResult.withError());
+        final DataAdapterDto dto = DataAdapterDto.builder()
+                .id("adapter-id")
+                .name("adapter")
+                .title("Adapter")
+                .description("")
+                .circuitBreakerFailureThreshold(1)
+                .circuitBreakerOpenDuration(1L)
+                .circuitBreakerOpenDurationUnit(TimeUnit.MINUTES)
+                .config(mock(LookupDataAdapterConfiguration.class))
+                .build();
+        final CoalescingDataAdapterLoader loader = CoalescingDataAdapterLoader.create(dto, adapter, metricRegistry);
+
+        loader.load("key");
+        assertThat(loader.load("key").hasError()).isTrue();
+        verify(adapter, times(1)).get("key");
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.lookup.caches;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.graylog2.plugin.lookup.LookupCacheKey;
+import org.graylog2.plugin.lookup.LookupResult;
+import org.graylog2.shared.bindings.providers.ObjectMapperProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.threeten.extra.MutableClock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PersistentLookupCacheTest {
+    private final ObjectMapper objectMapper = new ObjectMapperProvider().get();
+    private final MutableClock clock = MutableClock.of(Instant.parse("2024-01-01T00:00:00Z"), ZoneOffset.UTC);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @TempDir
+    Path dataDir;
+
+    private PersistentLookupCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cache = startCache();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        cache.doStop();
+    }
+
+    private PersistentLookupCache startCache() throws Exception {
+        return startCache(100);
+    }
+
+    private PersistentLookupCache startCache(int diskMaxSize) throws Exception {
+        final PersistentLookupCache.Config config = PersistentLookupCache.Config.builder()
+                .type(PersistentLookupCache.NAME)
+                .maxSize(100)
+                .expireAfterAccess(0)
+                .expireAfterWrite(1)
+                .expireAfterWriteUnit(TimeUnit.HOURS)
+                .ignoreNull(false)
+                .diskMaxSize(diskMaxSize)
+                .diskMaxEntrySize(512)
+                .build();
+        final PersistentLookupCache newCache = new PersistentLookupCache("cache-id", "cache-name", config,
+                new MetricRegistry(), objectMapper, dataDir, clock);
+        newCache.doStart();
+        return newCache;
+    }
+
+    private LookupResult lookup(String prefix, String key) {
+        return cache.get(LookupCacheKey.createFromJSON(prefix, key), () -> {
+            loads.incrementAndGet();
+            return LookupResult.single(key + "-value");
+        });
+    }
+
+    @Test
+    void persistedEntriesSurviveRestarts() throws Exception {
+        assertThat(lookup("adapter", "foo").singleValue()).isEqualTo("foo-value");
+
+        cache.doStop();
+        cache = startCache();
+
+        assertThat(lookup("adapter", "foo").singleValue()).isEqualTo("foo-value");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.diskEntryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void persistedEntriesExpire() throws Exception {
+        lookup("adapter", "foo");
+
+        cache.doStop();
+        clock.add(Duration.ofHours(2));
+        cache = startCache();
+
+        lookup("adapter", "foo");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void purgeInvalidatesBothTiers() throws Exception {
+        lookup("adapter", "foo");
+        lookup("adapter", "bar");
+        lookup("other-adapter", "foo");
+
+        cache.purge(LookupCacheKey.createFromJSON("adapter", "foo"));
+        assertThat(cache.getIfPresent(LookupCacheKey.createFromJSON("adapter", "foo")).isEmpty()).isTrue();
+        assertThat(cache.getIfPresent(LookupCacheKey.createFromJSON("adapter", "bar")).isEmpty()).isFalse();
+
+        cache.purge(LookupCacheKey.createFromJSON("adapter", null));
+        assertThat(cache.getIfPresent(LookupCacheKey.createFromJSON("adapter", "bar")).isEmpty()).isTrue();
+        assertThat(cache.getIfPresent(LookupCacheKey.createFromJSON("other-adapter", "foo")).isEmpty()).isFalse();
+
+        cache.purge();
+        assertThat(cache.entryCount()).isZero();
+        assertThat(cache.diskEntryCount()).isZero();
+    }
+
+    @Test
+    void keysOfDifferentTypesDontCollide() {
+        cache.get(LookupCacheKey.createFromJSON("adapter", 1), () -> LookupResult.single("integer"));
+        cache.get(LookupCacheKey.createFromJSON("adapter", 1L), () -> LookupResult.single("long"));
+        cache.purge(LookupCacheKey.createFromJSON("adapter", 1));
+
+        assertThat(cache.getIfPresent(LookupCacheKey.createFromJSON("adapter", 1L)).singleValue()).isEqualTo("long");
+        assertThat(cache.diskEntryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void reconfiguredCacheDeletesPreviousFile() throws Exception {
+        lookup("adapter", "foo");
+        assertThat(cacheFiles()).hasSize(1);
+
+        final PersistentLookupCache reconfigured = startCache(200);
+        cache.doStop();
+        cache = reconfigured;
+
+        assertThat(cacheFiles()).hasSize(1);
+        lookup("adapter", "foo");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void deleteCacheFilesRemovesFile() throws Exception {
+        lookup("adapter", "foo");
+        cache.doStop();
+
+        cache.deleteCacheFiles();
+        assertThat(cacheFiles()).isEmpty();
+
+        cache = startCache();
+    }
+
+    private List<Path> cacheFiles() throws IOException {
+        try (final Stream<Path> files = Files.list(dataDir.resolve(PersistentLookupCache.CACHE_DIRECTORY))) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.plugin.inputs;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class InputCreditsTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Boolean> notifications = new ArrayList<>();
+    private MetricRegistry metricRegistry;
+    private ScheduledExecutorService scheduler;
+    private InputCredits credits;
+
+    @BeforeEach
+    void setUp() {
+        metricRegistry = new MetricRegistry();
+        scheduler = mock(ScheduledExecutorService.class);
+        credits = new InputCredits("input-id", 1, metricRegistry, "input", scheduler, clock::get);
+        credits.addListener(notifications::add);
+    }
+
+    @Test
+    void doesNotThrottleUnlimitedInput() {
+        credits.use(1_000_000);
+
+        assertThat(credits.isThrottled()).isFalse();
+        assertThat(notifications).isEmpty();
+        assertThat(metricRegistry.meter("input.flowControl.usedCredits").getCount()).isEqualTo(1_000_000);
+        assertThat(metricRegistry.meter("input.flowControl.grantedCredits").getCount()).isEqualTo(1_000_000);
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any());
+    }
+
+    @Test
+    void throttlesWhenOutOfCreditsAndResumesAfterRefill() {
+        credits.limit(1000);
+
+        // The bucket starts full
+        credits.use(999);
+        assertThat(credits.isThrottled()).isFalse();
+
+        credits.use(1);
+        assertThat(credits.isThrottled()).isTrue();
+        assertThat(notifications).containsExactly(true);
+        // 10% of the bucket have to be refilled before resuming
+        verify(scheduler).schedule(any(Runnable.class), eq(TimeUnit.MILLISECONDS.toNanos(100)), eq(TimeUnit.NANOSECONDS));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+        credits.tryResume();
+        assertThat(credits.isThrottled()).isTrue();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+        credits.tryResume();
+        assertThat(credits.isThrottled()).isFalse();
+        assertThat(notifications).containsExactly(true, false);
+        assertThat(metricRegistry.counter("input.flowControl.throttledTimeMs").getCount()).isEqualTo(100);
+        assertThat(metricRegistry.meter("input.flowControl.grantedCredits").getCount()).isEqualTo(100);
+    }
+
+    @Test
+    void resumesWhenLimitIsLifted() {
+        credits.limit(10);
+        credits.use(100);
+        assertThat(credits.isThrottled()).isTrue();
+
+        credits.unlimit();
+
+        assertThat(credits.isThrottled()).isFalse();
+        assertThat(notifications).containsExactly(true, false);
+        credits.use(1000);
+        assertThat(credits.isThrottled()).isFalse();
+    }
+
+    @Test
+    void notifiesListenersAboutCurrentState() {
+        final InputCredits credits = new InputCredits("input-id", 1, metricRegistry, "input", scheduler, clock::get);
+        final List<Boolean> received = new ArrayList<>();
+        // Lifts the limit while the input is being throttled, like the flow control thread could do concurrently
+        credits.addListener(throttled -> {
+            if (throttled) {
+                credits.unlimit();
+            }
+        });
+        credits.addListener(received::add);
+        credits.limit(10);
+
+        credits.use(100);
+
+        assertThat(credits.isThrottled()).isFalse();
+        assertThat(received).containsExactly(false);
+    }
+
+    @Test
+    void countsDrainedUsage() {
+        credits.use(5);
+        credits.use(3);
+
+        assertThat(credits.drainUsage()).isEqualTo(8);
+        assertThat(credits.drainUsage()).isZero();
+    }
+
+    @Test
+    void closeResumesInputAndRemovesMetrics() {
+        credits.limit(10);
+        credits.use(100);
+        credits.dropped();
+
+        credits.close();
+
+        assertThat(credits.isClosed()).isTrue();
+        assertThat(credits.isThrottled()).isFalse();
+        assertThat(notifications).containsExactly(true, false);
+        assertThat(metricRegistry.getMetrics()).isEmpty();
+    }
+}
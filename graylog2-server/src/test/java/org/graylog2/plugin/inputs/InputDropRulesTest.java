@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.plugin.inputs;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.journal.RawMessage;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InputDropRulesTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void keepsAllMessagesWithoutRules() {
+        final InputDropRules rules = InputDropRules.parse("  \n# only a comment\n", metricRegistry);
+
+        assertThat(rules.isEmpty()).isTrue();
+        assertThat(rules.drop(message("DEBUG something"))).isFalse();
+    }
+
+    @Test
+    void dropsMessagesByPrefixAndSubstring() {
+        final InputDropRules rules = InputDropRules.parse("""
+                drop prefix "DEBUG"
+                # health checks
+                drop contains "GET /health" # load balancer
+                """, metricRegistry);
+
+        assertThat(rules.drop(message("DEBUG something"))).isTrue();
+        assertThat(rules.drop(message("INFO DEBUG something"))).isFalse();
+        assertThat(rules.drop(message("10.0.0.1 GET /health 200"))).isTrue();
+        assertThat(rules.drop(message("10.0.0.1 GET /login 200"))).isFalse();
+        assertThat(rules.drop(message("DEBU"))).isFalse();
+
+        assertThat(metricRegistry.counter("dropRules.1.droppedMessages").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("dropRules.2.droppedMessages").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void matchesQuotedTextWithEscapes() {
+        final InputDropRules rules = InputDropRules.parse("drop contains \"level=\\\"debug\\\"\"", metricRegistry);
+
+        assertThat(rules.drop(message("msg level=\"debug\""))).isTrue();
+        assertThat(rules.drop(message("msg level=debug"))).isFalse();
+    }
+
+    @Test
+    void samplesMatchingMessagesDeterministically() {
+        final InputDropRules rules = InputDropRules.parse("sample 10 contains \"debug\"", metricRegistry);
+
+        final long kept = IntStream.range(0, 10_000)
+                .filter(i -> !rules.drop(message("debug message " + i)))
+                .count();
+        assertThat(kept).isBetween(800L, 1200L);
+
+        // The same message is always either kept or dropped
+        final boolean dropped = rules.drop(message("debug message 42"));
+        assertThat(IntStream.range(0, 10).mapToObj(i -> rules.drop(message("debug message 42")))).containsOnly(dropped);
+
+        assertThat(rules.drop(message("info message"))).isFalse();
+    }
+
+    @Test
+    void limitsMessagesPerSourceAddress() {
+        final InputDropRules rules = InputDropRules.parse("limit 2 per source", metricRegistry, clock::get);
+
+        assertThat(rules.drop(message("1", "10.0.0.1"))).isFalse();
+        assertThat(rules.drop(message("2", "10.0.0.1"))).isFalse();
+        assertThat(rules.drop(message("3", "10.0.0.1"))).isTrue();
+        assertThat(rules.drop(message("1", "10.0.0.2"))).isFalse();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(rules.drop(message("4", "10.0.0.1"))).isFalse();
+
+        assertThat(metricRegistry.counter("dropRules.1.droppedMessages").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void appliesRulesInOrder() {
+        final InputDropRules rules = InputDropRules.parse("""
+                limit 1 per source prefix "DEBUG"
+                drop contains "DEBUG"
+                """, metricRegistry, clock::get);
+
+        assertThat(rules.drop(message("DEBUG first", "10.0.0.1"))).isTrue();
+        assertThat(rules.drop(message("DEBUG second", "10.0.0.1"))).isTrue();
+
+        assertThat(metricRegistry.counter("dropRules.1.droppedMessages").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.counter("dropRules.2.droppedMessages").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        assertThatThrownBy(() -> InputDropRules.parse("discard prefix \"DEBUG\"", metricRegistry))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 1");
+        assertThatThrownBy(() -> InputDropRules.parse("drop\nsample 200", metricRegistry))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2");
+        assertThatThrownBy(() -> InputDropRules.parse("limit 10", metricRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> InputDropRules.parse("drop prefix \"DEBUG", metricRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> InputDropRules.parse("drop suffix \"DEBUG\"", metricRegistry))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static RawMessage message(String payload) {
+        return new RawMessage(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static RawMessage message(String payload, String remoteAddress) {
+        return new RawMessage(payload.getBytes(StandardCharsets.UTF_8), new InetSocketAddress(remoteAddress, 5555));
+    }
+}
@@ -21,10 +21,14 @@ import org.graylog2.plugin.system.SimpleNodeId;
 import org.junit.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class RawMessageTest {
     @Test
@@ -44,4 +48,28 @@ public class RawMessageTest {
         assertEquals("inputid", decodedMsg.getSourceNodes().get(0).inputId);
         assertEquals("5ca1ab1e-0000-4000-a000-000000000000", decodedMsg.getSourceNodes().get(0).nodeId);
     }
+
+    @Test
+    public void encodeDecodeWithCodecConfigId() throws Exception {
+        final Configuration codecConfig = new Configuration(Map.of("port", 5555));
+        final RawMessage rawMessage = new RawMessage("testmessage".getBytes(StandardCharsets.UTF_8));
+        rawMessage.setCodecName("raw");
+        rawMessage.setCodecConfig(codecConfig);
+
+        final byte[] encoded = rawMessage.encode("v1-abc");
+        final RawMessage decodedMsg = RawMessage.decode(encoded, 1, configId -> "v1-abc".equals(configId) ? codecConfig : null);
+
+        assertNotNull(decodedMsg);
+        assertSame(codecConfig, decodedMsg.getCodecConfig());
+        assertFalse(JournalMessages.JournalMessage.parseFrom(encoded).getCodec().hasConfig());
+    }
+
+    @Test
+    public void decodeFailsForUnknownCodecConfigId() {
+        final RawMessage rawMessage = new RawMessage("testmessage".getBytes(StandardCharsets.UTF_8));
+        rawMessage.setCodecName("raw");
+        rawMessage.setCodecConfig(new Configuration(Map.of("port", 5555)));
+
+        assertNull(RawMessage.decode(rawMessage.encode("v1-abc"), 1, configId -> null));
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.buffers.InputBuffer;
+import org.graylog2.shared.messageq.MessageQueueException;
+import org.graylog2.shared.messageq.MessageQueueWriter;
+import org.graylog2.system.processing.ProcessingStatusRecorder;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class JournallingMessageHandlerTest {
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final MessageQueueWriter messageQueueWriter = mock(MessageQueueWriter.class);
+    private final JournallingMessageHandler handler = new JournallingMessageHandler(metricRegistry, messageQueueWriter, mock(ProcessingStatusRecorder.class));
+
+    @Test
+    void acknowledgesBatchAfterWritingAllMessages() throws Exception {
+        final RecordingCallback callback = new RecordingCallback();
+        final BatchAcknowledgement acknowledgement = new BatchAcknowledgement(2, callback);
+
+        handler.onEvent(event(acknowledgement), 0, false);
+        assertThat(callback.written).hasValue(0);
+
+        handler.onEvent(event(acknowledgement), 1, true);
+        assertThat(callback.written).hasValue(1);
+        assertThat(callback.failures).isEmpty();
+    }
+
+    @Test
+    void acknowledgesBatchWithUnencodableMessage() throws Exception {
+        final RecordingCallback callback = new RecordingCallback();
+        final BatchAcknowledgement acknowledgement = new BatchAcknowledgement(3, callback);
+        final RawMessageEvent unencodable = event(acknowledgement);
+        unencodable.setEncodedRawMessage(null);
+
+        handler.onEvent(event(acknowledgement), 0, false);
+        handler.onEvent(unencodable, 1, false);
+        handler.onEvent(event(acknowledgement), 2, true);
+
+        verify(messageQueueWriter).write(argThat(entries -> entries.size() == 2));
+        assertThat(callback.written).hasValue(1);
+        assertThat(callback.failures).isEmpty();
+        assertThat(metricRegistry.counter(name(JournallingMessageHandler.class, "dropped_messages")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void failsBatchIfWritingFails() throws Exception {
+        final RecordingCallback callback = new RecordingCallback();
+        final MessageQueueException failure = new MessageQueueException("journal is broken");
+        doThrow(failure).when(messageQueueWriter).write(anyList());
+
+        assertThatThrownBy(() -> handler.onEvent(event(new BatchAcknowledgement(1, callback)), 0, true)).isSameAs(failure);
+        assertThat(callback.written).hasValue(0);
+        assertThat(callback.failures).containsExactly(failure);
+    }
+
+    private static RawMessageEvent event(BatchAcknowledgement acknowledgement) {
+        final RawMessageEvent event = new RawMessageEvent();
+        event.setEncodedRawMessage(new byte[]{1, 2, 3});
+        event.setMessageIdBytes(new byte[16]);
+        event.setAcknowledgement(acknowledgement);
+        return event;
+    }
+
+    private static class RecordingCallback implements InputBuffer.BatchCallback {
+        private final AtomicInteger written = new AtomicInteger();
+        private final List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void written() {
+            written.incrementAndGet();
+        }
+
+        @Override
+        public void failed(Throwable cause) {
+            failures.add(cause);
+        }
+    }
+}
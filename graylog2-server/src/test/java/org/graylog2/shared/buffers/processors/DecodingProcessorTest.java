@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.buffers.processors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.graylog.failure.FailureSubmissionService;
+import org.graylog2.plugin.ServerStatus;
+import org.graylog2.plugin.buffers.MessageEvent;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.inputs.codecs.Codec;
+import org.graylog2.plugin.journal.RawMessage;
+import org.graylog2.shared.messageq.MessageQueueAcknowledger;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DecodingProcessorTest {
+    private final Codec codec = mock(Codec.class);
+    @SuppressWarnings("unchecked")
+    private final Codec.Factory<Codec> codecFactory = mock(Codec.Factory.class);
+    private final DecodingProcessor processor = new DecodingProcessor(Map.of("test", codecFactory),
+            mock(ServerStatus.class), new MetricRegistry(), mock(MessageQueueAcknowledger.class),
+            mock(FailureSubmissionService.class), new Timer(), new Timer());
+
+    private MessageEvent event(Configuration codecConfig) {
+        final RawMessage raw = new RawMessage("message".getBytes(StandardCharsets.UTF_8));
+        raw.setCodecName("test");
+        raw.setCodecConfig(codecConfig);
+        final MessageEvent event = new MessageEvent();
+        event.setRaw(raw);
+        return event;
+    }
+
+    @Test
+    void reusesCodecForSameConfiguration() throws Exception {
+        when(codecFactory.create(any())).thenReturn(codec);
+        when(codec.decodeSafe(any())).thenReturn(Optional.empty());
+        final Configuration config = new Configuration(Map.of("port", 5555));
+        final Configuration otherConfig = new Configuration(Map.of("port", 5556));
+
+        processor.onEvent(event(config), 0, false);
+        processor.onEvent(event(config), 1, false);
+        processor.onEvent(event(otherConfig), 2, false);
+
+        verify(codecFactory, times(1)).create(config);
+        verify(codecFactory, times(1)).create(otherConfig);
+        verify(codec, times(3)).decodeSafe(any());
+    }
+
+    @Test
+    void reusesCodecForJournalEntriesWithInlineConfiguration() throws Exception {
+        when(codecFactory.create(any())).thenReturn(codec);
+        when(codec.decodeSafe(any())).thenReturn(Optional.empty());
+        final byte[] entry = event(new Configuration(Map.of("port", 5555))).getRaw().encode();
+
+        for (int i = 0; i < 3; i++) {
+            final MessageEvent event = new MessageEvent();
+            event.setRaw(RawMessage.decode(entry, i));
+            processor.onEvent(event, i, false);
+        }
+
+        verify(codecFactory, times(1)).create(any());
+        verify(codec, times(3)).decodeSafe(any());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.inputs;
+
+import com.codahale.metrics.MetricRegistry;
+import org.graylog2.plugin.ThrottleState;
+import org.graylog2.plugin.configuration.Configuration;
+import org.graylog2.plugin.inputs.InputCredits;
+import org.graylog2.plugin.inputs.MessageInput;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InputFlowControlTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final InputFlowControl flowControl = new InputFlowControl(true, 1000, metricRegistry, mock(ScheduledExecutorService.class), clock::get);
+
+    @Test
+    void doesNotRegisterInputsIfDisabled() {
+        final InputFlowControl disabled = new InputFlowControl(false, 1000, metricRegistry, mock(ScheduledExecutorService.class), clock::get);
+
+        assertThat(disabled.register(input("input-1", 1))).isNull();
+    }
+
+    @Test
+    void doesNotLimitInputsBelowMaxBacklog() {
+        final InputCredits credits = flowControl.register(input("input-1", 1));
+        credits.use(100_000);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        flowControl.updateThrottleState(throttleState(1000, 100));
+
+        credits.use(100_000);
+        assertThat(credits.isThrottled()).isFalse();
+    }
+
+    @Test
+    void distributesThroughputByWeight() {
+        final InputCredits light = flowControl.register(input("input-1", 1));
+        final InputCredits heavy = flowControl.register(input("input-2", 3));
+        light.use(100_000);
+        heavy.use(100_000);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        // 900 of 1000 messages per second are admitted to drain the backlog
+        flowControl.updateThrottleState(throttleState(10_000, 1000));
+
+        light.use(225);
+        heavy.use(225);
+        assertThat(light.isThrottled()).isTrue();
+        assertThat(heavy.isThrottled()).isFalse();
+        heavy.use(450);
+        assertThat(heavy.isThrottled()).isTrue();
+    }
+
+    @Test
+    void givesUnusedSharesToOtherInputs() {
+        final InputCredits quiet = flowControl.register(input("input-1", 1));
+        final InputCredits noisy = flowControl.register(input("input-2", 1));
+        quiet.use(40);
+        noisy.use(100_000);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        flowControl.updateThrottleState(throttleState(10_000, 1000));
+
+        // The quiet input gets its recent usage plus headroom, the noisy input the rest
+        noisy.use(849);
+        assertThat(noisy.isThrottled()).isFalse();
+        noisy.use(1);
+        assertThat(noisy.isThrottled()).isTrue();
+        quiet.use(40);
+        assertThat(quiet.isThrottled()).isFalse();
+    }
+
+    @Test
+    void replacesCreditsOfRelaunchedInput() {
+        final InputCredits first = flowControl.register(input("input-1", 1));
+        final InputCredits second = flowControl.register(input("input-1", 1));
+
+        assertThat(first.isClosed()).isTrue();
+        assertThat(second.isClosed()).isFalse();
+    }
+
+    private static MessageInput input(String id, int weight) {
+        final MessageInput input = mock(MessageInput.class);
+        when(input.getId()).thenReturn(id);
+        when(input.getUniqueReadableId()).thenReturn("input." + id);
+        when(input.getConfiguration()).thenReturn(new Configuration(Map.of(InputFlowControl.CK_FLOW_CONTROL_WEIGHT, weight)));
+        return input;
+    }
+
+    private static ThrottleState throttleState(long uncommittedJournalEntries, long readEventsPerSec) {
+        final ThrottleState state = new ThrottleState();
+        state.uncommittedJournalEntries = uncommittedJournalEntries;
+        state.readEventsPerSec = readEventsPerSec;
+        state.processBufferCapacity = 1000;
+        return state;
+    }
+}
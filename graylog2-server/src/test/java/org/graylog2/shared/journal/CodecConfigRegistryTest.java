@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.journal;
+
+import org.graylog2.plugin.configuration.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CodecConfigRegistryTest {
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void registersSameFingerprintForEqualConfigurations() {
+        final CodecConfigRegistry registry = new CodecConfigRegistry(dataDir);
+
+        final String fingerprint = registry.register(new Configuration(Map.of("port", 5555, "bind_address", "0.0.0.0")));
+        final String other = registry.register(new Configuration(Map.of("bind_address", "0.0.0.0", "port", 5555)));
+
+        assertThat(fingerprint).startsWith("v1-").isEqualTo(other);
+        assertThat(registry.register(new Configuration(Map.of("port", 5556)))).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    void resolvesPersistedConfigurationsAfterRestart() {
+        final String fingerprint = new CodecConfigRegistry(dataDir).register(new Configuration(Map.of("port", 5555)));
+
+        final Configuration configuration = new CodecConfigRegistry(dataDir).get(fingerprint);
+
+        assertThat(configuration).isNotNull();
+        assertThat(configuration.getInt("port")).isEqualTo(5555);
+        assertThat(dataDir.resolve(CodecConfigRegistry.DIRECTORY).resolve(fingerprint + ".json")).exists();
+    }
+
+    @Test
+    void doesNotRegisterEmptyConfigurations() {
+        final CodecConfigRegistry registry = new CodecConfigRegistry(dataDir);
+
+        assertThat(registry.register(Configuration.EMPTY_CONFIGURATION)).isNull();
+        assertThat(registry.register(null)).isNull();
+    }
+
+    @Test
+    void removesConfigurationsNotRegisteredSinceStart() {
+        final String unused = new CodecConfigRegistry(dataDir).register(new Configuration(Map.of("port", 5555)));
+        final CodecConfigRegistry registry = new CodecConfigRegistry(dataDir);
+        final String used = registry.register(new Configuration(Map.of("port", 5556)));
+
+        assertThat(registry.removeUnused()).isEqualTo(1);
+
+        assertThat(registry.get(unused)).isNull();
+        assertThat(registry.get(used)).isNotNull();
+        assertThat(new CodecConfigRegistry(dataDir).get(used)).isNotNull();
+    }
+
+    @Test
+    void returnsNullForUnknownOrInvalidFingerprints() {
+        final CodecConfigRegistry registry = new CodecConfigRegistry(dataDir);
+
+        assertThat(registry.get("v1-0123456789abcdef")).isNull();
+        assertThat(registry.get("../../etc/passwd")).isNull();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+package org.graylog2.shared.utilities;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonPathEvaluatorTest {
+    private static final String JSON = """
+            {
+              "store": {
+                "book": [
+                  {"category": "reference", "author": "Nigel Rees", "price": 8.95, "tags": ["a", "b"]},
+                  {"category": "fiction", "author": "Evelyn Waugh", "price": 12.99, "isbn": "0-553-21311-3"}
+                ],
+                "bicycle": {"color": "red", "price": 19.95, "gears": null}
+              },
+              "numbers": [1, 3000000000, 12345678901234567890123, 0.50, 1.2345678901234567890123, true, false],
+              "empty": {},
+              "weird key": "value"
+            }
+            """;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "$",
+            "$.store",
+            "$.store.book",
+            "$.store.book[0]",
+            "$.store.book[1].author",
+            "$.store.book[0].tags[1]",
+            "$.store.bicycle.gears",
+            "$.store.*",
+            "$.store.book[*].author",
+            "$.store.book[*].isbn",
+            "$.store.*.price",
+            "$.*.book[*].tags[*]",
+            "$.numbers",
+            "$.numbers[*]",
+            "$.numbers[1]",
+            "$.numbers[2]",
+            "$.numbers[3]",
+            "$.numbers[4]",
+            "$.empty.*",
+            "$['weird key']",
+            "$['store']['bicycle']['color']",
+            "$.store.book[*].missing",
+            "$.store.book[*].missing.name",
+            "$.store.book[*][0]",
+            "$.store.book[5][*]",
+            "$.store.*.color",
+            "$.store.bicycle.color[*]",
+            "$.store.bicycle.gears[*]"
+    })
+    void returnsSameResultsAsJsonPath(String path) {
+        final JsonPath jsonPath = JsonPath.compile(path);
+        final JsonPathEvaluator evaluator = JsonPathEvaluator.compile(jsonPath);
+        final Object expected = JsonPath.parse(JSON).read(jsonPath);
+
+        assertThat(evaluator.isStreaming()).isTrue();
+        final Object actual = evaluator.evaluate(JSON.getBytes(StandardCharsets.UTF_8)).read(0);
+        assertThat(actual).isEqualTo(expected);
+        if (actual != null) {
+            assertThat(actual.getClass()).isEqualTo(expected.getClass());
+            assertThat(actual.toString()).isEqualTo(expected.toString());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "$.missing",
+            "$.store.missing",
+            "$.store.book[5]",
+            "$.store.book.author",
+            "$.store.bicycle[0]",
+            "$.store.bicycle.color.name",
+            "$.store.bicycle.gears.count",
+            "$.missing[*]",
+            "$.store.book[0].missing[*]",
+            "$.store.bicycle.color[0][*]",
+            "$.store.bicycle.color.name[*]",
+            "$.store.book.author[*]"
+    })
+    void throwsLikeJsonPathIfPathIsNotFound(String path) {
+        final JsonPath jsonPath = JsonPath.compile(path);
+        final JsonPathEvaluator evaluator = JsonPathEvaluator.compile(jsonPath);
+        final JsonPathEvaluator.Result result = evaluator.evaluate(JSON);
+
+        assertThat(evaluator.isStreaming()).isTrue();
+        assertThatThrownBy(() -> JsonPath.parse(JSON).read(jsonPath)).isInstanceOf(PathNotFoundException.class);
+        assertThatThrownBy(() -> result.read(0)).isInstanceOf(PathNotFoundException.class);
+    }
+
+    @Test
+    void evaluatesAllPathsInOnePass() {
+        final List<JsonPath> paths = List.of(
+                JsonPath.compile("$.store.bicycle"),
+                JsonPath.compile("$.store.bicycle.color"),
+                JsonPath.compile("$.store.book[*].price"),
+                JsonPath.compile("$.missing"),
+                JsonPath.compile("$.store.bicycle.color.name[*]"));
+        final JsonPathEvaluator.Result result = JsonPathEvaluator.compile(paths).evaluate(JSON);
+        final DocumentContext document = JsonPath.parse(JSON);
+
+        assertThat(result.read(0)).isEqualTo(document.read(paths.get(0)));
+        assertThat(result.read(1)).isEqualTo("red");
+        assertThat(result.read(2)).isEqualTo(document.read(paths.get(2)));
+        assertThatThrownBy(() -> result.read(3)).isInstanceOf(PathNotFoundException.class);
+        assertThatThrownBy(() -> result.read(4)).isInstanceOf(PathNotFoundException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "$.store.book[?(@.category == 'fiction')].author",
+            "$..author",
+            "$.store.book[-1]",
+            "$.store.book[0:1]",
+            "$.store.book[0,1]",
+            "$.store.book[0]['author','category']",
+            "$.store.book.length()"
+    })
+    void fallsBackToJsonPathForUnsupportedPaths(String path) {
+        final JsonPath jsonPath = JsonPath.compile(path);
+        final JsonPathEvaluator evaluator = JsonPathEvaluator.compile(JsonPath.compile("$.store"), jsonPath);
+
+        assertThat(evaluator.isStreaming()).isFalse();
+        assertThat(evaluator.evaluate(JSON).read(1)).isEqualTo(JsonPath.parse(JSON).read(jsonPath));
+    }
+
+    @Test
+    void fallsBackToJsonPathForLenientJson() {
+        final JsonPathEvaluator evaluator = JsonPathEvaluator.compile(JsonPath.compile("$.answer"));
+
+        assertThat(evaluator.evaluate("{'answer': 42}".getBytes(StandardCharsets.UTF_8)).read(0)).isEqualTo(42);
+        assertThat(evaluator.evaluate("{\"answer\": 42} trailing").read(0))
+                .isEqualTo(JsonPath.parse("{\"answer\": 42} trailing").read("$.answer"));
+    }
+}
@@ -60,6 +60,10 @@ class DataAdapterForm extends React.Component<
       custom_error_ttl_enabled: false,
       custom_error_ttl: null,
       custom_error_ttl_unit: null,
+      max_concurrent_requests: null,
+      circuit_breaker_failure_threshold: null,
+      circuit_breaker_open_duration: null,
+      circuit_breaker_open_duration_unit: null,
       config: {},
     },
     validate: null,
@@ -125,6 +129,10 @@ class DataAdapterForm extends React.Component<
         custom_error_ttl_enabled: adapter.custom_error_ttl_enabled,
         custom_error_ttl: adapter.custom_error_ttl,
         custom_error_ttl_unit: adapter.custom_error_ttl_unit,
+        max_concurrent_requests: adapter.max_concurrent_requests,
+        circuit_breaker_failure_threshold: adapter.circuit_breaker_failure_threshold,
+        circuit_breaker_open_duration: adapter.circuit_breaker_open_duration,
+        circuit_breaker_open_duration_unit: adapter.circuit_breaker_open_duration_unit,
         config: adapter.config,
       },
     };
@@ -212,6 +220,16 @@ class DataAdapterForm extends React.Component<
     this.setState({ dataAdapter: dataAdapter });
   };
 
+  updateCircuitBreakerOpenDuration = (value, unit) => {
+    const { dataAdapter: dataAdapterState } = this.state;
+    const dataAdapter = ObjectUtils.clone(dataAdapterState);
+
+    dataAdapter.circuit_breaker_open_duration = value || null;
+    dataAdapter.circuit_breaker_open_duration_unit = value ? unit : null;
+    this._validate(dataAdapter);
+    this.setState({ dataAdapter: dataAdapter });
+  };
+
   _save = (event) => {
     if (event) {
       event.preventDefault();
@@ -391,6 +409,44 @@ class DataAdapterForm extends React.Component<
                   labelClassName="col-sm-3"
                   wrapperClassName="col-sm-9"
                 />
+
+                <Input
+                  type="number"
+                  id="max_concurrent_requests"
+                  name="max_concurrent_requests"
+                  label="Max. Concurrent Requests"
+                  min={0}
+                  onChange={this._onChange}
+                  help="Maximum number of concurrent requests to this data adapter. Lookups exceeding it return an uncached error result. Leave empty or set to 0 for no limit."
+                  value={dataAdapter.max_concurrent_requests ?? ''}
+                  labelClassName="col-sm-3"
+                  wrapperClassName="col-sm-9"
+                />
+
+                <Input
+                  type="number"
+                  id="circuit_breaker_failure_threshold"
+                  name="circuit_breaker_failure_threshold"
+                  label="Circuit Breaker Threshold"
+                  min={0}
+                  onChange={this._onChange}
+                  help="Number of consecutive failed requests after which this data adapter is not sent any requests for the circuit breaker duration. Leave empty or set to 0 to disable the circuit breaker."
+                  value={dataAdapter.circuit_breaker_failure_threshold ?? ''}
+                  labelClassName="col-sm-3"
+                  wrapperClassName="col-sm-9"
+                />
+
+                <TimeUnitInput
+                  label="Circuit Breaker Duration"
+                  help="How long no requests are sent to this data adapter once the circuit breaker threshold is reached. Otherwise the default of 30 seconds is used."
+                  update={this.updateCircuitBreakerOpenDuration}
+                  value={dataAdapter.circuit_breaker_open_duration}
+                  unit={dataAdapter.circuit_breaker_open_duration_unit || 'SECONDS'}
+                  units={['MILLISECONDS', 'SECONDS', 'MINUTES', 'HOURS']}
+                  hideCheckbox
+                  labelClassName="col-sm-3"
+                  wrapperClassName="col-sm-9"
+                />
               </fieldset>
               {configFieldSet}
               <fieldset>
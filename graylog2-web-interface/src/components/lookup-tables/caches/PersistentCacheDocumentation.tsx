@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2020 Graylog, Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the Server Side Public License, version 1,
+ * as published by MongoDB, Inc.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * Server Side Public License for more details.
+ *
+ * You should have received a copy of the Server Side Public License
+ * along with this program. If not, see
+ * <http://www.mongodb.com/licensing/server-side-public-license>.
+ */
+import React from 'react';
+
+import { Alert } from 'components/bootstrap';
+
+const PersistentCacheDocumentation = () => (
+  <div>
+    <p>
+      The persistent cache keeps recently used values from data adapters in memory and additionally stores them in a
+      file in the data directory of each Graylog server.
+    </p>
+    <p>
+      Persisted values survive server restarts, which avoids re-fetching every value from slow or rate-limited data
+      adapters after a restart.
+    </p>
+
+    <Alert style={{ marginBottom: 10 }} bsStyle="info" title="Implementation details">
+      <p>The cache is local to each Graylog server, they do not share the entries.</p>
+      <p>
+        The cache file has a fixed size of roughly the maximum number of entries on disk times the maximum entry size.
+        Entries which are larger than the maximum entry size are only kept in memory.
+      </p>
+      <p>Changing the cache configuration starts with an empty cache file, deleting the cache removes its file.</p>
+    </Alert>
+
+    <hr />
+
+    <h3 style={{ marginBottom: 10 }}>Time-based expiration</h3>
+
+    <h5 style={{ marginBottom: 10 }}>Expire after access</h5>
+    <p style={{ marginBottom: 10, padding: 0 }}>
+      The in-memory cache will remove entries after a fixed time since they have been used the last time. This setting
+      does not apply to the entries on disk.
+    </p>
+
+    <h5 style={{ marginBottom: 10 }}>Expire after write</h5>
+    <p style={{ marginBottom: 10, padding: 0 }}>
+      Both the in-memory cache and the file on disk will remove entries after a fixed time since they have been entered
+      into the cache, unless the data adapter returned an explicit TTL for the value.
+    </p>
+  </div>
+);
+
+export default PersistentCacheDocumentation;
@@ -21,6 +21,9 @@ import NullCacheSummary from './NullCacheSummary';
 import CaffeineCacheFieldSet from './CaffeineCacheFieldSet';
 import CaffeineCacheSummary from './CaffeineCacheSummary';
 import CaffeineCacheDocumentation from './CaffeineCacheDocumentation';
+import PersistentCacheFieldSet from './PersistentCacheFieldSet';
+import PersistentCacheSummary from './PersistentCacheSummary';
+import PersistentCacheDocumentation from './PersistentCacheDocumentation';
 
 PluginStore.register(
   new PluginManifest(
@@ -41,6 +44,13 @@ PluginStore.register(
           summaryComponent: CaffeineCacheSummary,
           documentationComponent: CaffeineCacheDocumentation,
         },
+        {
+          type: 'persistent_cache',
+          displayName: 'Node-local, in-memory cache with on-disk persistence',
+          formComponent: PersistentCacheFieldSet,
+          summaryComponent: PersistentCacheSummary,
+          documentationComponent: PersistentCacheDocumentation,
+        },
       ],
     },
   ),
@@ -49,6 +49,8 @@ export type LookupTableCacheConfig = {
   ignore_null?: boolean;
   ttl_empty?: number;
   ttl_empty_unit?: 'NANOSECONDS' | 'MICROSECONDS' | 'MILLISECONDS' | 'SECONDS' | 'MINUTES' | 'HOURS' | 'DAYS' | null;
+  disk_max_size?: number;
+  disk_max_entry_size?: number;
 };
 
 export type LookupTableCache = GenericEntityType & {
@@ -81,6 +83,10 @@ export type LookupTableAdapter = GenericEntityType & {
     | 'DAYS'
     | null;
   custom_error_ttl_enabled?: boolean;
+  max_concurrent_requests?: number | null;
+  circuit_breaker_failure_threshold?: number | null;
+  circuit_breaker_open_duration?: number | null;
+  circuit_breaker_open_duration_unit?: 'MILLISECONDS' | 'SECONDS' | 'MINUTES' | 'HOURS' | null;
 };
 
 export type LookupTable = GenericEntityType & {